@@ -0,0 +1,33 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * In-process cache of products and categories looked up by id, SKU or slug.
+ * Sizes are estimated heap use of the cached entries; the SKU and slug indexes get an eighth of their entity cache on top.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "catalog.cache")
+public class CatalogCacheConfig {
+
+    private DataSize productMaxSize = DataSize.ofMegabytes(64);
+    private DataSize categoryMaxSize = DataSize.ofMegabytes(4);
+
+    public DataSize getProductMaxSize() {
+        return productMaxSize;
+    }
+
+    public void setProductMaxSize(DataSize productMaxSize) {
+        this.productMaxSize = productMaxSize;
+    }
+
+    public DataSize getCategoryMaxSize() {
+        return categoryMaxSize;
+    }
+
+    public void setCategoryMaxSize(DataSize categoryMaxSize) {
+        this.categoryMaxSize = categoryMaxSize;
+    }
+}
@@ -0,0 +1,47 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Faceted product filtering: the bands prices and weights are grouped into, given as ascending upper
+ * bounds (10, 25 makes "0-10", "10-25" and "25+").
+ */
+@Configuration
+@ConfigurationProperties(prefix = "catalog.facets")
+public class CatalogFacetConfig {
+
+    private List<BigDecimal> priceBands = new ArrayList<>(List.of(
+        new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("250")));
+    private List<BigDecimal> weightClasses = new ArrayList<>(List.of(   // kg
+        new BigDecimal("0.5"), new BigDecimal("2"), new BigDecimal("5"), new BigDecimal("20")));
+    private int fetchSize = 1000;                                       // rows per round trip of the startup scan
+
+    public List<BigDecimal> getPriceBands() {
+        return priceBands;
+    }
+
+    public void setPriceBands(List<BigDecimal> priceBands) {
+        this.priceBands = priceBands;
+    }
+
+    public List<BigDecimal> getWeightClasses() {
+        return weightClasses;
+    }
+
+    public void setWeightClasses(List<BigDecimal> weightClasses) {
+        this.weightClasses = weightClasses;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -0,0 +1,125 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Behaviour of the local stub payment gateway (profile gateway-stub), per provider.
+ * Providers without an entry use the defaults below.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "gateway-stub")
+public class GatewayStubConfig {
+
+    private int port = 8089;                 // 0 picks a free port
+    private Long seed;                       // fixed seed makes a run repeatable
+    private Map<String, Provider> providers = new LinkedHashMap<>();
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public Map<String, Provider> getProviders() {
+        return providers;
+    }
+
+    public void setProviders(Map<String, Provider> providers) {
+        this.providers = providers;
+    }
+
+    public Provider getProvider(String name) {
+        return providers.getOrDefault(name, new Provider());
+    }
+
+    public static class Provider {
+
+        // latencies are log-normal: half the calls are faster than the median, 1% slower than p99
+        private double medianLatencyMs = 100;
+        private double p99LatencyMs = 400;
+        private double failureRate = 0.0;    // share of calls answered with 503
+        private double throttleRate = 0.0;   // share of calls answered with 429
+        private double timeoutRate = 0.0;    // share of calls that hang for hangMs, then 504
+        private long hangMs = 10000;
+        private int maxConcurrentRequests = 0; // above this calls get 429, 0 = unlimited
+        private int retryAfterSeconds = 1;
+
+        public double getMedianLatencyMs() {
+            return medianLatencyMs;
+        }
+
+        public void setMedianLatencyMs(double medianLatencyMs) {
+            this.medianLatencyMs = medianLatencyMs;
+        }
+
+        public double getP99LatencyMs() {
+            return p99LatencyMs;
+        }
+
+        public void setP99LatencyMs(double p99LatencyMs) {
+            this.p99LatencyMs = p99LatencyMs;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        public void setFailureRate(double failureRate) {
+            this.failureRate = failureRate;
+        }
+
+        public double getThrottleRate() {
+            return throttleRate;
+        }
+
+        public void setThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+        }
+
+        public double getTimeoutRate() {
+            return timeoutRate;
+        }
+
+        public void setTimeoutRate(double timeoutRate) {
+            this.timeoutRate = timeoutRate;
+        }
+
+        public long getHangMs() {
+            return hangMs;
+        }
+
+        public void setHangMs(long hangMs) {
+            this.hangMs = hangMs;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
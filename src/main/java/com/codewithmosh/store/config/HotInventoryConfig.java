@@ -0,0 +1,51 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hot-item mode for flash sales: stock of the listed products is held in memory in striped counters
+ * and written back to the products table in the background.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "inventory.hot")
+public class HotInventoryConfig {
+
+    private List<Long> productIds = new ArrayList<>();  // products switched to hot mode at startup
+    private int stripes = 0;                            // counters per product; 0 = twice the CPU count
+    private long flushIntervalMs = 500;                 // how far the products table may lag behind
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Long> productIds) {
+        this.productIds = productIds;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * Stripes to use, resolving 0 to twice the available processors
+     */
+    public int resolveStripes() {
+        return stripes > 0 ? stripes : 2 * Runtime.getRuntime().availableProcessors();
+    }
+}
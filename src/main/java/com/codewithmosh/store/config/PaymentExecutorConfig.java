@@ -0,0 +1,25 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor for payment gateway calls.
+ *
+ * Gateway calls spend almost all of their time waiting on the network, so each one runs on its own
+ * virtual thread. A blocked virtual thread only parks itself, leaving Tomcat's platform threads free
+ * to accept more requests.
+ */
+@Configuration
+public class PaymentExecutorConfig {
+
+    @Bean(name = "paymentExecutor", destroyMethod = "close")
+    public ExecutorService paymentExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-", 0).factory()
+        );
+    }
+}
@@ -0,0 +1,77 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hedging of idempotent gateway calls (status checks): when the first call is slower than most
+ * recent ones, a second identical call is sent and whichever answers first is used.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "payment.hedging")
+public class PaymentHedgingConfig {
+
+    private boolean enabled = false;
+    private double percentile = 95.0;     // hedge once a call is slower than this share of recent calls
+    private long minDelayMs = 10;         // never hedge sooner than this
+    private double budgetPercent = 5.0;   // hedges allowed as a percent of calls
+    private int maxBurst = 10;            // hedges that may be spent at once after a quiet period
+    private int windowSize = 512;         // recent latencies the percentile is taken over
+    private int minSamples = 20;          // no hedging until this many latencies were seen
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getMinDelayMs() {
+        return minDelayMs;
+    }
+
+    public void setMinDelayMs(long minDelayMs) {
+        this.minDelayMs = minDelayMs;
+    }
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    public void setMaxBurst(int maxBurst) {
+        this.maxBurst = maxBurst;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+}
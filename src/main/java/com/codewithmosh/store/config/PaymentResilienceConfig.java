@@ -0,0 +1,77 @@
+package com.codewithmosh.store.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bulkhead and circuit breaker settings shared by every payment processor.
+ * The call timeout itself comes from each gateway's own config (stripe.timeout, paypal.timeout, ...).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "payment.resilience")
+public class PaymentResilienceConfig {
+
+    private int maxConcurrentCalls = 50;           // bulkhead size per processor
+    private long maxWaitMs = 50;                   // how long a call may wait for a bulkhead slot
+    private int slidingWindowSize = 20;            // calls per failure-rate window
+    private int minimumCalls = 10;                 // calls needed before the failure rate is judged
+    private double failureRateThreshold = 50.0;    // percent of failed calls that opens the circuit
+    private long openStateDurationMs = 30000;      // how long an open circuit rejects calls
+    private int halfOpenPermittedCalls = 3;        // probe calls allowed while half-open
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getOpenStateDurationMs() {
+        return openStateDurationMs;
+    }
+
+    public void setOpenStateDurationMs(long openStateDurationMs) {
+        this.openStateDurationMs = openStateDurationMs;
+    }
+
+    public int getHalfOpenPermittedCalls() {
+        return halfOpenPermittedCalls;
+    }
+
+    public void setHalfOpenPermittedCalls(int halfOpenPermittedCalls) {
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+    }
+}
@@ -14,6 +14,8 @@ public class StripeConfig {
     private String apiUrl;
     private int timeout = 3000; // default value
     private List<String> supportedCurrencies =  new ArrayList<>();
+    private double feePercentage = 2.9; // Stripe's standard card fee
+    private double fixedFee = 0.30; // Stripe's fixed fee per charge
 
     public boolean isEnabled() {
         return enabled;
@@ -46,4 +48,20 @@ public class StripeConfig {
     public void setSupportedCurrencies(List<String> supportedCurrencies) {
         this.supportedCurrencies = supportedCurrencies;
     }
+
+    public double getFeePercentage() {
+        return feePercentage;
+    }
+
+    public void setFeePercentage(double feePercentage) {
+        this.feePercentage = feePercentage;
+    }
+
+    public double getFixedFee() {
+        return fixedFee;
+    }
+
+    public void setFixedFee(double fixedFee) {
+        this.fixedFee = fixedFee;
+    }
 }
\ No newline at end of file
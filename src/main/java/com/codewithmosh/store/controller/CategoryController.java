@@ -0,0 +1,74 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.dto.category.CategoryResponseDto;
+import com.codewithmosh.store.dto.category.CategoryTreeNodeDto;
+import com.codewithmosh.store.dto.common.ApiResponse;
+import com.codewithmosh.store.service.product.CategoryTreeService;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Category Controller - category lookups and the navigation tree
+ */
+@RestController
+@RequestMapping("/api/v1/categories")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Categories", description = "Product categories")
+public class CategoryController {
+
+    private final ProductCatalogService productCatalogService;
+    private final CategoryTreeService categoryTreeService;
+
+    /**
+     * The whole category tree (or the part below rootId) from memory; rebuilt with one query after a
+     * category changes. For the products of a subtree use GET /api/v1/products?categoryId=..&includeSubcategories=true
+     */
+    @Operation(
+        summary = "Category tree",
+        description = "Nested categories in display order with depth, root-to-node path and descendant count; inactive categories and their subtrees are left out unless includeInactive=true"
+    )
+    @GetMapping("/tree")
+    public ResponseEntity<ApiResponse<List<CategoryTreeNodeDto>>> getTree(
+            @RequestParam(required = false) Long rootId,
+            @RequestParam(defaultValue = "false") boolean includeInactive) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Category tree retrieved",
+                categoryTreeService.getNavigation(rootId, includeInactive)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Get a category", description = "Category with its parent, served from the catalog cache")
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<CategoryResponseDto>> getCategory(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Category retrieved", productCatalogService.getCategory(id)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Get a category by slug", description = "Category with its parent, served from the catalog cache")
+    @GetMapping("/slug/{slug}")
+    public ResponseEntity<ApiResponse<CategoryResponseDto>> getCategoryBySlug(@PathVariable String slug) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Category retrieved", productCatalogService.getCategoryBySlug(slug)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
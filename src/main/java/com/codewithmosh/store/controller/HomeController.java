@@ -107,6 +107,8 @@ public class HomeController {
         description = "Demo endpoint to test order service integration. For development/testing only."
     )
     @PostMapping("/demo/order")
+    // the demo only charges an amount on purpose; a real order needs items and goes through /orders
+    @SuppressWarnings("deprecation")
     public ResponseEntity<ApiResponse<String>> demoOrderPlacement(
             @Parameter(description = "Order amount for demo", example = "299.99")
             @RequestParam(defaultValue = "100.0") Double amount) {
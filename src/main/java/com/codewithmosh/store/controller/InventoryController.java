@@ -0,0 +1,60 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.dto.common.ApiResponse;
+import com.codewithmosh.store.service.inventory.HotInventory;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Inventory Controller - switches products in and out of hot-item mode
+ */
+@RestController
+@RequestMapping("/api/v1/inventory")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Inventory", description = "Hot-item stock management")
+public class InventoryController {
+
+    private final HotInventory hotInventory;
+
+    @Operation(summary = "Hot inventory statistics",
+        description = "Stock in memory, unflushed decrements and rebalances per hot product")
+    @GetMapping("/hot")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getHotStatistics() {
+        return ResponseEntity.ok(ApiResponse.success("Hot inventory statistics", hotInventory.getStatistics()));
+    }
+
+    @Operation(summary = "Switch a product to hot mode",
+        description = "Loads its stock into memory; do this before the sale starts")
+    @PostMapping("/hot/{productId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> enable(@PathVariable Long productId) {
+        try {
+            hotInventory.enable(productId);
+            log.info("Product {} switched to hot mode", productId);
+            return ResponseEntity.ok(ApiResponse.success("Product " + productId + " is hot",
+                Map.of("productId", productId, "available", hotInventory.available(productId))));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Switch a product back to table reservations",
+        description = "Writes pending decrements first")
+    @DeleteMapping("/hot/{productId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> disable(@PathVariable Long productId) {
+        if (!hotInventory.disable(productId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error("Product " + productId + " is not hot"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Product " + productId + " is back on the table",
+            Map.of("productId", productId)));
+    }
+}
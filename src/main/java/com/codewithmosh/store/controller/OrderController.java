@@ -0,0 +1,225 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.dto.common.ApiResponse;
+import com.codewithmosh.store.dto.order.BulkStatusUpdateRequestDto;
+import com.codewithmosh.store.dto.order.BulkStatusUpdateResultDto;
+import com.codewithmosh.store.dto.order.OrderRequestDto;
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.service.order.OrderExportService;
+import com.codewithmosh.store.service.order.OrderLifecycleService;
+import com.codewithmosh.store.service.order.OrderService;
+import com.codewithmosh.store.service.order.importer.OrderImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Order Controller - checkout and order management endpoints
+ */
+@RestController
+@RequestMapping("/api/v1/orders")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Orders", description = "Checkout and order management")
+public class OrderController {
+
+    private final OrderService orderService;
+    private final OrderLifecycleService orderLifecycleService;
+    private final OrderExportService orderExportService;
+    private final OrderImportService orderImportService;
+
+    /**
+     * Place an order. Items are priced from the product table; unitPrice and totalAmount in the
+     * request are optional and only used to detect prices that changed since the client showed them.
+     */
+    @Operation(
+        summary = "Place an order",
+        description = "Prices all items server-side and stores the order with its items in one transaction"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Order placed"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Unknown user or product, or invalid item"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "A price changed since the client displayed it, or an item is out of stock")
+    })
+    @PostMapping
+    public ResponseEntity<ApiResponse<OrderResponseDto>> placeOrder(
+            @Valid @RequestBody OrderRequestDto orderRequest,
+            HttpServletRequest request) {
+
+        try {
+            log.info("Order requested by user {} with {} items",
+                orderRequest.getUserId(), orderRequest.getOrderItems().size());
+
+            OrderResponseDto order = orderService.placeOrder(orderRequest);
+
+            ApiResponse<OrderResponseDto> response = ApiResponse.success("Order placed successfully", order);
+            response.setPath(request.getRequestURI());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid order request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error("Order rejected: " + e.getMessage()));
+
+        } catch (IllegalStateException e) {
+            log.info("Order conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Order rejected: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Every order placed in a date range with its items and payments, streamed as it is read
+     */
+    @Operation(
+        summary = "Export orders",
+        description = "Streams orders placed from 'from' (inclusive) to 'to' (exclusive, default the day after) as csv or ndjson"
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDate until = to != null ? to : from.plusDays(1);
+        if (!from.isBefore(until)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        log.info("Exporting orders from {} to {} as {}", from, until, exportFormat);
+        StreamingResponseBody body = out ->
+            orderExportService.export(from.atStartOfDay(), until.atStartOfDay(), exportFormat, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders-" + from + "-to-" + until
+                + "." + exportFormat.getExtension() + "\"")
+            .body(body);
+    }
+
+    /**
+     * Import historical orders from the request body, read as it arrives. Sending the same file again
+     * with the same importId resumes after the last chunk that was written.
+     */
+    @Operation(
+        summary = "Import orders",
+        description = "Bulk insert of orders from csv or ndjson (the export formats); invalid orders are rejected and listed, the rest are written in checkpointed chunks"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Import ran; see the report for failed chunks and rejected orders"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid import id or format, or a malformed file"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "The import id was used with a different chunk size")
+    })
+    @PostMapping(value = "/import", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<ApiResponse<OrderImportService.ImportReport>> importOrders(
+            @RequestParam String importId,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) throws IOException {
+
+        try {
+            OrderExportService.Format importFormat = OrderExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            OrderImportService.ImportReport report =
+                orderImportService.importOrders(importId, request.getInputStream(), importFormat);
+            String message = report.failedChunks() == 0
+                ? "Orders imported"
+                : report.failedChunks() + " chunks failed; send the file again with the same importId to retry them";
+            return ResponseEntity.ok(ApiResponse.success(message, report));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Order import {} rejected: {}", importId, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("Import failed: " + e.getMessage()));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * One order with its items and payments
+     */
+    @Operation(summary = "Get an order", description = "Order with user, items, products and payments")
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<OrderResponseDto>> getOrder(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Order retrieved", orderService.getOrder(id)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Several orders with their items and payments, e.g. the ids of an order history page
+     */
+    @Operation(summary = "Get orders by id",
+        description = "Up to 100 orders in two queries; unknown ids are left out")
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<OrderResponseDto>>> getOrders(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Orders retrieved", orderService.getOrders(ids)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Mark many orders SHIPPED or DELIVERED, e.g. from a fulfilment import. Orders whose status does
+     * not allow the move are reported back, not failed.
+     */
+    @Operation(
+        summary = "Bulk status update",
+        description = "Applies SHIPPED or DELIVERED to up to 10000 orders with set-based updates; reports unchanged, rejected and unknown ids"
+    )
+    @PostMapping("/status")
+    public ResponseEntity<ApiResponse<BulkStatusUpdateResultDto>> updateStatuses(
+            @Valid @RequestBody BulkStatusUpdateRequestDto request) {
+        try {
+            BulkStatusUpdateResultDto result = orderLifecycleService.transition(
+                request.getStatus(), request.getOrderIds(), request.getOccurredAt());
+            return ResponseEntity.ok(ApiResponse.success("Statuses updated", result));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Cancel an order that has not shipped and return its items to stock
+     */
+    @Operation(summary = "Cancel an order", description = "Only orders that have not shipped can be cancelled")
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<ApiResponse<OrderResponseDto>> cancelOrder(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Order cancelled", orderService.cancelOrder(id)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -1,133 +1,356 @@
 package com.codewithmosh.store.controller;
 
+import com.codewithmosh.store.dto.payment.BatchPaymentItemDto;
+import com.codewithmosh.store.dto.payment.BatchPaymentResultDto;
 import com.codewithmosh.store.service.payment.PaymentFacade;
+import com.codewithmosh.store.service.payment.batch.PaymentBatchProcessor;
+import com.codewithmosh.store.service.payment.idempotency.IdempotencyStore;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/payment")
 @Tag(name = "Payment", description = "Payment processing and management API")
 public class PaymentController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final PaymentFacade paymentFacade;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentBatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
+
+    @Value("${payment.batch.timeout-ms:300000}")
+    private long batchTimeoutMs;
 
     @Autowired
-    public PaymentController(PaymentFacade paymentFacade) {
+    public PaymentController(PaymentFacade paymentFacade, IdempotencyStore idempotencyStore,
+                             PaymentBatchProcessor batchProcessor, ObjectMapper objectMapper) {
         this.paymentFacade = paymentFacade;
+        this.idempotencyStore = idempotencyStore;
+        this.batchProcessor = batchProcessor;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Process a payment using request parameters (NOT path variables!)
      * POST /payment/process?amount=100.00&method=paypal
+     *
+     * Clients may send an Idempotency-Key header; retries with the same key get the first
+     * result back instead of charging again.
      */
     @Operation(summary = "Process Payment", 
                description = "Process a payment with specified amount and optional payment method")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payment processed successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid payment parameters")
+        @ApiResponse(responseCode = "400", description = "Invalid payment parameters"),
+        @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different payment")
     })
     @PostMapping("/process")
     public ResponseEntity<Map<String, Object>> processPayment(
+            @Parameter(description = "Payment amount", required = true, example = "100.00")
+            @RequestParam double amount,
+            @Parameter(description = "Payment method (optional, \"auto\" picks the cheapest healthy processor)", example = "paypal")
+            @RequestParam(required = false) String method,
+            @Parameter(description = "Key that makes client retries safe (optional)")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, amount, method, () -> processNow(amount, method)).join();
+    }
+
+    /**
+     * Process payment with JSON request body
+     * POST /payment/process
+     * Body: {"amount": 100.00, "method": "paypal"}
+     */
+    @PostMapping("/process-json")
+    public ResponseEntity<Map<String, Object>> processPaymentJson(
+            @RequestBody PaymentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, request.getAmount(), request.getMethod(),
+            () -> processNow(request.getAmount(), request.getMethod())).join();
+    }
+
+    /**
+     * Asynchronous variant of /process - the gateway call runs on a virtual thread and the
+     * Tomcat request thread is released until the result is ready
+     * POST /payment/process-async?amount=100.00&method=paypal
+     */
+    @Operation(summary = "Process Payment (async)",
+               description = "Same as /process, but the servlet thread is not held while the gateway responds")
+    @PostMapping("/process-async")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> processPaymentAsync(
             @Parameter(description = "Payment amount", required = true, example = "100.00")
             @RequestParam double amount,
             @Parameter(description = "Payment method (optional)", example = "paypal")
-            @RequestParam(required = false) String method) {
-        
-        Map<String, Object> response = new HashMap<>();
-        String originalMethod = paymentFacade.getCurrentPaymentMethod();
-        
+            @RequestParam(required = false) String method,
+            @Parameter(description = "Key that makes client retries safe (optional)")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return toDeferredResult(idempotent(idempotencyKey, amount, method, () -> processLater(amount, method)));
+    }
+
+    /**
+     * Asynchronous variant of /process-json
+     * POST /payment/process-json-async
+     * Body: {"amount": 100.00, "method": "paypal"}
+     */
+    @PostMapping("/process-json-async")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> processPaymentJsonAsync(
+            @RequestBody PaymentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return toDeferredResult(idempotent(idempotencyKey, request.getAmount(), request.getMethod(),
+            () -> processLater(request.getAmount(), request.getMethod())));
+    }
+
+    /**
+     * Process many payments in one request, e.g. marketplace payouts or subscription renewals
+     * POST /payment/batch
+     * Body: [{"amount": 10.00, "method": "stripe", "reference": "payout-1"}, ...]
+     *
+     * Items run in parallel and each result is streamed back as one NDJSON line as soon as it is
+     * done (so lines arrive in completion order - use "index" or "reference" to match them up),
+     * followed by a summary line. The Idempotency-Key covers the whole batch: a retry with the same
+     * key and items gets the first run's results instead of paying everything again.
+     */
+    @Operation(summary = "Process Payment Batch",
+               description = "Process a list of payments in parallel, streaming one NDJSON line per payment")
+    @PostMapping(value = "/batch", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> processBatch(
+            @RequestBody List<BatchPaymentItemDto> items,
+            @Parameter(description = "Key that makes retrying the whole batch safe (optional)")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMs);
+
+        // set when this request runs the batch itself; a replay has to send the stored lines instead
+        AtomicBoolean streamedLive = new AtomicBoolean();
+        Supplier<CompletableFuture<List<BatchPaymentResultDto>>> batch = () -> {
+            streamedLive.set(true);
+            return batchProcessor.process(items, result -> sendLine(emitter, result));
+        };
+
+        CompletableFuture<List<BatchPaymentResultDto>> results;
         try {
-            // If method is specified, temporarily switch to it
-            if (method != null && !method.trim().isEmpty()) {
-                paymentFacade.setPaymentMethod(method);
-            }
-            
-            String currentMethod = paymentFacade.getCurrentPaymentMethod();
-            paymentFacade.processPayment(amount);
-            
-            response.put("success", true);
-            response.put("message", "Payment of $" + amount + " processed successfully");
-            response.put("paymentMethod", currentMethod);
-            response.put("amount", amount);
-            
-            // Restore original method if we temporarily switched
-            if (method != null && !method.trim().isEmpty()) {
-                paymentFacade.setPaymentMethod(originalMethod);
-            }
-            
-            return ResponseEntity.ok(response);
-            
+            results = idempotencyKey == null || idempotencyKey.isBlank()
+                ? batch.get()
+                : idempotencyStore.execute(idempotencyKey.trim(), batchFingerprint(items), batch);
+        } catch (IllegalStateException e) {
+            // key already used for a different batch
+            return batchRejected(emitter, HttpStatus.CONFLICT, e);
         } catch (Exception e) {
-            // Restore original method in case of error
-            if (method != null && !method.trim().isEmpty()) {
-                try {
-                    paymentFacade.setPaymentMethod(originalMethod);
-                } catch (Exception restoreException) {
-                    // Log but don't override main error
+            return batchRejected(emitter, HttpStatus.BAD_REQUEST, e);
+        }
+        if (results.isCompletedExceptionally()) {
+            // rejected before any payment started (empty or oversized batch)
+            return batchRejected(emitter, HttpStatus.BAD_REQUEST, results.handle((ignored, error) -> error).join());
+        }
+
+        results.whenComplete((all, error) -> {
+            if (error != null) {
+                sendLine(emitter, batchFailed(error));
+            } else {
+                if (!streamedLive.get()) {
+                    all.forEach(result -> sendLine(emitter, result));
                 }
+                sendLine(emitter, batchSummary(all));
             }
-            
-            response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("availableMethods", paymentFacade.getAvailablePaymentMethods());
-            return ResponseEntity.badRequest().body(response);
+            emitter.complete();
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> batchRejected(ResponseBodyEmitter emitter, HttpStatus status,
+                                                              Throwable error) {
+        sendLine(emitter, batchFailed(error));
+        emitter.complete();
+        return ResponseEntity.status(status).contentType(NDJSON).body(emitter);
+    }
+
+    private Map<String, Object> batchFailed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error;
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("success", false);
+        line.put("error", cause.getMessage());
+        return line;
+    }
+
+    private Map<String, Object> batchSummary(List<BatchPaymentResultDto> results) {
+        long succeeded = results.stream().filter(BatchPaymentResultDto::isSuccess).count();
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("summary", true);
+        line.put("total", results.size());
+        line.put("succeeded", succeeded);
+        line.put("failed", results.size() - succeeded);
+        return line;
+    }
+
+    /**
+     * Write one NDJSON line; called from payment threads as items complete
+     */
+    private void sendLine(ResponseBodyEmitter emitter, Object line) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(line) + "\n", MediaType.TEXT_PLAIN);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize batch result", e);
+        } catch (IOException | IllegalStateException e) {
+            // client disconnected or the emitter already completed; the batch keeps running
         }
     }
 
     /**
-     * Process payment with JSON request body
-     * POST /payment/process
-     * Body: {"amount": 100.00, "method": "paypal"}
+     * Digest of all items, so a key reused for a different batch is rejected
      */
-    @PostMapping("/process-json")
-    public ResponseEntity<Map<String, Object>> processPaymentJson(@RequestBody PaymentRequest request) {
-        Map<String, Object> response = new HashMap<>();
-        String originalMethod = paymentFacade.getCurrentPaymentMethod();
-        
+    private String batchFingerprint(List<BatchPaymentItemDto> items) {
         try {
-            // If method is specified, temporarily switch to it
-            if (request.getMethod() != null && !request.getMethod().trim().isEmpty()) {
-                paymentFacade.setPaymentMethod(request.getMethod());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (BatchPaymentItemDto item : items) {
+                String line = item == null ? "null\n" : item.getAmount() + "|"
+                    + (item.getMethod() == null ? "" : item.getMethod().trim().toLowerCase()) + "|"
+                    + item.getReference() + "\n";
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
             }
-            
-            String currentMethod = paymentFacade.getCurrentPaymentMethod();
-            paymentFacade.processPayment(request.getAmount());
-            
-            response.put("success", true);
-            response.put("message", "Payment of $" + request.getAmount() + " processed successfully");
-            response.put("paymentMethod", currentMethod);
-            response.put("amount", request.getAmount());
-            
-            // Restore original method if we temporarily switched
-            if (request.getMethod() != null && !request.getMethod().trim().isEmpty()) {
-                paymentFacade.setPaymentMethod(originalMethod);
+            return "batch|" + items.size() + "|" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Run the payment once per Idempotency-Key. Concurrent duplicates wait for the in-flight
+     * result; requests without a key are processed as before.
+     *
+     * The store only sees the payment's own future, which fails when the payment does, so a failed
+     * attempt is forgotten and a retry with the same key is charged again. The result becomes a
+     * response only after it has left the store.
+     */
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> idempotent(
+            String idempotencyKey, double amount, String method,
+            Supplier<CompletableFuture<PaymentResult>> payment) {
+        CompletableFuture<PaymentResult> result;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            result = payment.get();
+        } else {
+            try {
+                String fingerprint = amount + "|" + (method == null ? "" : method.trim().toLowerCase());
+                result = idempotencyStore.execute(idempotencyKey.trim(), fingerprint, payment);
+            } catch (IllegalStateException e) {
+                return CompletableFuture.completedFuture(keyConflict(e));
             }
-            
+        }
+        return result.handle((processed, error) -> error != null
+            ? paymentFailed(error)
+            : paymentProcessed(processed));
+    }
+
+    private CompletableFuture<PaymentResult> processNow(double amount, String method) {
+        try {
+            // The method travels with the call - the shared default is never touched
+            return CompletableFuture.completedFuture(paymentFacade.processPayment(amount, method));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<PaymentResult> processLater(double amount, String method) {
+        try {
+            return paymentFacade.processPaymentAsync(amount, method);
+        } catch (Exception e) {
+            // invalid amount or method - rejected before anything was submitted
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private DeferredResult<ResponseEntity<Map<String, Object>>> toDeferredResult(
+            CompletableFuture<ResponseEntity<Map<String, Object>>> future) {
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>();
+        future.whenComplete((response, error) ->
+            result.setResult(error != null ? paymentFailed(error) : response));
+        return result;
+    }
+
+    private ResponseEntity<Map<String, Object>> paymentProcessed(PaymentResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Payment of $" + result.getAmount() + " processed successfully");
+        response.put("paymentMethod", result.getPaymentMethod());
+        response.put("amount", result.getAmount());
+        response.put("transactionId", result.getTransactionId());
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> paymentFailed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", cause.getMessage());
+        response.put("availableMethods", paymentFacade.getAvailablePaymentMethods());
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * 409 for an Idempotency-Key already used with a different amount or method
+     */
+    private ResponseEntity<Map<String, Object>> keyConflict(IllegalStateException error) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", error.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Look up the current status of a payment at its processor
+     * GET /payment/status?method=stripe&transactionId=ch_123
+     */
+    @Operation(summary = "Payment Status",
+               description = "Ask the processor for the status of a payment (hedged when payment.hedging.enabled)")
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getPaymentStatus(@RequestParam String method,
+                                                                @RequestParam String transactionId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            response.put("success", true);
+            response.put("paymentMethod", method);
+            response.put("transactionId", transactionId);
+            response.put("status", paymentFacade.checkPaymentStatus(method, transactionId));
             return ResponseEntity.ok(response);
-            
+
         } catch (Exception e) {
-            // Restore original method in case of error
-            if (request.getMethod() != null && !request.getMethod().trim().isEmpty()) {
-                try {
-                    paymentFacade.setPaymentMethod(originalMethod);
-                } catch (Exception restoreException) {
-                    // Log but don't override main error
-                }
-            }
-            
-            response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("availableMethods", paymentFacade.getAvailablePaymentMethods());
-            return ResponseEntity.badRequest().body(response);
+            return paymentFailed(e);
         }
     }
 
@@ -164,6 +387,9 @@ public class PaymentController {
         
         response.put("currentMethod", paymentFacade.getCurrentPaymentMethod());
         response.put("availableMethods", paymentFacade.getAvailablePaymentMethods());
+        response.put("methodStates", paymentFacade.getPaymentMethodStates());
+        response.put("routing", paymentFacade.getRoutingStatistics());
+        response.put("hedging", paymentFacade.getHedgingStatistics());
         return ResponseEntity.ok(response);
     }
 
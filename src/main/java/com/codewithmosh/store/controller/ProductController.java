@@ -0,0 +1,178 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.dto.common.ApiResponse;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.product.ProductFacetResultDto;
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import com.codewithmosh.store.dto.product.ProductSearchResultDto;
+import com.codewithmosh.store.dto.product.ProductSummaryDto;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import com.codewithmosh.store.service.product.ProductSort;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndexer;
+import com.codewithmosh.store.service.product.facet.ProductFacetService;
+import com.codewithmosh.store.service.product.search.ProductSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Product Controller - catalog listings
+ */
+@RestController
+@RequestMapping("/api/v1/products")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Products", description = "Product catalog")
+public class ProductController {
+
+    private final ProductCatalogService productCatalogService;
+    private final CatalogCache catalogCache;
+    private final ProductSearchService productSearchService;
+    private final ProductFacetService productFacetService;
+    private final ProductFacetIndexer productFacetIndexer;
+
+    /**
+     * Products of the catalog, one page at a time. Pass the nextCursor of a page (with the same
+     * filters and sort) to get the following one.
+     */
+    @Operation(
+        summary = "List products",
+        description = "Keyset-paginated by newest, price_asc, price_desc or name; includeSubcategories=true lists a whole category subtree; count=estimated (default) gives a cached total, exact counts every time, none skips it"
+    )
+    @GetMapping
+    public ResponseEntity<ApiResponse<PagedResponse<ProductSummaryDto>>> listProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories,
+            @RequestParam(defaultValue = "true") boolean active,
+            @RequestParam(required = false) Boolean featured,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "estimated") String count) {
+
+        try {
+            ProductCatalogService.CountMode countMode;
+            try {
+                countMode = ProductCatalogService.CountMode.valueOf(count.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown count mode: " + count + " (use none, estimated or exact)");
+            }
+            PagedResponse<ProductSummaryDto> page = productCatalogService.listProducts(
+                categoryId, includeSubcategories, active, featured, ProductSort.from(sort), cursor, size, countMode);
+            return ResponseEntity.ok(ApiResponse.success("Products retrieved", page));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Full-text search over name, SKU, category name and description, ranked in memory
+     */
+    @Operation(
+        summary = "Search products",
+        description = "Active products containing every word of q (the last one also as a prefix while typing), best BM25 match first"
+    )
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<ProductSearchResultDto>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Search results", productSearchService.search(q, limit)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Products and terms in the search index, and whether the startup build has finished
+     */
+    @Operation(summary = "Search index statistics")
+    @GetMapping("/search/index")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSearchIndexStatistics() {
+        return ResponseEntity.ok(ApiResponse.success("Search index statistics", productSearchService.getStatistics()));
+    }
+
+    /**
+     * Storefront filtering with facet counts, answered from in-memory bitmaps
+     */
+    @Operation(
+        summary = "Filter products by facets",
+        description = "Active products in a category subtree, any of the given price bands and weight classes, and in stock / featured if given; with the product count of every facet value. Repeat price and weight for several values"
+    )
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<ProductFacetResultDto>> filterProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Boolean featured,
+            @RequestParam(required = false) List<String> weight,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            ProductFacetResultDto result =
+                productFacetService.filter(categoryId, price, inStock, featured, weight, page, size);
+            return ResponseEntity.ok(ApiResponse.success("Products retrieved", result));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Products and bitmaps in the facet index, and whether the startup build has finished
+     */
+    @Operation(summary = "Facet index statistics")
+    @GetMapping("/facets/index")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFacetIndexStatistics() {
+        return ResponseEntity.ok(ApiResponse.success("Facet index statistics", productFacetIndexer.getStatistics()));
+    }
+
+    @Operation(summary = "Get a product", description = "Product with its category, served from the catalog cache")
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<ProductResponseDto>> getProduct(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Product retrieved", productCatalogService.getProduct(id)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Get a product by SKU", description = "Product with its category, served from the catalog cache")
+    @GetMapping("/sku/{sku}")
+    public ResponseEntity<ApiResponse<ProductResponseDto>> getProductBySku(@PathVariable String sku) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Product retrieved", productCatalogService.getProductBySku(sku)));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Entries, hit ratio, evictions and load time of the product and category caches
+     */
+    @Operation(summary = "Catalog cache statistics")
+    @GetMapping("/cache")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getCacheStatistics() {
+        return ResponseEntity.ok(ApiResponse.success("Catalog cache statistics", catalogCache.getStatistics()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.dto.common.ApiResponse;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.service.order.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.NoSuchElementException;
+
+/**
+ * User Controller - per-user views such as order history
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Users", description = "User order history")
+public class UserController {
+
+    private final OrderService orderService;
+
+    /**
+     * A user's orders, newest first. Pass the nextCursor of a page to get the following one.
+     */
+    @Operation(
+        summary = "Order history",
+        description = "Keyset-paginated: pages are not counted (totalElements is -1), follow nextCursor until hasNext is false"
+    )
+    @GetMapping("/{id}/orders")
+    public ResponseEntity<ApiResponse<PagedResponse<OrderResponseDto>>> getOrders(
+            @PathVariable Long id,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        try {
+            PagedResponse<OrderResponseDto> page = orderService.getOrderHistory(id, status, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success("Orders retrieved", page));
+
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.codewithmosh.store.dto.category;
+
+import java.util.List;
+
+/**
+ * DTO for one category of the navigation tree, with its subcategories nested below it
+ */
+public class CategoryTreeNodeDto {
+    private Long id;
+    private String name;
+    private String slug;
+    private String imageUrl;
+    private Integer sortOrder;
+    private Boolean isActive;
+    private Integer depth;
+    private List<Long> path;
+    private Integer descendantCount;
+    private List<CategoryTreeNodeDto> children;
+
+    // Constructors
+    public CategoryTreeNodeDto() {}
+
+    public CategoryTreeNodeDto(Long id, String name, String slug, String imageUrl, Integer sortOrder,
+                               Boolean isActive, Integer depth, List<Long> path, Integer descendantCount) {
+        this.id = id;
+        this.name = name;
+        this.slug = slug;
+        this.imageUrl = imageUrl;
+        this.sortOrder = sortOrder;
+        this.isActive = isActive;
+        this.depth = depth;
+        this.path = path;
+        this.descendantCount = descendantCount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getSlug() { return slug; }
+    public void setSlug(String slug) { this.slug = slug; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public Integer getSortOrder() { return sortOrder; }
+    public void setSortOrder(Integer sortOrder) { this.sortOrder = sortOrder; }
+
+    public Boolean getIsActive() { return isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+
+    public Integer getDepth() { return depth; }
+    public void setDepth(Integer depth) { this.depth = depth; }
+
+    /**
+     * Category ids from the root down to this one, for breadcrumbs
+     */
+    public List<Long> getPath() { return path; }
+    public void setPath(List<Long> path) { this.path = path; }
+
+    public Integer getDescendantCount() { return descendantCount; }
+    public void setDescendantCount(Integer descendantCount) { this.descendantCount = descendantCount; }
+
+    public List<CategoryTreeNodeDto> getChildren() { return children; }
+    public void setChildren(List<CategoryTreeNodeDto> children) { this.children = children; }
+}
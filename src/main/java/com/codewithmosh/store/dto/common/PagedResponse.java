@@ -3,7 +3,12 @@ package com.codewithmosh.store.dto.common;
 import java.util.List;
 
 /**
- * Wrapper for paginated API responses
+ * Wrapper for paginated API responses.
+ *
+ * Keyset (seek) pages, built with {@link #keyset}, are not counted: totalElements and totalPages are -1,
+ * page is always 0 and the next page is fetched by passing nextCursor back. A keyset page can carry a
+ * total after all with {@link #withTotal}; when countEstimated is true that total may be somewhat out
+ * of date (e.g. a cached count) and is only good for showing "about N results".
  */
 public class PagedResponse<T> {
     private List<T> content;
@@ -15,6 +20,8 @@ public class PagedResponse<T> {
     private boolean last;
     private boolean hasNext;
     private boolean hasPrevious;
+    private String nextCursor;
+    private boolean countEstimated;
     
     // Constructors
     public PagedResponse() {}
@@ -36,6 +43,38 @@ public class PagedResponse<T> {
         return new PagedResponse<>(content, page, size, totalElements);
     }
     
+    /**
+     * Page of a keyset listing: hasNext comes from fetching one row more than the page size
+     *
+     * @param cursor     cursor this page was requested with, null for the first page
+     * @param nextCursor cursor of the following page, null if this is the last one
+     */
+    public static <T> PagedResponse<T> keyset(List<T> content, int size, String cursor, String nextCursor) {
+        PagedResponse<T> response = new PagedResponse<>();
+        response.content = content;
+        response.size = size;
+        response.totalElements = -1;
+        response.totalPages = -1;
+        response.first = cursor == null;
+        response.hasPrevious = cursor != null;
+        response.hasNext = nextCursor != null;
+        response.last = nextCursor == null;
+        response.nextCursor = nextCursor;
+        return response;
+    }
+    
+    /**
+     * Add a total to a keyset page
+     *
+     * @param estimated whether the total may be stale rather than counted with this page
+     */
+    public PagedResponse<T> withTotal(long totalElements, boolean estimated) {
+        this.totalElements = totalElements;
+        this.totalPages = (int) Math.ceil((double) totalElements / size);
+        this.countEstimated = estimated;
+        return this;
+    }
+    
     // Getters and Setters
     public List<T> getContent() { return content; }
     public void setContent(List<T> content) { this.content = content; }
@@ -63,4 +102,10 @@ public class PagedResponse<T> {
     
     public boolean isHasPrevious() { return hasPrevious; }
     public void setHasPrevious(boolean hasPrevious) { this.hasPrevious = hasPrevious; }
-} 
\ No newline at end of file
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isCountEstimated() { return countEstimated; }
+    public void setCountEstimated(boolean countEstimated) { this.countEstimated = countEstimated; }
+}
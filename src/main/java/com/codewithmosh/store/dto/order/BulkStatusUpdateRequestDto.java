@@ -0,0 +1,46 @@
+package com.codewithmosh.store.dto.order;
+
+import com.codewithmosh.store.entity.order.Order.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Shipment update for many orders at once, e.g. one fulfilment import file
+ */
+public class BulkStatusUpdateRequestDto {
+
+    public static final int MAX_ORDERS = 10_000;
+
+    @NotNull(message = "Status is required")
+    private OrderStatus status;
+
+    @NotEmpty(message = "Order ids are required")
+    @Size(max = MAX_ORDERS, message = "At most " + MAX_ORDERS + " orders per request")
+    private List<Long> orderIds;
+
+    // when the orders shipped or were delivered; defaults to now
+    private LocalDateTime occurredAt;
+
+    // Constructors
+    public BulkStatusUpdateRequestDto() {}
+
+    public BulkStatusUpdateRequestDto(OrderStatus status, List<Long> orderIds, LocalDateTime occurredAt) {
+        this.status = status;
+        this.orderIds = orderIds;
+        this.occurredAt = occurredAt;
+    }
+
+    // Getters and Setters
+    public OrderStatus getStatus() { return status; }
+    public void setStatus(OrderStatus status) { this.status = status; }
+
+    public List<Long> getOrderIds() { return orderIds; }
+    public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+}
@@ -0,0 +1,54 @@
+package com.codewithmosh.store.dto.order;
+
+import com.codewithmosh.store.entity.order.Order.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk status update. Every requested id ends up in exactly one of:
+ * updated (counted), unchanged (already in the target status), rejected (its current status does not
+ * allow the move) or notFound.
+ */
+public class BulkStatusUpdateResultDto {
+
+    private OrderStatus status;
+    private int requested;
+    private int updated;
+    private List<Long> unchanged = new ArrayList<>();
+    private List<Rejection> rejected = new ArrayList<>();
+    private List<Long> notFound = new ArrayList<>();
+
+    // Constructors
+    public BulkStatusUpdateResultDto() {}
+
+    public BulkStatusUpdateResultDto(OrderStatus status, int requested) {
+        this.status = status;
+        this.requested = requested;
+    }
+
+    /**
+     * An order that could not be moved, with the status that blocked it
+     */
+    public record Rejection(Long orderId, OrderStatus currentStatus) {
+    }
+
+    // Getters and Setters
+    public OrderStatus getStatus() { return status; }
+    public void setStatus(OrderStatus status) { this.status = status; }
+
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+
+    public int getUpdated() { return updated; }
+    public void setUpdated(int updated) { this.updated = updated; }
+
+    public List<Long> getUnchanged() { return unchanged; }
+    public void setUnchanged(List<Long> unchanged) { this.unchanged = unchanged; }
+
+    public List<Rejection> getRejected() { return rejected; }
+    public void setRejected(List<Rejection> rejected) { this.rejected = rejected; }
+
+    public List<Long> getNotFound() { return notFound; }
+    public void setNotFound(List<Long> notFound) { this.notFound = notFound; }
+}
@@ -18,7 +18,7 @@ public class OrderItemRequestDto {
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
     
-    @NotNull(message = "Unit price is required")
+    // optional: the price the client displayed; items are always priced from the product table
     @DecimalMin(value = "0.0", inclusive = false, message = "Unit price must be positive")
     private BigDecimal unitPrice;
     
@@ -1,5 +1,6 @@
 package com.codewithmosh.store.dto.order;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
@@ -16,7 +17,7 @@ public class OrderRequestDto {
     @NotNull(message = "User ID is required")
     private Long userId;
     
-    @NotNull(message = "Total amount is required")
+    // optional: if sent, checkout fails when it no longer matches the server-side total
     @DecimalMin(value = "0.0", inclusive = false, message = "Total amount must be positive")
     private BigDecimal totalAmount;
     
@@ -27,6 +28,7 @@ public class OrderRequestDto {
     private String billingAddress;
     
     @NotEmpty(message = "Order items are required")
+    @Valid
     private List<OrderItemRequestDto> orderItems;
     
     // Constructors
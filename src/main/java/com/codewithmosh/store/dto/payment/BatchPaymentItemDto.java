@@ -0,0 +1,30 @@
+package com.codewithmosh.store.dto.payment;
+
+/**
+ * One payment of a POST /payment/batch request
+ */
+public class BatchPaymentItemDto {
+
+    private double amount;
+    private String method;
+    private String reference; // caller's id for the item (payout id, subscription id, ...)
+
+    // Constructors
+    public BatchPaymentItemDto() {}
+
+    public BatchPaymentItemDto(double amount, String method, String reference) {
+        this.amount = amount;
+        this.method = method;
+        this.reference = reference;
+    }
+
+    // Getters and Setters
+    public double getAmount() { return amount; }
+    public void setAmount(double amount) { this.amount = amount; }
+
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+}
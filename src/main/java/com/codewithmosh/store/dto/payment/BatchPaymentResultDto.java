@@ -0,0 +1,67 @@
+package com.codewithmosh.store.dto.payment;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one batch item, streamed back as a line of NDJSON
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentResultDto {
+
+    private int index;
+    private String reference;
+    private boolean success;
+    private double amount;
+    private String paymentMethod;
+    private String transactionId;
+    private String error;
+
+    // Constructors
+    public BatchPaymentResultDto() {}
+
+    public static BatchPaymentResultDto succeeded(int index, String reference, double amount,
+                                                  String paymentMethod, String transactionId) {
+        BatchPaymentResultDto result = new BatchPaymentResultDto();
+        result.index = index;
+        result.reference = reference;
+        result.success = true;
+        result.amount = amount;
+        result.paymentMethod = paymentMethod;
+        result.transactionId = transactionId;
+        return result;
+    }
+
+    public static BatchPaymentResultDto failed(int index, String reference, double amount,
+                                               String paymentMethod, String error) {
+        BatchPaymentResultDto result = new BatchPaymentResultDto();
+        result.index = index;
+        result.reference = reference;
+        result.success = false;
+        result.amount = amount;
+        result.paymentMethod = paymentMethod;
+        result.error = error;
+        return result;
+    }
+
+    // Getters and Setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public double getAmount() { return amount; }
+    public void setAmount(double amount) { this.amount = amount; }
+
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,48 @@
+package com.codewithmosh.store.dto.product;
+
+import com.codewithmosh.store.dto.common.PagedResponse;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of products matching the selected facet values, with the number of products behind every
+ * value of each facet (category, price, inStock, featured, weight). A facet's counts ignore that
+ * facet's own selection, so they show what picking another value would give.
+ * indexComplete is false while the index is still being built after startup.
+ */
+public class ProductFacetResultDto {
+
+    private PagedResponse<ProductResponseDto> products;
+    private Map<String, List<FacetValue>> facets = new LinkedHashMap<>();
+    private boolean indexComplete;
+    private double tookMs;
+
+    // Constructors
+    public ProductFacetResultDto() {}
+
+    public ProductFacetResultDto(PagedResponse<ProductResponseDto> products, boolean indexComplete) {
+        this.products = products;
+        this.indexComplete = indexComplete;
+    }
+
+    /**
+     * A value to filter on (pass it back as is), its display label and how many products have it
+     */
+    public record FacetValue(String value, String label, int count) {
+    }
+
+    // Getters and Setters
+    public PagedResponse<ProductResponseDto> getProducts() { return products; }
+    public void setProducts(PagedResponse<ProductResponseDto> products) { this.products = products; }
+
+    public Map<String, List<FacetValue>> getFacets() { return facets; }
+    public void setFacets(Map<String, List<FacetValue>> facets) { this.facets = facets; }
+
+    public boolean isIndexComplete() { return indexComplete; }
+    public void setIndexComplete(boolean indexComplete) { this.indexComplete = indexComplete; }
+
+    public double getTookMs() { return tookMs; }
+    public void setTookMs(double tookMs) { this.tookMs = tookMs; }
+}
@@ -0,0 +1,49 @@
+package com.codewithmosh.store.dto.product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a product search: the best matches, best first, and how many products matched in all.
+ * indexComplete is false while the index is still being built after startup, when some products
+ * cannot be found yet.
+ */
+public class ProductSearchResultDto {
+
+    private String query;
+    private int totalMatches;
+    private boolean indexComplete;
+    private double tookMs;
+    private List<Hit> hits = new ArrayList<>();
+
+    // Constructors
+    public ProductSearchResultDto() {}
+
+    public ProductSearchResultDto(String query, int totalMatches, boolean indexComplete) {
+        this.query = query;
+        this.totalMatches = totalMatches;
+        this.indexComplete = indexComplete;
+    }
+
+    /**
+     * A matching product with its BM25 score
+     */
+    public record Hit(double score, ProductResponseDto product) {
+    }
+
+    // Getters and Setters
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public int getTotalMatches() { return totalMatches; }
+    public void setTotalMatches(int totalMatches) { this.totalMatches = totalMatches; }
+
+    public boolean isIndexComplete() { return indexComplete; }
+    public void setIndexComplete(boolean indexComplete) { this.indexComplete = indexComplete; }
+
+    public double getTookMs() { return tookMs; }
+    public void setTookMs(double tookMs) { this.tookMs = tookMs; }
+
+    public List<Hit> getHits() { return hits; }
+    public void setHits(List<Hit> hits) { this.hits = hits; }
+}
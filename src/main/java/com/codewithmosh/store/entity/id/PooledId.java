@@ -0,0 +1,32 @@
+package com.codewithmosh.store.entity.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id assigned from blocks reserved in the id_blocks table, instead of an AUTO_INCREMENT column.
+ *
+ * Hibernate has to run an IDENTITY insert on its own to learn the new id, so IDENTITY entities
+ * are never JDBC-batched. With this generator the ids are known before the insert, and
+ * spring.jpa.properties.hibernate.jdbc.batch_size takes effect.
+ *
+ * <pre>
+ * &#64;Id
+ * &#64;PooledId("orders")
+ * private Long id;
+ * </pre>
+ */
+@IdGeneratorType(PooledIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledId {
+
+    /**
+     * Row of id_blocks this entity draws from, by convention its table name
+     */
+    String value();
+}
@@ -0,0 +1,59 @@
+package com.codewithmosh.store.entity.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Hi/lo style table generator behind {@link PooledId}.
+ *
+ * Each entity has one row in id_blocks holding the last id handed out. A node reserves a block of
+ * {@code store.id.block-size} ids by bumping that row in its own short transaction
+ * (SELECT ... FOR UPDATE + UPDATE) and then assigns ids from memory until the block is used up,
+ * so one table round trip pays for a whole block of inserts. Several nodes can share the table;
+ * unused ids of a block are lost on restart, which only leaves gaps.
+ */
+public class PooledIdGenerator extends TableGenerator {
+
+    public static final String TABLE = "id_blocks";
+    public static final String SEGMENT_COLUMN = "segment";
+    public static final String VALUE_COLUMN = "next_val";
+
+    /**
+     * Hibernate setting (spring.jpa.properties.store.id.block-size) for the ids reserved at a time
+     */
+    public static final String BLOCK_SIZE_SETTING = "store.id.block-size";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private final String segment;
+
+    public PooledIdGenerator(PooledId config) {
+        this.segment = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        int blockSize = serviceRegistry.getService(ConfigurationService.class)
+            .getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_BLOCK_SIZE);
+        if (blockSize < 1) {
+            throw new MappingException(BLOCK_SIZE_SETTING + " must be at least 1");
+        }
+
+        parameters.setProperty(TABLE_PARAM, TABLE);
+        parameters.setProperty(SEGMENT_COLUMN_PARAM, SEGMENT_COLUMN);
+        parameters.setProperty(VALUE_COLUMN_PARAM, VALUE_COLUMN);
+        parameters.setProperty(SEGMENT_VALUE_PARAM, segment);
+        parameters.setProperty(OptimizableGenerator.INCREMENT_PARAM, String.valueOf(blockSize));
+        parameters.setProperty(OptimizableGenerator.INITIAL_PARAM, "1");
+        // pooled-lo: a block read as n covers n .. n + blockSize - 1
+        parameters.setProperty(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.order;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import com.codewithmosh.store.entity.payment.Payment;
 import com.codewithmosh.store.entity.user.User;
 import jakarta.persistence.*;
@@ -19,7 +20,7 @@ import java.util.Set;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("orders")
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
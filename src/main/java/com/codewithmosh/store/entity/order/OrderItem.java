@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.order;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import com.codewithmosh.store.entity.product.Product;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
@@ -16,7 +17,7 @@ import java.time.LocalDateTime;
 public class OrderItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("order_items")
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
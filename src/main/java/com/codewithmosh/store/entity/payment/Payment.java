@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.payment;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import com.codewithmosh.store.entity.order.Order;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
@@ -17,12 +18,12 @@ import java.time.LocalDateTime;
 public class Payment {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("payments")
     private Long id;
     
+    // null for payments taken through /payment/process, which are not linked to an order
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", nullable = false)
-    @NotNull(message = "Order is required")
+    @JoinColumn(name = "order_id")
     private Order order;
     
     @Column(name = "payment_method", nullable = false, length = 50)
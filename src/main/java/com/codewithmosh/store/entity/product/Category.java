@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.product;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -15,7 +16,7 @@ import java.util.Set;
 public class Category {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("categories")
     private Long id;
     
     @Column(nullable = false, length = 100)
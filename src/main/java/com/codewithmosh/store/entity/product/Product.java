@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.product;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import com.codewithmosh.store.entity.order.OrderItem;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
@@ -19,7 +20,7 @@ import java.util.Set;
 public class Product {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("products")
     private Long id;
     
     @Column(nullable = false, length = 100)
@@ -140,6 +141,7 @@ public class Product {
         return isActive != null && isActive && isInStock();
     }
     
+    // check-then-act on the loaded value: checkouts reserve through InventoryService instead
     public void reduceStock(int quantity) {
         if (stockQuantity != null && stockQuantity >= quantity) {
             stockQuantity -= quantity;
@@ -1,5 +1,6 @@
 package com.codewithmosh.store.entity.user;
 
+import com.codewithmosh.store.entity.id.PooledId;
 import com.codewithmosh.store.entity.order.Order;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -29,7 +30,7 @@ import java.util.Set;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("users")
     private Long id;
     
     @Column(unique = true, nullable = false, length = 50)
@@ -194,6 +195,7 @@ public class User {
     }
 
     // Order management
+    // loads every order the user ever placed; to show them, page through OrderService.getOrderHistory
     public Set<Order> getOrders() {
         return new HashSet<>(orders); // Defensive copy
     }
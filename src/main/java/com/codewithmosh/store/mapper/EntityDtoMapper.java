@@ -114,6 +114,30 @@ public class EntityDtoMapper {
     }
     
     // Category mappings
+    /**
+     * Category fields and parent only - subcategories and products are left out, so a category loaded
+     * with its parent can be mapped after its session is closed
+     */
+    public CategoryResponseDto toCategoryHeaderDto(Category category) {
+        if (category == null) return null;
+        
+        CategoryResponseDto dto = new CategoryResponseDto(
+            category.getId(),
+            category.getName(),
+            category.getDescription(),
+            category.getSlug(),
+            category.getIsActive(),
+            category.getSortOrder(),
+            category.getImageUrl(),
+            category.getCreatedAt(),
+            category.getUpdatedAt()
+        );
+        if (category.getParent() != null) {
+            dto.setParent(toCategorySummaryDto(category.getParent()));
+        }
+        return dto;
+    }
+    
     public CategoryResponseDto toCategoryResponseDto(Category category) {
         if (category == null) return null;
         
@@ -168,6 +192,28 @@ public class EntityDtoMapper {
     }
     
     // Order mappings
+    /**
+     * Order fields only - no user, items or payments, so listing orders never loads their collections
+     */
+    public OrderResponseDto toOrderHeaderDto(Order order) {
+        if (order == null) return null;
+        
+        OrderResponseDto dto = new OrderResponseDto(
+            order.getId(),
+            order.getOrderNumber(),
+            order.getTotalAmount(),
+            order.getStatus(),
+            order.getOrderDate(),
+            order.getCreatedAt(),
+            order.getUpdatedAt()
+        );
+        dto.setShippingAddress(order.getShippingAddress());
+        dto.setBillingAddress(order.getBillingAddress());
+        dto.setShippedDate(order.getShippedDate());
+        dto.setDeliveredDate(order.getDeliveredDate());
+        return dto;
+    }
+    
     public OrderResponseDto toOrderResponseDto(Order order) {
         if (order == null) return null;
         
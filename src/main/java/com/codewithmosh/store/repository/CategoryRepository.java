@@ -0,0 +1,25 @@
+package com.codewithmosh.store.repository;
+
+import com.codewithmosh.store.entity.product.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    /**
+     * Category with its parent, ready to map without a session
+     */
+    @Query("SELECT c FROM Category c LEFT JOIN FETCH c.parent WHERE c.id = :id")
+    Optional<Category> findWithParentById(@Param("id") Long id);
+
+    /**
+     * Id of the category with a slug, without loading the category
+     */
+    @Query("SELECT c.id FROM Category c WHERE c.slug = :slug")
+    Optional<Long> findIdBySlug(@Param("slug") String slug);
+}
@@ -0,0 +1,94 @@
+package com.codewithmosh.store.repository;
+
+import com.codewithmosh.store.entity.order.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Find order by its customer-facing number
+     */
+    Optional<Order> findByOrderNumber(String orderNumber);
+
+    /**
+     * Orders with their user, items and the items' products in one query.
+     * Payments are a second collection and come from {@link #fetchPaymentsByIdIn}: joining both here
+     * would multiply rows (items x payments per order).
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user"
+        + " LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Initialises the payments of orders already in the persistence context
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.payments WHERE o.id IN :ids")
+    List<Order> fetchPaymentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * A user's orders placed before (orderDate, id), newest first.
+     * A range scan on idx_orders_user_date: no OFFSET, however deep the page.
+     */
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId"
+        + " AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id))"
+        + " ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findHistoryPage(@Param("userId") Long userId,
+                                @Param("orderDate") LocalDateTime orderDate,
+                                @Param("id") Long id,
+                                Limit limit);
+
+    /**
+     * Same as {@link #findHistoryPage} for one status, on idx_orders_user_status_date
+     */
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status"
+        + " AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id))"
+        + " ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findHistoryPageByStatus(@Param("userId") Long userId,
+                                        @Param("status") Order.OrderStatus status,
+                                        @Param("orderDate") LocalDateTime orderDate,
+                                        @Param("id") Long id,
+                                        Limit limit);
+
+    /**
+     * Id and status only, for checking transitions without loading entities
+     */
+    @Query("SELECT o.id AS id, o.status AS status FROM Order o WHERE o.id IN :ids")
+    List<StatusView> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Set-based SHIPPED transition; the status guard skips rows that moved on in the meantime
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.codewithmosh.store.entity.order.Order.OrderStatus.SHIPPED,"
+        + " o.shippedDate = :at, o.updatedAt = CURRENT_TIMESTAMP WHERE o.id IN :ids AND o.status IN :from")
+    int markShipped(@Param("ids") Collection<Long> ids,
+                    @Param("from") Collection<Order.OrderStatus> from,
+                    @Param("at") LocalDateTime at);
+
+    /**
+     * Set-based DELIVERED transition; the status guard skips rows that moved on in the meantime
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.codewithmosh.store.entity.order.Order.OrderStatus.DELIVERED,"
+        + " o.deliveredDate = :at, o.updatedAt = CURRENT_TIMESTAMP WHERE o.id IN :ids AND o.status IN :from")
+    int markDelivered(@Param("ids") Collection<Long> ids,
+                      @Param("from") Collection<Order.OrderStatus> from,
+                      @Param("at") LocalDateTime at);
+
+    interface StatusView {
+        Long getId();
+
+        Order.OrderStatus getStatus();
+    }
+}
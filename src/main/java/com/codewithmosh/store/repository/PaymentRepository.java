@@ -0,0 +1,22 @@
+package com.codewithmosh.store.repository;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    /**
+     * Find payment by our transaction id
+     */
+    Optional<Payment> findByTransactionId(String transactionId);
+
+    /**
+     * Find payments by the payment provider's id
+     */
+    List<Payment> findByExternalPaymentId(String externalPaymentId);
+}
@@ -0,0 +1,47 @@
+package com.codewithmosh.store.repository;
+
+import com.codewithmosh.store.entity.product.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Find product by SKU
+     */
+    Optional<Product> findBySku(String sku);
+
+    /**
+     * Product with its category, ready to map without a session
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") Long id);
+
+    /**
+     * Id of the product with a SKU, without loading the product
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.sku = :sku")
+    Optional<Long> findIdBySku(@Param("sku") String sku);
+
+    /**
+     * Load several products in one query (WHERE id IN (...))
+     */
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Load and row-lock several products (SELECT ... FOR UPDATE), always in id order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+}
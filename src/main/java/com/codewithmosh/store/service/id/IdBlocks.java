@@ -0,0 +1,61 @@
+package com.codewithmosh.store.service.id;
+
+import com.codewithmosh.store.entity.id.PooledIdGenerator;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reserves ranges of numbers from the id_blocks table for code that writes rows without Hibernate.
+ *
+ * Each row holds the last number handed out, the same convention {@link PooledIdGenerator} uses, so
+ * a range reserved here for the "orders" segment never overlaps ids Hibernate assigns to new orders.
+ * Every reservation runs in its own transaction, so a rolled back caller leaves a gap, never a reuse.
+ */
+@Component
+public class IdBlocks {
+
+    private static final String BUMP_SQL = "UPDATE " + PooledIdGenerator.TABLE + " SET " + PooledIdGenerator.VALUE_COLUMN
+        + " = " + PooledIdGenerator.VALUE_COLUMN + " + ? WHERE " + PooledIdGenerator.SEGMENT_COLUMN + " = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + PooledIdGenerator.TABLE + " (" + PooledIdGenerator.SEGMENT_COLUMN
+        + ", " + PooledIdGenerator.VALUE_COLUMN + ") VALUES (?, ?)";
+    private static final String READ_SQL = "SELECT " + PooledIdGenerator.VALUE_COLUMN + " FROM " + PooledIdGenerator.TABLE
+        + " WHERE " + PooledIdGenerator.SEGMENT_COLUMN + " = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdBlocks(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // a reservation must survive the rollback of whatever asked for it, or numbers would repeat
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserve count consecutive numbers of a segment, creating the segment (starting at 1) if needed
+     *
+     * @return the first number of the range; the range is first .. first + count - 1
+     */
+    public long reserve(String segment, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Must reserve at least one number, not " + count);
+        }
+        Long last = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(BUMP_SQL, count, segment) == 0) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, segment, count);
+                    return (long) count;
+                } catch (DuplicateKeyException e) {
+                    // someone else created the segment first
+                    jdbcTemplate.update(BUMP_SQL, count, segment);
+                }
+            }
+            return jdbcTemplate.queryForObject(READ_SQL, Long.class, segment);
+        });
+        return last - count + 1;
+    }
+}
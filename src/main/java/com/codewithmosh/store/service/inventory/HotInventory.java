@@ -0,0 +1,306 @@
+package com.codewithmosh.store.service.inventory;
+
+import com.codewithmosh.store.config.HotInventoryConfig;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndexer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stock for "hot" products (flash sales, launches) where every checkout would otherwise
+ * queue on the same products row.
+ *
+ * When a product is switched to hot mode its stock is read once and split over {@link StripedStock}
+ * counters; from then on reservations only touch memory. A background thread writes the net change
+ * since the last flush back with {@code UPDATE products SET stock_quantity = stock_quantity - ?}, so the
+ * table trails memory by at most one flush interval and concurrent edits of other columns are kept.
+ *
+ * Limits, by design:
+ * <ul>
+ *   <li>Single node only: the counters are the source of truth for hot products, so a second instance
+ *       reserving from the table would oversell. Switch a product on before its sale starts -
+ *       checkouts already running against the table when it is switched on are not seen.</li>
+ *   <li>A crash loses at most one flush interval of decrements from the table (the orders are there,
+ *       the stock is too high); re-run a stock count for hot products after an unclean shutdown.</li>
+ *   <li>Restocking a hot product must go through {@link #release}, not the table.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class HotInventory {
+
+    static final String APPLY_SQL = "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HotInventoryConfig config;
+    private final CatalogCache catalogCache;
+    private final ProductFacetIndexer productFacetIndexer;
+    private final Map<Long, HotProduct> products = new ConcurrentHashMap<>();
+    // switched off but possibly still holding a decrement from a reservation that raced the switch
+    private final Queue<HotProduct> retiring = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public HotInventory(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        HotInventoryConfig config,
+                        CatalogCache catalogCache,
+                        ProductFacetIndexer productFacetIndexer) {
+        if (config.getFlushIntervalMs() < 1) {
+            throw new IllegalArgumentException("Hot inventory flush interval must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // never part of a checkout's transaction: these writes must not roll back with it
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = config;
+        this.catalogCache = catalogCache;
+        this.productFacetIndexer = productFacetIndexer;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("hot-inventory-flusher").daemon(true).start(this::flushLoop);
+    }
+
+    /**
+     * Shut down: stop the flusher and write the last decrements
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flush();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void enableConfiguredProducts() {
+        for (Long productId : config.getProductIds()) {
+            enable(productId);
+        }
+    }
+
+    /**
+     * Switch a product to hot mode, loading its current stock into memory. Does nothing if it already is.
+     *
+     * @throws IllegalArgumentException if the product does not exist
+     */
+    public void enable(Long productId) {
+        products.computeIfAbsent(productId, id -> {
+            HotProduct product = new HotProduct(id, new StripedStock(config.resolveStripes(), currentStock(id)));
+            log.info("Product {} in hot mode with {} units over {} stripes", id, product.stock.available(),
+                product.stock.stripes());
+            return product;
+        });
+    }
+
+    /**
+     * Switch a product back to reservations against the table, writing its pending decrements first
+     *
+     * @return false if the product was not hot
+     */
+    public boolean disable(Long productId) {
+        HotProduct product = products.remove(productId);
+        if (product == null) {
+            return false;
+        }
+        product.closed = true;
+        retiring.add(product);
+        flush();
+        log.info("Product {} back to table reservations", productId);
+        return true;
+    }
+
+    public boolean isHot(Long productId) {
+        return products.containsKey(productId);
+    }
+
+    /**
+     * Reserve from memory if the product is hot
+     *
+     * @return false if the product is not hot and must be reserved from the table instead
+     * @throws IllegalStateException if the product is hot and has less stock than asked for
+     */
+    public boolean reserve(Long productId, int quantity) {
+        HotProduct product = products.get(productId);
+        if (product == null) {
+            return false;
+        }
+        if (!product.stock.tryTake(quantity)) {
+            throw new IllegalStateException("Insufficient stock for product " + productId);
+        }
+        product.unflushed.add(quantity);
+        if (product.closed) {
+            // switched off while we were taking: hand the units back and go through the table
+            product.unflushed.add(-quantity);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give units back to a hot product. If it was switched off since they were taken, they go
+     * straight back to the table instead.
+     */
+    public void release(Long productId, int quantity) {
+        HotProduct product = products.get(productId);
+        if (product == null) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(APPLY_SQL, -quantity, productId));
+            catalogCache.invalidateProducts(List.of(productId));
+            productFacetIndexer.stockChanged(List.of(productId));
+            return;
+        }
+        product.stock.add(quantity);
+        product.unflushed.add(-quantity);
+    }
+
+    /**
+     * Units a hot product has left, or -1 if it is not hot
+     */
+    public long available(Long productId) {
+        HotProduct product = products.get(productId);
+        return product == null ? -1 : product.stock.available();
+    }
+
+    /**
+     * Write the net change of every hot product to the table in one batch.
+     * If the batch fails the deltas are kept and go out with the next flush.
+     */
+    public synchronized void flush() {
+        List<HotProduct> dirty = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        collect(products.values(), dirty, deltas);
+        collect(retiring, dirty, deltas);
+        // a product switched off a full interval ago has no reservation left in flight
+        retiring.removeIf(product -> product.unflushed.sum() == 0 && product.retiredFlushes++ > 0);
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(APPLY_SQL, indexes(dirty.size()), dirty.size(), (ps, i) -> {
+                    ps.setLong(1, deltas.get(i));
+                    ps.setLong(2, dirty.get(i).id);
+                }));
+            flushes.increment();
+            // cached product pages and the in-stock facet show stock as of the last flush, not of every checkout
+            List<Long> productIds = dirty.stream().map(product -> product.id).toList();
+            catalogCache.invalidateProducts(productIds);
+            productFacetIndexer.stockChanged(productIds);
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.error("Hot inventory flush of {} products failed, keeping the deltas for the next one", dirty.size(), e);
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).unflushed.add(deltas.get(i));
+            }
+        }
+    }
+
+    /**
+     * Stock left, unflushed decrements and rebalances per hot product
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> perProduct = new LinkedHashMap<>();
+        products.forEach((id, product) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("available", product.stock.available());
+            stats.put("unflushed", product.unflushed.sum());
+            stats.put("stripes", product.stock.stripes());
+            stats.put("rebalances", product.stock.rebalances());
+            perProduct.put(String.valueOf(id), stats);
+        });
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("products", perProduct);
+        statistics.put("flushes", flushes.sum());
+        statistics.put("failedFlushes", failedFlushes.sum());
+        statistics.put("flushIntervalMs", config.getFlushIntervalMs());
+        return statistics;
+    }
+
+    private long currentStock(Long productId) {
+        try {
+            Integer stock = jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+            return stock == null ? 0 : stock;
+        } catch (EmptyResultDataAccessException e) {
+            throw new IllegalArgumentException("Product not found: " + productId);
+        }
+    }
+
+    private static void collect(Iterable<HotProduct> candidates, List<HotProduct> dirty, List<Long> deltas) {
+        for (HotProduct product : candidates) {
+            // adds racing this reset simply land in the next flush
+            long delta = product.unflushed.sumThenReset();
+            if (delta != 0) {
+                dirty.add(product);
+                deltas.add(delta);
+            }
+        }
+    }
+
+    private static List<Integer> indexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(config.getFlushIntervalMs());
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Hot inventory flush failed", e);
+            }
+        }
+    }
+
+    private static final class HotProduct {
+        final Long id;
+        final StripedStock stock;
+        // units taken minus units given back since the last flush
+        final LongAdder unflushed = new LongAdder();
+        volatile boolean closed;
+        int retiredFlushes;
+
+        HotProduct(Long id, StripedStock stock) {
+            this.id = id;
+            this.stock = stock;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.codewithmosh.store.service.inventory;
+
+import com.codewithmosh.store.entity.order.OrderItem;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndexer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Takes and gives back product stock without check-then-act races.
+ *
+ * A reservation is a conditional decrement, {@code UPDATE products SET stock_quantity = stock_quantity - ?
+ * WHERE id = ? AND stock_quantity >= ?}: the database checks and decrements under the row lock, so two
+ * checkouts can never both take the last unit. All lines of an order go out as one JDBC batch, sorted by
+ * product id, so two orders for the same products lock the rows in the same order and cannot deadlock.
+ *
+ * Both operations join the caller's transaction: if a later step of the checkout fails, the stock
+ * comes back with the rollback.
+ *
+ * Products in {@link HotInventory} are reserved from memory instead of the table. Those units are
+ * handed back when the transaction does not commit, and released units only become available again
+ * once the cancellation has committed.
+ */
+@Service
+public class InventoryService {
+
+    static final String RESERVE_SQL =
+        "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final HotInventory hotInventory;
+    private final CatalogCache catalogCache;
+    private final ProductFacetIndexer productFacetIndexer;
+
+    public InventoryService(JdbcTemplate jdbcTemplate, ProductRepository productRepository, HotInventory hotInventory,
+                            CatalogCache catalogCache, ProductFacetIndexer productFacetIndexer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.hotInventory = hotInventory;
+        this.catalogCache = catalogCache;
+        this.productFacetIndexer = productFacetIndexer;
+    }
+
+    /**
+     * Reserve every line or none of them.
+     * Products already loaded in the persistence context keep their old stockQuantity.
+     *
+     * @throws IllegalStateException if any product has less stock than asked for
+     */
+    @Transactional
+    public void reserve(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(reserveHot(sorted(quantities)).entrySet());
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int[][] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        });
+
+        for (int i = 0; i < lines.size(); i++) {
+            if (updated[0][i] == 0) {
+                // runtime exception: the decrements that did succeed are rolled back with the transaction
+                throw new IllegalStateException("Insufficient stock for product " + lines.get(i).getKey());
+            }
+        }
+        // SQL updates are invisible to the catalog cache's and facet index's Hibernate listeners
+        List<Long> productIds = lines.stream().map(Map.Entry::getKey).toList();
+        afterCommit(() -> {
+            catalogCache.invalidateProducts(productIds);
+            productFacetIndexer.stockChanged(productIds);
+        });
+    }
+
+    /**
+     * Give stock back, e.g. when an order is cancelled. The rows are locked in id order before
+     * {@link Product#addStock} runs, so a concurrent reservation cannot be overwritten.
+     */
+    @Transactional
+    public void release(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> lines = sorted(quantities);
+        SortedMap<Long, Integer> hot = new TreeMap<>();
+        for (Long productId : List.copyOf(lines.keySet())) {
+            if (hotInventory.isHot(productId)) {
+                hot.put(productId, lines.remove(productId));
+            }
+        }
+        if (!hot.isEmpty()) {
+            afterCommit(() -> releaseHot(hot));
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        for (Product product : productRepository.findAllByIdInForUpdate(lines.keySet())) {
+            product.addStock(lines.get(product.getId()));
+        }
+    }
+
+    /**
+     * Quantity per product for a set of order lines (a product may appear on several lines)
+     */
+    public static Map<Long, Integer> quantitiesOf(Collection<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Take the hot lines from memory, all or none, and return the lines left for the table
+     */
+    private SortedMap<Long, Integer> reserveHot(SortedMap<Long, Integer> lines) {
+        SortedMap<Long, Integer> cold = new TreeMap<>();
+        Map<Long, Integer> taken = new TreeMap<>();
+        try {
+            lines.forEach((productId, quantity) -> {
+                if (hotInventory.reserve(productId, quantity)) {
+                    taken.put(productId, quantity);
+                } else {
+                    cold.put(productId, quantity);
+                }
+            });
+        } catch (IllegalStateException e) {
+            releaseHot(taken);
+            throw e;
+        }
+        if (!taken.isEmpty()) {
+            afterRollback(() -> releaseHot(taken));
+        }
+        return cold;
+    }
+
+    private void releaseHot(Map<Long, Integer> lines) {
+        lines.forEach(hotInventory::release);
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static SortedMap<Long, Integer> sorted(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> lines = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity < 1) {
+                throw new IllegalArgumentException("Quantity must be at least 1 for product " + productId);
+            }
+            lines.merge(productId, quantity, Integer::sum);
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,114 @@
+package com.codewithmosh.store.service.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock of one product split over several counters, so concurrent checkouts do not all CAS the same word.
+ *
+ * Each thread takes from its own stripe (picked from its thread id). When that stripe cannot cover a
+ * reservation, the taker locks the product, collects what is left in all stripes and deals it out again
+ * evenly - taking its own units first. Units are only ever moved, never copied, so the sum of the
+ * stripes is the exact stock at any quiet moment and a reservation can never be served twice.
+ * The rebalancing lock is only hit when a stripe runs dry, i.e. mostly at the very end of the stock.
+ */
+final class StripedStock {
+
+    // stripes sit 16 longs (128 bytes) apart, so no two share a cache line or an adjacent-line prefetch pair
+    private static final int PAD = 16;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    private final LongAdder rebalances = new LongAdder();
+
+    StripedStock(int stripes, long stock) {
+        if (stripes < 1 || stock < 0) {
+            throw new IllegalArgumentException("Stripes must be positive and stock not negative");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        distribute(stock);
+    }
+
+    /**
+     * Take quantity units, or nothing if the product does not have that many left
+     */
+    boolean tryTake(int quantity) {
+        int home = home();
+        if (tryTakeFrom(home, quantity)) {
+            return true;
+        }
+        rebalanceLock.lock();
+        try {
+            // another taker may have just refilled this stripe
+            if (tryTakeFrom(home, quantity)) {
+                return true;
+            }
+            long total = 0;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                total += cells.getAndSet(stripe * PAD, 0);
+            }
+            rebalances.increment();
+            boolean taken = total >= quantity;
+            distribute(taken ? total - quantity : total);
+            return taken;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Put units back (cancelled or rolled back reservations, restocking)
+     */
+    void add(long quantity) {
+        cells.addAndGet(home() * PAD, quantity);
+    }
+
+    /**
+     * Units left; exact only when nobody is taking or adding at the same time
+     */
+    long available() {
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += cells.get(stripe * PAD);
+        }
+        return total;
+    }
+
+    int stripes() {
+        return stripes;
+    }
+
+    long rebalances() {
+        return rebalances.sum();
+    }
+
+    private boolean tryTakeFrom(int stripe, int quantity) {
+        int index = stripe * PAD;
+        long current;
+        do {
+            current = cells.get(index);
+            if (current < quantity) {
+                return false;
+            }
+        } while (!cells.compareAndSet(index, current, current - quantity));
+        return true;
+    }
+
+    private void distribute(long total) {
+        long share = total / stripes;
+        long remainder = total % stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            long units = share + (stripe < remainder ? 1 : 0);
+            if (units > 0) {
+                cells.addAndGet(stripe * PAD, units);
+            }
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().threadId() % stripes);
+    }
+}
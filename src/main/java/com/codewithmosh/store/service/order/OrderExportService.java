@@ -0,0 +1,226 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.OrderItem;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams every order in a date range, with its items and payments, as CSV or NDJSON.
+ *
+ * Orders are read through a forward-only {@link ScrollableResults} with a small JDBC fetch size (on MySQL
+ * the connection needs useCursorFetch=true, otherwise the driver buffers the whole result set). Every
+ * {@code order.export.chunk-size} orders, the items (with their products) and payments of that chunk
+ * are loaded with one IN query each, written out and flushed, and the session is cleared - so the heap
+ * holds one chunk at a time whatever the date range, and the database sees 1 + 2 per chunk queries.
+ *
+ * Runs in one read-only transaction for a consistent snapshot; the caller owns the output stream.
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    static final String CSV_HEADER = "order_id,order_number,order_date,status,customer_email,order_total,"
+        + "item_sku,item_name,quantity,unit_price,line_total,paid_amount,payment_count,transaction_ids";
+
+    private final EntityManager entityManager;
+    private final EntityDtoMapper entityDtoMapper;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int fetchSize;
+
+    public OrderExportService(EntityManager entityManager,
+                              EntityDtoMapper entityDtoMapper,
+                              ObjectMapper objectMapper,
+                              @Value("${order.export.chunk-size:500}") int chunkSize,
+                              @Value("${order.export.fetch-size:500}") int fetchSize) {
+        if (chunkSize < 1 || fetchSize < 1) {
+            throw new IllegalArgumentException("Export chunk and fetch sizes must be positive");
+        }
+        this.entityManager = entityManager;
+        this.entityDtoMapper = entityDtoMapper;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write the orders placed in [from, to) to out, oldest id first
+     *
+     * @return number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range is empty: " + from + " to " + to);
+        }
+        Session session = entityManager.unwrap(Session.class);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long exported = 0;
+        try (ScrollableResults<Order> orders = session.createSelectionQuery(
+                "FROM Order o LEFT JOIN FETCH o.user WHERE o.orderDate >= :from AND o.orderDate < :to ORDER BY o.id",
+                Order.class)
+            .setParameter("from", from)
+            .setParameter("to", to)
+            .setFetchSize(fetchSize)
+            .setReadOnly(true)
+            .setCacheMode(CacheMode.IGNORE)
+            .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            List<Order> chunk = new ArrayList<>(chunkSize);
+            while (orders.next()) {
+                chunk.add(orders.get());
+                if (chunk.size() == chunkSize) {
+                    exported += writeChunk(session, chunk, format, writer);
+                }
+            }
+            exported += writeChunk(session, chunk, format, writer);
+        }
+        writer.flush();
+        log.info("Exported {} orders from {} to {} as {}", exported, from, to, format);
+        return exported;
+    }
+
+    private int writeChunk(Session session, List<Order> chunk, Format format, Writer writer) throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = chunk.stream().map(Order::getId).collect(Collectors.toList());
+        // grouped by the owning order's id: reading the id of the lazy order reference loads nothing
+        Map<Long, List<OrderItem>> items = groupByOrder(session.createSelectionQuery(
+                "FROM OrderItem i JOIN FETCH i.product WHERE i.order.id IN :ids ORDER BY i.id", OrderItem.class)
+            .setParameter("ids", ids)
+            .setReadOnly(true)
+            .getResultList(), item -> item.getOrder().getId());
+        Map<Long, List<Payment>> payments = groupByOrder(session.createSelectionQuery(
+                "FROM Payment p WHERE p.order.id IN :ids ORDER BY p.id", Payment.class)
+            .setParameter("ids", ids)
+            .setReadOnly(true)
+            .getResultList(), payment -> payment.getOrder().getId());
+
+        for (Order order : chunk) {
+            List<OrderItem> orderItems = items.getOrDefault(order.getId(), List.of());
+            List<Payment> orderPayments = payments.getOrDefault(order.getId(), List.of());
+            if (format == Format.CSV) {
+                writeCsv(order, orderItems, orderPayments, writer);
+            } else {
+                writeNdjson(order, orderItems, orderPayments, writer);
+            }
+        }
+        int written = chunk.size();
+        // hand the chunk to the client and forget it
+        writer.flush();
+        chunk.clear();
+        session.clear();
+        return written;
+    }
+
+    private void writeNdjson(Order order, List<OrderItem> items, List<Payment> payments, Writer writer) throws IOException {
+        OrderResponseDto dto = entityDtoMapper.toOrderHeaderDto(order);
+        dto.setUser(entityDtoMapper.toUserSummaryDto(order.getUser()));
+        dto.setOrderItems(items.stream().map(entityDtoMapper::toOrderItemResponseDto).collect(Collectors.toList()));
+        dto.setPayments(payments.stream().map(entityDtoMapper::toPaymentSummaryDto).collect(Collectors.toList()));
+        writer.write(objectMapper.writeValueAsString(dto));
+        writer.write('\n');
+    }
+
+    /**
+     * One row per item (one row with empty item columns for an order without items); the payment
+     * columns repeat on each row of the order
+     */
+    private void writeCsv(Order order, List<OrderItem> items, List<Payment> payments, Writer writer) throws IOException {
+        BigDecimal paid = payments.stream()
+            .filter(payment -> payment.getStatus() == Payment.PaymentStatus.COMPLETED)
+            .map(Payment::getAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        String transactionIds = payments.stream()
+            .map(Payment::getTransactionId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.joining(";"));
+        String orderColumns = csv(order.getId(), order.getOrderNumber(), order.getOrderDate(), order.getStatus(),
+            order.getUser() != null ? order.getUser().getEmail() : null, order.getTotalAmount());
+        String paymentColumns = csv(paid, payments.size(), transactionIds);
+
+        if (items.isEmpty()) {
+            writer.write(orderColumns + ",,,,,," + paymentColumns + "\n");
+            return;
+        }
+        for (OrderItem item : items) {
+            writer.write(orderColumns + "," + csv(item.getProduct().getSku(), item.getProduct().getName(),
+                item.getQuantity(), item.getUnitPrice(), item.getTotalPrice()) + "," + paymentColumns + "\n");
+        }
+    }
+
+    private static String csv(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values[i] == null ? "" : values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+
+    private static <T> Map<Long, List<T>> groupByOrder(Collection<T> rows, Function<T, Long> orderId) {
+        Map<Long, List<T>> grouped = new HashMap<>();
+        for (T row : rows) {
+            grouped.computeIfAbsent(orderId.apply(row), id -> new ArrayList<>()).add(row);
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,40 @@
+package com.codewithmosh.store.service.order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's order history: the (order_date, id) of the last order on the previous page.
+ * Sent to clients as an opaque URL-safe string.
+ */
+record OrderHistoryCursor(LocalDateTime orderDate, long id) {
+
+    // seeks from above every real order, so the first page uses the same query as the others
+    static final OrderHistoryCursor START = new OrderHistoryCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((orderDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    static OrderHistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new OrderHistoryCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.dto.order.BulkStatusUpdateResultDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.Order.OrderStatus;
+import com.codewithmosh.store.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves orders through {@link OrderTransitions} in bulk, for fulfilment imports.
+ *
+ * Ids are processed in chunks of {@code order.lifecycle.chunk-size}, each in its own short transaction:
+ * <ol>
+ *   <li>{@code SELECT id, status ... WHERE id IN (...)} - a projection, no entities are loaded;</li>
+ *   <li>{@code UPDATE orders SET status = ?, shipped_date = ? WHERE id IN (...) AND status IN (...)} for
+ *       the ids whose status allows the move. The status guard makes the update safe against orders
+ *       that change in between; if it touches fewer rows than expected, the row count cannot tell which
+ *       ones were skipped, so the chunk is rolled back and redone with one guarded UPDATE per order,
+ *       and the orders that still did not move are read again to report where they are.</li>
+ * </ol>
+ * So a chunk normally costs two statements however many orders it holds. Orders in the target status
+ * already are reported as unchanged rather than rejected, so replaying an import is harmless.
+ *
+ * Only SHIPPED and DELIVERED are applied in bulk; cancelling gives stock back and goes through
+ * {@link OrderService#cancelOrder}.
+ */
+@Service
+@Slf4j
+public class OrderLifecycleService {
+
+    private static final Set<OrderStatus> BULK_TARGETS = EnumSet.of(OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public OrderLifecycleService(OrderRepository orderRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${order.lifecycle.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive, was " + chunkSize);
+        }
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Move every order that allows it to SHIPPED or DELIVERED, stamping shippedDate or deliveredDate.
+     * Chunks commit independently: if one fails, the earlier ones stay applied.
+     *
+     * @param occurredAt when the orders shipped or were delivered, null for now
+     * @throws IllegalArgumentException for any other target status
+     */
+    public BulkStatusUpdateResultDto transition(OrderStatus target, Collection<Long> orderIds, LocalDateTime occurredAt) {
+        if (!BULK_TARGETS.contains(target)) {
+            throw new IllegalArgumentException("Only " + BULK_TARGETS + " can be applied in bulk, not " + target);
+        }
+        LocalDateTime at = occurredAt != null ? occurredAt : LocalDateTime.now();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        BulkStatusUpdateResultDto result = new BulkStatusUpdateResultDto(target, ids.size());
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            Boolean applied = transactionTemplate.execute(status -> applyChunk(target, chunk, at, result, status));
+            if (!Boolean.TRUE.equals(applied)) {
+                transactionTemplate.executeWithoutResult(status -> applyOneByOne(target, chunk, at, result));
+            }
+        }
+
+        log.info("Bulk {}: {} requested, {} updated, {} unchanged, {} rejected, {} not found", target,
+            result.getRequested(), result.getUpdated(), result.getUnchanged().size(),
+            result.getRejected().size(), result.getNotFound().size());
+        return result;
+    }
+
+    /**
+     * One guarded UPDATE for the whole chunk; false, with the transaction marked for rollback and
+     * nothing reported, if another writer moved some of its orders between the read and the update
+     */
+    private boolean applyChunk(OrderStatus target, List<Long> chunk, LocalDateTime at,
+                               BulkStatusUpdateResultDto result, TransactionStatus transaction) {
+        Set<OrderStatus> sources = OrderTransitions.sourcesOf(target);
+        Map<Long, OrderStatus> before = statusesOf(chunk);
+        Set<Long> movable = movable(chunk, before, sources);
+
+        if (!movable.isEmpty() && update(target, movable, sources, at) != movable.size()) {
+            transaction.setRollbackOnly();
+            return false;
+        }
+        report(target, chunk, movable, before, result);
+        return true;
+    }
+
+    /**
+     * The chunk again with one guarded UPDATE per order, so each order is reported by what happened to it
+     */
+    private void applyOneByOne(OrderStatus target, List<Long> chunk, LocalDateTime at,
+                               BulkStatusUpdateResultDto result) {
+        Set<OrderStatus> sources = OrderTransitions.sourcesOf(target);
+        Map<Long, OrderStatus> statuses = statusesOf(chunk);
+
+        Set<Long> moved = new HashSet<>();
+        List<Long> skipped = new ArrayList<>();
+        for (Long id : movable(chunk, statuses, sources)) {
+            if (update(target, List.of(id), sources, at) == 1) {
+                moved.add(id);
+            } else {
+                skipped.add(id);
+            }
+        }
+        if (!skipped.isEmpty()) {
+            // moved on by someone else since they were read: see where they are now
+            Map<Long, OrderStatus> now = statusesOf(skipped);
+            for (Long id : skipped) {
+                statuses.put(id, now.get(id));  // null if it was deleted
+            }
+        }
+        report(target, chunk, moved, statuses, result);
+    }
+
+    private static Set<Long> movable(List<Long> chunk, Map<Long, OrderStatus> statuses, Set<OrderStatus> sources) {
+        Set<Long> movable = new HashSet<>();
+        for (Long id : chunk) {
+            OrderStatus current = statuses.get(id);
+            if (current != null && sources.contains(current)) {
+                movable.add(id);
+            }
+        }
+        return movable;
+    }
+
+    private static void report(OrderStatus target, List<Long> chunk, Set<Long> moved, Map<Long, OrderStatus> statuses,
+                               BulkStatusUpdateResultDto result) {
+        for (Long id : chunk) {
+            if (moved.contains(id)) {
+                continue;
+            }
+            OrderStatus current = statuses.get(id);
+            if (current == null) {
+                result.getNotFound().add(id);
+            } else if (current == target) {
+                result.getUnchanged().add(id);
+            } else {
+                result.getRejected().add(new BulkStatusUpdateResultDto.Rejection(id, current));
+            }
+        }
+        result.setUpdated(result.getUpdated() + moved.size());
+    }
+
+    private int update(OrderStatus target, Collection<Long> ids, Set<OrderStatus> sources, LocalDateTime at) {
+        return target == OrderStatus.SHIPPED
+            ? orderRepository.markShipped(ids, sources, at)
+            : orderRepository.markDelivered(ids, sources, at);
+    }
+
+    private Map<Long, OrderStatus> statusesOf(List<Long> ids) {
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        for (OrderRepository.StatusView view : orderRepository.findStatusesByIdIn(ids)) {
+            statuses.put(view.getId(), view.getStatus());
+        }
+        return statuses;
+    }
+}
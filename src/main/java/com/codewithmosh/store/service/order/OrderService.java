@@ -1,24 +1,70 @@
 package com.codewithmosh.store.service.order;
 
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.order.OrderItemRequestDto;
+import com.codewithmosh.store.dto.order.OrderRequestDto;
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.OrderItem;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.entity.user.User;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.OrderRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.repository.UserRepository;
+import com.codewithmosh.store.service.id.OrderNumberGenerator;
+import com.codewithmosh.store.service.inventory.InventoryService;
 import com.codewithmosh.store.service.payment.processors.PaymentService;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService implements OrderServiceInterface {
 
-    private PaymentService paymentService;
+    public static final int MAX_PAGE_SIZE = 100;
 
-    public OrderService() {}
+    private PaymentService paymentService;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final InventoryService inventoryService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final EntityDtoMapper entityDtoMapper;
 
     // here you use @Autowired because you have 2 constructors
     // if the interface PaymentService has 2 implementations, you need to use @Qualifier (like to set a service to default)
     @Autowired
-    public OrderService(@Qualifier("stripe") PaymentService paymentService) {
+    public OrderService(@Qualifier("stripe") PaymentService paymentService,
+                        OrderRepository orderRepository,
+                        ProductRepository productRepository,
+                        UserRepository userRepository,
+                        InventoryService inventoryService,
+                        OrderNumberGenerator orderNumberGenerator,
+                        EntityDtoMapper entityDtoMapper) {
         this.paymentService = paymentService;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.inventoryService = inventoryService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.entityDtoMapper = entityDtoMapper;
     }
 
     @PostConstruct
@@ -37,6 +83,169 @@ public class OrderService implements OrderServiceInterface {
         System.out.println("@PreDestroy before destorying the bean");
     }
 
+    /**
+     * Place an order: price every line from the product table and store the order with its items.
+     *
+     * The number of statements does not depend on the number of lines: one SELECT for the user,
+     * one SELECT ... WHERE id IN (...) for all products, one batch of conditional stock updates,
+     * one INSERT for the order and one JDBC batch per hibernate.jdbc.batch_size items (ids come from {@link com.codewithmosh.store.entity.id.PooledId}
+     * blocks, so nothing forces row-by-row inserts). Client-side prices are only compared, never trusted.
+     */
+    @Override
+    @Transactional
+    public OrderResponseDto placeOrder(OrderRequestDto request) {
+        List<OrderItemRequestDto> lines = request.getOrderItems();
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("Order items are required");
+        }
+
+        User user = userRepository.findById(request.getUserId())
+            .orElseThrow(() -> new IllegalArgumentException("User not found: " + request.getUserId()));
+        Map<Long, Product> products = loadProducts(lines);
+
+        Order order = new Order(user, orderNumberGenerator.next(), BigDecimal.ZERO);
+        order.setShippingAddress(request.getShippingAddress());
+        order.setBillingAddress(request.getBillingAddress());
+
+        List<OrderItem> items = new ArrayList<>(lines.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItemRequestDto line : lines) {
+            OrderItem item = priceLine(order, products.get(line.getProductId()), line);
+            items.add(item);
+            order.getOrderItems().add(item);
+            total = total.add(item.getTotalPrice());
+        }
+        if (request.getTotalAmount() != null && request.getTotalAmount().compareTo(total) != 0) {
+            throw new IllegalStateException(
+                "Order total changed from " + request.getTotalAmount() + " to " + total);
+        }
+        order.setTotalAmount(total);
+
+        // throws if any line is out of stock; the transaction then gives back what was taken
+        inventoryService.reserve(InventoryService.quantitiesOf(items));
+
+        // items are cascaded; flushing here sends the order and its item batch in two round trips
+        orderRepository.saveAndFlush(order);
+
+        // orderItems is a Set, so map from the list to keep the request's line order
+        OrderResponseDto response = entityDtoMapper.toOrderResponseDto(order);
+        response.setOrderItems(items.stream()
+            .map(entityDtoMapper::toOrderItemResponseDto)
+            .collect(Collectors.toList()));
+        return response;
+    }
+
+    /**
+     * Cancel an order that has not shipped yet and put its items back in stock
+     */
+    @Override
+    @Transactional
+    public OrderResponseDto cancelOrder(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+            .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
+        if (!OrderTransitions.isAllowed(order.getStatus(), Order.OrderStatus.CANCELLED)) {
+            throw new IllegalStateException("Order " + order.getOrderNumber() + " is " + order.getStatus()
+                + " and can no longer be cancelled");
+        }
+
+        inventoryService.release(InventoryService.quantitiesOf(order.getOrderItems()));
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        return entityDtoMapper.toOrderResponseDto(order);
+    }
+
+    /**
+     * One order with its user, items, products and payments
+     *
+     * @throws NoSuchElementException if there is no such order
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public OrderResponseDto getOrder(Long orderId) {
+        List<OrderResponseDto> orders = getOrders(List.of(orderId));
+        if (orders.isEmpty()) {
+            throw new NoSuchElementException("Order not found: " + orderId);
+        }
+        return orders.get(0);
+    }
+
+    /**
+     * Orders with their user, items, products and payments, in the order the ids were given
+     * (unknown ids are skipped).
+     *
+     * Always two queries, however many orders, items and payments there are: orders + user + items +
+     * products, then payments. Mapping afterwards only reads what is already loaded, so
+     * {@link EntityDtoMapper#toOrderResponseDto} cannot trigger lazy loads.
+     *
+     * @throws IllegalArgumentException if more than {@link #MAX_PAGE_SIZE} ids are asked for
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderResponseDto> getOrders(Collection<Long> orderIds) {
+        Set<Long> ids = new LinkedHashSet<>(orderIds);
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " orders can be loaded at once");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Order> orders = orderRepository.findAllWithItemsByIdIn(ids).stream()
+            .collect(Collectors.toMap(Order::getId, Function.identity()));
+        if (!orders.isEmpty()) {
+            orderRepository.fetchPaymentsByIdIn(orders.keySet());
+        }
+
+        return ids.stream()
+            .map(orders::get)
+            .filter(Objects::nonNull)
+            .map(entityDtoMapper::toOrderResponseDto)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * One page of a user's orders, newest first, optionally for one status.
+     *
+     * Keyset pagination on (order_date, id): each page is a single index range read starting right
+     * after the cursor, with no OFFSET to skip over and no COUNT(*). One row more than asked for is read
+     * to know whether there is a next page. Items and payments are not loaded.
+     *
+     * @param cursor nextCursor of the previous page, or null for the newest orders
+     * @throws NoSuchElementException if the user does not exist
+     * @throws IllegalArgumentException if the cursor or size is invalid
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PagedResponse<OrderResponseDto> getOrderHistory(Long userId, Order.OrderStatus status, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        OrderHistoryCursor after = OrderHistoryCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Order> orders = status == null
+            ? orderRepository.findHistoryPage(userId, after.orderDate(), after.id(), limit)
+            : orderRepository.findHistoryPageByStatus(userId, status, after.orderDate(), after.id(), limit);
+
+        // only worth a query when there is nothing to show
+        if (orders.isEmpty() && cursor == null && !userRepository.existsById(userId)) {
+            throw new NoSuchElementException("User not found: " + userId);
+        }
+
+        String nextCursor = null;
+        if (orders.size() > size) {
+            orders = orders.subList(0, size);
+            Order last = orders.get(size - 1);
+            nextCursor = new OrderHistoryCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        List<OrderResponseDto> content = orders.stream()
+            .map(entityDtoMapper::toOrderHeaderDto)
+            .collect(Collectors.toList());
+        return PagedResponse.keyset(content, size, cursor, nextCursor);
+    }
+
+    /**
+     * @deprecated only charges an amount and stores nothing; use {@link #placeOrder(OrderRequestDto)}
+     */
+    @Deprecated
     @Override
     public void placeOrder(double amount) {
         paymentService.processPayment(amount);
@@ -51,4 +260,30 @@ public class OrderService implements OrderServiceInterface {
     public PaymentService getPaymentService() {
         return paymentService;
     }
+
+    private Map<Long, Product> loadProducts(List<OrderItemRequestDto> lines) {
+        Set<Long> ids = lines.stream()
+            .map(OrderItemRequestDto::getProductId)
+            .collect(Collectors.toSet());
+        return productRepository.findAllByIdIn(ids).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private OrderItem priceLine(Order order, Product product, OrderItemRequestDto line) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product not found: " + line.getProductId());
+        }
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            throw new IllegalArgumentException("Product is not available: " + product.getSku());
+        }
+        if (line.getQuantity() == null || line.getQuantity() < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1 for " + product.getSku());
+        }
+        BigDecimal unitPrice = product.getPrice();
+        if (line.getUnitPrice() != null && line.getUnitPrice().compareTo(unitPrice) != 0) {
+            throw new IllegalStateException(
+                "Price of " + product.getSku() + " changed from " + line.getUnitPrice() + " to " + unitPrice);
+        }
+        return new OrderItem(order, product, line.getQuantity(), unitPrice);
+    }
 }
@@ -1,8 +1,26 @@
 package com.codewithmosh.store.service.order;
 
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.order.OrderRequestDto;
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.entity.order.Order;
 import com.codewithmosh.store.service.payment.processors.PaymentService;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface OrderServiceInterface {
+    OrderResponseDto placeOrder(OrderRequestDto request);
+
+    OrderResponseDto cancelOrder(Long orderId);
+
+    OrderResponseDto getOrder(Long orderId);
+
+    List<OrderResponseDto> getOrders(Collection<Long> orderIds);
+
+    PagedResponse<OrderResponseDto> getOrderHistory(Long userId, Order.OrderStatus status, String cursor, int size);
+
+    @Deprecated
     void placeOrder(double amount);
 
     void setPaymentService(PaymentService paymentService);
@@ -0,0 +1,69 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.entity.order.Order.OrderStatus;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The order lifecycle: which status may follow which.
+ *
+ * <pre>
+ * PENDING    -> CONFIRMED, CANCELLED
+ * CONFIRMED  -> PROCESSING, SHIPPED, CANCELLED
+ * PROCESSING -> SHIPPED, CANCELLED
+ * SHIPPED    -> DELIVERED, RETURNED
+ * DELIVERED  -> RETURNED
+ * </pre>
+ *
+ * CANCELLED and RETURNED are final.
+ */
+public final class OrderTransitions {
+
+    private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> PREVIOUS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        allow(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.CANCELLED);
+        allow(OrderStatus.CONFIRMED, OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.CANCELLED);
+        allow(OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.CANCELLED);
+        allow(OrderStatus.SHIPPED, OrderStatus.DELIVERED, OrderStatus.RETURNED);
+        allow(OrderStatus.DELIVERED, OrderStatus.RETURNED);
+        allow(OrderStatus.CANCELLED);
+        allow(OrderStatus.RETURNED);
+    }
+
+    private OrderTransitions() {
+    }
+
+    public static boolean isAllowed(OrderStatus from, OrderStatus to) {
+        return NEXT.get(from).contains(to);
+    }
+
+    /**
+     * Statuses an order may move to from {@code from}
+     */
+    public static Set<OrderStatus> nextOf(OrderStatus from) {
+        return NEXT.get(from);
+    }
+
+    /**
+     * Statuses an order may be in to move to {@code to}
+     */
+    public static Set<OrderStatus> sourcesOf(OrderStatus to) {
+        return Collections.unmodifiableSet(PREVIOUS.get(to));
+    }
+
+    private static void allow(OrderStatus from, OrderStatus... to) {
+        EnumSet<OrderStatus> next = EnumSet.noneOf(OrderStatus.class);
+        Collections.addAll(next, to);
+        NEXT.put(from, Collections.unmodifiableSet(next));
+        for (OrderStatus target : to) {
+            PREVIOUS.computeIfAbsent(target, status -> EnumSet.noneOf(OrderStatus.class)).add(from);
+        }
+        PREVIOUS.putIfAbsent(from, EnumSet.noneOf(OrderStatus.class));
+    }
+}
@@ -0,0 +1,39 @@
+package com.codewithmosh.store.service.order.importer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One order as read from an import file, before SKUs and customers are resolved
+ */
+final class ImportedOrder {
+
+    record Line(String sku, int quantity, BigDecimal unitPrice) {
+    }
+
+    final long lineNumber;
+    final String orderNumber;
+    final LocalDateTime orderDate;
+    final String status;
+    final Long userId;
+    final String customerEmail;
+    final BigDecimal totalAmount;
+    final String shippingAddress;
+    final String billingAddress;
+    final List<Line> lines = new ArrayList<>();
+
+    ImportedOrder(long lineNumber, String orderNumber, LocalDateTime orderDate, String status, Long userId,
+                  String customerEmail, BigDecimal totalAmount, String shippingAddress, String billingAddress) {
+        this.lineNumber = lineNumber;
+        this.orderNumber = orderNumber;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.userId = userId;
+        this.customerEmail = customerEmail;
+        this.totalAmount = totalAmount;
+        this.shippingAddress = shippingAddress;
+        this.billingAddress = billingAddress;
+    }
+}
@@ -0,0 +1,261 @@
+package com.codewithmosh.store.service.order.importer;
+
+import com.codewithmosh.store.service.order.OrderExportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads orders one at a time from an import file, so only the order being read is in memory.
+ *
+ * Both formats accept what {@link OrderExportService} writes:
+ * <ul>
+ *   <li>CSV: a header row, then one row per item; consecutive rows with the same order_number are one
+ *       order. Columns are found by name: order_number (required), order_date, status, user_id or
+ *       customer_email, order_total, shipping_address, billing_address, item_sku, quantity,
+ *       unit_price. Quoted fields may contain commas, quotes ("") and line breaks.</li>
+ *   <li>NDJSON: one order per line with orderNumber, orderDate, status, userId or customerEmail (or
+ *       user.email), totalAmount, shippingAddress, billingAddress and items (or orderItems), each with
+ *       sku (or product.sku), quantity and unitPrice.</li>
+ * </ul>
+ *
+ * A malformed file makes {@link #next()} throw IllegalArgumentException naming the line; values that
+ * parse but make no sense (unknown SKU, bad status) are left for the import to reject.
+ */
+abstract class OrderImportReader {
+
+    protected final BufferedReader in;
+    protected long lineNumber;
+
+    protected OrderImportReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    static OrderImportReader of(OrderExportService.Format format, BufferedReader in, ObjectMapper objectMapper) {
+        return format == OrderExportService.Format.CSV ? new Csv(in) : new Ndjson(in, objectMapper);
+    }
+
+    /**
+     * Next order, or null at the end of the file
+     */
+    abstract ImportedOrder next() throws IOException;
+
+    protected IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException("Line " + lineNumber + ": " + problem);
+    }
+
+    protected LocalDateTime dateTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return value.length() == 10 ? LocalDateTime.parse(value + "T00:00") : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw malformed("invalid date " + value);
+        }
+    }
+
+    protected BigDecimal decimal(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw malformed("invalid amount " + value);
+        }
+    }
+
+    protected int quantity(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw malformed("invalid quantity " + value);
+        }
+    }
+
+    private static final class Csv extends OrderImportReader {
+
+        private Map<String, Integer> columns;
+        private List<String> pending;
+        private long pendingLine;
+        private long recordLine;
+
+        Csv(BufferedReader in) {
+            super(in);
+        }
+
+        @Override
+        ImportedOrder next() throws IOException {
+            if (columns == null) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim().toLowerCase(), i);
+                }
+                if (!columns.containsKey("order_number")) {
+                    throw malformed("header has no order_number column");
+                }
+                pending = readRecord();
+                pendingLine = recordLine;
+            }
+            if (pending == null) {
+                return null;
+            }
+
+            List<String> row = pending;
+            String userId = field(row, "user_id");
+            ImportedOrder order = new ImportedOrder(pendingLine, field(row, "order_number"),
+                dateTime(field(row, "order_date")), field(row, "status"),
+                userId == null ? null : Long.valueOf(userId), field(row, "customer_email"),
+                decimal(field(row, "order_total")), field(row, "shipping_address"), field(row, "billing_address"));
+            if (order.orderNumber == null) {
+                throw malformed("order_number is empty");
+            }
+
+            // the following rows of the same order number carry its other items
+            do {
+                String sku = field(row, "item_sku");
+                if (sku != null) {
+                    order.lines.add(new ImportedOrder.Line(sku, quantity(field(row, "quantity")),
+                        decimal(field(row, "unit_price"))));
+                }
+                row = readRecord();
+            } while (row != null && order.orderNumber.equals(field(row, "order_number")));
+            pending = row;
+            pendingLine = recordLine;
+            return order;
+        }
+
+        private String field(List<String> row, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= row.size()) {
+                return null;
+            }
+            String value = row.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        /**
+         * One CSV record, which spans several lines if a quoted field contains line breaks
+         */
+        private List<String> readRecord() throws IOException {
+            String line = in.readLine();
+            while (line != null && line.isBlank()) {
+                lineNumber++;
+                line = in.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            recordLine = lineNumber;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    String more = in.readLine();
+                    if (more == null) {
+                        throw malformed("unterminated quoted field");
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = more;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class Ndjson extends OrderImportReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(BufferedReader in, ObjectMapper objectMapper) {
+            super(in);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        ImportedOrder next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw malformed("invalid JSON: " + e.getOriginalMessage());
+            }
+            String orderNumber = text(node.path("orderNumber"));
+            if (orderNumber == null) {
+                throw malformed("orderNumber is missing");
+            }
+            String email = text(node.path("customerEmail"));
+            ImportedOrder order = new ImportedOrder(lineNumber, orderNumber,
+                dateTime(text(node.path("orderDate"))), text(node.path("status")),
+                node.hasNonNull("userId") ? node.get("userId").asLong() : null,
+                email != null ? email : text(node.path("user").path("email")),
+                decimal(text(node.path("totalAmount"))),
+                text(node.path("shippingAddress")), text(node.path("billingAddress")));
+
+            JsonNode items = node.has("items") ? node.get("items") : node.path("orderItems");
+            for (JsonNode item : items) {
+                String sku = text(item.path("sku"));
+                order.lines.add(new ImportedOrder.Line(sku != null ? sku : text(item.path("product").path("sku")),
+                    quantity(text(item.path("quantity"))), decimal(text(item.path("unitPrice")))));
+            }
+            return order;
+        }
+
+        private static String text(JsonNode node) {
+            return node.isMissingNode() || node.isNull() ? null : node.asText();
+        }
+    }
+}
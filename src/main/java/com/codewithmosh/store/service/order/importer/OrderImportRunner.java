@@ -0,0 +1,55 @@
+package com.codewithmosh.store.service.order.importer;
+
+import com.codewithmosh.store.service.order.OrderExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Imports a file once at startup, e.g.
+ * {@code java -jar store.jar --order.import.file=orders-2024.csv}.
+ *
+ * The import id defaults to the file name, so starting again with the same file resumes where the
+ * last run stopped. The format follows the extension (.csv, anything else is read as NDJSON).
+ */
+@Component
+@ConditionalOnProperty(name = "order.import.file")
+@Slf4j
+public class OrderImportRunner implements ApplicationRunner {
+
+    private final OrderImportService orderImportService;
+    private final Path file;
+    private final String importId;
+
+    public OrderImportRunner(OrderImportService orderImportService,
+                             @Value("${order.import.file}") Path file,
+                             @Value("${order.import.id:}") String importId) {
+        this.orderImportService = orderImportService;
+        this.file = file;
+        this.importId = importId.isBlank() ? file.getFileName().toString() : importId;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        OrderExportService.Format format = file.toString().toLowerCase(Locale.ROOT).endsWith(".csv")
+            ? OrderExportService.Format.CSV
+            : OrderExportService.Format.NDJSON;
+        log.info("Importing {} as {} under import id {}", file, format, importId);
+        try (InputStream in = Files.newInputStream(file)) {
+            OrderImportService.ImportReport report = orderImportService.importOrders(importId, in, format);
+            if (report.failedChunks() > 0) {
+                log.warn("{} chunks of {} failed; start again with the same file to retry them",
+                    report.failedChunks(), file);
+            }
+            report.rejections().forEach(rejection -> log.warn("Rejected {}", rejection));
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.codewithmosh.store.service.order.importer;
+
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.service.id.IdBlocks;
+import com.codewithmosh.store.service.order.OrderExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk import of historical orders from CSV or NDJSON (see {@link OrderImportReader} for the columns).
+ *
+ * The file is read once, front to back, and cut into chunks of {@code order.import.chunk-size}
+ * orders that {@code order.import.parallelism} threads write at the same time; reading waits while that
+ * many chunks are in flight, so memory stays bounded however big the file is. Each chunk is one
+ * transaction with a fixed number of statements: a lookup of its customers, a check for order numbers
+ * that already exist, an id reservation per table from {@link IdBlocks}, one JDBC batch of orders,
+ * one of items (multi-row INSERTs on MySQL with rewriteBatchedStatements) and its checkpoint row.
+ * SKUs are resolved in memory through a {@link SkuIndex} loaded once per import.
+ *
+ * The checkpoint (a row in import_chunks) commits with the chunk, so running the same import id over
+ * the same file again skips every chunk that made it and retries only the ones that failed. Orders
+ * that cannot be imported (unknown SKU or customer, bad status, duplicate order number) are rejected
+ * one by one and reported; they do not fail their chunk. An order number that appears twice in the
+ * file is claimed by whichever valid order gets to it first, also across chunks written at the same
+ * time, and the other is rejected.
+ */
+@Service
+@Slf4j
+public class OrderImportService {
+
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+
+    private static final String INSERT_ORDER_SQL = "INSERT INTO orders (id, user_id, order_number, total_amount, status,"
+        + " shipping_address, billing_address, order_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ITEM_SQL = "INSERT INTO order_items (id, order_id, product_id, quantity,"
+        + " unit_price, total_price, discount_amount, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CHECKPOINT_SQL = "INSERT INTO import_chunks (import_id, chunk_no, chunk_size,"
+        + " orders, items, rejected, millis) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    public enum ChunkStatus { IMPORTED, SKIPPED, FAILED }
+
+    /**
+     * What happened to one chunk; ordersPerSecond is the chunk's own write throughput
+     */
+    public record ChunkReport(int chunk, int orders, int items, int rejected, long millis,
+                              double ordersPerSecond, ChunkStatus status, String error) {
+    }
+
+    /**
+     * Totals are for this run; chunks checkpointed by an earlier run are only counted as skipped
+     */
+    public record ImportReport(String importId, long orders, long items, long rejected, int skippedChunks,
+                               int failedChunks, long millis, List<ChunkReport> chunks, List<String> rejections) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdBlocks idBlocks;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public OrderImportService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              IdBlocks idBlocks,
+                              ObjectMapper objectMapper,
+                              @Value("${order.import.chunk-size:1000}") int chunkSize,
+                              @Value("${order.import.parallelism:4}") int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Import chunk size and parallelism must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idBlocks = idBlocks;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Import (or resume importing) a file under an id that names it across runs
+     *
+     * @throws IllegalArgumentException if the id is invalid or the file is malformed; chunks before the
+     *                                  malformed line are kept, so the import can resume once it is fixed
+     * @throws IllegalStateException    if the id was used before with a different chunk size
+     */
+    public ImportReport importOrders(String importId, InputStream input, OrderExportService.Format format)
+            throws IOException {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("Import id must be 1-100 letters, digits, '.', '_' or '-'");
+        }
+        Set<Integer> completed = completedChunks(importId);
+        SkuIndex skus = SkuIndex.load(jdbcTemplate);
+        log.info("Import {} started: {} chunks already done, {} SKUs indexed", importId, completed.size(), skus.size());
+
+        long start = System.nanoTime();
+        List<ChunkReport> reports = Collections.synchronizedList(new ArrayList<>());
+        List<String> rejections = Collections.synchronizedList(new ArrayList<>());
+        Semaphore inFlight = new Semaphore(parallelism);
+        // order numbers accepted by this run, which the database cannot show until their chunk commits
+        Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        // closing waits for the chunks still being written, also when reading fails half way
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism)) {
+            OrderImportReader orders = OrderImportReader.of(format, reader, objectMapper);
+            List<ImportedOrder> chunk = new ArrayList<>();
+            int chunkNo = 0;
+            int read = 0;
+            for (ImportedOrder order = orders.next(); order != null; order = orders.next()) {
+                // a chunk that is already in still has to be read to find where the next one starts
+                if (!completed.contains(chunkNo)) {
+                    chunk.add(order);
+                }
+                if (++read == chunkSize) {
+                    dispatch(importId, chunkNo++, chunk, completed, skus, claimed, workers, inFlight, reports, rejections);
+                    chunk = new ArrayList<>();
+                    read = 0;
+                }
+            }
+            if (read > 0) {
+                dispatch(importId, chunkNo, chunk, completed, skus, claimed, workers, inFlight, reports, rejections);
+            }
+        }
+
+        reports.sort((a, b) -> Integer.compare(a.chunk(), b.chunk()));
+        long orders = 0, items = 0, rejected = 0;
+        int skipped = 0, failed = 0;
+        for (ChunkReport report : reports) {
+            orders += report.orders();
+            items += report.items();
+            rejected += report.rejected();
+            skipped += report.status() == ChunkStatus.SKIPPED ? 1 : 0;
+            failed += report.status() == ChunkStatus.FAILED ? 1 : 0;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Import {} finished in {} ms: {} orders, {} items, {} rejected, {} chunks skipped, {} failed",
+            importId, millis, orders, items, rejected, skipped, failed);
+        return new ImportReport(importId, orders, items, rejected, skipped, failed, millis, List.copyOf(reports),
+            List.copyOf(rejections));
+    }
+
+    private void dispatch(String importId, int chunkNo, List<ImportedOrder> orders, Set<Integer> completed,
+                          SkuIndex skus, Set<String> claimed, ExecutorService workers, Semaphore inFlight,
+                          List<ChunkReport> reports, List<String> rejections) {
+        if (completed.contains(chunkNo)) {
+            reports.add(new ChunkReport(chunkNo, 0, 0, 0, 0, 0, ChunkStatus.SKIPPED, null));
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import " + importId + " interrupted", e);
+        }
+        workers.execute(() -> {
+            try {
+                reports.add(writeChunk(importId, chunkNo, orders, skus, claimed, rejections));
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Validate and write one chunk in its own transaction, together with its checkpoint
+     */
+    private ChunkReport writeChunk(String importId, int chunkNo, List<ImportedOrder> orders, SkuIndex skus,
+                                   Set<String> claimed, List<String> rejections) {
+        long start = System.nanoTime();
+        try {
+            List<Accepted> accepted = validate(orders, skus, claimed, rejections);
+            int rejected = orders.size() - accepted.size();
+            int items = accepted.stream().mapToInt(order -> order.productIds().length).sum();
+
+            // reserved outside the chunk transaction so a worker never holds two connections
+            long orderId = accepted.isEmpty() ? 0 : idBlocks.reserve("orders", accepted.size());
+            long itemId = items == 0 ? 0 : idBlocks.reserve("order_items", items);
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> orderRows = new ArrayList<>(accepted.size());
+            List<Object[]> itemRows = new ArrayList<>(items);
+            for (Accepted order : accepted) {
+                ImportedOrder source = order.source();
+                LocalDateTime orderDate = source.orderDate != null ? source.orderDate : now.toLocalDateTime();
+                orderRows.add(new Object[]{orderId, order.userId(), source.orderNumber, order.total(),
+                    order.status().name(), source.shippingAddress, source.billingAddress,
+                    Timestamp.valueOf(orderDate), now, now});
+                for (int i = 0; i < order.productIds().length; i++) {
+                    ImportedOrder.Line line = source.lines.get(i);
+                    itemRows.add(new Object[]{itemId++, orderId, order.productIds()[i], line.quantity(),
+                        line.unitPrice(), lineTotal(line), BigDecimal.ZERO, now, now});
+                }
+                orderId++;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orderRows);
+                jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, itemRows);
+                jdbcTemplate.update(INSERT_CHECKPOINT_SQL, importId, chunkNo, chunkSize, accepted.size(), items,
+                    rejected, (System.nanoTime() - start) / 1_000_000);
+            });
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            double ordersPerSecond = accepted.size() * 1000.0 / Math.max(1, millis);
+            log.info("Import {} chunk {}: {} orders, {} items, {} rejected in {} ms ({} orders/s)",
+                importId, chunkNo, accepted.size(), items, rejected, millis, Math.round(ordersPerSecond));
+            return new ChunkReport(chunkNo, accepted.size(), items, rejected, millis, ordersPerSecond,
+                ChunkStatus.IMPORTED, null);
+
+        } catch (RuntimeException e) {
+            // rolled back with its checkpoint, so the next run of this import retries it
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            log.warn("Import {} chunk {} failed after {} ms: {}", importId, chunkNo, millis, e.getMessage());
+            return new ChunkReport(chunkNo, 0, 0, 0, millis, 0, ChunkStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Orders of a chunk that can be written, with customers and SKUs resolved; the rest are reported.
+     * An accepted order claims its number for the rest of the run.
+     */
+    private List<Accepted> validate(List<ImportedOrder> orders, SkuIndex skus, Set<String> claimed,
+                                    List<String> rejections) {
+        Map<String, Long> usersByEmail = usersByEmail(orders);
+        Set<Long> userIds = existingUserIds(orders);
+        Set<String> taken = existingOrderNumbers(orders);
+
+        List<Accepted> accepted = new ArrayList<>(orders.size());
+        for (ImportedOrder order : orders) {
+            String problem = null;
+            Long userId = order.userId != null
+                ? (userIds.contains(order.userId) ? order.userId : null)
+                : (order.customerEmail != null ? usersByEmail.get(order.customerEmail.toLowerCase(Locale.ROOT)) : null);
+            Order.OrderStatus status = statusOf(order.status);
+            long[] productIds = new long[order.lines.size()];
+            BigDecimal total = BigDecimal.ZERO;
+
+            if (order.orderNumber.length() > 50) {
+                problem = "order number is longer than 50 characters";
+            } else if (taken.contains(order.orderNumber)) {
+                problem = "order number already exists";
+            } else if (userId == null) {
+                problem = "unknown customer " + (order.userId != null ? order.userId : order.customerEmail);
+            } else if (status == null) {
+                problem = "unknown status " + order.status;
+            }
+            for (int i = 0; problem == null && i < productIds.length; i++) {
+                ImportedOrder.Line line = order.lines.get(i);
+                productIds[i] = line.sku() == null ? SkuIndex.MISSING : skus.get(line.sku());
+                if (productIds[i] == SkuIndex.MISSING) {
+                    problem = "unknown SKU " + line.sku();
+                } else if (line.quantity() < 1) {
+                    problem = "quantity of " + line.sku() + " must be at least 1";
+                } else if (line.unitPrice() == null || line.unitPrice().signum() < 0) {
+                    problem = "unit price of " + line.sku() + " is missing or negative";
+                } else {
+                    total = total.add(lineTotal(line));
+                }
+            }
+            if (problem == null && order.totalAmount != null) {
+                total = order.totalAmount;
+            }
+            if (problem == null && total.signum() < 0) {
+                problem = "total is negative";
+            }
+            // claimed last, so an order rejected for another reason does not take the number from its twin
+            if (problem == null && !claimed.add(order.orderNumber)) {
+                problem = "order number appears more than once in the file";
+            }
+
+            if (problem == null) {
+                accepted.add(new Accepted(order, userId, status, productIds, total));
+            } else {
+                synchronized (rejections) {
+                    if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                        rejections.add("Line " + order.lineNumber + " (" + order.orderNumber + "): " + problem);
+                    }
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private Set<Integer> completedChunks(String importId) {
+        Set<Integer> completed = new HashSet<>();
+        jdbcTemplate.query("SELECT chunk_no, chunk_size FROM import_chunks WHERE import_id = ?", row -> {
+            if (row.getInt(2) != chunkSize) {
+                throw new IllegalStateException("Import " + importId + " was started with chunk size "
+                    + row.getInt(2) + ", not " + chunkSize + "; resume it with the same size or use a new id");
+            }
+            completed.add(row.getInt(1));
+        }, importId);
+        return completed;
+    }
+
+    private Map<String, Long> usersByEmail(List<ImportedOrder> orders) {
+        Set<String> emails = new HashSet<>();
+        for (ImportedOrder order : orders) {
+            if (order.userId == null && order.customerEmail != null) {
+                emails.add(order.customerEmail.toLowerCase(Locale.ROOT));
+            }
+        }
+        Map<String, Long> users = new HashMap<>();
+        if (!emails.isEmpty()) {
+            jdbcTemplate.query("SELECT id, email FROM users WHERE LOWER(email) IN (" + placeholders(emails) + ")",
+                row -> {
+                    users.put(row.getString(2).toLowerCase(Locale.ROOT), row.getLong(1));
+                }, emails.toArray());
+        }
+        return users;
+    }
+
+    private Set<Long> existingUserIds(List<ImportedOrder> orders) {
+        Set<Long> ids = new HashSet<>();
+        for (ImportedOrder order : orders) {
+            if (order.userId != null) {
+                ids.add(order.userId);
+            }
+        }
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT id FROM users WHERE id IN (" + placeholders(ids) + ")", Long.class, ids.toArray()));
+    }
+
+    private Set<String> existingOrderNumbers(List<ImportedOrder> orders) {
+        List<String> numbers = orders.stream().map(order -> order.orderNumber).distinct().toList();
+        return new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT order_number FROM orders WHERE order_number IN (" + placeholders(numbers) + ")",
+            String.class, numbers.toArray()));
+    }
+
+    private static Order.OrderStatus statusOf(String status) {
+        if (status == null) {
+            return Order.OrderStatus.PENDING;
+        }
+        try {
+            return Order.OrderStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal lineTotal(ImportedOrder.Line line) {
+        return line.unitPrice().multiply(BigDecimal.valueOf(line.quantity()));
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+
+    private record Accepted(ImportedOrder source, long userId, Order.OrderStatus status, long[] productIds,
+                            BigDecimal total) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.codewithmosh.store.service.order.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * SKU to product id lookup for imports, loaded once and then read by every import thread.
+ *
+ * Open addressing with linear probing over a String[] and a long[]: no entry objects and no boxed
+ * Longs, so a catalogue of a million products costs two arrays instead of a million HashMap nodes,
+ * and a lookup is a hash plus (usually) one array probe. Read-only after {@link #load}, so it needs no
+ * locking.
+ */
+final class SkuIndex {
+
+    static final long MISSING = -1;
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+
+    SkuIndex(int expected) {
+        // at most half full, so probe chains stay short
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Read every product's SKU and id, streaming the rows into the index
+     */
+    static SkuIndex load(JdbcTemplate jdbcTemplate) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+        SkuIndex index = new SkuIndex(count == null ? 0 : count.intValue());
+        jdbcTemplate.query("SELECT id, sku FROM products", row -> {
+            index.put(row.getString(2), row.getLong(1));
+        });
+        return index;
+    }
+
+    void put(String sku, long productId) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        int slot = slotOf(sku, keys);
+        if (keys[slot] == null) {
+            keys[slot] = sku;
+            size++;
+        }
+        values[slot] = productId;
+    }
+
+    /**
+     * Product id for a SKU, or {@link #MISSING}
+     */
+    long get(String sku) {
+        int slot = slotOf(sku, keys);
+        return keys[slot] == null ? MISSING : values[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int slotOf(String sku, String[] keys) {
+        int mask = keys.length - 1;
+        int h = sku.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(sku)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SkuIndex[" + size + " skus, " + keys.length + " slots]";
+    }
+}
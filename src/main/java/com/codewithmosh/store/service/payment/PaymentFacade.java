@@ -1,110 +1,240 @@
 /*
 * which payment service you want to use?
 *
+* Every call carries its own payment method, so concurrent requests never
+* switch a shared service under each other. Only the default method is
+* shared state, and it is swapped atomically.
+*
+* Method "auto" lets AdaptivePaymentRouter pick the cheapest healthy processor.
+*
+* Every attempt that reaches a processor is handed to PaymentRecorder, which
+* writes the Payment rows in batches off the request path.
 * */
 
 package com.codewithmosh.store.service.payment;
 
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.payment.hedging.HedgedCallExecutor;
+import com.codewithmosh.store.service.payment.persistence.PaymentRecorder;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
 import com.codewithmosh.store.service.payment.processors.PaymentService;
-import com.codewithmosh.store.service.payment.processors.PayPalPaymentService;
-import com.codewithmosh.store.service.payment.processors.CreditCardPaymentService;
-import com.codewithmosh.store.service.payment.processors.StripePaymentService;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.codewithmosh.store.service.payment.routing.AdaptivePaymentRouter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 public class PaymentFacade {
 
-    private static final String PAYPAL_PAYMENT_NAME = "paypal";
-    private static final String CREDIT_CARD_PAYMENT_NAME = "credit-card";
-    private static final String STRIPE_PAYMENT_NAME = "stripe";
+    public static final String AUTO_PAYMENT_NAME = "auto";
 
+    private final PaymentServiceRegistry paymentServiceRegistry;
+    private final AdaptivePaymentRouter paymentRouter;
+    private final PaymentRecorder paymentRecorder;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final ExecutorService paymentExecutor;
 
-    private final PayPalPaymentService paypalService;
-    private final CreditCardPaymentService creditCardService;
-    private final StripePaymentService stripeService;
-    
-    // Current active payment service
-    private PaymentService currentPaymentService;
-    
     @Value("${payment.default-method:paypal}")
-    private String defaultPaymentMethod;
-    private String currentPaymentMethod = defaultPaymentMethod;
+    private String configuredDefaultMethod;
 
-    public PaymentFacade(PayPalPaymentService paypalService, 
-                        CreditCardPaymentService creditCardService, 
-                        StripePaymentService stripeService) {
-        this.paypalService = paypalService;
-        this.creditCardService = creditCardService;
-        this.stripeService = stripeService;
+    // Method used when a caller does not pin one; replaced atomically by setPaymentMethod
+    private final AtomicReference<String> defaultPaymentMethod = new AtomicReference<>();
+
+    public PaymentFacade(PaymentServiceRegistry paymentServiceRegistry,
+                         AdaptivePaymentRouter paymentRouter,
+                         PaymentRecorder paymentRecorder,
+                         HedgedCallExecutor hedgedCallExecutor,
+                         @Qualifier("paymentExecutor") ExecutorService paymentExecutor) {
+        this.paymentServiceRegistry = paymentServiceRegistry;
+        this.paymentRouter = paymentRouter;
+        this.paymentRecorder = paymentRecorder;
+        this.hedgedCallExecutor = hedgedCallExecutor;
+        this.paymentExecutor = paymentExecutor;
     }
 
     /**
-     * Initialize the default payment service after all properties are injected
+     * Initialize the default payment method after all properties are injected
      */
     @PostConstruct
     public void initializeDefaultPaymentService() {
-        System.out.println("Initializing PaymentFacade with default method: " + defaultPaymentMethod);
-        setPaymentMethod(defaultPaymentMethod);
+        System.out.println("Initializing PaymentFacade with default method: " + configuredDefaultMethod);
+        setPaymentMethod(configuredDefaultMethod);
     }
 
+    /**
+     * Process a payment with the current default method
+     */
     public void processPayment(double amount) {
+        processPayment(amount, null);
+    }
+
+    /**
+     * Process a payment with the given method (or the default one if method is blank)
+     *
+     * @return what the processor reported, including the canonical name of the method used
+     */
+    public PaymentResult processPayment(double amount, String method) {
+        return processPayment(amount, method, paymentRecorder::record);
+    }
+
+    /**
+     * Same as {@link #processPayment(double, String)}, but the Payment row for the attempt is handed
+     * to paymentSink instead of the recorder's buffer (batches write all their rows together)
+     */
+    public PaymentResult processPayment(double amount, String method, Consumer<Payment> paymentSink) {
+        String paymentMethod = selectProcessor(amount, method);
+        long start = System.nanoTime();
+        PaymentResult result = null;
+        try {
+            result = paymentServiceRegistry.getService(paymentMethod).processPayment(amount);
+            return result;
+        } catch (RuntimeException e) {
+            paymentSink.accept(paymentRecorder.failedPayment(paymentMethod, amount, e));
+            throw e;
+        } finally {
+            paymentRouter.record(paymentMethod, System.nanoTime() - start, result != null);
+            if (result != null) {
+                paymentSink.accept(paymentRecorder.completedPayment(result));
+            }
+        }
+    }
+
+    /**
+     * Process a payment on a virtual thread so the caller's thread is not held while the gateway works.
+     * Validation and method resolution still happen on the calling thread, so bad input fails fast.
+     *
+     * @return future completing with what the processor reported
+     */
+    public CompletableFuture<PaymentResult> processPaymentAsync(double amount, String method) {
+        String paymentMethod = selectProcessor(amount, method);
+        long start = System.nanoTime();
+        return paymentServiceRegistry.getService(paymentMethod)
+            .processPaymentAsync(amount, paymentExecutor)
+            .whenComplete((result, error) -> {
+                paymentRouter.record(paymentMethod, System.nanoTime() - start, error == null);
+                if (error == null) {
+                    paymentRecorder.recordSuccess(result);
+                } else {
+                    paymentRecorder.recordFailure(paymentMethod, amount, unwrap(error));
+                }
+            });
+    }
+
+    /**
+     * Ask the processor that took a payment for its current status. Status checks are read-only, so
+     * when hedging is enabled a slow check is raced against a second one.
+     */
+    public Payment.PaymentStatus checkPaymentStatus(String method, String transactionId) {
+        if (transactionId == null || transactionId.isBlank()) {
+            throw new IllegalArgumentException("Transaction id cannot be null or empty");
+        }
+        String paymentMethod = paymentServiceRegistry.resolveName(method);
+        PaymentService service = paymentServiceRegistry.getService(paymentMethod);
+
+        if (!hedgedCallExecutor.isEnabled()) {
+            return service.checkStatus(transactionId);
+        }
+        return hedgedCallExecutor.call(paymentMethod, () -> service.checkStatus(transactionId));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Validate the amount, resolve the method for a call and, for "auto", let the router pick the
+     * concrete processor
+     *
+     * @return canonical name of the processor that should take the payment
+     */
+    public String selectProcessor(double amount, String method) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Payment amount must be positive");
         }
-        
-        if (currentPaymentService == null) {
-            throw new IllegalStateException("No payment service configured");
-        }
-        
-        currentPaymentService.processPayment(amount);
+        String paymentMethod = resolvePaymentMethod(method);
+        return AUTO_PAYMENT_NAME.equals(paymentMethod) ? paymentRouter.select(amount) : paymentMethod;
     }
 
     /**
-     * Set the payment method - much simpler!
+     * Resolve the method a call should use: the requested one if given, otherwise the default.
+     * May return "auto", which is only turned into a processor when the payment is made.
      */
-    public void setPaymentMethod(String paymentMethod) {
-        if (paymentMethod == null || paymentMethod.trim().isEmpty()) {
-            throw new IllegalArgumentException("Payment method cannot be null or empty");
+    public String resolvePaymentMethod(String method) {
+        if (method == null || method.trim().isEmpty()) {
+            String defaultMethod = defaultPaymentMethod.get();
+            if (defaultMethod == null) {
+                throw new IllegalStateException("No payment service configured");
+            }
+            return defaultMethod;
         }
+        return resolveName(method);
+    }
 
-        switch (paymentMethod.toLowerCase()) {
-            case PAYPAL_PAYMENT_NAME:
-                currentPaymentService = paypalService;
-                currentPaymentMethod = PAYPAL_PAYMENT_NAME;
-                break;
-            case CREDIT_CARD_PAYMENT_NAME:
-                currentPaymentService = creditCardService;
-                currentPaymentMethod = CREDIT_CARD_PAYMENT_NAME;
-                break;
-            case STRIPE_PAYMENT_NAME:
-                currentPaymentService = stripeService;
-                currentPaymentMethod = STRIPE_PAYMENT_NAME;
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod + 
-                    ". Available methods: paypal, creditCard, stripe");
+    private String resolveName(String method) {
+        if (method != null && AUTO_PAYMENT_NAME.equalsIgnoreCase(method.trim())) {
+            return AUTO_PAYMENT_NAME;
         }
-        
-        System.out.println("Payment method set to: " + paymentMethod);
+        return paymentServiceRegistry.resolveName(method);
+    }
+
+    /**
+     * Set the default payment method used when a request does not specify one
+     */
+    public void setPaymentMethod(String paymentMethod) {
+        String resolved = resolveName(paymentMethod);
+        defaultPaymentMethod.set(resolved);
+
+        System.out.println("Payment method set to: " + resolved);
     }
 
     /**
-     * Get the current payment method name
+     * Get the current default payment method name
      */
     public String getCurrentPaymentMethod() {
-        return currentPaymentMethod;
+        return defaultPaymentMethod.get();
     }
 
     /**
      * Get available payment methods
      */
     public List<String> getAvailablePaymentMethods() {
-        return Arrays.asList("paypal", "creditCard", "stripe");
+        List<String> methods = new ArrayList<>(paymentServiceRegistry.getNames());
+        methods.add(AUTO_PAYMENT_NAME);
+        return methods;
+    }
+
+    /**
+     * Circuit breaker state (CLOSED, OPEN, HALF_OPEN) of every payment method
+     */
+    public Map<String, String> getPaymentMethodStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        paymentServiceRegistry.getServices()
+            .forEach((name, service) -> states.put(name, service.getCircuitState().name()));
+        return states;
+    }
+
+    /**
+     * Latency and error-rate estimates the "auto" method routes on
+     */
+    public Map<String, Map<String, Object>> getRoutingStatistics() {
+        return paymentRouter.getStatistics();
+    }
+
+    /**
+     * Hedge and win rates of status checks, per processor
+     */
+    public Map<String, Map<String, Object>> getHedgingStatistics() {
+        return hedgedCallExecutor.getStatistics();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.codewithmosh.store.service.payment;
+
+import com.codewithmosh.store.config.CreditCardConfig;
+import com.codewithmosh.store.config.PayPalConfig;
+import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.service.payment.processors.CreditCardPaymentService;
+import com.codewithmosh.store.service.payment.processors.PayPalPaymentService;
+import com.codewithmosh.store.service.payment.processors.PaymentService;
+import com.codewithmosh.store.service.payment.processors.StripePaymentService;
+import com.codewithmosh.store.service.payment.resilience.ResilientPaymentService;
+import com.codewithmosh.store.service.payment.resilience.ResilientPaymentServiceFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable lookup table from payment method name to the {@link PaymentService} bean handling it.
+ *
+ * The maps are built once in the constructor and never modified afterwards, so every lookup is a
+ * plain read that is safe to run from any number of request threads without locking.
+ *
+ * Each processor is registered wrapped in a {@link ResilientPaymentService}, which enforces the
+ * timeout from the processor's own config and isolates it behind its own bulkhead and circuit breaker.
+ */
+@Component
+public class PaymentServiceRegistry {
+
+    public static final String PAYPAL = "paypal";
+    public static final String CREDIT_CARD = "credit-card";
+    public static final String STRIPE = "stripe";
+
+    // canonical method name -> resilient wrapper around the processor bean
+    private final Map<String, ResilientPaymentService> services;
+
+    // lower-case alias (e.g. "creditcard") -> canonical method name
+    private final Map<String, String> aliases;
+
+    public PaymentServiceRegistry(PayPalPaymentService paypalService,
+                                  CreditCardPaymentService creditCardService,
+                                  StripePaymentService stripeService,
+                                  PayPalConfig payPalConfig,
+                                  CreditCardConfig creditCardConfig,
+                                  StripeConfig stripeConfig,
+                                  ResilientPaymentServiceFactory resilientServiceFactory) {
+        Map<String, ResilientPaymentService> byName = new LinkedHashMap<>();
+        byName.put(PAYPAL, resilientServiceFactory.create(PAYPAL, paypalService, payPalConfig.getTimeout()));
+        byName.put(CREDIT_CARD, resilientServiceFactory.create(CREDIT_CARD, creditCardService, creditCardConfig.getTimeout()));
+        byName.put(STRIPE, resilientServiceFactory.create(STRIPE, stripeService, stripeConfig.getTimeout()));
+        this.services = Collections.unmodifiableMap(byName);
+
+        Map<String, String> byAlias = new HashMap<>();
+        byName.keySet().forEach(name -> byAlias.put(name, name));
+        // bean name of CreditCardPaymentService and the spelling older clients send
+        byAlias.put("creditcard", CREDIT_CARD);
+        byAlias.put("credit_card", CREDIT_CARD);
+        this.aliases = Map.copyOf(byAlias);
+    }
+
+    /**
+     * Map a user supplied method name (any case, any known alias) to its canonical name.
+     */
+    public String resolveName(String paymentMethod) {
+        if (paymentMethod == null || paymentMethod.trim().isEmpty()) {
+            throw new IllegalArgumentException("Payment method cannot be null or empty");
+        }
+
+        String name = aliases.get(paymentMethod.trim().toLowerCase(Locale.ROOT));
+        if (name == null) {
+            throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod +
+                ". Available methods: " + String.join(", ", services.keySet()));
+        }
+        return name;
+    }
+
+    /**
+     * Get the service for a canonical method name (see {@link #resolveName(String)}).
+     */
+    public ResilientPaymentService getService(String canonicalName) {
+        ResilientPaymentService service = services.get(canonicalName);
+        if (service == null) {
+            throw new IllegalArgumentException("Unsupported payment method: " + canonicalName);
+        }
+        return service;
+    }
+
+    /**
+     * Canonical names of all registered payment methods, in registration order
+     */
+    public List<String> getNames() {
+        return List.copyOf(services.keySet());
+    }
+
+    /**
+     * All registered (wrapped) services, keyed by canonical name
+     */
+    public Map<String, ResilientPaymentService> getServices() {
+        return services;
+    }
+}
@@ -0,0 +1,137 @@
+package com.codewithmosh.store.service.payment.batch;
+
+import com.codewithmosh.store.dto.payment.BatchPaymentItemDto;
+import com.codewithmosh.store.dto.payment.BatchPaymentResultDto;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.payment.PaymentFacade;
+import com.codewithmosh.store.service.payment.persistence.PaymentRecorder;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Runs a batch of payments in parallel.
+ *
+ * Every item gets its own virtual thread, but a batch never has more than
+ * {@code payment.batch.max-concurrency-per-processor} calls in flight against one processor. Items
+ * beyond that wait for a permit instead of being turned away by the processor's bulkhead, which keeps
+ * room for regular /payment/process traffic while a large batch is running.
+ *
+ * Payment rows are collected while the batch runs and written together in one transaction once
+ * every item has finished.
+ */
+@Service
+@Slf4j
+public class PaymentBatchProcessor {
+
+    private final PaymentFacade paymentFacade;
+    private final PaymentRecorder paymentRecorder;
+    private final ExecutorService paymentExecutor;
+    private final int maxItems;
+    private final int maxConcurrencyPerProcessor;
+
+    public PaymentBatchProcessor(PaymentFacade paymentFacade,
+                                 PaymentRecorder paymentRecorder,
+                                 @Qualifier("paymentExecutor") ExecutorService paymentExecutor,
+                                 @Value("${payment.batch.max-items:1000}") int maxItems,
+                                 @Value("${payment.batch.max-concurrency-per-processor:10}") int maxConcurrencyPerProcessor) {
+        if (maxItems < 1 || maxConcurrencyPerProcessor < 1) {
+            throw new IllegalArgumentException("Batch size and per-processor concurrency must be positive");
+        }
+        this.paymentFacade = paymentFacade;
+        this.paymentRecorder = paymentRecorder;
+        this.paymentExecutor = paymentExecutor;
+        this.maxItems = maxItems;
+        this.maxConcurrencyPerProcessor = maxConcurrencyPerProcessor;
+    }
+
+    /**
+     * Process every item of a batch.
+     *
+     * @param onItemComplete called once per item as soon as it finishes, in completion order
+     * @return future completing with all results in request order, after the rows have been written
+     */
+    public CompletableFuture<List<BatchPaymentResultDto>> process(List<BatchPaymentItemDto> items,
+                                                                  Consumer<BatchPaymentResultDto> onItemComplete) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one payment");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + maxItems + " payments");
+        }
+
+        // per batch, so one batch's queue never holds back another's
+        Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+        Queue<Payment> rows = new ConcurrentLinkedQueue<>();
+        BatchPaymentResultDto[] results = new BatchPaymentResultDto[items.size()];
+
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            BatchPaymentItemDto item = items.get(i);
+            calls[i] = CompletableFuture
+                .supplyAsync(() -> processItem(index, item, permits, rows), paymentExecutor)
+                .thenAccept(result -> {
+                    results[index] = result;
+                    notifyItem(onItemComplete, result);
+                });
+        }
+
+        return CompletableFuture.allOf(calls).thenApply(ignored -> {
+            paymentRecorder.recordAll(new ArrayList<>(rows));
+            return Arrays.asList(results);
+        });
+    }
+
+    private BatchPaymentResultDto processItem(int index, BatchPaymentItemDto item,
+                                              Map<String, Semaphore> permits, Queue<Payment> rows) {
+        if (item == null) {
+            return BatchPaymentResultDto.failed(index, null, 0, null, "Payment cannot be null");
+        }
+
+        String paymentMethod = null;
+        try {
+            // resolve "auto" and validate the amount up front, so the right processor's permit is taken
+            paymentMethod = paymentFacade.selectProcessor(item.getAmount(), item.getMethod());
+            Semaphore permit = permits.computeIfAbsent(paymentMethod, name -> new Semaphore(maxConcurrencyPerProcessor));
+            permit.acquire();
+            try {
+                PaymentResult result = paymentFacade.processPayment(item.getAmount(), paymentMethod, rows::add);
+                return BatchPaymentResultDto.succeeded(index, item.getReference(), item.getAmount(),
+                    result.getPaymentMethod(), result.getTransactionId());
+            } finally {
+                permit.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchPaymentResultDto.failed(index, item.getReference(), item.getAmount(), paymentMethod,
+                "Batch was interrupted");
+        } catch (Exception e) {
+            return BatchPaymentResultDto.failed(index, item.getReference(), item.getAmount(), paymentMethod,
+                e.getMessage());
+        }
+    }
+
+    private void notifyItem(Consumer<BatchPaymentResultDto> onItemComplete, BatchPaymentResultDto result) {
+        try {
+            onItemComplete.accept(result);
+        } catch (RuntimeException e) {
+            // e.g. the client went away mid-stream; the payments still run to completion and are recorded
+            log.debug("Could not deliver batch item {}: {}", result.getIndex(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+/**
+ * One call to a provider
+ *
+ * @param provider  canonical processor name (stripe, paypal, credit-card)
+ * @param operation {@link #CHARGE} or {@link #STATUS}
+ * @param reference our id for the payment; providers use it to de-duplicate retries
+ * @param amount    amount to charge (0 for status checks)
+ */
+public record GatewayRequest(String provider, String operation, String reference, double amount) {
+
+    public static final String CHARGE = "charge";
+    public static final String STATUS = "status";
+
+    public static GatewayRequest charge(String provider, String reference, double amount) {
+        return new GatewayRequest(provider, CHARGE, reference, amount);
+    }
+
+    public static GatewayRequest status(String provider, String reference) {
+        return new GatewayRequest(provider, STATUS, reference, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Locale;
+
+/**
+ * What a provider answered
+ *
+ * @param statusCode   HTTP style status: 2xx accepted, 4xx rejected, 429 throttled, 5xx provider error
+ * @param body         raw response body
+ * @param retryAfterMs provider's Retry-After hint for throttled calls, 0 if none
+ */
+public record GatewayResponse(int statusCode, String body, long retryAfterMs) {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static GatewayResponse ok(String body) {
+        return new GatewayResponse(200, body, 0);
+    }
+
+    public boolean isSuccess() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    public boolean isThrottled() {
+        return statusCode == 429;
+    }
+
+    /**
+     * Turn a non-2xx answer into the exception the resilience layer expects: provider trouble
+     * (throttling, 5xx) is an IllegalStateException and counts against the circuit, a rejected
+     * request (other 4xx) is an IllegalArgumentException and does not.
+     */
+    public GatewayResponse orThrow(GatewayRequest request) {
+        if (isSuccess()) {
+            return this;
+        }
+        String call = request.provider() + " " + request.operation() + " for " + request.reference();
+        if (isThrottled()) {
+            throw new IllegalStateException(call + " was throttled by the provider"
+                + (retryAfterMs > 0 ? ", retry after " + retryAfterMs + "ms" : ""));
+        }
+        if (statusCode >= 400 && statusCode < 500) {
+            throw new IllegalArgumentException(call + " was rejected (" + statusCode + "): " + body);
+        }
+        throw new IllegalStateException(call + " failed with provider error " + statusCode);
+    }
+
+    /**
+     * The payment status the provider reported in the "status" field of the body, mapped from the
+     * providers' own wording (succeeded, captured, declined, canceled, ...)
+     *
+     * @throws IllegalStateException if the body has no status this store knows
+     */
+    public Payment.PaymentStatus paymentStatus() {
+        String status;
+        try {
+            status = JSON.readTree(body).path("status").asText("");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable provider response: " + body, e);
+        }
+        return switch (status.toLowerCase(Locale.ROOT)) {
+            case "succeeded", "completed", "captured", "approved" -> Payment.PaymentStatus.COMPLETED;
+            case "pending", "requires_action", "created" -> Payment.PaymentStatus.PENDING;
+            case "processing" -> Payment.PaymentStatus.PROCESSING;
+            case "failed", "declined" -> Payment.PaymentStatus.FAILED;
+            case "canceled", "cancelled", "voided" -> Payment.PaymentStatus.CANCELLED;
+            case "refunded" -> Payment.PaymentStatus.REFUNDED;
+            case "partially_refunded" -> Payment.PaymentStatus.PARTIALLY_REFUNDED;
+            default -> throw new IllegalStateException("Unknown payment status from provider: '" + status + "'");
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Sends gateway calls as HTTP requests: POST {base-url}/{provider}/{operation} with a small JSON body.
+ *
+ * Blocking sends are fine here - payment calls already run on virtual threads.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.client", havingValue = "http")
+public class HttpGatewayClient implements PaymentGatewayClient {
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    public HttpGatewayClient(@Value("${payment.gateway.base-url}") String baseUrl,
+                             @Value("${payment.gateway.connect-timeout-ms:1000}") long connectTimeoutMs,
+                             @Value("${payment.gateway.request-timeout-ms:5000}") long requestTimeoutMs) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    }
+
+    @Override
+    public GatewayResponse send(GatewayRequest request) {
+        String body = String.format(Locale.ROOT, "{\"reference\":\"%s\",\"amount\":%.2f}",
+            request.reference(), request.amount());
+        HttpRequest httpRequest = HttpRequest.newBuilder(
+                URI.create(baseUrl + "/" + request.provider() + "/" + request.operation()))
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", request.reference())
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+
+        try {
+            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            long retryAfterMs = response.headers().firstValue("Retry-After")
+                .map(value -> retryAfterMs(value, Instant.now()))
+                .orElse(0L);
+            return new GatewayResponse(response.statusCode(), response.body(), retryAfterMs);
+
+        } catch (HttpTimeoutException e) {
+            throw new IllegalStateException(request.provider() + " gateway did not answer within "
+                + requestTimeout.toMillis() + "ms", e);
+        } catch (IOException e) {
+            throw new IllegalStateException(request.provider() + " gateway unreachable: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(request.provider() + " " + request.operation() + " interrupted", e);
+        }
+    }
+
+    /**
+     * A Retry-After value in milliseconds from now. RFC 9110 allows delay-seconds or an HTTP-date;
+     * anything else, or a date already past, counts as no hint (0) so the caller's own backoff applies.
+     */
+    static long retryAfterMs(String value, Instant now) {
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Math.multiplyExact(Long.parseLong(trimmed), 1000));
+        } catch (NumberFormatException | ArithmeticException e) {
+            // not delay-seconds, or too far away to mean anything
+        }
+        try {
+            Instant at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, Duration.between(now, at).toMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
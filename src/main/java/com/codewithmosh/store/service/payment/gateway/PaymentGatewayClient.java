@@ -0,0 +1,17 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+/**
+ * The network hop to a payment provider. Processors build the request and interpret the response;
+ * the client only moves it across the wire.
+ *
+ * Which implementation is active is chosen with payment.gateway.client:
+ * <ul>
+ *   <li>simulated (default) - {@link SimulatedGatewayClient}, fixed in-process delays, no network</li>
+ *   <li>http - {@link HttpGatewayClient}, real HTTP calls to payment.gateway.base-url, e.g. the local
+ *       stub server started by the gateway-stub profile</li>
+ * </ul>
+ */
+public interface PaymentGatewayClient {
+
+    GatewayResponse send(GatewayRequest request);
+}
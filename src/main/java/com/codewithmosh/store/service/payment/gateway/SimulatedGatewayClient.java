@@ -0,0 +1,42 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for the providers: every call succeeds after a fixed delay, and status checks
+ * occasionally stall for 1.5s the way real gateways do. Used when no gateway is configured.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.client", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedGatewayClient implements PaymentGatewayClient {
+
+    private static final long STALL_MS = 1500;
+
+    // provider -> {charge ms, status ms}
+    private static final Map<String, long[]> LATENCIES = Map.of(
+        "stripe", new long[] {260, 40},
+        "paypal", new long[] {300, 60},
+        "credit-card", new long[] {280, 30}
+    );
+
+    @Override
+    public GatewayResponse send(GatewayRequest request) {
+        long[] latency = LATENCIES.getOrDefault(request.provider(), new long[] {200, 50});
+        boolean status = GatewayRequest.STATUS.equals(request.operation());
+        long delay = status
+            ? (ThreadLocalRandom.current().nextInt(100) == 0 ? STALL_MS : latency[1])
+            : latency[0];
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(request.provider() + " " + request.operation() + " interrupted", e);
+        }
+        return GatewayResponse.ok("{\"reference\":\"" + request.reference() + "\",\"status\":\"succeeded\"}");
+    }
+}
@@ -0,0 +1,181 @@
+package com.codewithmosh.store.service.payment.gateway.stub;
+
+import com.codewithmosh.store.config.GatewayStubConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Local HTTP stand-in for the payment providers, for load and latency tests without a network.
+ *
+ * Serves POST /{provider}/{operation}. Each provider gets its own latency distribution, error,
+ * throttling and hang rates from {@link GatewayStubConfig}, so the whole payment stack (timeouts,
+ * bulkheads, circuit breakers, routing, hedging) can be exercised against realistic misbehaviour.
+ * Set gateway-stub.seed to get the same outcomes on every run: each request then draws from its own
+ * generator, seeded from the seed, the request and how often the stub has seen that request before,
+ * so concurrent handlers do not depend on who reads a shared generator first and a retry can still
+ * get a different answer. The stub remembers every request it has seen in that mode, so keep seeded
+ * runs to tests.
+ *
+ * Started automatically with the gateway-stub profile; tests can also create and start one directly.
+ */
+@Component
+@Profile("gateway-stub")
+@Slf4j
+public class GatewayStubServer {
+
+    private static final double Z_99 = 2.326;
+    // load tests open hundreds of connections at once; a short accept queue turns that into SYN retries
+    private static final int BACKLOG = 1024;
+
+    private final GatewayStubConfig config;
+    private final Map<String, Semaphore> inFlight = new ConcurrentHashMap<>();
+    // request -> times seen, only kept with a seed
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public GatewayStubServer(GatewayStubConfig config) {
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", config.getPort()), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Gateway stub listening on http://localhost:{} for {}", getPort(), config.getProviders().keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.close();
+        }
+    }
+
+    /**
+     * Port the stub is bound to (useful when started with port 0)
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            String request = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if (!"POST".equals(exchange.getRequestMethod()) || path.length != 3) {
+                respond(exchange, 404, "{\"error\":\"expected POST /{provider}/{operation}\"}");
+                return;
+            }
+
+            String provider = path[1];
+            GatewayStubConfig.Provider behaviour = config.getProvider(provider);
+
+            Semaphore slots = inFlight.computeIfAbsent(provider, name -> new Semaphore(
+                behaviour.getMaxConcurrentRequests() > 0 ? behaviour.getMaxConcurrentRequests() : Integer.MAX_VALUE));
+            if (!slots.tryAcquire()) {
+                throttled(exchange, behaviour);
+                return;
+            }
+            try {
+                answer(exchange, behaviour, request, random(exchange.getRequestURI().getPath() + " " + request));
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void answer(HttpExchange exchange, GatewayStubConfig.Provider behaviour, String request,
+                        RandomGenerator random) throws IOException, InterruptedException {
+        double roll = random.nextDouble();
+
+        if (roll < behaviour.getThrottleRate()) {
+            throttled(exchange, behaviour);
+            return;
+        }
+        roll -= behaviour.getThrottleRate();
+
+        if (roll < behaviour.getTimeoutRate()) {
+            Thread.sleep(behaviour.getHangMs());
+            respond(exchange, 504, "{\"error\":\"upstream timeout\"}");
+            return;
+        }
+        roll -= behaviour.getTimeoutRate();
+
+        Thread.sleep(sampleLatencyMs(behaviour, random));
+        if (roll < behaviour.getFailureRate()) {
+            respond(exchange, 503, "{\"error\":\"service unavailable\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"status\":\"succeeded\",\"request\":" + request + "}");
+    }
+
+    /**
+     * Generator for one request: derived from the seed, the request and its attempt number when seeded
+     */
+    private RandomGenerator random(String request) {
+        Long seed = config.getSeed();
+        if (seed == null) {
+            return ThreadLocalRandom.current();
+        }
+        int attempt = attempts.merge(request, 1, Integer::sum);
+        return new SplittableRandom(seed ^ ((long) request.hashCode() << 32 | attempt));
+    }
+
+    /**
+     * Log-normal sample with the configured median and 99th percentile
+     */
+    private long sampleLatencyMs(GatewayStubConfig.Provider behaviour, RandomGenerator random) {
+        double median = Math.max(0.0, behaviour.getMedianLatencyMs());
+        if (median == 0) {
+            return 0;
+        }
+        double p99 = Math.max(median, behaviour.getP99LatencyMs());
+        double sigma = Math.log(p99 / median) / Z_99;
+        return Math.round(median * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    private void throttled(HttpExchange exchange, GatewayStubConfig.Provider behaviour) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(behaviour.getRetryAfterSeconds()));
+        respond(exchange, 429, "{\"error\":\"rate limited\"}");
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.codewithmosh.store.service.payment.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that keeps hedges to a share of traffic.
+ *
+ * Every call deposits {@code budgetPercent / 100} of a token and every hedge spends a whole one, so
+ * over time at most budgetPercent of calls are hedged. The balance is capped at maxBurst tokens,
+ * which stops a long quiet period from saving up enough for a hedge storm when the gateway degrades
+ * (exactly when extra load hurts most). Balances are kept in thousandths of a token.
+ */
+final class HedgeBudget {
+
+    private static final long ONE_TOKEN = 1000;
+
+    private final long depositPerCall;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    HedgeBudget(double budgetPercent, int maxBurst) {
+        if (budgetPercent < 0 || budgetPercent > 100 || maxBurst < 1) {
+            throw new IllegalArgumentException("Hedge budget must be 0-100% with a burst of at least 1");
+        }
+        this.depositPerCall = Math.round(budgetPercent * ONE_TOKEN / 100);
+        this.capacity = maxBurst * ONE_TOKEN;
+        // start with one hedge available so the first stall after startup can be covered
+        this.balance = new AtomicLong(Math.min(ONE_TOKEN, capacity));
+    }
+
+    void onCall() {
+        balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(capacity, current + deposit));
+    }
+
+    boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < ONE_TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - ONE_TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,169 @@
+package com.codewithmosh.store.service.payment.hedging;
+
+import com.codewithmosh.store.config.PaymentHedgingConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second copy of an idempotent gateway call when the first one is unusually slow.
+ *
+ * "Unusually slow" is the configured percentile of that processor's recent latencies: if the first
+ * call has not answered by then, an identical call goes out and the first successful answer wins.
+ * A call only fails if every copy fails. Hedges are paid for out of a {@link HedgeBudget}, so at most
+ * {@code payment.hedging.budget-percent} of calls are ever doubled.
+ *
+ * Only use this for calls that are safe to repeat (status checks, authorisation lookups) - never for
+ * charging a card.
+ *
+ * Metrics, tagged by processor: payment.hedge.calls, payment.hedge.sent, payment.hedge.wins
+ * (hedge answered first) and payment.hedge.budget.exhausted.
+ */
+@Component
+public class HedgedCallExecutor {
+
+    private final PaymentHedgingConfig config;
+    private final ExecutorService paymentExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProcessorHedging> processors = new ConcurrentHashMap<>();
+
+    public HedgedCallExecutor(PaymentHedgingConfig config,
+                              @Qualifier("paymentExecutor") ExecutorService paymentExecutor,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.paymentExecutor = paymentExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Run an idempotent call for a processor, hedging it if it is slow
+     */
+    public <T> T call(String processor, Supplier<T> call) {
+        ProcessorHedging hedging = processors.computeIfAbsent(processor, this::newProcessorHedging);
+        hedging.calls.increment();
+        hedging.budget.onCall();
+
+        CompletableFuture<Answer<T>> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        launch(hedging, call, winner, outstanding, false);
+
+        long delayNanos = hedging.delayNanos();
+        try {
+            if (delayNanos < 0) {
+                // not enough history yet to know what slow means
+                return winner.get().value();
+            }
+            try {
+                return winner.get(delayNanos, TimeUnit.NANOSECONDS).value();
+            } catch (TimeoutException slow) {
+                if (hedging.budget.tryAcquire()) {
+                    hedging.sent.increment();
+                    outstanding.incrementAndGet();
+                    launch(hedging, call, winner, outstanding, true);
+                } else {
+                    hedging.budgetExhausted.increment();
+                }
+                Answer<T> answer = winner.get();
+                if (answer.fromHedge()) {
+                    hedging.wins.increment();
+                }
+                return answer.value();
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(processor + " call interrupted", e);
+        }
+    }
+
+    /**
+     * Hedge rate (hedges sent / calls) and win rate (hedge answered first / hedges sent) per processor
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        processors.forEach((name, hedging) -> {
+            double calls = hedging.calls.count();
+            double sent = hedging.sent.count();
+            double wins = hedging.wins.count();
+            long delayNanos = hedging.delayNanos();
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("calls", (long) calls);
+            stats.put("hedges", (long) sent);
+            stats.put("hedgeWins", (long) wins);
+            stats.put("hedgeRate", calls == 0 ? 0.0 : sent / calls);
+            stats.put("winRate", sent == 0 ? 0.0 : wins / sent);
+            stats.put("hedgeDelayMs", delayNanos < 0 ? null : delayNanos / 1_000_000.0);
+            statistics.put(name, stats);
+        });
+        return statistics;
+    }
+
+    private <T> void launch(ProcessorHedging hedging, Supplier<T> call, CompletableFuture<Answer<T>> winner,
+                            AtomicInteger outstanding, boolean hedge) {
+        long start = System.nanoTime();
+        CompletableFuture.supplyAsync(call, paymentExecutor).whenComplete((value, error) -> {
+            if (error == null) {
+                hedging.latencies.record(System.nanoTime() - start);
+                winner.complete(new Answer<>(value, hedge));
+            } else if (outstanding.decrementAndGet() == 0) {
+                // every copy failed
+                winner.completeExceptionally(error);
+            }
+        });
+    }
+
+    private ProcessorHedging newProcessorHedging(String processor) {
+        return new ProcessorHedging(
+            new LatencyWindow(config.getWindowSize(), config.getPercentile(), config.getMinSamples()),
+            new HedgeBudget(config.getBudgetPercent(), config.getMaxBurst()),
+            TimeUnit.MILLISECONDS.toNanos(config.getMinDelayMs()),
+            counter("payment.hedge.calls", processor),
+            counter("payment.hedge.sent", processor),
+            counter("payment.hedge.wins", processor),
+            counter("payment.hedge.budget.exhausted", processor));
+    }
+
+    private Counter counter(String meterName, String processor) {
+        return Counter.builder(meterName)
+            .tag("processor", processor)
+            .register(meterRegistry);
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RuntimeException runtimeException
+            ? runtimeException
+            : new IllegalStateException(cause);
+    }
+
+    private record Answer<T>(T value, boolean fromHedge) {
+    }
+
+    private record ProcessorHedging(LatencyWindow latencies, HedgeBudget budget, long minDelayNanos,
+                                    Counter calls, Counter sent, Counter wins, Counter budgetExhausted) {
+
+        long delayNanos() {
+            long percentile = latencies.percentileNanos();
+            return percentile < 0 ? -1 : Math.max(minDelayNanos, percentile);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.codewithmosh.store.service.payment.hedging;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring buffer of the most recent call latencies of one processor, with a cached percentile.
+ *
+ * Recording is a single slot write. The percentile is only recomputed (copy + sort of the ring)
+ * every {@link #RECOMPUTE_EVERY} samples, by whichever thread records that sample; readers just
+ * read the cached value.
+ */
+final class LatencyWindow {
+
+    static final int RECOMPUTE_EVERY = 32;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final int minSamples;
+
+    // -1 until minSamples latencies have been seen
+    private volatile long percentileNanos = -1;
+
+    LatencyWindow(int size, double percentile, int minSamples) {
+        if (size < 1 || percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Window size must be positive and percentile between 0 and 100");
+        }
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(minSamples, size));
+    }
+
+    void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+
+        long recorded = n + 1;
+        if (recorded == minSamples || (recorded > minSamples && recorded % RECOMPUTE_EVERY == 0)) {
+            recompute(recorded);
+        }
+    }
+
+    /**
+     * Latency at the configured percentile of the window, or -1 while there is too little data
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(long recorded) {
+        int filled = (int) Math.min(recorded, samples.length());
+        long[] copy = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+
+        int rank = (int) Math.ceil(percentile / 100.0 * filled) - 1;
+        percentileNanos = copy[Math.max(0, Math.min(rank, filled - 1))];
+    }
+}
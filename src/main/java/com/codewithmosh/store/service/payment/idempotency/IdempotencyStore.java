@@ -0,0 +1,197 @@
+package com.codewithmosh.store.service.payment.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory store of results keyed by the client's Idempotency-Key header.
+ *
+ * The first request for a key registers a future before running its action; any duplicate that
+ * arrives while it is still running gets that same future instead of charging again. Completed
+ * results are replayed until they expire.
+ *
+ * Keys are spread over independent stripes by hash. Each stripe has its own map, its own share of
+ * the capacity and a FIFO of insertions, so eviction (expired first, then oldest completed) only ever
+ * touches one stripe and never blocks the others. An entry whose action is still running is never
+ * evicted, as its key would then run the action a second time; a stripe full of them turns new keys
+ * away instead.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+
+    public IdempotencyStore(@Value("${payment.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${payment.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${payment.idempotency.stripes:16}") int stripeCount) {
+        if (maxEntries <= 0 || stripeCount <= 0) {
+            throw new IllegalArgumentException("Idempotency store size and stripe count must be positive");
+        }
+
+        // power of two so the stripe index is a mask instead of a modulo
+        int count = Integer.highestOneBit(stripeCount - 1) << 1;
+        if (count <= 0) {
+            count = 1;
+        }
+
+        int perStripe = Math.max(1, maxEntries / count);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Run the action once per key.
+     *
+     * @param key         client supplied Idempotency-Key
+     * @param fingerprint description of the request (e.g. amount and method); reusing a key for a
+     *                    different request is rejected instead of replaying an unrelated result
+     * @param action      the real work, only invoked if no live entry exists for the key. Its future
+     *                    must complete exceptionally when the work failed, or the failure is replayed
+     * @return the result of the first request with this key
+     * @throws IllegalStateException if the key is in use for a different request, or the store is full
+     *                               of requests that are still running
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, String fingerprint, Supplier<CompletableFuture<T>> action) {
+        Objects.requireNonNull(key, "Idempotency key cannot be null");
+
+        long now = System.nanoTime();
+        Stripe stripe = stripeFor(key);
+        Entry fresh = new Entry(key, fingerprint, now + ttlNanos);
+
+        Entry winner = stripe.entries.compute(key, (k, current) ->
+            current == null || current.isExpired(now) ? fresh : current);
+
+        if (winner != fresh) {
+            if (!Objects.equals(winner.fingerprint, fingerprint)) {
+                throw new IllegalStateException(
+                    "Idempotency-Key '" + key + "' was already used for a different request");
+            }
+            // duplicate: wait for (or replay) the first request's result
+            return (CompletableFuture<T>) winner.result;
+        }
+
+        stripe.insertionOrder.add(fresh);
+        if (!stripe.evict(now)) {
+            IllegalStateException full = new IllegalStateException(
+                "Too many payments in progress, retry Idempotency-Key '" + key + "' later");
+            stripe.forget(fresh);
+            // duplicates that already found this entry must not wait forever
+            fresh.result.completeExceptionally(full);
+            throw full;
+        }
+
+        try {
+            action.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    // failures are not remembered, a retry gets a fresh attempt
+                    stripe.forget(fresh);
+                    fresh.result.completeExceptionally(error);
+                } else {
+                    fresh.result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            stripe.forget(fresh);
+            fresh.result.completeExceptionally(e);
+        }
+
+        return (CompletableFuture<T>) fresh.result;
+    }
+
+    /**
+     * Number of live and not yet purged entries, across all stripes
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.entries.size();
+        }
+        return size;
+    }
+
+    /**
+     * Number of entries waiting in the eviction queues, across all stripes
+     */
+    int queued() {
+        int queued = 0;
+        for (Stripe stripe : stripes) {
+            queued += stripe.insertionOrder.size();
+        }
+        return queued;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        private final int capacity;
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+        // entries in creation order, which is also expiry order since all share one TTL
+        private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Drop expired entries, then the oldest completed ones while over capacity
+         *
+         * @return false if the stripe is still over capacity because every entry left is in progress
+         */
+        private boolean evict(long now) {
+            Iterator<Entry> oldestFirst = insertionOrder.iterator();
+            while (oldestFirst.hasNext()) {
+                Entry entry = oldestFirst.next();
+                boolean expired = entry.isExpired(now);
+                if (!expired && entries.size() <= capacity) {
+                    break;
+                }
+                if (expired || entry.result.isDone()) {
+                    // another thread may have removed it first, which is just as good
+                    oldestFirst.remove();
+                    entries.remove(entry.key, entry);
+                }
+            }
+            return entries.size() <= capacity;
+        }
+
+        private void forget(Entry entry) {
+            entries.remove(entry.key, entry);
+            insertionOrder.remove(entry);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAtNanos;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long expiresAtNanos) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+}
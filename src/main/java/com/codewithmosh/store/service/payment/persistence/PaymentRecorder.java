@@ -0,0 +1,245 @@
+package com.codewithmosh.store.service.payment.persistence;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.repository.PaymentRepository;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind store for payment attempts.
+ *
+ * The request thread only builds the {@link Payment} and puts it in a bounded buffer; a single
+ * background thread drains the buffer and inserts up to {@code hibernate.jdbc.batch_size} rows per
+ * transaction, so recording a payment never adds a database round trip to the gateway call.
+ *
+ * If the buffer is full the database is not keeping up, and the caller writes its own row instead of
+ * dropping it. A batch that fails as a whole (e.g. one duplicate transaction id) is retried row by row
+ * so a single bad row does not lose the other payments in the batch.
+ */
+@Component
+@Slf4j
+public class PaymentRecorder {
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Payment> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public PaymentRecorder(PaymentRepository paymentRepository,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}") int batchSize,
+                           @Value("${payment.recorder.buffer-capacity:10000}") int bufferCapacity,
+                           @Value("${payment.recorder.flush-interval-ms:200}") long flushIntervalMs) {
+        if (batchSize < 1 || bufferCapacity < 1 || flushIntervalMs < 1) {
+            throw new IllegalArgumentException("Recorder batch size, buffer capacity and flush interval must be positive");
+        }
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        // platform thread: it spends its time inside JDBC calls, which would pin a virtual thread anyway
+        flusher = Thread.ofPlatform().name("payment-recorder").daemon(true).start(this::flushLoop);
+    }
+
+    /**
+     * Shut down: stop the flusher and write whatever is still buffered
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flushAll();
+    }
+
+    /**
+     * Record a payment the processor accepted
+     */
+    public void recordSuccess(PaymentResult result) {
+        record(completedPayment(result));
+    }
+
+    /**
+     * Record a payment attempt that failed, was rejected or timed out
+     */
+    public void recordFailure(String paymentMethod, double amount, Throwable error) {
+        record(failedPayment(paymentMethod, amount, error));
+    }
+
+    /**
+     * Queue a payment for the next batch; never blocks on the database unless the buffer is full
+     */
+    public void record(Payment payment) {
+        if (!buffer.offer(payment)) {
+            log.warn("Payment buffer full ({} rows), writing {} on the caller thread", buffer.size(), payment);
+            persist(List.of(payment));
+        }
+    }
+
+    /**
+     * Write a group of payments now, in one transaction and a single flush, bypassing the buffer.
+     * Used by batch submissions, which already collect their rows off the request thread.
+     */
+    public void recordAll(List<Payment> payments) {
+        if (!payments.isEmpty()) {
+            persist(payments);
+        }
+    }
+
+    /**
+     * Payment row for an attempt the processor accepted
+     */
+    public Payment completedPayment(PaymentResult result) {
+        Payment payment = newPayment(result.getPaymentMethod(), result.getAmount());
+        payment.setStatus(Payment.PaymentStatus.COMPLETED);
+        payment.setTransactionId(result.getTransactionId());
+        payment.setExternalPaymentId(result.getExternalPaymentId());
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setPaymentDetails(toJson(result));
+        return payment;
+    }
+
+    /**
+     * Payment row for an attempt that failed, was rejected or timed out
+     */
+    public Payment failedPayment(String paymentMethod, double amount, Throwable error) {
+        Payment payment = newPayment(paymentMethod, amount);
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        payment.setFailureReason(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        return payment;
+    }
+
+    /**
+     * Write everything currently buffered (used on shutdown and by tests)
+     */
+    public void flushAll() {
+        List<Payment> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Payments waiting to be written
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Rows written since startup
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * Rows that could not be written, even one by one
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void flushLoop() {
+        List<Payment> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Payment first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Payment recorder flush failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<Payment> batch) {
+        try {
+            // one transaction, one JDBC batch per batch_size rows
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.saveAll(batch));
+            recorded.addAndGet(batch.size());
+        } catch (RuntimeException batchError) {
+            if (batch.size() == 1) {
+                failed.incrementAndGet();
+                log.error("Could not record {}", batch.get(0), batchError);
+                return;
+            }
+            log.warn("Payment batch of {} failed, retrying row by row: {}", batch.size(), batchError.getMessage());
+            for (Payment payment : batch) {
+                // a rolled back insert may have left a generated id behind
+                payment.setId(null);
+                persist(List.of(payment));
+            }
+        }
+    }
+
+    private Payment newPayment(String paymentMethod, double amount) {
+        Payment payment = new Payment();
+        // stored the way the entity documents it: "STRIPE", "PAYPAL", "CREDIT_CARD"
+        payment.setPaymentMethod(paymentMethod.toUpperCase(Locale.ROOT).replace('-', '_'));
+        payment.setAmount(BigDecimal.valueOf(amount));
+        return payment;
+    }
+
+    private String toJson(PaymentResult result) {
+        if (result.getDetails().isEmpty() && result.getFee() == 0) {
+            return null;
+        }
+        try {
+            Map<String, Object> details = new LinkedHashMap<>(result.getDetails());
+            details.put("fee", result.getFee());
+            return objectMapper.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize details of {}", result, e);
+            return null;
+        }
+    }
+}
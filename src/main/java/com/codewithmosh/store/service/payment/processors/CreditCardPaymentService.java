@@ -1,19 +1,41 @@
 package com.codewithmosh.store.service.payment.processors;
 
 import com.codewithmosh.store.config.CreditCardConfig;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.GatewayRequest;
+import com.codewithmosh.store.service.payment.gateway.PaymentGatewayClient;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service("creditCard")
 public class CreditCardPaymentService implements PaymentService {
 
     private final CreditCardConfig creditCardConfig;
+    private final SnowflakeIdGenerator idGenerator;
+    private final PaymentGatewayClient gatewayClient;
 
-    public CreditCardPaymentService(CreditCardConfig creditCardConfig) {
+    public CreditCardPaymentService(CreditCardConfig creditCardConfig, SnowflakeIdGenerator idGenerator,
+                                    PaymentGatewayClient gatewayClient) {
         this.creditCardConfig = creditCardConfig;
+        this.idGenerator = idGenerator;
+        this.gatewayClient = gatewayClient;
+    }
+
+    @Override
+    public double estimateFee(double amount) {
+        return amount * creditCardConfig.getProcessingFeePercentage() / 100;
     }
 
     @Override
-    public void processPayment(double amount) {
+    public boolean isEnabled() {
+        return creditCardConfig.isEnabled();
+    }
+
+    @Override
+    public PaymentResult processPayment(double amount) {
         if (!creditCardConfig.isEnabled()) {
             throw new IllegalStateException("Credit Card payment service is disabled");
         }
@@ -27,53 +49,60 @@ public class CreditCardPaymentService implements PaymentService {
         System.out.println("CVV Required: " + creditCardConfig.isRequireCvv());
         System.out.println("Billing Address Required: " + creditCardConfig.isRequireBillingAddress());
         
-        // Simulate credit card processing
-        simulateCreditCardProcessing(amount);
+        PaymentResult result = callCardProcessor(amount);
         
         System.out.println("Credit card payment completed successfully!");
         System.out.println("========================================");
+        return result;
     }
 
-    private void simulateCreditCardProcessing(double amount) {
-        try {
-            System.out.println("Validating credit card details...");
-            
-            if (creditCardConfig.isRequireCvv()) {
-                System.out.println("Verifying CVV...");
-                Thread.sleep(30);
-            }
-            
-            if (creditCardConfig.isRequireBillingAddress()) {
-                System.out.println("Validating billing address...");
-                Thread.sleep(40);
-            }
-            
-            Thread.sleep(50);
-            
-            System.out.println("Connecting to payment processor...");
-            Thread.sleep(80);
-            
-            System.out.println("Authorizing transaction...");
-            Thread.sleep(120);
-            
-            // Generate realistic transaction details
-            String authCode = "AUTH-" + (int)(Math.random() * 1000000);
-            String transactionId = "TXN-" + System.currentTimeMillis();
-            String cardType = creditCardConfig.getAcceptedCardTypes().get(
-                (int)(Math.random() * creditCardConfig.getAcceptedCardTypes().size())
-            );
-            double processingFee = amount * creditCardConfig.getProcessingFeePercentage() / 100;
-            
-            System.out.println("Card Type: " + cardType);
-            System.out.println("Authorization Code: " + authCode);
-            System.out.println("Transaction ID: " + transactionId);
-            System.out.println("Processing Fee: $" + String.format("%.2f", processingFee));
-            System.out.println("Net Amount: $" + String.format("%.2f", amount - processingFee));
-            System.out.println("Max Retry Attempts: " + creditCardConfig.getMaxRetryAttempts());
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Credit card processing interrupted", e);
+    @Override
+    public Payment.PaymentStatus checkStatus(String transactionId) {
+        if (!creditCardConfig.isEnabled()) {
+            throw new IllegalStateException("Credit Card payment service is disabled");
+        }
+        if (transactionId == null || !transactionId.startsWith("TXN-")) {
+            throw new IllegalArgumentException("Not a Credit Card transaction id: " + transactionId);
         }
+
+        System.out.println("Querying card authorization for " + transactionId);
+        GatewayRequest request = GatewayRequest.status("credit-card", transactionId);
+        return gatewayClient.send(request).orThrow(request).paymentStatus();
+    }
+
+    private PaymentResult callCardProcessor(double amount) {
+        System.out.println("Validating credit card details...");
+        if (creditCardConfig.isRequireCvv()) {
+            System.out.println("Verifying CVV...");
+        }
+        if (creditCardConfig.isRequireBillingAddress()) {
+            System.out.println("Validating billing address...");
+        }
+
+        System.out.println("Connecting to payment processor...");
+        String transactionId = idGenerator.next("TXN-");
+
+        System.out.println("Authorizing transaction...");
+        GatewayRequest request = GatewayRequest.charge("credit-card", transactionId, amount);
+        gatewayClient.send(request).orThrow(request);
+
+        String authCode = "AUTH-" + (int)(Math.random() * 1000000);
+        String cardType = creditCardConfig.getAcceptedCardTypes().get(
+            (int)(Math.random() * creditCardConfig.getAcceptedCardTypes().size())
+        );
+        double processingFee = estimateFee(amount);
+
+        System.out.println("Card Type: " + cardType);
+        System.out.println("Authorization Code: " + authCode);
+        System.out.println("Transaction ID: " + transactionId);
+        System.out.println("Processing Fee: $" + String.format("%.2f", processingFee));
+        System.out.println("Net Amount: $" + String.format("%.2f", amount - processingFee));
+        System.out.println("Max Retry Attempts: " + creditCardConfig.getMaxRetryAttempts());
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("authorizationCode", authCode);
+        details.put("cardType", cardType);
+        details.put("processor", creditCardConfig.getProcessorName());
+        return new PaymentResult("credit-card", amount, transactionId, authCode, processingFee, details);
     }
 } 
\ No newline at end of file
@@ -1,21 +1,43 @@
 package com.codewithmosh.store.service.payment.processors;
 
 import com.codewithmosh.store.config.PayPalConfig;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.GatewayRequest;
+import com.codewithmosh.store.service.payment.gateway.PaymentGatewayClient;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service("paypal")
 @Primary
 public class PayPalPaymentService implements PaymentService {
 
     private final PayPalConfig payPalConfig;
+    private final SnowflakeIdGenerator idGenerator;
+    private final PaymentGatewayClient gatewayClient;
 
-    public PayPalPaymentService(PayPalConfig payPalConfig) {
+    public PayPalPaymentService(PayPalConfig payPalConfig, SnowflakeIdGenerator idGenerator,
+                                PaymentGatewayClient gatewayClient) {
         this.payPalConfig = payPalConfig;
+        this.idGenerator = idGenerator;
+        this.gatewayClient = gatewayClient;
     }
 
     @Override
-    public void processPayment(double amount) {
+    public double estimateFee(double amount) {
+        return (amount * payPalConfig.getFeePercentage() / 100) + payPalConfig.getFixedFee();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return payPalConfig.isEnabled();
+    }
+
+    @Override
+    public PaymentResult processPayment(double amount) {
         if (!payPalConfig.isEnabled()) {
             throw new IllegalStateException("PayPal payment service is disabled");
         }
@@ -28,39 +50,49 @@ public class PayPalPaymentService implements PaymentService {
         System.out.println("PayPal Status: " + (payPalConfig.isEnabled() ? "ACTIVE" : "DISABLED"));
         System.out.println("Supported Currencies: " + payPalConfig.getSupportedCurrencies());
         
-        // Simulate API call
-        simulatePayPalApiCall(amount);
+        PaymentResult result = callPayPalApi(amount);
         
         System.out.println("PayPal payment completed successfully!");
         System.out.println("=====================================");
+        return result;
     }
 
-    private void simulatePayPalApiCall(double amount) {
-        try {
-            System.out.println("Connecting to PayPal API...");
-            System.out.println("Using Client ID: " + maskClientId(payPalConfig.getClientId()));
-            Thread.sleep(100); // Simulate network delay
-            
-            System.out.println("Creating PayPal order...");
-            Thread.sleep(80);
-            
-            System.out.println("Authorizing payment...");
-            Thread.sleep(120);
-            
-            // Generate realistic PayPal transaction details
-            String orderId = "PAYPAL-ORDER-" + System.currentTimeMillis();
-            String transactionId = "PP-" + System.currentTimeMillis();
-            double fee = (amount * payPalConfig.getFeePercentage() / 100) + payPalConfig.getFixedFee();
-            
-            System.out.println("PayPal Order ID: " + orderId);
-            System.out.println("PayPal Transaction ID: " + transactionId);
-            System.out.println("PayPal Fee: $" + String.format("%.2f", fee));
-            System.out.println("Net Amount: $" + String.format("%.2f", amount - fee));
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("PayPal API call interrupted", e);
+    @Override
+    public Payment.PaymentStatus checkStatus(String transactionId) {
+        if (!payPalConfig.isEnabled()) {
+            throw new IllegalStateException("PayPal payment service is disabled");
+        }
+        if (transactionId == null || !transactionId.startsWith("PP-")) {
+            throw new IllegalArgumentException("Not a PayPal transaction id: " + transactionId);
         }
+
+        System.out.println("Looking up PayPal capture " + transactionId);
+        GatewayRequest request = GatewayRequest.status("paypal", transactionId);
+        return gatewayClient.send(request).orThrow(request).paymentStatus();
+    }
+
+    private PaymentResult callPayPalApi(double amount) {
+        System.out.println("Connecting to PayPal API...");
+        System.out.println("Using Client ID: " + maskClientId(payPalConfig.getClientId()));
+
+        System.out.println("Creating PayPal order...");
+        String orderId = idGenerator.next("PAYPAL-ORDER-");
+        String transactionId = idGenerator.next("PP-");
+
+        System.out.println("Authorizing payment...");
+        GatewayRequest request = GatewayRequest.charge("paypal", transactionId, amount);
+        gatewayClient.send(request).orThrow(request);
+
+        double fee = estimateFee(amount);
+        System.out.println("PayPal Order ID: " + orderId);
+        System.out.println("PayPal Transaction ID: " + transactionId);
+        System.out.println("PayPal Fee: $" + String.format("%.2f", fee));
+        System.out.println("Net Amount: $" + String.format("%.2f", amount - fee));
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("orderId", orderId);
+        details.put("environment", payPalConfig.getEnvironment());
+        return new PaymentResult("paypal", amount, transactionId, orderId, fee, details);
     }
 
     private String maskClientId(String clientId) {
@@ -0,0 +1,64 @@
+package com.codewithmosh.store.service.payment.processors;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What a processor reports back for a successful payment
+ */
+public class PaymentResult {
+
+    private final String paymentMethod;
+    private final double amount;
+    private final String transactionId;
+    private final String externalPaymentId;
+    private final double fee;
+    private final Map<String, Object> details;
+
+    public PaymentResult(String paymentMethod, double amount, String transactionId,
+                         String externalPaymentId, double fee, Map<String, Object> details) {
+        this.paymentMethod = paymentMethod;
+        this.amount = amount;
+        this.transactionId = transactionId;
+        this.externalPaymentId = externalPaymentId;
+        this.fee = fee;
+        this.details = details != null
+            ? Collections.unmodifiableMap(new LinkedHashMap<>(details))
+            : Collections.emptyMap();
+    }
+
+    /**
+     * Canonical method name of the processor (paypal, credit-card, stripe)
+     */
+    public String getPaymentMethod() { return paymentMethod; }
+
+    public double getAmount() { return amount; }
+
+    /**
+     * Our identifier for the transaction (unique per payment)
+     */
+    public String getTransactionId() { return transactionId; }
+
+    /**
+     * The provider's identifier (Stripe payment intent, PayPal order, card authorization code)
+     */
+    public String getExternalPaymentId() { return externalPaymentId; }
+
+    public double getFee() { return fee; }
+
+    /**
+     * Provider specific extras, stored as JSON in payments.payment_details
+     */
+    public Map<String, Object> getDetails() { return details; }
+
+    @Override
+    public String toString() {
+        return "PaymentResult{" +
+                "paymentMethod='" + paymentMethod + '\'' +
+                ", amount=" + amount +
+                ", transactionId='" + transactionId + '\'' +
+                ", externalPaymentId='" + externalPaymentId + '\'' +
+                '}';
+    }
+}
@@ -1,5 +1,38 @@
 package com.codewithmosh.store.service.payment.processors;
 
+import com.codewithmosh.store.entity.payment.Payment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public interface PaymentService {
-    void processPayment(double amount);
+    PaymentResult processPayment(double amount);
+
+    /**
+     * Fee the provider charges for a payment of this amount (used to pick the cheapest processor)
+     */
+    default double estimateFee(double amount) {
+        return 0.0;
+    }
+
+    /**
+     * Whether the processor is switched on in its configuration
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Ask the provider for the current state of a payment. Read-only, so it is safe to send twice.
+     */
+    default Payment.PaymentStatus checkStatus(String transactionId) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support status checks");
+    }
+
+    /**
+     * Run {@link #processPayment(double)} on the given executor instead of the calling thread
+     */
+    default CompletableFuture<PaymentResult> processPaymentAsync(double amount, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> processPayment(amount), executor);
+    }
 }
@@ -1,20 +1,42 @@
 package com.codewithmosh.store.service.payment.processors;
 
 import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.GatewayRequest;
+import com.codewithmosh.store.service.payment.gateway.PaymentGatewayClient;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service("stripe")
 public class StripePaymentService implements PaymentService {
 
     // We pack all the strip-info into a class StripeConfig
     private final StripeConfig stripeConfig;
+    private final SnowflakeIdGenerator idGenerator;
+    private final PaymentGatewayClient gatewayClient;
 
-    public StripePaymentService(StripeConfig stripeConfig) {
+    public StripePaymentService(StripeConfig stripeConfig, SnowflakeIdGenerator idGenerator,
+                                PaymentGatewayClient gatewayClient) {
         this.stripeConfig = stripeConfig;
+        this.idGenerator = idGenerator;
+        this.gatewayClient = gatewayClient;
     }
 
     @Override
-    public void processPayment(double amount) {
+    public double estimateFee(double amount) {
+        return amount * stripeConfig.getFeePercentage() / 100 + stripeConfig.getFixedFee();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return stripeConfig.isEnabled();
+    }
+
+    @Override
+    public PaymentResult processPayment(double amount) {
         if (!stripeConfig.isEnabled()) {
             throw new IllegalStateException("Stripe payment service is disabled");
         }
@@ -26,36 +48,46 @@ public class StripePaymentService implements PaymentService {
         System.out.println("Stripe Status: " + (stripeConfig.isEnabled() ? "ACTIVE" : "DISABLED"));
         System.out.println("Supported currencies: " + stripeConfig.getSupportedCurrencies());
         
-        // Simulate Stripe API processing
-        simulateStripeApiCall(amount);
+        PaymentResult result = callStripeApi(amount);
         
         System.out.println("Stripe payment completed successfully!");
         System.out.println("===================================");
+        return result;
     }
 
-    private void simulateStripeApiCall(double amount) {
-        try {
-            System.out.println("Connecting to Stripe API...");
-            Thread.sleep(90); // Simulate network delay
-            
-            System.out.println("Creating payment intent...");
-            Thread.sleep(60);
-            
-            System.out.println("Processing payment...");
-            Thread.sleep(110);
-            
-            // Generate realistic Stripe transaction details
-            String paymentIntentId = "pi_" + System.currentTimeMillis() + "_secret";
-            String chargeId = "ch_" + System.currentTimeMillis();
-            
-            System.out.println("Payment Intent ID: " + paymentIntentId);
-            System.out.println("Charge ID: " + chargeId);
-            System.out.println("Stripe Fee: $" + (amount * 0.029 + 0.30)); // Stripe's fee structure
-            System.out.println("Currency: USD");
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Stripe API call interrupted", e);
+    @Override
+    public Payment.PaymentStatus checkStatus(String transactionId) {
+        if (!stripeConfig.isEnabled()) {
+            throw new IllegalStateException("Stripe payment service is disabled");
+        }
+        if (transactionId == null || !transactionId.startsWith("ch_")) {
+            throw new IllegalArgumentException("Not a Stripe transaction id: " + transactionId);
         }
+
+        System.out.println("Retrieving Stripe charge " + transactionId);
+        GatewayRequest request = GatewayRequest.status("stripe", transactionId);
+        return gatewayClient.send(request).orThrow(request).paymentStatus();
+    }
+
+    private PaymentResult callStripeApi(double amount) {
+        System.out.println("Connecting to Stripe API...");
+        System.out.println("Creating payment intent...");
+        String paymentIntentId = idGenerator.next("pi_");
+        String chargeId = idGenerator.next("ch_");
+
+        System.out.println("Processing payment...");
+        GatewayRequest request = GatewayRequest.charge("stripe", chargeId, amount);
+        gatewayClient.send(request).orThrow(request);
+
+        System.out.println("Payment Intent ID: " + paymentIntentId);
+        System.out.println("Charge ID: " + chargeId);
+        System.out.println("Stripe Fee: $" + String.format("%.2f", estimateFee(amount)));
+        System.out.println("Currency: USD");
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("paymentIntentId", paymentIntentId);
+        details.put("chargeId", chargeId);
+        details.put("currency", "USD");
+        return new PaymentResult("stripe", amount, chargeId, paymentIntentId, estimateFee(amount), details);
     }
 }
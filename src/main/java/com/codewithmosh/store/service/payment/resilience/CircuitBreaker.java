@@ -0,0 +1,178 @@
+package com.codewithmosh.store.service.payment.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for one payment processor.
+ *
+ * CLOSED: calls flow; outcomes are counted in a window of {@code slidingWindowSize} calls and the
+ * circuit opens once at least {@code minimumCalls} were seen and the failure rate reaches the threshold.
+ * OPEN: calls are rejected until {@code openStateDuration} has passed.
+ * HALF_OPEN: a few probe calls are let through; if they all succeed the circuit closes again,
+ * the first failure re-opens it.
+ *
+ * All state lives in atomics, so the hot path (a CLOSED circuit) is a single volatile read.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public interface TransitionListener {
+        void onTransition(String name, State from, State to);
+    }
+
+    private final String name;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openStateDurationNanos;
+    private final int halfOpenPermittedCalls;
+    private final TransitionListener listener;
+    private final LongSupplier nanoClock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAtNanos;
+
+    // calls in the high 32 bits, failures in the low 32 bits, so both change in one CAS
+    private final AtomicLong window = new AtomicLong();
+
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+    public CircuitBreaker(String name, int slidingWindowSize, int minimumCalls, double failureRateThreshold,
+                          long openStateDurationMs, int halfOpenPermittedCalls, TransitionListener listener) {
+        this(name, slidingWindowSize, minimumCalls, failureRateThreshold, openStateDurationMs,
+            halfOpenPermittedCalls, listener, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int slidingWindowSize, int minimumCalls, double failureRateThreshold,
+                   long openStateDurationMs, int halfOpenPermittedCalls, TransitionListener listener,
+                   LongSupplier nanoClock) {
+        this.name = name;
+        this.slidingWindowSize = Math.max(1, slidingWindowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.slidingWindowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openStateDurationNanos = TimeUnit.MILLISECONDS.toNanos(openStateDurationMs);
+        this.halfOpenPermittedCalls = Math.max(1, halfOpenPermittedCalls);
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Ask whether a call may go through. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        if (current == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < openStateDurationNanos) {
+                return false;
+            }
+            // reset the probe budget before publishing HALF_OPEN; losing the CAS is fine,
+            // the winner wrote the same values
+            halfOpenPermits.set(halfOpenPermittedCalls);
+            halfOpenSuccesses.set(0);
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+
+        return tryAcquireProbe();
+    }
+
+    public void onSuccess() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            record(false);
+        } else if (current == State.HALF_OPEN
+                && halfOpenSuccesses.incrementAndGet() >= halfOpenPermittedCalls) {
+            window.set(0);
+            transition(State.HALF_OPEN, State.CLOSED);
+        }
+    }
+
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            record(true);
+        } else if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        }
+    }
+
+    /**
+     * The permitted call ended without telling us anything about the processor's health
+     * (e.g. invalid input); hand a half-open probe slot back.
+     */
+    public void onIgnored() {
+        if (state.get() == State.HALF_OPEN) {
+            halfOpenPermits.incrementAndGet();
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * True if a call issued now could be permitted (closed, half-open, or open but due for a probe)
+     */
+    public boolean isCallPermittedSoon() {
+        State current = state.get();
+        return current != State.OPEN || nanoClock.getAsLong() - openedAtNanos >= openStateDurationNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private boolean tryAcquireProbe() {
+        while (state.get() == State.HALF_OPEN) {
+            int permits = halfOpenPermits.get();
+            if (permits <= 0) {
+                return false;
+            }
+            if (halfOpenPermits.compareAndSet(permits, permits - 1)) {
+                return true;
+            }
+        }
+        // closed by a concurrent probe in the meantime
+        return state.get() == State.CLOSED;
+    }
+
+    private void record(boolean failed) {
+        long updated = window.addAndGet((1L << 32) | (failed ? 1L : 0L));
+        int calls = (int) (updated >>> 32);
+        int failures = (int) updated;
+
+        if (calls >= minimumCalls && failures * 100.0 / calls >= failureRateThreshold) {
+            open(State.CLOSED);
+        } else if (calls >= slidingWindowSize) {
+            // start a fresh window; if someone already added to it, keep their numbers
+            window.compareAndSet(updated, 0);
+        }
+    }
+
+    private void open(State from) {
+        openedAtNanos = nanoClock.getAsLong();
+        if (transition(from, State.OPEN)) {
+            window.set(0);
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        if (state.compareAndSet(from, to)) {
+            if (listener != null) {
+                listener.onTransition(name, from, to);
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,163 @@
+package com.codewithmosh.store.service.payment.resilience;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.codewithmosh.store.service.payment.processors.PaymentService;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decorates one processor with a bulkhead, a hard timeout and a circuit breaker, so a slow or
+ * failing gateway can only use up its own slots and never the threads of the other payment methods.
+ *
+ * Use {@link ResilientPaymentServiceFactory} to create instances.
+ */
+public class ResilientPaymentService implements PaymentService {
+
+    private final String name;
+    private final PaymentService delegate;
+    private final Semaphore bulkhead;
+    private final long maxWaitMs;
+    private final long timeoutMs;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor;
+
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
+    private final Counter timeouts;
+
+    ResilientPaymentService(String name, PaymentService delegate, int maxConcurrentCalls, long maxWaitMs,
+                            long timeoutMs, CircuitBreaker circuitBreaker, ExecutorService executor,
+                            Counter bulkheadRejections, Counter circuitRejections, Counter timeouts) {
+        this.name = name;
+        this.delegate = delegate;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitMs = maxWaitMs;
+        this.timeoutMs = timeoutMs;
+        this.circuitBreaker = circuitBreaker;
+        this.executor = executor;
+        this.bulkheadRejections = bulkheadRejections;
+        this.circuitRejections = circuitRejections;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public PaymentResult processPayment(double amount) {
+        return execute("payment", () -> delegate.processPayment(amount));
+    }
+
+    /**
+     * Status checks go through the same bulkhead, timeout and circuit as payments
+     */
+    @Override
+    public Payment.PaymentStatus checkStatus(String transactionId) {
+        return execute("status check", () -> delegate.checkStatus(transactionId));
+    }
+
+    @Override
+    public double estimateFee(double amount) {
+        return delegate.estimateFee(amount);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    private <T> T execute(String operation, Callable<T> call) {
+        acquireBulkhead();
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                circuitRejections.increment();
+                throw new IllegalStateException(
+                    name + " payment service is temporarily unavailable (circuit " + circuitBreaker.getState() + ")");
+            }
+            return callWithTimeout(operation, call);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void acquireBulkhead() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " payment interrupted while waiting for a free slot", e);
+        }
+
+        if (!acquired) {
+            bulkheadRejections.increment();
+            throw new IllegalStateException(name + " payment service is busy, try again later");
+        }
+    }
+
+    private <T> T callWithTimeout(String operation, Callable<T> task) {
+        Future<T> call = executor.submit(task);
+        try {
+            T result = call.get(timeoutMs, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return result;
+
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            timeouts.increment();
+            circuitBreaker.onFailure();
+            throw new IllegalStateException(name + " " + operation + " timed out after " + timeoutMs + "ms");
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException || cause instanceof UnsupportedOperationException) {
+                // the caller's fault, not the gateway's
+                circuitBreaker.onIgnored();
+                throw (RuntimeException) cause;
+            }
+            circuitBreaker.onFailure();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(name + " " + operation + " failed", cause);
+
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            circuitBreaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " " + operation + " interrupted", e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PaymentService getDelegate() {
+        return delegate;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * False while the circuit is open and not yet due for a probe
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermittedSoon();
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return bulkhead.availablePermits();
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+}
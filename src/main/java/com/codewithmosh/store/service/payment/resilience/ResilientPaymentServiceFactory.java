@@ -0,0 +1,91 @@
+package com.codewithmosh.store.service.payment.resilience;
+
+import com.codewithmosh.store.config.PaymentResilienceConfig;
+import com.codewithmosh.store.service.payment.processors.PaymentService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds {@link ResilientPaymentService} wrappers and publishes their metrics:
+ * <ul>
+ *   <li>payment.circuit.state - 0 closed, 1 open, 2 half-open</li>
+ *   <li>payment.circuit.transitions - one count per state change, tagged from/to</li>
+ *   <li>payment.circuit.rejected, payment.bulkhead.rejected, payment.calls.timeout</li>
+ *   <li>payment.bulkhead.available - free concurrent call slots</li>
+ * </ul>
+ * All meters are tagged with the processor name.
+ */
+@Component
+@Slf4j
+public class ResilientPaymentServiceFactory {
+
+    private final PaymentResilienceConfig config;
+    private final ExecutorService paymentExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public ResilientPaymentServiceFactory(PaymentResilienceConfig config,
+                                          @Qualifier("paymentExecutor") ExecutorService paymentExecutor,
+                                          MeterRegistry meterRegistry) {
+        this.config = config;
+        this.paymentExecutor = paymentExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ResilientPaymentService create(String name, PaymentService delegate, long timeoutMs) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+            name,
+            config.getSlidingWindowSize(),
+            config.getMinimumCalls(),
+            config.getFailureRateThreshold(),
+            config.getOpenStateDurationMs(),
+            config.getHalfOpenPermittedCalls(),
+            this::onTransition
+        );
+
+        ResilientPaymentService service = new ResilientPaymentService(
+            name,
+            delegate,
+            config.getMaxConcurrentCalls(),
+            config.getMaxWaitMs(),
+            timeoutMs,
+            circuitBreaker,
+            paymentExecutor,
+            counter("payment.bulkhead.rejected", name),
+            counter("payment.circuit.rejected", name),
+            counter("payment.calls.timeout", name)
+        );
+
+        Gauge.builder("payment.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+            .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+            .tag("processor", name)
+            .register(meterRegistry);
+        Gauge.builder("payment.bulkhead.available", service, ResilientPaymentService::getAvailableConcurrentCalls)
+            .description("Free concurrent call slots")
+            .tag("processor", name)
+            .register(meterRegistry);
+
+        return service;
+    }
+
+    private void onTransition(String name, CircuitBreaker.State from, CircuitBreaker.State to) {
+        log.warn("Payment circuit '{}' changed from {} to {}", name, from, to);
+        Counter.builder("payment.circuit.transitions")
+            .tag("processor", name)
+            .tag("from", from.name())
+            .tag("to", to.name())
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private Counter counter(String meterName, String processor) {
+        return Counter.builder(meterName)
+            .tag("processor", processor)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,160 @@
+package com.codewithmosh.store.service.payment.routing;
+
+import com.codewithmosh.store.service.payment.PaymentServiceRegistry;
+import com.codewithmosh.store.service.payment.resilience.ResilientPaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a processor for payments made with method "auto".
+ *
+ * Every processor gets a cost per payment:
+ * <pre>
+ *   fee(amount) + latencyCostPerSecond * p99(seconds) + errorRatePenalty * errorRate
+ * </pre>
+ * where fee comes from the processor's config and p99 / error rate from decaying estimates of its
+ * recent calls. The cheapest healthy processor (enabled, circuit not open, error rate below the limit)
+ * wins. A small share of payments goes to a random healthy processor so that a provider which has
+ * recovered gets fresh samples.
+ *
+ * Selection walks fixed arrays built at startup: no locks, no allocation, no boxing.
+ */
+@Component
+public class AdaptivePaymentRouter {
+
+    private final String[] names;
+    private final ResilientPaymentService[] services;
+    private final ProcessorStats[] stats;
+    private final Map<String, Integer> slots;
+
+    private final double latencyCostPerSecond;
+    private final double errorRatePenalty;
+    private final double maxErrorRate;
+    private final double explorationRate;
+
+    public AdaptivePaymentRouter(PaymentServiceRegistry registry,
+                                 @Value("${payment.routing.alpha:0.2}") double alpha,
+                                 @Value("${payment.routing.latency-cost-per-second:0.50}") double latencyCostPerSecond,
+                                 @Value("${payment.routing.error-rate-penalty:5.0}") double errorRatePenalty,
+                                 @Value("${payment.routing.max-error-rate:0.5}") double maxErrorRate,
+                                 @Value("${payment.routing.exploration-rate:0.02}") double explorationRate) {
+        Map<String, ResilientPaymentService> registered = registry.getServices();
+        int size = registered.size();
+
+        this.names = new String[size];
+        this.services = new ResilientPaymentService[size];
+        this.stats = new ProcessorStats[size];
+        Map<String, Integer> bySlot = new LinkedHashMap<>();
+
+        int i = 0;
+        for (Map.Entry<String, ResilientPaymentService> entry : registered.entrySet()) {
+            names[i] = entry.getKey();
+            services[i] = entry.getValue();
+            stats[i] = new ProcessorStats(alpha);
+            bySlot.put(entry.getKey(), i);
+            i++;
+        }
+
+        this.slots = Map.copyOf(bySlot);
+        this.latencyCostPerSecond = latencyCostPerSecond;
+        this.errorRatePenalty = errorRatePenalty;
+        this.maxErrorRate = maxErrorRate;
+        this.explorationRate = explorationRate;
+    }
+
+    /**
+     * Choose the processor for a payment of this amount
+     *
+     * @return canonical method name
+     */
+    public String select(double amount) {
+        int best = -1;
+        double bestCost = Double.MAX_VALUE;
+        int fallback = -1;
+        double fallbackCost = Double.MAX_VALUE;
+        int healthy = 0;
+
+        for (int i = 0; i < services.length; i++) {
+            ResilientPaymentService service = services[i];
+            if (!service.isEnabled() || !service.isAvailable()) {
+                continue;
+            }
+
+            ProcessorStats processorStats = stats[i];
+            double errorRate = processorStats.errorRate();
+            double cost = service.estimateFee(amount)
+                + latencyCostPerSecond * processorStats.p99Millis() / 1000.0
+                + errorRatePenalty * errorRate;
+
+            if (errorRate <= maxErrorRate) {
+                healthy++;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = i;
+                }
+            } else if (cost < fallbackCost) {
+                fallbackCost = cost;
+                fallback = i;
+            }
+        }
+
+        if (best < 0) {
+            if (fallback < 0) {
+                throw new IllegalStateException("No payment processor is available for automatic routing");
+            }
+            return names[fallback];
+        }
+
+        if (healthy > 1 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+            return names[randomHealthy(healthy)];
+        }
+        return names[best];
+    }
+
+    /**
+     * Feed the outcome of a call back into the estimates; unknown names are ignored
+     */
+    public void record(String method, long latencyNanos, boolean success) {
+        Integer slot = slots.get(method);
+        if (slot != null) {
+            stats[slot].record(latencyNanos, success);
+        }
+    }
+
+    /**
+     * Current estimates per processor, for diagnostics
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("samples", stats[i].samples());
+            values.put("meanMs", Math.round(stats[i].meanMillis() * 10) / 10.0);
+            values.put("p99Ms", Math.round(stats[i].p99Millis() * 10) / 10.0);
+            values.put("errorRate", Math.round(stats[i].errorRate() * 1000) / 1000.0);
+            result.put(names[i], values);
+        }
+        return result;
+    }
+
+    private int randomHealthy(int healthy) {
+        int pick = ThreadLocalRandom.current().nextInt(healthy);
+        for (int i = 0; i < services.length; i++) {
+            ResilientPaymentService service = services[i];
+            if (service.isEnabled() && service.isAvailable() && stats[i].errorRate() <= maxErrorRate && pick-- == 0) {
+                return i;
+            }
+        }
+        // state changed between the two passes; any healthy-looking slot will do
+        for (int i = 0; i < services.length; i++) {
+            if (services[i].isAvailable()) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.codewithmosh.store.service.payment.routing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially decaying latency and error-rate estimate for one processor.
+ *
+ * Doubles are stored as raw long bits in atomics and updated with CAS loops, so recording a sample
+ * and reading the estimate never lock and never allocate. Mean, variance and error rate are updated
+ * independently; a reader may see one sample applied to the mean but not yet to the variance,
+ * which is harmless for a routing heuristic.
+ */
+final class ProcessorStats {
+
+    // z-score of the 99th percentile of a normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final double alpha;
+
+    private final AtomicLong meanNanos = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong varianceNanos = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong errorRate = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong samples = new AtomicLong();
+
+    ProcessorStats(double alpha) {
+        this.alpha = alpha;
+    }
+
+    void record(long latencyNanos, boolean success) {
+        // the first sample seeds the mean instead of being averaged against zero
+        if (samples.getAndIncrement() == 0) {
+            meanNanos.set(Double.doubleToRawLongBits(latencyNanos));
+        } else {
+            updateMeanAndVariance(latencyNanos);
+        }
+        updateErrorRate(success ? 0.0 : 1.0);
+    }
+
+    private void updateMeanAndVariance(double sample) {
+        while (true) {
+            long meanBits = meanNanos.get();
+            double mean = Double.longBitsToDouble(meanBits);
+            double diff = sample - mean;
+            double increment = alpha * diff;
+            if (meanNanos.compareAndSet(meanBits, Double.doubleToRawLongBits(mean + increment))) {
+                while (true) {
+                    long varBits = varianceNanos.get();
+                    double variance = Double.longBitsToDouble(varBits);
+                    double updated = (1 - alpha) * (variance + diff * increment);
+                    if (varianceNanos.compareAndSet(varBits, Double.doubleToRawLongBits(updated))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateErrorRate(double outcome) {
+        while (true) {
+            long bits = errorRate.get();
+            double current = Double.longBitsToDouble(bits);
+            double updated = current + alpha * (outcome - current);
+            if (errorRate.compareAndSet(bits, Double.doubleToRawLongBits(updated))) {
+                return;
+            }
+        }
+    }
+
+    double meanMillis() {
+        return Double.longBitsToDouble(meanNanos.get()) / 1_000_000.0;
+    }
+
+    /**
+     * p99 estimate assuming roughly normal latencies: mean + 2.326 standard deviations
+     */
+    double p99Millis() {
+        double mean = Double.longBitsToDouble(meanNanos.get());
+        double variance = Double.longBitsToDouble(varianceNanos.get());
+        return (mean + Z_99 * Math.sqrt(Math.max(variance, 0.0))) / 1_000_000.0;
+    }
+
+    double errorRate() {
+        return Double.longBitsToDouble(errorRate.get());
+    }
+
+    long samples() {
+        return samples.get();
+    }
+}
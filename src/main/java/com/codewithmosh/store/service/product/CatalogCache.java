@@ -0,0 +1,193 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.dto.category.CategoryResponseDto;
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Products and categories as served by the catalog endpoints, kept in memory because they are read
+ * far more often than they change.
+ *
+ * Four {@link TinyLfuCache}s: product by id, SKU to product id, category by id and slug to category
+ * id. Looking up by SKU or slug goes through the id, so each product or category is held once and
+ * invalidating its id is enough to drop it. Entries only leave when they are evicted or invalidated
+ * ({@link CatalogCacheInvalidator} after Hibernate commits a change, {@link #invalidateProducts} after
+ * SQL stock updates); there is no expiry.
+ *
+ * Cached DTOs are shared between callers and must not be modified.
+ *
+ * Metrics, tagged by cache (products, product-skus, categories, category-slugs): catalog.cache.gets
+ * (result hit or miss), catalog.cache.evictions, catalog.cache.loads (load time), catalog.cache.size and
+ * catalog.cache.weight.
+ */
+@Component
+public class CatalogCache {
+
+    // rough heap cost of a product or category DTO and its boxed fields, before its strings
+    private static final long DTO_OVERHEAD = 320;
+    private static final long KEY_OVERHEAD = 96;
+
+    private final TinyLfuCache<Long, ProductResponseDto> products;
+    private final TinyLfuCache<String, Long> productSkus;
+    private final TinyLfuCache<Long, CategoryResponseDto> categories;
+    private final TinyLfuCache<String, Long> categorySlugs;
+
+    public CatalogCache(CatalogCacheConfig config, MeterRegistry meterRegistry) {
+        long productBytes = config.getProductMaxSize().toBytes();
+        long categoryBytes = config.getCategoryMaxSize().toBytes();
+        this.products = new TinyLfuCache<>(productBytes, 1024, (id, product) -> weigh(product));
+        this.productSkus = new TinyLfuCache<>(Math.max(1, productBytes / 8), 128, (sku, id) -> weigh(sku));
+        this.categories = new TinyLfuCache<>(categoryBytes, 512, (id, category) -> weigh(category));
+        this.categorySlugs = new TinyLfuCache<>(Math.max(1, categoryBytes / 8), 128, (slug, id) -> weigh(slug));
+
+        register(meterRegistry, "products", products);
+        register(meterRegistry, "product-skus", productSkus);
+        register(meterRegistry, "categories", categories);
+        register(meterRegistry, "category-slugs", categorySlugs);
+    }
+
+    public ProductResponseDto getProduct(Long id, Function<Long, ProductResponseDto> loader) {
+        return products.get(id, loader);
+    }
+
+    public Long getProductId(String sku, Function<String, Long> loader) {
+        return productSkus.get(sku, loader);
+    }
+
+    public CategoryResponseDto getCategory(Long id, Function<Long, CategoryResponseDto> loader) {
+        return categories.get(id, loader);
+    }
+
+    public Long getCategoryId(String slug, Function<String, Long> loader) {
+        return categorySlugs.get(slug, loader);
+    }
+
+    /**
+     * Drop a product and the SKUs it was cached under (null SKUs are ignored)
+     */
+    public void invalidateProduct(Long id, String... skus) {
+        products.invalidate(id);
+        for (String sku : skus) {
+            if (sku != null) {
+                productSkus.invalidate(sku);
+            }
+        }
+    }
+
+    /**
+     * Drop products whose stock was changed with SQL; their SKUs cannot have changed
+     */
+    public void invalidateProducts(Collection<Long> ids) {
+        ids.forEach(products::invalidate);
+    }
+
+    /**
+     * Drop a category, the slugs it was cached under, and everything that embeds it: its subcategories
+     * (their parent) and its products (their category)
+     */
+    public void invalidateCategory(Long id, String... slugs) {
+        categories.invalidate(id);
+        for (String slug : slugs) {
+            if (slug != null) {
+                categorySlugs.invalidate(slug);
+            }
+        }
+        categories.invalidateIf(category -> category.getParent() != null && id.equals(category.getParent().getId()));
+        products.invalidateIf(product -> product.getCategory() != null && id.equals(product.getCategory().getId()));
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        productSkus.invalidateAll();
+        categories.invalidateAll();
+        categorySlugs.invalidateAll();
+    }
+
+    /**
+     * Size, hit ratio, evictions and load time per cache
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        statistics.put("products", statistics(products));
+        statistics.put("productSkus", statistics(productSkus));
+        statistics.put("categories", statistics(categories));
+        statistics.put("categorySlugs", statistics(categorySlugs));
+        return statistics;
+    }
+
+    private static Map<String, Object> statistics(TinyLfuCache<?, ?> cache) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", cache.size());
+        stats.put("weightBytes", cache.weight());
+        stats.put("maxWeightBytes", cache.maxWeight());
+        stats.put("hits", cache.hits());
+        stats.put("misses", cache.misses());
+        stats.put("hitRatio", cache.hitRatio());
+        stats.put("evictions", cache.evictions());
+        stats.put("loads", cache.loads());
+        stats.put("loadFailures", cache.loadFailures());
+        stats.put("averageLoadMs", cache.loads() == 0 ? 0.0 : cache.loadNanos() / 1_000_000.0 / cache.loads());
+        return stats;
+    }
+
+    private static void register(MeterRegistry registry, String name, TinyLfuCache<?, ?> cache) {
+        FunctionCounter.builder("catalog.cache.gets", cache, TinyLfuCache::hits)
+            .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("catalog.cache.gets", cache, TinyLfuCache::misses)
+            .tags("cache", name, "result", "miss").register(registry);
+        FunctionCounter.builder("catalog.cache.evictions", cache, TinyLfuCache::evictions)
+            .tag("cache", name).register(registry);
+        FunctionTimer.builder("catalog.cache.loads", cache, TinyLfuCache::loads, TinyLfuCache::loadNanos, TimeUnit.NANOSECONDS)
+            .tag("cache", name).register(registry);
+        Gauge.builder("catalog.cache.size", cache, TinyLfuCache::size)
+            .tag("cache", name).register(registry);
+        Gauge.builder("catalog.cache.weight", cache, TinyLfuCache::weight)
+            .tag("cache", name).baseUnit("bytes").register(registry);
+    }
+
+    private static long weigh(ProductResponseDto product) {
+        long weight = DTO_OVERHEAD + chars(product.getName(), product.getDescription(), product.getSku(),
+            product.getImageUrl(), product.getDimensions());
+        if (product.getCategory() != null) {
+            weight += DTO_OVERHEAD / 2 + chars(product.getCategory().getName(), product.getCategory().getSlug(),
+                product.getCategory().getImageUrl());
+        }
+        return weight;
+    }
+
+    private static long weigh(CategoryResponseDto category) {
+        long weight = DTO_OVERHEAD + chars(category.getName(), category.getDescription(), category.getSlug(),
+            category.getImageUrl());
+        if (category.getParent() != null) {
+            weight += DTO_OVERHEAD / 2 + chars(category.getParent().getName(), category.getParent().getSlug(),
+                category.getParent().getImageUrl());
+        }
+        return weight;
+    }
+
+    private static long weigh(String key) {
+        return KEY_OVERHEAD + chars(key);
+    }
+
+    /**
+     * Strings cost about 40 bytes plus a byte per (Latin-1) character
+     */
+    private static long chars(String... values) {
+        long total = 0;
+        for (String value : values) {
+            total += value == null ? 0 : 40 + value.length();
+        }
+        return total;
+    }
+}
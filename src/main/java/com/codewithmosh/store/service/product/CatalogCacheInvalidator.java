@@ -0,0 +1,56 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops products and categories from the {@link CatalogCache} once Hibernate has committed an update
+ * or delete of them.
+ *
+ * Post-commit listeners run only for transactions that commit, after the new state is visible to
+ * other connections, so a reload straight after the invalidation cannot read the old row. Both the
+ * old and the new SKU (or slug) are invalidated, so renaming one does not leave the old key pointing
+ * at the product. Inserts need nothing: misses are never cached.
+ *
+ * Changes that bypass Hibernate (JDBC stock updates, bulk JPQL) have to invalidate explicitly.
+ */
+@Component
+public class CatalogCacheInvalidator extends PostCommitEntityListener {
+
+    private final CatalogCache catalogCache;
+
+    public CatalogCacheInvalidator(EntityManagerFactory entityManagerFactory, CatalogCache catalogCache) {
+        super(entityManagerFactory, Product.class, Category.class);
+        this.catalogCache = catalogCache;
+    }
+
+    @Override
+    protected void afterUpdate(EntityPersister persister, Object id, Object[] oldState, Object[] state) {
+        invalidate(persister, id, oldState, state);
+    }
+
+    @Override
+    protected void afterDelete(EntityPersister persister, Object id, Object[] deletedState) {
+        invalidate(persister, id, deletedState, null);
+    }
+
+    private void invalidate(EntityPersister persister, Object id, Object[] before, Object[] after) {
+        if (persister.getMappedClass() == Product.class) {
+            int sku = propertyIndex(persister, "sku");
+            catalogCache.invalidateProduct((Long) id, valueAt(before, sku), valueAt(after, sku));
+        } else {
+            int slug = propertyIndex(persister, "slug");
+            catalogCache.invalidateCategory((Long) id, valueAt(before, slug), valueAt(after, slug));
+        }
+    }
+
+    /**
+     * A property from an entity state; the old state is null when Hibernate did not have a snapshot
+     */
+    private static String valueAt(Object[] state, int index) {
+        return state == null || index < 0 ? null : (String) state[index];
+    }
+}
@@ -0,0 +1,181 @@
+package com.codewithmosh.store.service.product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Snapshot of every category, laid out for reads that never touch the database.
+ *
+ * Nodes are stored in pre-order (siblings by sort order, then name), so the descendants of a node are
+ * exactly the nodes from its position to {@link Node#end()}: a subtree is an array slice and "is X
+ * under Y" is two integer comparisons. Each node also carries its depth and the ids from its root
+ * down to itself, for breadcrumbs. Immutable once built; a changed category means a new tree.
+ *
+ * Categories whose parent chain loops back on itself cannot be placed and are left out.
+ */
+public final class CategoryTree {
+
+    /**
+     * @param path  ids from the root down to this category, both included
+     * @param index position in pre-order
+     * @param end   position after the last descendant, so the subtree is [index, end)
+     */
+    public record Node(long id, Long parentId, String name, String slug, String imageUrl, int sortOrder,
+                       boolean active, int depth, List<Long> path, int index, int end) {
+
+        public int descendantCount() {
+            return end - index - 1;
+        }
+    }
+
+    record Row(long id, Long parentId, String name, String slug, String imageUrl, int sortOrder, boolean active) {
+    }
+
+    private static final Comparator<Row> SIBLING_ORDER = Comparator.comparingInt(Row::sortOrder)
+        .thenComparing(Row::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+        .thenComparingLong(Row::id);
+
+    private final Node[] nodes;
+    private final long[] ids;
+    private final Map<Long, Integer> indexById;
+    private final Map<String, Integer> indexBySlug;
+    private final List<Node> roots;
+
+    private CategoryTree(Node[] nodes) {
+        this.nodes = nodes;
+        this.ids = new long[nodes.length];
+        this.indexById = new HashMap<>(nodes.length * 2);
+        this.indexBySlug = new HashMap<>(nodes.length * 2);
+        List<Node> rootNodes = new ArrayList<>();
+        for (Node node : nodes) {
+            ids[node.index()] = node.id();
+            indexById.put(node.id(), node.index());
+            indexBySlug.put(node.slug(), node.index());
+            if (node.depth() == 0) {
+                rootNodes.add(node);
+            }
+        }
+        this.roots = List.copyOf(rootNodes);
+    }
+
+    static CategoryTree build(Collection<Row> rows) {
+        Map<Long, List<Row>> children = new HashMap<>();
+        List<Row> topLevel = new ArrayList<>();
+        Map<Long, Row> byId = new HashMap<>(rows.size() * 2);
+        rows.forEach(row -> byId.put(row.id(), row));
+        for (Row row : rows) {
+            if (row.parentId() == null || !byId.containsKey(row.parentId())) {
+                topLevel.add(row);
+            } else {
+                children.computeIfAbsent(row.parentId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+        children.values().forEach(siblings -> siblings.sort(SIBLING_ORDER));
+        topLevel.sort(SIBLING_ORDER);
+
+        // iterative pre-order walk, so a deep tree cannot overflow the stack
+        List<Row> order = new ArrayList<>(rows.size());
+        List<Integer> parents = new ArrayList<>(rows.size());
+        Deque<Row> stack = new ArrayDeque<>();
+        Deque<Integer> stackParents = new ArrayDeque<>();
+        for (int i = topLevel.size() - 1; i >= 0; i--) {
+            stack.push(topLevel.get(i));
+            stackParents.push(-1);
+        }
+        while (!stack.isEmpty()) {
+            Row row = stack.pop();
+            int parent = stackParents.pop();
+            int index = order.size();
+            order.add(row);
+            parents.add(parent);
+            List<Row> below = children.getOrDefault(row.id(), List.of());
+            for (int i = below.size() - 1; i >= 0; i--) {
+                stack.push(below.get(i));
+                stackParents.push(index);
+            }
+        }
+
+        int size = order.size();
+        int[] end = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            end[i] = Math.max(end[i], i + 1);
+            int parent = parents.get(i);
+            if (parent >= 0) {
+                end[parent] = Math.max(end[parent], end[i]);
+            }
+        }
+
+        Node[] nodes = new Node[size];
+        for (int i = 0; i < size; i++) {
+            Row row = order.get(i);
+            int parent = parents.get(i);
+            Long[] path;
+            if (parent < 0) {
+                path = new Long[] {row.id()};
+            } else {
+                List<Long> parentPath = nodes[parent].path();
+                path = parentPath.toArray(new Long[parentPath.size() + 1]);
+                path[parentPath.size()] = row.id();
+            }
+            nodes[i] = new Node(row.id(), parent < 0 ? null : nodes[parent].id(), row.name(), row.slug(),
+                row.imageUrl(), row.sortOrder(), row.active(), path.length - 1, List.of(path), i, end[i]);
+        }
+        return new CategoryTree(nodes);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public Optional<Node> find(long id) {
+        Integer index = indexById.get(id);
+        return index == null ? Optional.empty() : Optional.of(nodes[index]);
+    }
+
+    public Optional<Node> findBySlug(String slug) {
+        Integer index = indexBySlug.get(slug);
+        return index == null ? Optional.empty() : Optional.of(nodes[index]);
+    }
+
+    /**
+     * Top-level categories, in display order
+     */
+    public List<Node> roots() {
+        return roots;
+    }
+
+    /**
+     * Direct subcategories in display order; each child's subtree is skipped in one step
+     */
+    public List<Node> children(Node node) {
+        List<Node> children = new ArrayList<>();
+        for (int child = node.index() + 1; child < node.end(); child = nodes[child].end()) {
+            children.add(nodes[child]);
+        }
+        return children;
+    }
+
+    /**
+     * Ids of a category and everything below it, in pre-order
+     */
+    public List<Long> subtreeIds(Node node) {
+        return Arrays.stream(ids, node.index(), node.end()).boxed().toList();
+    }
+
+    /**
+     * Whether a category is the given ancestor or somewhere below it
+     */
+    public boolean isInSubtree(long ancestorId, long id) {
+        Integer ancestor = indexById.get(ancestorId);
+        Integer index = indexById.get(id);
+        return ancestor != null && index != null && index >= ancestor && index < nodes[ancestor].end();
+    }
+}
@@ -0,0 +1,163 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.dto.category.CategoryTreeNodeDto;
+import com.codewithmosh.store.entity.product.Category;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The category tree, read from one query and kept in memory until a category changes.
+ *
+ * Every committed insert, update or delete of a category (seen through Hibernate post-commit
+ * listeners) bumps a generation number. The next read rebuilds the tree from a single SELECT and
+ * publishes it with one volatile write, so readers see either the old tree or the new one, never a
+ * mix; a burst of edits costs one rebuild, not one per edit. Only one reader rebuilds at a time, and
+ * readers arriving meanwhile keep getting the previous tree instead of waiting for it; only the
+ * very first reads, before any tree exists, wait. A change that commits while a rebuild is running
+ * is picked up by the next read.
+ */
+@Service
+@Slf4j
+public class CategoryTreeService extends PostCommitEntityListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot current;
+
+    public CategoryTreeService(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        super(entityManagerFactory, Category.class);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The current tree, rebuilt first if a category changed since it was read, unless another reader
+     * is already rebuilding it; then the previous tree
+     */
+    public CategoryTree getTree() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.generation() == generation.get()) {
+            return snapshot.tree();
+        }
+        if (snapshot == null) {
+            rebuildLock.lock();  // nothing to serve yet
+        } else if (!rebuildLock.tryLock()) {
+            return snapshot.tree();
+        }
+        try {
+            snapshot = current;
+            long wanted = generation.get();
+            if (snapshot != null && snapshot.generation() == wanted) {
+                return snapshot.tree();  // another reader rebuilt it meanwhile
+            }
+            CategoryTree tree = load();
+            current = new Snapshot(tree, wanted);
+            return tree;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Make the next read rebuild the tree, e.g. after changing categories with plain SQL
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Navigation tree: every top-level category, or one category, with its subcategories nested below
+     *
+     * @param rootId          only this category and what is below it, or null for the whole tree
+     * @param includeInactive also show inactive categories; otherwise an inactive one hides its subtree
+     * @throws NoSuchElementException if rootId is not a category
+     */
+    public List<CategoryTreeNodeDto> getNavigation(Long rootId, boolean includeInactive) {
+        CategoryTree tree = getTree();
+        List<CategoryTree.Node> top = rootId == null ? tree.roots() : List.of(find(tree, rootId));
+        List<CategoryTreeNodeDto> navigation = new ArrayList<>(top.size());
+        for (CategoryTree.Node node : top) {
+            if (includeInactive || node.active()) {
+                navigation.add(toDto(tree, node, includeInactive));
+            }
+        }
+        return navigation;
+    }
+
+    /**
+     * Ids of a category and all its descendants, for "everything in Kitchen" queries
+     *
+     * @throws NoSuchElementException if there is no such category
+     */
+    public List<Long> getSubtreeIds(Long categoryId) {
+        CategoryTree tree = getTree();
+        return tree.subtreeIds(find(tree, categoryId));
+    }
+
+    @Override
+    protected void afterInsert(EntityPersister persister, Object id, Object[] state) {
+        invalidate();
+    }
+
+    @Override
+    protected void afterUpdate(EntityPersister persister, Object id, Object[] oldState, Object[] state) {
+        invalidate();
+    }
+
+    @Override
+    protected void afterDelete(EntityPersister persister, Object id, Object[] deletedState) {
+        invalidate();
+    }
+
+    private CategoryTree load() {
+        long start = System.nanoTime();
+        List<CategoryTree.Row> rows = jdbcTemplate.query(
+            "SELECT id, parent_id, name, slug, image_url, sort_order, is_active FROM categories",
+            (row, rowNum) -> new CategoryTree.Row(
+                row.getLong("id"),
+                row.getObject("parent_id", Long.class),
+                row.getString("name"),
+                row.getString("slug"),
+                row.getString("image_url"),
+                row.getInt("sort_order"),
+                // null is the entity's default, true
+                row.getObject("is_active", Boolean.class) != Boolean.FALSE));
+        CategoryTree tree = CategoryTree.build(rows);
+        if (tree.size() < rows.size()) {
+            log.warn("{} categories have a parent chain that loops and were left out of the tree",
+                rows.size() - tree.size());
+        }
+        log.debug("Category tree of {} nodes built in {} ms", tree.size(), (System.nanoTime() - start) / 1_000_000);
+        return tree;
+    }
+
+    private static CategoryTree.Node find(CategoryTree tree, Long categoryId) {
+        return tree.find(categoryId)
+            .orElseThrow(() -> new NoSuchElementException("Category not found: " + categoryId));
+    }
+
+    private static CategoryTreeNodeDto toDto(CategoryTree tree, CategoryTree.Node node, boolean includeInactive) {
+        CategoryTreeNodeDto dto = new CategoryTreeNodeDto(node.id(), node.name(), node.slug(), node.imageUrl(),
+            node.sortOrder(), node.active(), node.depth(), node.path(), node.descendantCount());
+        List<CategoryTreeNodeDto> children = new ArrayList<>();
+        for (CategoryTree.Node child : tree.children(node)) {
+            if (includeInactive || child.active()) {
+                children.add(toDto(tree, child, includeInactive));
+            }
+        }
+        dto.setChildren(children);
+        return dto;
+    }
+
+    private record Snapshot(CategoryTree tree, long generation) {
+    }
+}
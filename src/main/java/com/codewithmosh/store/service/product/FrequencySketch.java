@@ -0,0 +1,99 @@
+package com.codewithmosh.store.service.product;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate access counts for {@link TinyLfuCache}'s admission decisions (a count-min sketch).
+ *
+ * Each key maps to one 4-bit counter in each of four rows, packed sixteen to a long; its frequency
+ * is the smallest of the four, so collisions can only overestimate. Counters stop at 15 and are all
+ * halved once enough increments have been seen, so the sketch follows what is popular now rather
+ * than what was popular an hour ago. Increments are CAS loops, so readers never wait for a lock.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {0x97cb3127L, 0xb1c7c3e9L, 0x9e3779b9L, 0x85ebca6bL};
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(long expectedEntries) {
+        int slots = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, expectedEntries)) - 1) << 1;
+        this.table = new AtomicLongArray(slots);
+        this.mask = slots - 1;
+        this.sampleSize = 10 * slots;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int row = 0; row < 4; row++) {
+            long h = indexHash(hash, row);
+            frequency = Math.min(frequency, (int) ((table.get(slot(h)) >>> offset(h, row)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            long h = indexHash(hash, row);
+            added |= incrementAt(slot(h), offset(h, row));
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int slot, int offset) {
+        long value;
+        do {
+            value = table.get(slot);
+            if (((value >>> offset) & 0xF) == 15) {
+                return false;
+            }
+        } while (!table.compareAndSet(slot, value, value + (1L << offset)));
+        return true;
+    }
+
+    /**
+     * Halve every counter (ageing); racing increments may be halved or not, which the sketch tolerates
+     */
+    private void reset() {
+        additions.set(sampleSize / 2);
+        for (int slot = 0; slot < table.length(); slot++) {
+            long value;
+            do {
+                value = table.get(slot);
+            } while (!table.compareAndSet(slot, value, (value >>> 1) & HALF_MASK));
+        }
+    }
+
+    private int slot(long h) {
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * Each row uses its own four of the sixteen counters in a slot
+     */
+    private static int offset(long h, int row) {
+        return ((row << 2) + (int) (h & 3)) << 2;
+    }
+
+    private static long indexHash(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h ^ (h >>> 29);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        return h;
+    }
+}
@@ -0,0 +1,110 @@
+package com.codewithmosh.store.service.product;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Base for the in-memory catalog views that follow committed inserts, updates and deletes of some
+ * entity types through Hibernate post-commit listeners.
+ *
+ * It registers itself with Hibernate on startup and hands on only the events of its own entity
+ * types: once any listener asks for post-commit handling, Hibernate calls every listener for every
+ * entity. Rolled back changes are ignored, as there is nothing to follow.
+ */
+public abstract class PostCommitEntityListener implements PostCommitInsertEventListener,
+    PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Set<Class<?>> entityTypes;
+
+    protected PostCommitEntityListener(EntityManagerFactory entityManagerFactory, Class<?>... entityTypes) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityTypes = Set.of(entityTypes);
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .requireService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * A committed insert of one of the entity types
+     */
+    protected void afterInsert(EntityPersister persister, Object id, Object[] state) {
+    }
+
+    /**
+     * A committed update of one of the entity types; oldState is null when Hibernate had no snapshot
+     */
+    protected void afterUpdate(EntityPersister persister, Object id, Object[] oldState, Object[] state) {
+    }
+
+    /**
+     * A committed delete of one of the entity types
+     */
+    protected void afterDelete(EntityPersister persister, Object id, Object[] deletedState) {
+    }
+
+    protected static int propertyIndex(EntityPersister persister, String property) {
+        return Arrays.asList(persister.getPropertyNames()).indexOf(property);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return entityTypes.contains(persister.getMappedClass());
+    }
+
+    @Override
+    public final void onPostInsert(PostInsertEvent event) {
+        if (requiresPostCommitHandling(event.getPersister())) {
+            afterInsert(event.getPersister(), event.getId(), event.getState());
+        }
+    }
+
+    @Override
+    public final void onPostUpdate(PostUpdateEvent event) {
+        if (requiresPostCommitHandling(event.getPersister())) {
+            afterUpdate(event.getPersister(), event.getId(), event.getOldState(), event.getState());
+        }
+    }
+
+    @Override
+    public final void onPostDelete(PostDeleteEvent event) {
+        if (requiresPostCommitHandling(event.getPersister())) {
+            afterDelete(event.getPersister(), event.getId(), event.getDeletedState());
+        }
+    }
+
+    @Override
+    public final void onPostInsertCommitFailed(PostInsertEvent event) {
+        // rolled back: nothing changed
+    }
+
+    @Override
+    public final void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // rolled back: nothing changed
+    }
+
+    @Override
+    public final void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // rolled back: nothing changed
+    }
+}
@@ -0,0 +1,266 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.dto.category.CategoryResponseDto;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import com.codewithmosh.store.dto.product.ProductSummaryDto;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the catalog: product and category lookups, and product listings filtered by category,
+ * active and featured.
+ *
+ * Lookups by id, SKU and slug are served from the {@link CatalogCache}; they do not open a
+ * transaction, so a hit never touches the database.
+ *
+ * Listings are keyset-paginated on (sort key, id): a page is a range read that starts right after
+ * the cursor, with no OFFSET, so the thousandth page costs what the first one does. The composite
+ * indexes from V11 lead with the equality filters, so the range read also comes back already sorted.
+ * A listing of a category with its subcategories takes the subtree's ids from the in-memory
+ * {@link CategoryTreeService}, so it is an IN list on category_id and never a recursive query.
+ *
+ * Totals are optional. An exact COUNT(*) per page would cost more than the page itself on a large
+ * catalog, so the default {@link CountMode#ESTIMATED} counts each filter combination at most once per
+ * {@code catalog.count-ttl} and answers from that until it expires.
+ */
+@Service
+public class ProductCatalogService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // one entry per filter combination; more than this means callers are probing random category ids
+    private static final int MAX_CACHED_COUNTS = 1000;
+
+    public enum CountMode {
+        /** no total (totalElements -1) */
+        NONE,
+        /** a cached total, at most catalog.count-ttl old */
+        ESTIMATED,
+        /** counted with this page */
+        EXACT
+    }
+
+    private final EntityManager entityManager;
+    private final EntityDtoMapper entityDtoMapper;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final CatalogCache catalogCache;
+    private final CategoryTreeService categoryTreeService;
+    private final Duration countTtl;
+    private final Clock clock;
+    private final Map<Filter, CachedCount> counts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductCatalogService(EntityManager entityManager,
+                                 EntityDtoMapper entityDtoMapper,
+                                 ProductRepository productRepository,
+                                 CategoryRepository categoryRepository,
+                                 CatalogCache catalogCache,
+                                 CategoryTreeService categoryTreeService,
+                                 @Value("${catalog.count-ttl:60s}") Duration countTtl) {
+        this(entityManager, entityDtoMapper, productRepository, categoryRepository, catalogCache, categoryTreeService,
+            countTtl, Clock.systemUTC());
+    }
+
+    ProductCatalogService(EntityManager entityManager, EntityDtoMapper entityDtoMapper,
+                          ProductRepository productRepository, CategoryRepository categoryRepository,
+                          CatalogCache catalogCache, CategoryTreeService categoryTreeService,
+                          Duration countTtl, Clock clock) {
+        this.entityManager = entityManager;
+        this.entityDtoMapper = entityDtoMapper;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.catalogCache = catalogCache;
+        this.categoryTreeService = categoryTreeService;
+        this.countTtl = countTtl;
+        this.clock = clock;
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no such product
+     */
+    public ProductResponseDto getProduct(Long id) {
+        ProductResponseDto product = catalogCache.getProduct(id, this::loadProduct);
+        if (product == null) {
+            throw new NoSuchElementException("Product not found: " + id);
+        }
+        return product;
+    }
+
+    /**
+     * @throws NoSuchElementException if no product has this SKU
+     */
+    public ProductResponseDto getProductBySku(String sku) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long id = catalogCache.getProductId(sku, key -> productRepository.findIdBySku(key).orElse(null));
+            ProductResponseDto product = id == null ? null : catalogCache.getProduct(id, this::loadProduct);
+            if (product == null) {
+                break;
+            }
+            if (sku.equals(product.getSku())) {
+                return product;
+            }
+            // the SKU changed without the index hearing of it (an update Hibernate had no snapshot for)
+            catalogCache.invalidateProduct(id, sku);
+        }
+        throw new NoSuchElementException("Product not found: " + sku);
+    }
+
+    /**
+     * Category with its parent (no subcategories or products)
+     *
+     * @throws NoSuchElementException if there is no such category
+     */
+    public CategoryResponseDto getCategory(Long id) {
+        CategoryResponseDto category = catalogCache.getCategory(id, this::loadCategory);
+        if (category == null) {
+            throw new NoSuchElementException("Category not found: " + id);
+        }
+        return category;
+    }
+
+    /**
+     * @throws NoSuchElementException if no category has this slug
+     */
+    public CategoryResponseDto getCategoryBySlug(String slug) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long id = catalogCache.getCategoryId(slug, key -> categoryRepository.findIdBySlug(key).orElse(null));
+            CategoryResponseDto category = id == null ? null : catalogCache.getCategory(id, this::loadCategory);
+            if (category == null) {
+                break;
+            }
+            if (slug.equals(category.getSlug())) {
+                return category;
+            }
+            catalogCache.invalidateCategory(id, slug);
+        }
+        throw new NoSuchElementException("Category not found: " + slug);
+    }
+
+    /**
+     * One page of products
+     *
+     * @param categoryId            only products of this category, or null for all
+     * @param includeSubcategories also products of every category below categoryId; the ids come from the
+     *                             {@link CategoryTreeService}, so this is an IN list rather than recursive SQL
+     * @param active     listing active (true) or inactive (false) products
+     * @param featured   only featured (true) or only non-featured (false) products, or null for both
+     * @param cursor     nextCursor of the previous page of the same listing, or null for the first page
+     * @throws IllegalArgumentException if the cursor or size is invalid
+     * @throws NoSuchElementException if subcategories are asked for and categoryId is not a category
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductSummaryDto> listProducts(Long categoryId, boolean includeSubcategories, boolean active,
+                                                         Boolean featured, ProductSort sort, String cursor, int size,
+                                                         CountMode countMode) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Long> categoryIds = categoryId == null ? null
+            : includeSubcategories ? categoryTreeService.getSubtreeIds(categoryId) : List.of(categoryId);
+        Filter filter = new Filter(categoryIds, active, featured);
+        ProductCursor after = ProductCursor.decode(cursor, sort);
+
+        String key = "p." + sort.getProperty();
+        String direction = sort.isDescending() ? " DESC" : " ASC";
+        String comparison = sort.isDescending() ? " < " : " > ";
+        StringBuilder jpql = new StringBuilder("SELECT p FROM Product p").append(filter.where());
+        if (after != null) {
+            jpql.append(" AND (").append(key).append(comparison).append(":key OR (")
+                .append(key).append(" = :key AND p.id").append(comparison).append(":id))");
+        }
+        jpql.append(" ORDER BY ").append(key).append(direction).append(", p.id").append(direction);
+
+        TypedQuery<Product> query = filter.bind(entityManager.createQuery(jpql.toString(), Product.class));
+        if (after != null) {
+            query.setParameter("key", after.key()).setParameter("id", after.id());
+        }
+        // one row more than asked for says whether there is a next page
+        List<Product> products = query.setMaxResults(size + 1).getResultList();
+
+        String nextCursor = null;
+        if (products.size() > size) {
+            products = products.subList(0, size);
+            Product last = products.get(size - 1);
+            nextCursor = new ProductCursor(sort, sort.keyOf(last), last.getId()).encode();
+        }
+        List<ProductSummaryDto> content = products.stream()
+            .map(entityDtoMapper::toProductSummaryDto)
+            .collect(Collectors.toList());
+        PagedResponse<ProductSummaryDto> page = PagedResponse.keyset(content, size, cursor, nextCursor);
+
+        return switch (countMode) {
+            case NONE -> page;
+            case EXACT -> page.withTotal(count(filter).count(), false);
+            case ESTIMATED -> {
+                CachedCount cached = counts.get(filter);
+                if (cached != null && cached.countedAt() + countTtl.toMillis() > clock.millis()) {
+                    yield page.withTotal(cached.count(), true);
+                }
+                yield page.withTotal(count(filter).count(), false);
+            }
+        };
+    }
+
+    private ProductResponseDto loadProduct(Long id) {
+        return productRepository.findWithCategoryById(id).map(entityDtoMapper::toProductResponseDto).orElse(null);
+    }
+
+    private CategoryResponseDto loadCategory(Long id) {
+        return categoryRepository.findWithParentById(id).map(entityDtoMapper::toCategoryHeaderDto).orElse(null);
+    }
+
+    private CachedCount count(Filter filter) {
+        Long total = filter.bind(entityManager.createQuery("SELECT COUNT(p) FROM Product p" + filter.where(), Long.class))
+            .getSingleResult();
+        if (counts.size() >= MAX_CACHED_COUNTS) {
+            counts.clear();
+        }
+        CachedCount count = new CachedCount(total, clock.millis());
+        counts.put(filter, count);
+        return count;
+    }
+
+    private record Filter(List<Long> categoryIds, boolean active, Boolean featured) {
+
+        String where() {
+            return " WHERE p.isActive = :active"
+                + (categoryIds == null ? "" : categoryIds.size() == 1 ? " AND p.category.id = :categoryId"
+                    : " AND p.category.id IN (:categoryIds)")
+                + (featured != null ? " AND p.isFeatured = :featured" : "");
+        }
+
+        <T> TypedQuery<T> bind(TypedQuery<T> query) {
+            query.setParameter("active", active);
+            if (categoryIds != null && categoryIds.size() == 1) {
+                query.setParameter("categoryId", categoryIds.get(0));
+            } else if (categoryIds != null) {
+                query.setParameter("categoryIds", categoryIds);
+            }
+            if (featured != null) {
+                query.setParameter("featured", featured);
+            }
+            return query;
+        }
+    }
+
+    private record CachedCount(long count, long countedAt) {
+    }
+}
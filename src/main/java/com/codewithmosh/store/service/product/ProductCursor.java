@@ -0,0 +1,51 @@
+package com.codewithmosh.store.service.product;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Position in a catalog listing: the sort key and id of the last product on the previous page, and
+ * the sort they belong to. Sent to clients as an opaque URL-safe string.
+ */
+record ProductCursor(ProductSort sort, Object key, long id) {
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((sort.name() + "|" + key + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null for the first page
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()} for this sort
+     */
+    static ProductCursor decode(String cursor, ProductSort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String sortName;
+        ProductCursor decoded;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // names may contain '|', so the key is everything between the first and the last one
+            int first = value.indexOf('|');
+            int last = value.lastIndexOf('|');
+            if (first < 0 || first == last) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            sortName = value.substring(0, first);
+            decoded = sortName.equals(sort.name())
+                ? new ProductCursor(sort, sort.parseKey(value.substring(first + 1, last)), Long.parseLong(value.substring(last + 1)))
+                : null;
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (decoded == null) {
+            throw new IllegalArgumentException("Cursor of a " + sortName.toLowerCase(Locale.ROOT)
+                + " listing cannot be used to sort by " + sort.name().toLowerCase(Locale.ROOT));
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,55 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.entity.product.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Orders the catalog can be listed in. Every order ends with the product id, so (sort key, id) is
+ * unique and a keyset cursor always points at exactly one row.
+ */
+public enum ProductSort {
+
+    NEWEST("createdAt", true, Product::getCreatedAt, LocalDateTime::parse),
+    PRICE_ASC("price", false, Product::getPrice, BigDecimal::new),
+    PRICE_DESC("price", true, Product::getPrice, BigDecimal::new),
+    NAME("name", false, Product::getName, Function.identity());
+
+    private final String property;
+    private final boolean descending;
+    private final Function<Product, Object> key;
+    private final Function<String, Object> parser;
+
+    ProductSort(String property, boolean descending, Function<Product, ?> key, Function<String, ?> parser) {
+        this.property = property;
+        this.descending = descending;
+        this.key = key::apply;
+        this.parser = parser::apply;
+    }
+
+    /**
+     * @throws IllegalArgumentException for anything but newest, price_asc, price_desc or name
+     */
+    public static ProductSort from(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort: " + value + " (use newest, price_asc, price_desc or name)");
+        }
+    }
+
+    String getProperty() { return property; }
+
+    boolean isDescending() { return descending; }
+
+    Object keyOf(Product product) {
+        return key.apply(product);
+    }
+
+    Object parseKey(String value) {
+        return parser.apply(value);
+    }
+}
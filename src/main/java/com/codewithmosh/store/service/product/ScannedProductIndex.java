@@ -0,0 +1,93 @@
+package com.codewithmosh.store.service.product;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base for the in-memory product indexes that a {@link ScannedProductIndexer} fills with one scan of
+ * the products table while change events keep arriving.
+ *
+ * Between {@link #startBuild()} and {@link #finishBuild()}, rows from the scan do not overwrite
+ * products that were put or removed meanwhile, since the scan may have read them before the change.
+ * Subclasses guard their state with {@link #lock} and, holding its write lock, report every put and
+ * remove through {@link #putting} and {@link #removing}.
+ */
+public abstract class ScannedProductIndex<T> {
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private boolean building;
+    private final Set<Long> removedWhileBuilding = new HashSet<>();
+
+    public final void startBuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a batch of scanned products, skipping any that were put or removed since the scan started
+     */
+    public final void putScanned(List<T> scanned) {
+        lock.writeLock().lock();
+        try {
+            for (T item : scanned) {
+                long productId = productId(item);
+                if (!isIndexed(productId) && !removedWhileBuilding.contains(productId)) {
+                    appendScanned(item);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public final void finishBuild() {
+        lock.writeLock().lock();
+        try {
+            building = false;
+            removedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexed products and whatever else is worth watching about the index
+     */
+    public abstract Map<String, Object> getStatistics();
+
+    // callers hold the write lock
+    protected final boolean isBuilding() {
+        return building;
+    }
+
+    // callers hold the write lock
+    protected final void putting(long productId) {
+        removedWhileBuilding.remove(productId);
+    }
+
+    // callers hold the write lock
+    protected final void removing(long productId) {
+        if (building) {
+            removedWhileBuilding.add(productId);
+        }
+    }
+
+    protected abstract long productId(T item);
+
+    // callers hold the write lock
+    protected abstract boolean isIndexed(long productId);
+
+    /**
+     * Add a product that is not indexed yet; callers hold the write lock
+     */
+    protected abstract void appendScanned(T item);
+}
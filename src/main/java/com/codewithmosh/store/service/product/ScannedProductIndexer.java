@@ -0,0 +1,132 @@
+package com.codewithmosh.store.service.product;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Base for the in-memory product indexes that are filled after startup by one streaming scan of the
+ * products table on a background thread, then kept current by post-commit listeners.
+ *
+ * Until the scan has finished, queries answer from what is loaded so far ({@link #isComplete()}).
+ * Work that has to read the database again, like products whose stock was changed with SQL, goes
+ * through {@link #inBackground} onto the same indexer thread, so callers do not wait for it.
+ */
+@Slf4j
+public abstract class ScannedProductIndexer<T> extends PostCommitEntityListener {
+
+    protected final JdbcTemplate jdbcTemplate;
+
+    private final String name;
+    private final int fetchSize;
+    private final ExecutorService indexer;
+
+    private volatile boolean complete;
+
+    /**
+     * @param name what the index is, e.g. "Search" for the thread name, log and errors
+     */
+    protected ScannedProductIndexer(String name, EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+                                    int fetchSize, Class<?>... entityTypes) {
+        super(entityManagerFactory, entityTypes);
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException(name + " index fetch size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.name = name;
+        this.fetchSize = fetchSize;
+        this.indexer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("product-" + name.toLowerCase() + "-indexer").daemon(true).factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        indexer.execute(this::build);
+    }
+
+    @PreDestroy
+    public void stop() {
+        indexer.shutdownNow();
+    }
+
+    /**
+     * Load every active product into the index with one streaming scan. Products saved while the scan
+     * runs keep the newer state from their change events.
+     */
+    public void build() {
+        long start = System.nanoTime();
+        ScannedProductIndex<T> index = scannedIndex();
+        RowMapper<T> mapper = scanMapper();
+        index.startBuild();
+        try (Stream<T> rows = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(scanQuery(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, mapper)) {
+            List<T> batch = new ArrayList<>(fetchSize);
+            rows.forEach(item -> {
+                batch.add(item);
+                if (batch.size() == fetchSize) {
+                    index.putScanned(batch);
+                    batch.clear();
+                }
+            });
+            index.putScanned(batch);
+        } finally {
+            index.finishBuild();
+        }
+        complete = true;
+        log.info("{} index built in {} ms: {}", name, (System.nanoTime() - start) / 1_000_000, index.getStatistics());
+    }
+
+    /**
+     * Whether the startup build has finished; until then queries only see part of the catalog
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * What the index reports about itself, and whether the startup build has finished
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>(scannedIndex().getStatistics());
+        statistics.put("complete", complete);
+        return statistics;
+    }
+
+    /**
+     * Run follow-up work on the indexer thread, after the startup build if that is still running
+     */
+    protected void inBackground(Runnable task) {
+        indexer.execute(task);
+    }
+
+    protected abstract ScannedProductIndex<T> scannedIndex();
+
+    /**
+     * The startup scan: the active products, in the order they should be indexed
+     */
+    protected abstract String scanQuery();
+
+    /**
+     * Reads one scanned row; asked for once per build, so it can hold on to what the rows are read
+     * against (e.g. the current category tree)
+     */
+    protected abstract RowMapper<T> scanMapper();
+}
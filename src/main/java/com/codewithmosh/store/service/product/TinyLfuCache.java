@@ -0,0 +1,345 @@
+package com.codewithmosh.store.service.product;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Bounded cache with W-TinyLFU eviction, limited by the estimated size of its entries rather than their number.
+ *
+ * New entries land in a small LRU window (1% of the weight). What falls out of the window only gets
+ * into the main area if a {@link FrequencySketch} says it is used more often than the entry it would
+ * push out, so a burst of one-off reads (a crawler walking the catalog) cannot flush the products
+ * everybody looks at. The main area is a segmented LRU: entries read again move from probation to
+ * the protected segment (80% of the main weight).
+ *
+ * Reads are a ConcurrentHashMap lookup; their effect on the LRU order is applied only when the policy
+ * lock is free, and dropped otherwise (the frequency is always counted). Misses are single-flight: one
+ * caller loads a key and everyone else asking for it meanwhile waits for that load. A load that was
+ * running when its key was invalidated is handed to its waiters but not cached, since it may have
+ * read the data from before the change.
+ */
+final class TinyLfuCache<K, V> {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.80;
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        Region region;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long mainMaxWeight;
+    private final long protectedMaxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final FrequencySketch sketch;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    // eviction order, guarded by policyLock; access-ordered, so the first entry is the least recently used
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeight     total weight (estimated bytes) of the entries kept
+     * @param averageWeight typical weight of an entry, to size the frequency sketch
+     */
+    TinyLfuCache(long maxWeight, long averageWeight, ToLongBiFunction<K, V> weigher) {
+        if (maxWeight < 1 || averageWeight < 1) {
+            throw new IllegalArgumentException("Cache weights must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, (long) (maxWeight * WINDOW_SHARE));
+        this.mainMaxWeight = maxWeight - windowMaxWeight;
+        this.protectedMaxWeight = (long) (mainMaxWeight * PROTECTED_SHARE);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maxWeight / averageWeight);
+    }
+
+    /**
+     * Cached value, or null
+     */
+    V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        sketch.increment(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        onHit(node);
+        return node.value;
+    }
+
+    /**
+     * Cached value, or the loader's result, loaded once however many callers miss at the same time.
+     * A null result is returned but not cached; a loader exception reaches every waiting caller.
+     */
+    V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running);
+        }
+
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            loads.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+            loadCount.increment();
+        }
+
+        policyLock.lock();
+        try {
+            // gone from loads means invalidated while loading
+            if (loads.remove(key, load) && value != null) {
+                insert(key, value);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+        load.complete(value);
+        return value;
+    }
+
+    void put(K key, V value) {
+        policyLock.lock();
+        try {
+            insert(key, value);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Remove a key, and make sure a load of it that is still running does not get cached
+     */
+    void invalidate(K key) {
+        policyLock.lock();
+        try {
+            loads.remove(key);
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Remove every entry whose value matches; running loads are not cached either, as their values are unknown yet
+     */
+    void invalidateIf(Predicate<? super V> predicate) {
+        policyLock.lock();
+        try {
+            loads.clear();
+            data.values().removeIf(node -> {
+                if (predicate.test(node.value)) {
+                    unlink(node);
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    void invalidateAll() {
+        invalidateIf(value -> true);
+    }
+
+    long size() { return data.size(); }
+
+    long weight() {
+        policyLock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    long maxWeight() { return maxWeight; }
+
+    long hits() { return hits.sum(); }
+
+    long misses() { return misses.sum(); }
+
+    long loads() { return loadCount.sum(); }
+
+    long loadFailures() { return loadFailures.sum(); }
+
+    long loadNanos() { return loadNanos.sum(); }
+
+    long evictions() { return evictions.sum(); }
+
+    double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    private void onHit(Node<K, V> node) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+        try {
+            if (node.region == null) {
+                return;  // removed meanwhile
+            }
+            switch (node.region) {
+                case WINDOW -> window.get(node.key);
+                case PROTECTED -> protectedSegment.get(node.key);
+                case PROBATION -> {
+                    // read twice: promote, and demote the protected segment's oldest entries if it overflows
+                    probation.remove(node.key);
+                    probationWeight -= node.weight;
+                    add(protectedSegment, node, Region.PROTECTED);
+                    while (protectedWeight > protectedMaxWeight) {
+                        Node<K, V> demoted = protectedSegment.pollFirstEntry().getValue();
+                        protectedWeight -= demoted.weight;
+                        add(probation, demoted, Region.PROBATION);
+                    }
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // callers hold policyLock
+    private void insert(K key, V value) {
+        long weight = weigher.applyAsLong(key, value);
+        if (weight > mainMaxWeight) {
+            return;  // would evict nearly everything else
+        }
+        Node<K, V> node = new Node<>(key, value, weight);
+        Node<K, V> previous = data.put(key, node);
+        if (previous != null) {
+            unlink(previous);
+        }
+        add(window, node, Region.WINDOW);
+        while (windowWeight > windowMaxWeight) {
+            Node<K, V> candidate = window.pollFirstEntry().getValue();
+            windowWeight -= candidate.weight;
+            candidate.region = null;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * Move an entry from the window into the main area if it is used more often than what it displaces
+     */
+    private void admit(Node<K, V> candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probationWeight + protectedWeight + candidate.weight > mainMaxWeight) {
+            Map.Entry<K, Node<K, V>> eldest = probation.isEmpty() ? protectedSegment.firstEntry() : probation.firstEntry();
+            Node<K, V> victim = eldest.getValue();
+            if (candidateFrequency <= sketch.frequency(victim.key)) {
+                evict(candidate);
+                return;
+            }
+            evict(victim);
+        }
+        add(probation, candidate, Region.PROBATION);
+    }
+
+    private void evict(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void add(LinkedHashMap<K, Node<K, V>> segment, Node<K, V> node, Region region) {
+        segment.put(node.key, node);
+        node.region = region;
+        switch (region) {
+            case WINDOW -> windowWeight += node.weight;
+            case PROBATION -> probationWeight += node.weight;
+            case PROTECTED -> protectedWeight += node.weight;
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.region == null) {
+            return;
+        }
+        switch (node.region) {
+            case WINDOW -> {
+                window.remove(node.key, node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> {
+                probation.remove(node.key, node);
+                probationWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.key, node);
+                protectedWeight -= node.weight;
+            }
+        }
+        node.region = null;
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.codewithmosh.store.service.product.facet;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranges a number is grouped into for a facet, from ascending upper bounds: 10, 25 gives "0-10",
+ * "10-25" and "25+". A value on a bound belongs to the band above it.
+ */
+final class FacetBands {
+
+    private final List<BigDecimal> bounds;
+    private final List<String> labels = new ArrayList<>();
+
+    /**
+     * @throws IllegalArgumentException if the bounds are not positive and strictly ascending
+     */
+    FacetBands(String name, List<BigDecimal> bounds) {
+        BigDecimal previous = BigDecimal.ZERO;
+        for (BigDecimal bound : bounds) {
+            if (bound == null || bound.compareTo(previous) <= 0) {
+                throw new IllegalArgumentException(name + " bounds must be positive and ascending: " + bounds);
+            }
+            labels.add(format(previous) + "-" + format(bound));
+            previous = bound;
+        }
+        labels.add(format(previous) + "+");
+        this.bounds = List.copyOf(bounds);
+    }
+
+    /**
+     * Label of the band a value falls in, null for no value
+     */
+    String labelOf(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        int band = 0;
+        while (band < bounds.size() && value.compareTo(bounds.get(band)) >= 0) {
+            band++;
+        }
+        return labels.get(band);
+    }
+
+    List<String> labels() {
+        return labels;
+    }
+
+    private static String format(BigDecimal bound) {
+        return bound.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,301 @@
+package com.codewithmosh.store.service.product.facet;
+
+import com.codewithmosh.store.service.product.ScannedProductIndex;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One {@link RoaringBitmap} of product ordinals per facet value: one per category, per price band,
+ * per weight class, and one each for in stock / out of stock and featured / not featured.
+ *
+ * Each indexed product gets an int ordinal the first time it is put and keeps it while it stays
+ * indexed, so a change only moves its ordinal between the bitmaps of the facet values that changed.
+ * Ordinals are not reused: a removed product leaves a gap, and one that comes back is appended.
+ *
+ * A query ORs the selected values within a facet and ANDs the facets. Facet counts are disjunctive,
+ * as storefront filters expect: the counts of a facet apply every filter except that facet's own,
+ * so ticking a second price band shows how many products it would add rather than zero.
+ *
+ * Queries share a read lock; changes take the write lock for a handful of bitmap updates.
+ */
+final class ProductFacetIndex extends ScannedProductIndex<ProductFacetIndex.Entry> {
+
+    enum Facet {
+        CATEGORY, PRICE, IN_STOCK, FEATURED, WEIGHT
+    }
+
+    /**
+     * A product's value for each facet, null where it has none (e.g. no category)
+     */
+    record Entry(long productId, String category, String price, String inStock, String featured, String weight) {
+
+        String value(Facet facet) {
+            return switch (facet) {
+                case CATEGORY -> category;
+                case PRICE -> price;
+                case IN_STOCK -> inStock;
+                case FEATURED -> featured;
+                case WEIGHT -> weight;
+            };
+        }
+
+        Entry with(Facet facet, String value) {
+            return new Entry(productId,
+                facet == Facet.CATEGORY ? value : category,
+                facet == Facet.PRICE ? value : price,
+                facet == Facet.IN_STOCK ? value : inStock,
+                facet == Facet.FEATURED ? value : featured,
+                facet == Facet.WEIGHT ? value : weight);
+        }
+    }
+
+    /**
+     * @param productIds   the requested page of matches, in ordinal order
+     * @param totalMatches products matching every filter
+     * @param counts       products per value of each counted facet (values without products left out)
+     */
+    record Result(List<Long> productIds, int totalMatches, Map<Facet, Map<String, Integer>> counts) {
+    }
+
+    private final Map<Long, Integer> ordinalsById = new HashMap<>();
+    private final Map<Facet, Map<String, RoaringBitmap>> bitmaps = new EnumMap<>(Facet.class);
+    private final RoaringBitmap all = new RoaringBitmap();
+    private long[] productIds = new long[1024];
+    private Entry[] entries = new Entry[1024];
+    private int ordinalCount;
+
+    ProductFacetIndex() {
+        for (Facet facet : Facet.values()) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Add a product or move it to its new facet values
+     */
+    void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            putting(entry.productId());
+            Integer ordinal = ordinalsById.get(entry.productId());
+            if (ordinal == null) {
+                append(entry);
+                return;
+            }
+            Entry previous = entries[ordinal];
+            for (Facet facet : Facet.values()) {
+                String before = previous.value(facet);
+                String after = entry.value(facet);
+                if (before == null ? after != null : !before.equals(after)) {
+                    unset(facet, before, ordinal);
+                    set(facet, after, ordinal);
+                }
+            }
+            entries[ordinal] = entry;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Change one facet of an indexed product
+     *
+     * @return false if the product is not indexed
+     */
+    boolean update(long productId, Facet facet, String value) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(productId);
+            if (ordinal == null) {
+                return false;
+            }
+            Entry previous = entries[ordinal];
+            unset(facet, previous.value(facet), ordinal);
+            set(facet, value, ordinal);
+            entries[ordinal] = previous.with(facet, value);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removing(productId);
+            Integer ordinal = ordinalsById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            for (Facet facet : Facet.values()) {
+                unset(facet, entries[ordinal].value(facet), ordinal);
+            }
+            all.remove(ordinal);
+            entries[ordinal] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean contains(long productId) {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.containsKey(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Products matching the filters, one page of them, and the facet counts for the match
+     *
+     * @param filters accepted values per facet: any of them (OR) for every facet given (AND)
+     * @param counted facets to count values of
+     */
+    Result query(Map<Facet, ? extends Collection<String>> filters, Set<Facet> counted, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Facet, RoaringBitmap> selections = new EnumMap<>(Facet.class);
+            filters.forEach((facet, values) -> selections.put(facet, union(facet, values)));
+            RoaringBitmap matches = intersect(selections, null);
+
+            Map<Facet, Map<String, Integer>> counts = new EnumMap<>(Facet.class);
+            for (Facet facet : counted) {
+                RoaringBitmap base = selections.containsKey(facet) ? intersect(selections, facet) : matches;
+                Map<String, Integer> values = new HashMap<>();
+                bitmaps.get(facet).forEach((value, bitmap) -> {
+                    int count = RoaringBitmap.andCardinality(bitmap, base);
+                    if (count > 0) {
+                        values.put(value, count);
+                    }
+                });
+                counts.put(facet, values);
+            }
+
+            int[] page = matches.slice(offset, limit);
+            Long[] ids = new Long[page.length];
+            for (int i = 0; i < page.length; i++) {
+                ids[i] = productIds[page[i]];
+            }
+            return new Result(Arrays.asList(ids), matches.cardinality(), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of bitmaps and their rough heap use
+     */
+    @Override
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            int count = 1;
+            long bytes = all.sizeInBytes();
+            for (Map<String, RoaringBitmap> values : bitmaps.values()) {
+                for (RoaringBitmap bitmap : values.values()) {
+                    count++;
+                    bytes += bitmap.sizeInBytes();
+                }
+            }
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("products", ordinalsById.size());
+            statistics.put("ordinals", ordinalCount);
+            statistics.put("bitmaps", count);
+            statistics.put("bitmapBytes", bytes);
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected long productId(Entry entry) {
+        return entry.productId();
+    }
+
+    @Override
+    protected boolean isIndexed(long productId) {
+        return ordinalsById.containsKey(productId);
+    }
+
+    @Override
+    protected void appendScanned(Entry entry) {
+        append(entry);
+    }
+
+    private void append(Entry entry) {
+        if (ordinalCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, ordinalCount * 2);
+            entries = Arrays.copyOf(entries, ordinalCount * 2);
+        }
+        int ordinal = ordinalCount++;
+        productIds[ordinal] = entry.productId();
+        entries[ordinal] = entry;
+        ordinalsById.put(entry.productId(), ordinal);
+        all.add(ordinal);
+        for (Facet facet : Facet.values()) {
+            set(facet, entry.value(facet), ordinal);
+        }
+    }
+
+    private void set(Facet facet, String value, int ordinal) {
+        if (value != null) {
+            bitmaps.get(facet).computeIfAbsent(value, key -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    private void unset(Facet facet, String value, int ordinal) {
+        if (value == null) {
+            return;
+        }
+        Map<String, RoaringBitmap> values = bitmaps.get(facet);
+        RoaringBitmap bitmap = values.get(value);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                values.remove(value);
+            }
+        }
+    }
+
+    private RoaringBitmap union(Facet facet, Collection<String> values) {
+        RoaringBitmap union = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = bitmaps.get(facet).get(value);
+            if (bitmap != null) {
+                union = RoaringBitmap.or(union, bitmap);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * All products ANDed with every selection but the one of the facet left out (null for none)
+     */
+    private RoaringBitmap intersect(Map<Facet, RoaringBitmap> selections, Facet leftOut) {
+        RoaringBitmap result = all;
+        for (Map.Entry<Facet, RoaringBitmap> selection : selections.entrySet()) {
+            if (selection.getKey() != leftOut) {
+                result = RoaringBitmap.and(result, selection.getValue());
+            }
+        }
+        return result;
+    }
+}
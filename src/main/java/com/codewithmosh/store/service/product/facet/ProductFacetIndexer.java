@@ -0,0 +1,163 @@
+package com.codewithmosh.store.service.product.facet;
+
+import com.codewithmosh.store.config.CatalogFacetConfig;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.service.product.ScannedProductIndex;
+import com.codewithmosh.store.service.product.ScannedProductIndexer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a {@link ProductFacetIndex} of the active products in step with the products table.
+ *
+ * The index is filled after startup by one streaming scan in id order on a background thread, then
+ * kept current by Hibernate post-commit listeners that read the saved product's facets from the state
+ * Hibernate already has. Ordinals, and with them listing order, follow product id for what the scan
+ * loaded; a product added or reactivated later is appended after all of them.
+ *
+ * Stock changed with SQL is invisible to those listeners: {@link #stockChanged} has to be called after
+ * such an update has committed, as with the catalog cache. It re-reads only the stock of the given
+ * products that are indexed, on the indexer thread, so a checkout does not wait for it.
+ */
+@Component
+public class ProductFacetIndexer extends ScannedProductIndexer<ProductFacetIndex.Entry> {
+
+    static final String UNKNOWN_WEIGHT = "unknown";
+
+    private static final String PRODUCT_COLUMNS =
+        "SELECT id, category_id, price, stock_quantity, is_featured, weight FROM products";
+
+    private final FacetBands priceBands;
+    private final FacetBands weightClasses;
+    private final ProductFacetIndex index = new ProductFacetIndex();
+
+    public ProductFacetIndexer(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+                               CatalogFacetConfig config) {
+        super("Facet", entityManagerFactory, jdbcTemplate, config.getFetchSize(), Product.class);
+        this.priceBands = new FacetBands("Price band", config.getPriceBands());
+        this.weightClasses = new FacetBands("Weight class", config.getWeightClasses());
+    }
+
+    /**
+     * Pick up stock that was changed with SQL; call once the change has committed
+     */
+    public void stockChanged(Collection<Long> productIds) {
+        List<Long> indexed = productIds.stream().filter(index::contains).toList();
+        if (!indexed.isEmpty()) {
+            inBackground(() -> refreshStock(indexed));
+        }
+    }
+
+    List<String> priceBandLabels() {
+        return priceBands.labels();
+    }
+
+    /**
+     * Weight classes, then "unknown" for products without a weight
+     */
+    List<String> weightClassLabels() {
+        List<String> labels = new ArrayList<>(weightClasses.labels());
+        labels.add(UNKNOWN_WEIGHT);
+        return labels;
+    }
+
+    ProductFacetIndex.Result query(Map<ProductFacetIndex.Facet, ? extends Collection<String>> filters,
+                                   Set<ProductFacetIndex.Facet> counted, int offset, int limit) {
+        return index.query(filters, counted, offset, limit);
+    }
+
+    @Override
+    protected void afterInsert(EntityPersister persister, Object id, Object[] state) {
+        index(persister, (Long) id, state);
+    }
+
+    @Override
+    protected void afterUpdate(EntityPersister persister, Object id, Object[] oldState, Object[] state) {
+        index(persister, (Long) id, state);
+    }
+
+    @Override
+    protected void afterDelete(EntityPersister persister, Object id, Object[] deletedState) {
+        index.remove((Long) id);
+    }
+
+    @Override
+    protected ScannedProductIndex<ProductFacetIndex.Entry> scannedIndex() {
+        return index;
+    }
+
+    @Override
+    protected String scanQuery() {
+        return PRODUCT_COLUMNS + " WHERE is_active = TRUE ORDER BY id";
+    }
+
+    @Override
+    protected RowMapper<ProductFacetIndex.Entry> scanMapper() {
+        return (row, rowNum) -> entry(row);
+    }
+
+    void refreshStock(List<Long> productIds) {
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (" + placeholders + ")",
+            row -> {
+                index.update(row.getLong("id"), ProductFacetIndex.Facet.IN_STOCK,
+                    inStock(row.getInt("stock_quantity")));
+            },
+            productIds.toArray());
+    }
+
+    private void index(EntityPersister persister, Long productId, Object[] state) {
+        if (Boolean.FALSE.equals(state[propertyIndex(persister, "isActive")])) {
+            index.remove(productId);
+            return;
+        }
+        Category category = (Category) state[propertyIndex(persister, "category")];
+        Long categoryId = null;
+        if (category instanceof HibernateProxy proxy) {
+            // the id is known without loading the category, which the closed session could not do
+            categoryId = (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        } else if (category != null) {
+            categoryId = category.getId();
+        }
+        Integer stock = (Integer) state[propertyIndex(persister, "stockQuantity")];
+        index.put(new ProductFacetIndex.Entry(productId,
+            categoryId == null ? null : String.valueOf(categoryId),
+            priceBands.labelOf((BigDecimal) state[propertyIndex(persister, "price")]),
+            inStock(stock == null ? 0 : stock),
+            String.valueOf(Boolean.TRUE.equals(state[propertyIndex(persister, "isFeatured")])),
+            weightClass((BigDecimal) state[propertyIndex(persister, "weight")])));
+    }
+
+    private ProductFacetIndex.Entry entry(ResultSet row) throws SQLException {
+        Long categoryId = row.getObject("category_id", Long.class);
+        return new ProductFacetIndex.Entry(row.getLong("id"),
+            categoryId == null ? null : String.valueOf(categoryId),
+            priceBands.labelOf(row.getBigDecimal("price")),
+            inStock(row.getInt("stock_quantity")),
+            String.valueOf(row.getBoolean("is_featured")),
+            weightClass(row.getBigDecimal("weight")));
+    }
+
+    private String weightClass(BigDecimal weight) {
+        return weight == null ? UNKNOWN_WEIGHT : weightClasses.labelOf(weight);
+    }
+
+    private static String inStock(int stock) {
+        return String.valueOf(stock > 0);
+    }
+}
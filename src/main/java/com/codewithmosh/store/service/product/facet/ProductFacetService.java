@@ -0,0 +1,140 @@
+package com.codewithmosh.store.service.product.facet;
+
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.product.ProductFacetResultDto;
+import com.codewithmosh.store.dto.product.ProductFacetResultDto.FacetValue;
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import com.codewithmosh.store.service.product.CategoryTree;
+import com.codewithmosh.store.service.product.CategoryTreeService;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndex.Facet;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Storefront filtering by category subtree, price band, stock, featured and weight class, answered
+ * from the bitmaps of the {@link ProductFacetIndexer} instead of one SQL query per combination.
+ *
+ * Only the ids of the requested page come out of the index; the products themselves are served from
+ * the catalog cache. Pages follow the index's ordinals (product id as of startup, then the order in
+ * which products were added or reactivated) and are numbered, since the index knows the exact total.
+ * The category facet lists the children of the selected category (or the top-level categories),
+ * each counting its whole subtree.
+ */
+@Service
+public class ProductFacetService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductFacetIndexer indexer;
+    private final CategoryTreeService categoryTreeService;
+    private final ProductCatalogService productCatalogService;
+
+    public ProductFacetService(ProductFacetIndexer indexer, CategoryTreeService categoryTreeService,
+                               ProductCatalogService productCatalogService) {
+        this.indexer = indexer;
+        this.categoryTreeService = categoryTreeService;
+        this.productCatalogService = productCatalogService;
+    }
+
+    /**
+     * Active products having any of the given values of every facet that has some; a null or empty
+     * facet is not filtered on
+     *
+     * @throws IllegalArgumentException if a price band or weight class is unknown or the page is out of range
+     * @throws NoSuchElementException   if the category does not exist
+     */
+    public ProductFacetResultDto filter(Long categoryId, List<String> priceBands, Boolean inStock, Boolean featured,
+                                        List<String> weightClasses, int page, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (page < 0 || (long) page * size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Page number is out of range: " + page);
+        }
+
+        long start = System.nanoTime();
+        CategoryTree tree = categoryTreeService.getTree();
+        Map<Facet, List<String>> filters = new EnumMap<>(Facet.class);
+        List<CategoryTree.Node> categoryOptions;
+        if (categoryId != null) {
+            CategoryTree.Node category = tree.find(categoryId)
+                .orElseThrow(() -> new NoSuchElementException("Category not found: " + categoryId));
+            filters.put(Facet.CATEGORY, tree.subtreeIds(category).stream().map(String::valueOf).toList());
+            categoryOptions = tree.children(category);
+        } else {
+            categoryOptions = tree.roots();
+        }
+        if (priceBands != null && !priceBands.isEmpty()) {
+            filters.put(Facet.PRICE, known("price band", priceBands, indexer.priceBandLabels()));
+        }
+        if (inStock != null) {
+            filters.put(Facet.IN_STOCK, List.of(String.valueOf(inStock)));
+        }
+        if (featured != null) {
+            filters.put(Facet.FEATURED, List.of(String.valueOf(featured)));
+        }
+        if (weightClasses != null && !weightClasses.isEmpty()) {
+            filters.put(Facet.WEIGHT, known("weight class", weightClasses, indexer.weightClassLabels()));
+        }
+
+        ProductFacetIndex.Result result = indexer.query(filters, EnumSet.allOf(Facet.class), page * size, size);
+
+        List<ProductResponseDto> products = new ArrayList<>(result.productIds().size());
+        for (Long productId : result.productIds()) {
+            try {
+                products.add(productCatalogService.getProduct(productId));
+            } catch (NoSuchElementException e) {
+                // deleted after it was matched
+            }
+        }
+        ProductFacetResultDto response = new ProductFacetResultDto(
+            PagedResponse.of(products, page, size, result.totalMatches()), indexer.isComplete());
+
+        Map<String, Integer> categoryCounts = result.counts().get(Facet.CATEGORY);
+        List<FacetValue> categories = new ArrayList<>();
+        for (CategoryTree.Node option : categoryOptions) {
+            if (option.active()) {
+                int count = 0;
+                for (Long id : tree.subtreeIds(option)) {
+                    count += categoryCounts.getOrDefault(String.valueOf(id), 0);
+                }
+                categories.add(new FacetValue(String.valueOf(option.id()), option.name(), count));
+            }
+        }
+        response.getFacets().put("category", categories);
+        response.getFacets().put("price", values(result, Facet.PRICE, indexer.priceBandLabels()));
+        response.getFacets().put("inStock", flags(result, Facet.IN_STOCK, "In stock", "Out of stock"));
+        response.getFacets().put("featured", flags(result, Facet.FEATURED, "Featured", "Not featured"));
+        response.getFacets().put("weight", values(result, Facet.WEIGHT, indexer.weightClassLabels()));
+        response.setTookMs((System.nanoTime() - start) / 1_000_000.0);
+        return response;
+    }
+
+    private static List<String> known(String facet, List<String> values, List<String> labels) {
+        for (String value : values) {
+            if (!labels.contains(value)) {
+                throw new IllegalArgumentException("Unknown " + facet + ": " + value + " (use one of " + labels + ")");
+            }
+        }
+        return values;
+    }
+
+    private static List<FacetValue> values(ProductFacetIndex.Result result, Facet facet, List<String> labels) {
+        Map<String, Integer> counts = result.counts().get(facet);
+        return labels.stream().map(label -> new FacetValue(label, label, counts.getOrDefault(label, 0))).toList();
+    }
+
+    private static List<FacetValue> flags(ProductFacetIndex.Result result, Facet facet, String yes, String no) {
+        Map<String, Integer> counts = result.counts().get(facet);
+        return List.of(
+            new FacetValue("true", yes, counts.getOrDefault("true", 0)),
+            new FacetValue("false", no, counts.getOrDefault("false", 0)));
+    }
+}
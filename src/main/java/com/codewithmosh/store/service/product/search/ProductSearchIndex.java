@@ -0,0 +1,489 @@
+package com.codewithmosh.store.service.product.search;
+
+import com.codewithmosh.store.service.product.ScannedProductIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over product name, SKU, category name and description, ranked with BM25.
+ *
+ * Each product gets an int ordinal; each term has a posting list of (ordinal, weighted term
+ * frequency) in two primitive arrays, so a million products cost arrays rather than millions of
+ * objects. Field weights are folded into the frequency: a term in the name counts three times as much
+ * as one in the description. An updated product is appended under a new ordinal and its old one is
+ * marked deleted, so postings are never edited in place; once a quarter of the ordinals are dead the
+ * index is compacted.
+ *
+ * All query terms must match (in any field). The last term is also matched as a prefix while the
+ * user is still typing it, expanded to the most common terms that start with it. Scoring starts from
+ * the postings of the rarest term; every other term only keeps the candidates it also contains,
+ * found by binary search in its postings (which stay sorted, as ordinals only grow). Work and memory
+ * follow the rarest term rather than the catalog size, and a bounded heap keeps the top k.
+ *
+ * Searches share a read lock; changes take the write lock for as long as it takes to append one
+ * product's postings.
+ */
+final class ProductSearchIndex extends ScannedProductIndex<ProductSearchIndex.Document> {
+
+    static final float NAME_WEIGHT = 3.0f;
+    static final float SKU_WEIGHT = 3.0f;
+    static final float CATEGORY_WEIGHT = 1.5f;
+    static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    static final int MAX_QUERY_TERMS = 8;
+    static final int MIN_PREFIX_LENGTH = 2;
+    // prefixes like "co" can match thousands of terms; only the most common are searched
+    static final int MAX_PREFIX_EXPANSIONS = 32;
+    static final int MAX_PREFIX_SCAN = 4096;
+    // a completion is only a guess at what the user means, so it counts less than the whole word
+    static final float PREFIX_WEIGHT = 0.8f;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_COMPACTION = 1024;
+
+    record Document(long productId, String name, String sku, String description, Long categoryId, String categoryName) {
+    }
+
+    record Hit(long productId, float score) {
+    }
+
+    /**
+     * @param totalMatches products that matched every term, before the cut to the limit
+     */
+    record Result(List<Hit> hits, int totalMatches) {
+    }
+
+    private static final class Postings {
+        int[] ordinals = new int[2];
+        float[] frequencies = new float[2];
+        int size;
+
+        void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    // guarded by lock
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> ordinalsById = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private long[] categoryIds = new long[1024];
+    private float[] lengths = new float[1024];
+    // when each ordinal was written, to tell whether a product changed between a read and a write
+    private long[] revisions = new long[1024];
+    private long revision;
+    private final BitSet deleted = new BitSet();
+    private int ordinalCount;
+    private int deletedCount;
+    private double totalLength;
+
+    /**
+     * Add or replace a product
+     */
+    void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            putting(document.productId());
+            append(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace a product only if it is still indexed at the given revision, i.e. nothing re-indexed or
+     * removed it since that revision was read
+     *
+     * @return whether it was replaced
+     */
+    boolean putIfUnchanged(Document document, long expectedRevision) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(document.productId());
+            if (ordinal == null || revisions[ordinal] != expectedRevision) {
+                return false;
+            }
+            append(document);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removing(productId);
+            Integer ordinal = ordinalsById.remove(productId);
+            if (ordinal != null) {
+                markDeleted(ordinal);
+                compactIfWorthIt();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the indexed products of a category, each with the revision it was indexed at
+     */
+    Map<Long, Long> revisionsInCategory(long categoryId) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> products = new HashMap<>();
+            for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+                if (categoryIds[ordinal] == categoryId && !deleted.get(ordinal)) {
+                    products.put(productIds[ordinal], revisions[ordinal]);
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best matches first (ties broken by product id)
+     *
+     * @param prefix also match the last term as the start of longer terms
+     */
+    Result search(String query, boolean prefix, int limit) {
+        List<String> queryTerms = SearchTokenizer.tokenize(query).stream().distinct().limit(MAX_QUERY_TERMS).toList();
+        if (queryTerms.isEmpty() || limit < 1) {
+            return new Result(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int live = ordinalCount - deletedCount;
+            if (live == 0) {
+                return new Result(List.of(), 0);
+            }
+            float averageLength = (float) Math.max(1.0, totalLength / live);
+
+            List<List<Expansion>> expansions = new ArrayList<>(queryTerms.size());
+            for (int i = 0; i < queryTerms.size(); i++) {
+                List<Expansion> expanded = expand(queryTerms.get(i), prefix && i == queryTerms.size() - 1, live);
+                if (expanded.isEmpty()) {
+                    return new Result(List.of(), 0);  // every term has to match
+                }
+                expansions.add(expanded);
+            }
+            // rarest first: its postings are the candidate set the other terms can only shrink
+            expansions.sort((a, b) -> Long.compare(postingCount(a), postingCount(b)));
+
+            return score(expansions, averageLength, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexed products and distinct terms
+     */
+    @Override
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("products", ordinalCount - deletedCount);
+            statistics.put("terms", terms.size());
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected long productId(Document document) {
+        return document.productId();
+    }
+
+    @Override
+    protected boolean isIndexed(long productId) {
+        return ordinalsById.containsKey(productId);
+    }
+
+    @Override
+    protected void appendScanned(Document document) {
+        append(document);
+    }
+
+    private record Expansion(Postings postings, float idf) {
+    }
+
+    private List<Expansion> expand(String term, boolean prefix, int live) {
+        List<Expansion> expansions = new ArrayList<>();
+        Postings exact = terms.get(term);
+        if (exact != null) {
+            expansions.add(new Expansion(exact, idf(exact, live)));
+        }
+        if (!prefix || term.length() < MIN_PREFIX_LENGTH) {
+            return expansions;
+        }
+
+        NavigableMap<String, Postings> completions = terms.subMap(term, false, term + Character.MAX_VALUE, false);
+        PriorityQueue<Postings> common = new PriorityQueue<>((a, b) -> Integer.compare(a.size, b.size));
+        int scanned = 0;
+        for (Postings postings : completions.values()) {
+            if (++scanned > MAX_PREFIX_SCAN) {
+                break;
+            }
+            common.add(postings);
+            if (common.size() > MAX_PREFIX_EXPANSIONS) {
+                common.poll();
+            }
+        }
+        for (Postings postings : common) {
+            expansions.add(new Expansion(postings, idf(postings, live) * PREFIX_WEIGHT));
+        }
+        return expansions;
+    }
+
+    /**
+     * BM25 idf; the document frequency still counts deleted postings until the next compaction
+     */
+    private static float idf(Postings postings, int live) {
+        int documentFrequency = Math.min(postings.size, live);
+        return (float) Math.log(1 + (live - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static long postingCount(List<Expansion> expansions) {
+        long count = 0;
+        for (Expansion expansion : expansions) {
+            count += expansion.postings().size;
+        }
+        return count;
+    }
+
+    private Result score(List<List<Expansion>> expansions, float averageLength, int limit) {
+        // ordinals that matched every term so far, ascending, with their scores
+        List<Expansion> rarest = expansions.get(0);
+        int count = 0;
+        int[] candidates = new int[(int) postingCount(rarest)];
+        float[] scores = new float[candidates.length];
+        for (Expansion expansion : rarest) {
+            Postings postings = expansion.postings();
+            for (int i = 0; i < postings.size; i++) {
+                int ordinal = postings.ordinals[i];
+                if (!deleted.get(ordinal)) {
+                    candidates[count] = ordinal;
+                    scores[count] = termScore(expansion, i, ordinal, averageLength);
+                    count++;
+                }
+            }
+        }
+        if (rarest.size() > 1) {
+            count = mergeByOrdinal(candidates, scores, count);
+        }
+
+        for (int term = 1; term < expansions.size() && count > 0; term++) {
+            float[] added = new float[count];
+            boolean[] found = new boolean[count];
+            for (Expansion expansion : expansions.get(term)) {
+                Postings postings = expansion.postings();
+                int from = 0;
+                for (int c = 0; c < count && from < postings.size; c++) {
+                    int position = Arrays.binarySearch(postings.ordinals, from, postings.size, candidates[c]);
+                    if (position >= 0) {
+                        found[c] = true;
+                        added[c] += termScore(expansion, position, candidates[c], averageLength);
+                        from = position + 1;
+                    } else {
+                        from = -position - 1;
+                    }
+                }
+            }
+            int kept = 0;
+            for (int c = 0; c < count; c++) {
+                if (found[c]) {
+                    candidates[kept] = candidates[c];
+                    scores[kept] = scores[c] + added[c];
+                    kept++;
+                }
+            }
+            count = kept;
+        }
+
+        // worst of the best k at the head
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> a.score() != b.score()
+            ? Float.compare(a.score(), b.score())
+            : Long.compare(b.productId(), a.productId()));
+        for (int c = 0; c < count; c++) {
+            Hit hit = new Hit(productIds[candidates[c]], scores[c]);
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (best.comparator().compare(hit, best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, best.comparator().reversed());
+        return new Result(List.of(hits), count);
+    }
+
+    private float termScore(Expansion expansion, int position, int ordinal, float averageLength) {
+        float frequency = expansion.postings().frequencies[position];
+        float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+        return expansion.idf() * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    /**
+     * Sort candidates gathered from several prefix completions by ordinal, adding up the scores of a
+     * product that contains more than one of them
+     */
+    private static int mergeByOrdinal(int[] candidates, float[] scores, int count) {
+        long[] keyed = new long[count];
+        for (int i = 0; i < count; i++) {
+            keyed[i] = (long) candidates[i] << 32 | i;
+        }
+        Arrays.sort(keyed);
+        float[] unsorted = Arrays.copyOf(scores, count);
+        int merged = -1;
+        for (long key : keyed) {
+            int ordinal = (int) (key >>> 32);
+            float score = unsorted[(int) key];
+            if (merged >= 0 && candidates[merged] == ordinal) {
+                scores[merged] += score;
+            } else {
+                merged++;
+                candidates[merged] = ordinal;
+                scores[merged] = score;
+            }
+        }
+        return merged + 1;
+    }
+
+    // callers hold the write lock
+    private void append(Document document) {
+        Integer previous = ordinalsById.get(document.productId());
+        if (previous != null) {
+            markDeleted(previous);
+        }
+
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = addTerms(frequencies, document.name(), NAME_WEIGHT)
+            + addTerms(frequencies, document.sku(), SKU_WEIGHT)
+            + addTerms(frequencies, document.categoryName(), CATEGORY_WEIGHT)
+            + addTerms(frequencies, document.description(), DESCRIPTION_WEIGHT);
+
+        if (ordinalCount == productIds.length) {
+            int capacity = ordinalCount * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            revisions = Arrays.copyOf(revisions, capacity);
+        }
+        int ordinal = ordinalCount++;
+        productIds[ordinal] = document.productId();
+        categoryIds[ordinal] = document.categoryId() != null ? document.categoryId() : -1;
+        lengths[ordinal] = length;
+        revisions[ordinal] = ++revision;
+        totalLength += length;
+        ordinalsById.put(document.productId(), ordinal);
+        frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency));
+
+        compactIfWorthIt();
+    }
+
+    private static float addTerms(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private void markDeleted(int ordinal) {
+        if (!deleted.get(ordinal)) {
+            deleted.set(ordinal);
+            deletedCount++;
+            totalLength -= lengths[ordinal];
+        }
+    }
+
+    /**
+     * Renumber the live products and drop the postings of deleted ones, once they are a quarter of the index
+     */
+    private void compactIfWorthIt() {
+        if (isBuilding() || deletedCount < MIN_COMPACTION || deletedCount * 4 < ordinalCount) {
+            return;
+        }
+        int[] renumbered = new int[ordinalCount];
+        int live = 0;
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            if (deleted.get(ordinal)) {
+                renumbered[ordinal] = -1;
+            } else {
+                renumbered[ordinal] = live;
+                productIds[live] = productIds[ordinal];
+                categoryIds[live] = categoryIds[ordinal];
+                lengths[live] = lengths[ordinal];
+                revisions[live] = revisions[ordinal];
+                live++;
+            }
+        }
+
+        terms.values().removeIf(postings -> {
+            int kept = 0;
+            for (int i = 0; i < postings.size; i++) {
+                int ordinal = renumbered[postings.ordinals[i]];
+                if (ordinal >= 0) {
+                    postings.ordinals[kept] = ordinal;
+                    postings.frequencies[kept] = postings.frequencies[i];
+                    kept++;
+                }
+            }
+            postings.size = kept;
+            if (kept > 0 && kept < postings.ordinals.length / 4) {
+                postings.ordinals = Arrays.copyOf(postings.ordinals, kept * 2);
+                postings.frequencies = Arrays.copyOf(postings.frequencies, kept * 2);
+            }
+            return kept == 0;
+        });
+
+        ordinalsById.replaceAll((id, ordinal) -> renumbered[ordinal]);
+        ordinalCount = live;
+        deleted.clear();
+        deletedCount = 0;
+        totalLength = 0;
+        for (int ordinal = 0; ordinal < live; ordinal++) {
+            totalLength += lengths[ordinal];
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.codewithmosh.store.service.product.search;
+
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import com.codewithmosh.store.dto.product.ProductSearchResultDto;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.service.product.CategoryTree;
+import com.codewithmosh.store.service.product.CategoryTreeService;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import com.codewithmosh.store.service.product.ScannedProductIndex;
+import com.codewithmosh.store.service.product.ScannedProductIndexer;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Full-text product search served from memory by a {@link ProductSearchIndex}.
+ *
+ * The index is filled after startup by one streaming scan of the active products on a background
+ * thread (searches meanwhile answer from what is loaded so far, flagged indexComplete=false), then
+ * kept current by Hibernate post-commit listeners: a saved product is re-indexed from the state
+ * Hibernate already has, without a query, and a renamed category has its products re-read in the
+ * background. Inactive products are not indexed. Category names come from the saved product's
+ * category when the session had it loaded, otherwise from the in-memory {@link CategoryTreeService}.
+ *
+ * Ranking never touches the database; the hits are then filled in from the catalog cache.
+ */
+@Service
+@Slf4j
+public class ProductSearchService extends ScannedProductIndexer<ProductSearchIndex.Document> {
+
+    public static final int MAX_RESULTS = 100;
+
+    private static final String PRODUCT_COLUMNS = "SELECT id, name, sku, description, category_id FROM products";
+
+    private final CategoryTreeService categoryTreeService;
+    private final ProductCatalogService productCatalogService;
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    public ProductSearchService(EntityManagerFactory entityManagerFactory,
+                                JdbcTemplate jdbcTemplate,
+                                CategoryTreeService categoryTreeService,
+                                ProductCatalogService productCatalogService,
+                                @Value("${catalog.search.fetch-size:1000}") int fetchSize) {
+        super("Search", entityManagerFactory, jdbcTemplate, fetchSize, Product.class, Category.class);
+        this.categoryTreeService = categoryTreeService;
+        this.productCatalogService = productCatalogService;
+    }
+
+    /**
+     * Products matching every word of the query, best first. The last word also matches longer words
+     * starting with it unless the query ends with a space or punctuation.
+     *
+     * @throws IllegalArgumentException if the query has no words or the limit is out of range
+     */
+    public ProductSearchResultDto search(String query, int limit) {
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RESULTS);
+        }
+        if (SearchTokenizer.tokenize(query).isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain a letter or digit");
+        }
+
+        long start = System.nanoTime();
+        ProductSearchIndex.Result result = index.search(query, SearchTokenizer.endsInTerm(query), limit);
+        ProductSearchResultDto response = new ProductSearchResultDto(query, result.totalMatches(), isComplete());
+        for (ProductSearchIndex.Hit hit : result.hits()) {
+            try {
+                ProductResponseDto product = productCatalogService.getProduct(hit.productId());
+                response.getHits().add(new ProductSearchResultDto.Hit(hit.score(), product));
+            } catch (NoSuchElementException e) {
+                // deleted after it was ranked
+            }
+        }
+        response.setTookMs((System.nanoTime() - start) / 1_000_000.0);
+        return response;
+    }
+
+    @Override
+    protected void afterInsert(EntityPersister persister, Object id, Object[] state) {
+        if (persister.getMappedClass() == Product.class) {
+            index(persister, (Long) id, state);
+        }
+    }
+
+    @Override
+    protected void afterUpdate(EntityPersister persister, Object id, Object[] oldState, Object[] state) {
+        if (persister.getMappedClass() == Product.class) {
+            index(persister, (Long) id, state);
+        } else {
+            int name = propertyIndex(persister, "name");
+            Object newName = state[name];
+            if (oldState == null || !Objects.equals(oldState[name], newName)) {
+                Long categoryId = (Long) id;
+                inBackground(() -> reindexCategory(categoryId, (String) newName));
+            }
+        }
+    }
+
+    @Override
+    protected void afterDelete(EntityPersister persister, Object id, Object[] deletedState) {
+        if (persister.getMappedClass() == Product.class) {
+            index.remove((Long) id);
+        }
+    }
+
+    /**
+     * Re-read the products of a renamed category, since its name is part of their text. A product
+     * saved or removed while they are read keeps what its own change event indexed, which is newer.
+     */
+    void reindexCategory(Long categoryId, String categoryName) {
+        Map<Long, Long> revisions = index.revisionsInCategory(categoryId);
+        if (revisions.isEmpty()) {
+            return;
+        }
+        List<ProductSearchIndex.Document> documents = jdbcTemplate.query(
+            PRODUCT_COLUMNS + " WHERE category_id = ? AND is_active = TRUE",
+            (row, rowNum) -> new ProductSearchIndex.Document(row.getLong("id"), row.getString("name"),
+                row.getString("sku"), row.getString("description"), categoryId, categoryName),
+            categoryId);
+        int reindexed = 0;
+        for (ProductSearchIndex.Document document : documents) {
+            Long revision = revisions.get(document.productId());
+            if (revision != null && index.putIfUnchanged(document, revision)) {
+                reindexed++;
+            }
+        }
+        log.debug("Re-indexed {} products of renamed category {}", reindexed, categoryId);
+    }
+
+    @Override
+    protected ScannedProductIndex<ProductSearchIndex.Document> scannedIndex() {
+        return index;
+    }
+
+    @Override
+    protected String scanQuery() {
+        return PRODUCT_COLUMNS + " WHERE is_active = TRUE";
+    }
+
+    @Override
+    protected RowMapper<ProductSearchIndex.Document> scanMapper() {
+        CategoryTree categories = categoryTreeService.getTree();
+        return (row, rowNum) -> document(row, categories);
+    }
+
+    private void index(EntityPersister persister, Long productId, Object[] state) {
+        if (Boolean.FALSE.equals(state[propertyIndex(persister, "isActive")])) {
+            index.remove(productId);
+            return;
+        }
+        Category category = (Category) state[propertyIndex(persister, "category")];
+        Long categoryId = null;
+        String categoryName = null;
+        if (category instanceof HibernateProxy proxy && proxy.getHibernateLazyInitializer().isUninitialized()) {
+            // not loaded by the session that saved the product, and it cannot be loaded now it is closed
+            categoryId = (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+            categoryName = categoryTreeService.getTree().find(categoryId).map(CategoryTree.Node::name).orElse(null);
+        } else if (category != null) {
+            categoryId = category.getId();
+            categoryName = category.getName();
+        }
+        index.put(new ProductSearchIndex.Document(productId,
+            (String) state[propertyIndex(persister, "name")],
+            (String) state[propertyIndex(persister, "sku")],
+            (String) state[propertyIndex(persister, "description")],
+            categoryId, categoryName));
+    }
+
+    private static ProductSearchIndex.Document document(ResultSet row, CategoryTree categories) throws SQLException {
+        Long categoryId = row.getObject("category_id", Long.class);
+        String categoryName = categoryId == null ? null
+            : categories.find(categoryId).map(CategoryTree.Node::name).orElse(null);
+        return new ProductSearchIndex.Document(row.getLong("id"), row.getString("name"), row.getString("sku"),
+            row.getString("description"), categoryId, categoryName);
+    }
+}
@@ -0,0 +1,63 @@
+package com.codewithmosh.store.service.product.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into search terms: runs of letters and digits, lower-cased, with accents removed
+ * ("Crème brûlée" and "creme brulee" give the same terms). Everything else separates terms, so
+ * "MUG-12" is "mug" and "12". Used for both documents and queries, so they always agree.
+ */
+final class SearchTokenizer {
+
+    static final int MAX_TERM_LENGTH = 32;
+
+    private SearchTokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String folded = fold(text);
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if (Character.getType(codePoint) != Character.NON_SPACING_MARK && !term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Whether the text ends inside a term, i.e. the user may still be typing it
+     */
+    static boolean endsInTerm(String text) {
+        if (text == null || text.isEmpty()) {
+            return false;
+        }
+        return Character.isLetterOrDigit(text.codePointBefore(text.length()));
+    }
+
+    private static String fold(String text) {
+        // plain ASCII (most SKUs and names) needs no decomposition
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                return Normalizer.normalize(text, Normalizer.Form.NFKD);
+            }
+        }
+        return text;
+    }
+}
@@ -0,0 +1,14 @@
+-- Checkpoints of bulk order imports: one row per chunk of orders written, committed with the chunk,
+-- so an interrupted import can be run again under the same id and skip what is already in.
+
+CREATE TABLE import_chunks (
+    import_id VARCHAR(100) NOT NULL,
+    chunk_no INT NOT NULL,
+    chunk_size INT NOT NULL,
+    orders INT NOT NULL,
+    items INT NOT NULL,
+    rejected INT NOT NULL,
+    millis BIGINT NOT NULL,
+    completed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (import_id, chunk_no)
+);
@@ -0,0 +1,17 @@
+-- Keyset pagination of GET /api/v1/products: WHERE is_active = ? [AND category_id = ?]
+-- AND (sort_key, id) > (?, ?) ORDER BY sort_key, id. Equality columns come first so each listing is
+-- one range read in sort order, whichever page it starts on.
+
+CREATE INDEX idx_products_category_active_created ON products(category_id, is_active, created_at, id);
+CREATE INDEX idx_products_category_active_price ON products(category_id, is_active, price, id);
+CREATE INDEX idx_products_category_active_name ON products(category_id, is_active, name, id);
+
+CREATE INDEX idx_products_active_created ON products(is_active, created_at, id);
+CREATE INDEX idx_products_active_price ON products(is_active, price, id);
+CREATE INDEX idx_products_active_name ON products(is_active, name, id);
+
+-- the featured shelf, newest first; other sorts of featured products sort the (small) featured set
+CREATE INDEX idx_products_featured_active_created ON products(is_featured, is_active, created_at, id);
+
+-- idx_products_category is a prefix of the category indexes above, which also serve the foreign key
+DROP INDEX idx_products_category ON products;
@@ -0,0 +1,23 @@
+-- Category, its slug lookups and the category tree use slug, parent_id, sort_order and image_url,
+-- which V1 never created
+
+ALTER TABLE categories ADD COLUMN slug VARCHAR(50) NULL AFTER description;
+ALTER TABLE categories ADD COLUMN parent_id BIGINT NULL AFTER slug;
+ALTER TABLE categories ADD COLUMN sort_order INT DEFAULT 0 AFTER is_active;
+ALTER TABLE categories ADD COLUMN image_url VARCHAR(500) NULL AFTER sort_order;
+
+-- Slugs for the V1 seed rows and anything added since: the name in lower case, with every run of
+-- other characters turned into one '-' ('Home & Garden' -> 'home-garden')
+UPDATE categories
+SET slug = LEFT(TRIM(BOTH '-' FROM LOWER(REGEXP_REPLACE(name, '[^A-Za-z0-9]+', '-'))), 50);
+
+UPDATE categories SET slug = CONCAT('category-', id) WHERE slug = '';
+
+-- names that only differ in punctuation would share a slug; keep them apart by id
+UPDATE categories
+SET slug = CONCAT(LEFT(slug, 29), '-', id)
+WHERE slug IN (SELECT slug FROM (SELECT slug FROM categories GROUP BY slug HAVING COUNT(*) > 1) duplicated);
+
+ALTER TABLE categories MODIFY COLUMN slug VARCHAR(50) NOT NULL;
+ALTER TABLE categories ADD CONSTRAINT uk_categories_slug UNIQUE (slug);
+ALTER TABLE categories ADD CONSTRAINT fk_categories_parent FOREIGN KEY (parent_id) REFERENCES categories(id);
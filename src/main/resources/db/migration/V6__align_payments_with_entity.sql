@@ -0,0 +1,17 @@
+-- Payments are now written by PaymentRecorder, so the table has to match the Payment entity
+
+ALTER TABLE payments
+    CHANGE COLUMN payment_status status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+
+-- attempts made through /payment/process are not tied to an order yet
+ALTER TABLE payments
+    MODIFY COLUMN order_id BIGINT NULL,
+    MODIFY COLUMN payment_method VARCHAR(50) NOT NULL,
+    ADD COLUMN external_payment_id VARCHAR(100) NULL AFTER transaction_id,
+    ADD COLUMN failure_reason TEXT NULL AFTER payment_date,
+    ADD COLUMN payment_details JSON NULL AFTER failure_reason,
+    ADD COLUMN refund_amount DECIMAL(10,2) DEFAULT 0.00 AFTER payment_details,
+    ADD COLUMN refund_date TIMESTAMP NULL AFTER refund_amount,
+    ADD CONSTRAINT uk_payments_transaction_id UNIQUE (transaction_id);
+
+CREATE INDEX idx_payments_external_id ON payments(external_payment_id);
@@ -0,0 +1,12 @@
+-- Checkout reads Product and writes OrderItem rows, so both tables have to match their entities
+
+ALTER TABLE products
+    MODIFY COLUMN name VARCHAR(100) NOT NULL,
+    ADD COLUMN image_url VARCHAR(500) NULL AFTER category_id,
+    ADD COLUMN is_featured BOOLEAN DEFAULT false AFTER is_active,
+    ADD COLUMN weight DECIMAL(3,2) NULL AFTER is_featured,
+    ADD COLUMN dimensions VARCHAR(50) NULL AFTER weight;
+
+ALTER TABLE order_items
+    ADD COLUMN discount_amount DECIMAL(10,2) DEFAULT 0.00 AFTER total_price,
+    ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP AFTER created_at;
@@ -0,0 +1,17 @@
+-- Backing table for PooledIdGenerator: one row per entity table holding the last id handed out.
+-- Ids are now assigned by the application in blocks, which lets Hibernate batch inserts.
+-- AUTO_INCREMENT is left on the id columns, but manual inserts must not rely on it any more:
+-- their ids would collide with the next blocks handed out from here.
+
+CREATE TABLE id_blocks (
+    segment VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO id_blocks (segment, next_val)
+SELECT 'users', COALESCE(MAX(id), 0) FROM users
+UNION ALL SELECT 'categories', COALESCE(MAX(id), 0) FROM categories
+UNION ALL SELECT 'products', COALESCE(MAX(id), 0) FROM products
+UNION ALL SELECT 'orders', COALESCE(MAX(id), 0) FROM orders
+UNION ALL SELECT 'order_items', COALESCE(MAX(id), 0) FROM order_items
+UNION ALL SELECT 'payments', COALESCE(MAX(id), 0) FROM payments;
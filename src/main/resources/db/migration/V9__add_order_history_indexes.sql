@@ -0,0 +1,9 @@
+-- Keyset pagination of a user's order history: WHERE user_id = ? [AND status = ?]
+-- AND (order_date, id) < (?, ?) ORDER BY order_date DESC, id DESC reads these indexes backwards
+-- from the cursor, so every page costs the same however far back it is.
+
+CREATE INDEX idx_orders_user_date ON orders(user_id, order_date, id);
+CREATE INDEX idx_orders_user_status_date ON orders(user_id, status, order_date, id);
+
+-- idx_orders_user is a prefix of idx_orders_user_date, which also serves the user_id foreign key
+DROP INDEX idx_orders_user ON orders;
@@ -0,0 +1,87 @@
+package com.codewithmosh.store.controller;
+
+import com.codewithmosh.store.service.payment.PaymentFacade;
+import com.codewithmosh.store.service.payment.batch.PaymentBatchProcessor;
+import com.codewithmosh.store.service.payment.idempotency.IdempotencyStore;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentControllerTest {
+
+    private PaymentFacade facade;
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() {
+        facade = mock(PaymentFacade.class);
+        when(facade.getAvailablePaymentMethods()).thenReturn(List.of("stripe"));
+        controller = new PaymentController(facade, new IdempotencyStore(1000, Duration.ofMinutes(5), 4),
+            mock(PaymentBatchProcessor.class), new ObjectMapper());
+    }
+
+    @Test
+    void retryAfterFailedChargeIsChargedAgainAndThenReplayed() {
+        when(facade.processPayment(100.0, "stripe"))
+            .thenThrow(new IllegalStateException("Card declined"))
+            .thenReturn(charged("tx-1"));
+
+        ResponseEntity<Map<String, Object>> failed = controller.processPayment(100.0, "stripe", "key-1");
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(failed.getBody()).containsEntry("error", "Card declined");
+
+        ResponseEntity<Map<String, Object>> retried = controller.processPayment(100.0, "stripe", "key-1");
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retried.getBody()).containsEntry("transactionId", "tx-1");
+
+        // now that it succeeded, the key replays the charge instead of making another
+        ResponseEntity<Map<String, Object>> replayed = controller.processPayment(100.0, "stripe", "key-1");
+        assertThat(replayed.getBody()).containsEntry("transactionId", "tx-1");
+        verify(facade, times(2)).processPayment(100.0, "stripe");
+    }
+
+    @Test
+    void asyncRetryAfterFailedChargeIsChargedAgain() {
+        when(facade.processPaymentAsync(100.0, "stripe"))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Gateway timeout")))
+            .thenReturn(CompletableFuture.completedFuture(charged("tx-2")));
+
+        ResponseEntity<?> failed =
+            (ResponseEntity<?>) controller.processPaymentAsync(100.0, "stripe", "key-2").getResult();
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        ResponseEntity<?> retried =
+            (ResponseEntity<?>) controller.processPaymentAsync(100.0, "stripe", "key-2").getResult();
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void keyReusedForDifferentPaymentIsAConflict() {
+        when(facade.processPayment(100.0, "stripe")).thenReturn(charged("tx-3"));
+        controller.processPayment(100.0, "stripe", "key-3");
+
+        ResponseEntity<Map<String, Object>> reused = controller.processPayment(250.0, "stripe", "key-3");
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat((String) reused.getBody().get("error")).contains("already used for a different request");
+        verify(facade, times(1)).processPayment(100.0, "stripe");
+    }
+
+    private static PaymentResult charged(String transactionId) {
+        return new PaymentResult("stripe", 100.0, transactionId, "ch_" + transactionId, 3.2, Map.of());
+    }
+}
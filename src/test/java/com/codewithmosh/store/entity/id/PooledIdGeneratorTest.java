@@ -0,0 +1,174 @@
+package com.codewithmosh.store.entity.id;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.repository.PaymentRepository;
+import com.codewithmosh.store.support.StatementCounter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import(StatementCounter.Config.class)
+// blocks are reserved in their own transaction, so the test commits like the application does
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// resetting a segment only takes effect before the generator has cached a block of it, which other
+// test classes sharing the context may already have done
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+class PooledIdGeneratorTest {
+
+    private static final int ROWS = 2000;
+    private static final int BATCH_SIZE = 20;  // hibernate.jdbc.batch_size in application.yml
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCounter statements;
+
+    @AfterEach
+    void clean() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void idsContinueAfterTheLastIdRecordedInTheBlockTable() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // what V8 does for a table whose highest id is 1000
+        jdbc.update("UPDATE id_blocks SET next_val = 1000 WHERE segment = 'categories'");
+
+        List<Long> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> created = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Category category = new Category("Category " + i, "category-" + i);
+                entityManager.persist(category);
+                created.add(category.getId());
+            }
+            return created;
+        });
+
+        assertThat(ids).containsExactly(1001L, 1002L, 1003L);
+        // one block reserved: the row now holds its last id
+        assertThat(jdbc.queryForObject("SELECT next_val FROM id_blocks WHERE segment = 'categories'", Long.class))
+            .isEqualTo(1000L + PooledIdGenerator.DEFAULT_BLOCK_SIZE);
+    }
+
+    @Test
+    void hibernateSendsPooledInsertsInBatches() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        statements.reset();
+        tx.executeWithoutResult(status -> {
+            List<Payment> payments = new ArrayList<>(ROWS);
+            for (int i = 1; i <= ROWS; i++) {
+                Payment payment = new Payment(null, "STRIPE", BigDecimal.valueOf(i));
+                payment.setStatus(Payment.PaymentStatus.COMPLETED);
+                payments.add(payment);
+            }
+            paymentRepository.saveAll(payments);
+        });
+
+        assertThat(paymentRepository.count()).isEqualTo(ROWS);
+        // one batch per 20 rows, plus a SELECT ... FOR UPDATE and an UPDATE per block of 50 ids
+        // (one more block when an earlier test left a block part-used)
+        long blocks = ROWS / PooledIdGenerator.DEFAULT_BLOCK_SIZE + 1;
+        assertThat(statements.count()).isLessThanOrEqualTo(ROWS / BATCH_SIZE + 2 * blocks);
+    }
+
+    /**
+     * Benchmark: the inserts each id strategy puts on the wire. IDENTITY forces one INSERT and a
+     * generated-key read per row; with pooled ids the rows go out in JDBC batches. H2 runs in-process,
+     * so the gap here is far smaller than against MySQL, where every round trip crosses the network
+     * (and with rewriteBatchedStatements=true each batch is sent as a single multi-row INSERT).
+     */
+    @Test
+    void benchmarkRowByRowAgainstBatchedInserts() throws SQLException {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE insert_benchmark (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "payment_method VARCHAR(50) NOT NULL, amount DECIMAL(10,2) NOT NULL, status VARCHAR(20) NOT NULL)");
+        try (Connection connection = dataSource.getConnection()) {
+            // warm up both paths, then count; batched ids are kept clear of the AUTO_INCREMENT ones
+            insertRowByRow(connection, 0);
+            insertBatched(connection, 1_000_000);
+
+            statements.reset();
+            insertRowByRow(connection, ROWS);
+            long identityRoundTrips = statements.count();
+
+            statements.reset();
+            insertBatched(connection, 2_000_000);
+            long pooledRoundTrips = statements.count();
+
+            assertThat(identityRoundTrips).isEqualTo(ROWS);
+            assertThat(pooledRoundTrips).isEqualTo(ROWS / BATCH_SIZE);
+        } finally {
+            jdbc.execute("DROP TABLE insert_benchmark");
+        }
+    }
+
+    private static void insertRowByRow(Connection connection, int firstAmount) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO insert_benchmark (payment_method, amount, status) VALUES (?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setString(1, "STRIPE");
+                insert.setBigDecimal(2, BigDecimal.valueOf(firstAmount + i));
+                insert.setString(3, "COMPLETED");
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+    }
+
+    private static void insertBatched(Connection connection, int firstId) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO insert_benchmark (id, payment_method, amount, status) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setLong(1, firstId + i);
+                insert.setString(2, "STRIPE");
+                insert.setBigDecimal(3, BigDecimal.valueOf(i));
+                insert.setString(4, "COMPLETED");
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0 || i == ROWS) {
+                    insert.executeBatch();
+                }
+            }
+        }
+    }
+}
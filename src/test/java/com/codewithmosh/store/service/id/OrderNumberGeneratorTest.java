@@ -0,0 +1,123 @@
+package com.codewithmosh.store.service.id;
+
+import com.codewithmosh.store.support.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+// leases commit on their own connection, as they do next to a real checkout
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderNumberGeneratorTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingNumbersWithOneLeasePerBlock() throws Exception {
+        MutableClock clock = new MutableClock("2026-03-01T10:00:00Z");
+        OrderNumberGenerator generator = generator(50, clock);
+        int threads = 8;
+        int perThread = 500;
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    for (int i = 0; i < perThread; i++) {
+                        String number = generator.next();
+                        assertThat(number).startsWith("ORD-20260301-").hasSize(20);
+                        // zero padding keeps text order and numeric order the same
+                        assertThat(number).isGreaterThan(previous);
+                        assertThat(seen.add(number)).as("duplicate %s", number).isTrue();
+                        previous = number;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(threads * perThread);
+        assertThat(generator.getLeaseCount()).isEqualTo(threads * perThread / 50);
+        assertThat(seen).contains("ORD-20260301-0000001", "ORD-20260301-0004000");
+    }
+
+    @Test
+    void instancesSharingADayLeaseDisjointBlocks() {
+        MutableClock clock = new MutableClock("2026-03-02T10:00:00Z");
+        OrderNumberGenerator first = generator(10, clock);
+        OrderNumberGenerator second = generator(10, clock);
+
+        assertThat(first.next()).isEqualTo("ORD-20260302-0000001");
+        assertThat(second.next()).isEqualTo("ORD-20260302-0000011");
+        for (int i = 0; i < 9; i++) {
+            first.next();
+        }
+        // the first block is used up, so the next lease comes after the second instance's block
+        assertThat(first.next()).isEqualTo("ORD-20260302-0000021");
+        assertThat(second.next()).isEqualTo("ORD-20260302-0000012");
+    }
+
+    @Test
+    void sequenceRestartsEachDayAndNeverGoesBackWithTheClock() {
+        MutableClock clock = new MutableClock("2026-03-03T23:59:59Z");
+        OrderNumberGenerator generator = generator(100, clock);
+
+        assertThat(generator.next()).isEqualTo("ORD-20260303-0000001");
+        clock.set("2026-03-04T00:00:01Z");
+        assertThat(generator.next()).isEqualTo("ORD-20260304-0000001");
+        assertThat(generator.next()).isEqualTo("ORD-20260304-0000002");
+
+        // clock correction back across midnight
+        clock.set("2026-03-03T23:59:58Z");
+        assertThat(generator.next()).isEqualTo("ORD-20260304-0000003");
+        assertThat(generator.getLeaseCount()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsInvalidBlockSize() {
+        assertThatThrownBy(() -> generator(0, new MutableClock("2026-03-01T00:00:00Z")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private OrderNumberGenerator generator(int blockSize, Clock clock) {
+        return new OrderNumberGenerator(new IdBlocks(new JdbcTemplate(dataSource), transactionManager), blockSize, clock);
+    }
+}
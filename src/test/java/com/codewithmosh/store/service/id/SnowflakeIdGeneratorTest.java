@@ -0,0 +1,134 @@
+package com.codewithmosh.store.service.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void concurrentCallersNeverGetTheSameId() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        // ids are increasing as seen from each caller
+                        assertThat(id).isGreaterThan(previous);
+                        previous = id;
+                        seen.add(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        assertThat(seen).hasSize(THREADS * IDS_PER_THREAD);
+        assertThat(seen).allSatisfy(id -> assertThat(SnowflakeIdGenerator.nodeOf(id)).isEqualTo(7));
+    }
+
+    @Test
+    void sequenceOverflowAndClockRollbackBorrowTheNextMillisecond() {
+        AtomicLong now = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 1_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, now::get);
+
+        long last = 0;
+        // two full milliseconds worth of ids without the clock moving
+        for (int i = 0; i < 8192; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(last);
+            last = id;
+        }
+        assertThat(SnowflakeIdGenerator.timestampOf(last).toEpochMilli()).isEqualTo(now.get() + 1);
+
+        now.addAndGet(-500);
+        assertThat(generator.nextId()).isGreaterThan(last);
+    }
+
+    @Test
+    void idsCarryTimestampAndNode() {
+        long before = System.currentTimeMillis();
+        long id = new SnowflakeIdGenerator(1023).nextId();
+
+        assertThat(id).isPositive();
+        assertThat(SnowflakeIdGenerator.nodeOf(id)).isEqualTo(1023);
+        assertThat(SnowflakeIdGenerator.timestampOf(id))
+            .isBetween(Instant.ofEpochMilli(before), Instant.ofEpochMilli(System.currentTimeMillis()));
+    }
+
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Throughput benchmark: single thread and contended. Prints the rate; only asserts a floor that any
+     * machine clears, so it does not flake on a busy CI box.
+     */
+    @Test
+    void throughput() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0);
+        int ids = 2_000_000;
+
+        // warm up
+        for (int i = 0; i < 200_000; i++) {
+            generator.nextId();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ids; i++) {
+            generator.nextId();
+        }
+        double singleThreaded = ids / ((System.nanoTime() - start) / 1e9);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perThread = ids / threads;
+        start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long local = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        local ^= generator.nextId();
+                    }
+                    return local;
+                }));
+            }
+            for (Future<Long> result : results) {
+                result.get();
+            }
+        }
+        double contended = (double) perThread * threads / ((System.nanoTime() - start) / 1e9);
+
+        assertThat(singleThreaded).isGreaterThan(1_000_000);
+        assertThat(contended).isGreaterThan(500_000);
+    }
+}
@@ -0,0 +1,264 @@
+package com.codewithmosh.store.service.inventory;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.config.CatalogFacetConfig;
+import com.codewithmosh.store.config.HotInventoryConfig;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndexer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+// every reservation commits on its own, as concurrent checkouts do
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 40;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private HotInventory hotInventory;
+    private InventoryService inventoryService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        HotInventoryConfig hotConfig = new HotInventoryConfig();
+        hotConfig.setStripes(4);
+        // flushed by hand, so the table only changes when a test says so
+        CatalogCache catalogCache = new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry());
+        ProductFacetIndexer facetIndexer =
+            new ProductFacetIndexer(entityManagerFactory, jdbcTemplate, new CatalogFacetConfig());
+        hotInventory = new HotInventory(jdbcTemplate, transactionManager, hotConfig, catalogCache, facetIndexer);
+        inventoryService = new InventoryService(jdbcTemplate, productRepository, hotInventory, catalogCache, facetIndexer);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void clean() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void contendedProductIsNeverOversold() throws Exception {
+        Long productId = product("HOT-1", 100).getId();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(attempt -> {
+            int quantity = 1 + attempt % 3;
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    inventoryService.reserve(Map.of(productId, quantity)));
+                sold.addAndGet(quantity);
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+            } catch (RuntimeException e) {
+                unexpected.add(e);
+            }
+        });
+
+        assertThat(unexpected).isEmpty();
+        // 320 attempts for up to 640 units against 100 in stock
+        assertThat(rejected.get()).isPositive();
+        assertThat(stockOf(productId)).isGreaterThanOrEqualTo(0);
+        assertThat(sold.get() + stockOf(productId)).isEqualTo(100);
+    }
+
+    @Test
+    void multiLineOrdersInOppositeOrderDoNotDeadlock() throws Exception {
+        Long first = product("PAIR-A", 150).getId();
+        Long second = product("PAIR-B", 150).getId();
+        AtomicInteger orders = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(attempt -> {
+            // half the orders list the products the other way round
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            if (attempt % 2 == 0) {
+                lines.put(first, 1);
+                lines.put(second, 1);
+            } else {
+                lines.put(second, 1);
+                lines.put(first, 1);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(lines));
+                orders.incrementAndGet();
+            } catch (IllegalStateException e) {
+                // sold out
+            } catch (RuntimeException e) {
+                unexpected.add(e);
+            }
+        });
+
+        assertThat(unexpected).isEmpty();
+        assertThat(orders.get()).isEqualTo(150);
+        assertThat(stockOf(first)).isZero();
+        assertThat(stockOf(second)).isZero();
+    }
+
+    @Test
+    void failedLineRollsBackTheWholeReservationAndReleaseRestoresStock() {
+        Long plenty = product("PLENTY", 10).getId();
+        Long scarce = product("SCARCE", 1).getId();
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+            inventoryService.reserve(Map.of(plenty, 5, scarce, 2))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining(String.valueOf(scarce));
+        assertThat(stockOf(plenty)).isEqualTo(10);
+        assertThat(stockOf(scarce)).isEqualTo(1);
+
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(Map.of(plenty, 4)));
+        transactionTemplate.executeWithoutResult(status -> inventoryService.release(Map.of(plenty, 4)));
+        assertThat(stockOf(plenty)).isEqualTo(10);
+    }
+
+    @Test
+    void hotProductIsNeverOversoldAndTheFlushWritesTheNetChange() throws Exception {
+        Long productId = product("FLASH-1", 100).getId();
+        hotInventory.enable(productId);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(attempt -> {
+            int quantity = 1 + attempt % 3;
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    inventoryService.reserve(Map.of(productId, quantity)));
+                sold.addAndGet(quantity);
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+            } catch (RuntimeException e) {
+                unexpected.add(e);
+            }
+        });
+
+        assertThat(unexpected).isEmpty();
+        assertThat(rejected.get()).isPositive();
+        assertThat(sold.get() + hotInventory.available(productId)).isEqualTo(100);
+        // reservations never touched the row
+        assertThat(stockOf(productId)).isEqualTo(100);
+
+        hotInventory.flush();
+        assertThat(stockOf(productId)).isEqualTo(100 - sold.get());
+    }
+
+    @Test
+    void hotUnitsComeBackOnRollbackAndCancelledUnitsAfterCommit() {
+        Long hot = product("FLASH-2", 10).getId();
+        Long scarce = product("SCARCE-2", 1).getId();
+        hotInventory.enable(hot);
+
+        // the hot line is taken first, then the table line fails and the checkout rolls back
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+            inventoryService.reserve(Map.of(hot, 4, scarce, 2))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining(String.valueOf(scarce));
+        assertThat(hotInventory.available(hot)).isEqualTo(10);
+
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(Map.of(hot, 6)));
+        // a cancellation that rolls back gives nothing back
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryService.release(Map.of(hot, 6));
+            status.setRollbackOnly();
+        });
+        assertThat(hotInventory.available(hot)).isEqualTo(4);
+
+        transactionTemplate.executeWithoutResult(status -> inventoryService.release(Map.of(hot, 2)));
+        assertThat(hotInventory.available(hot)).isEqualTo(6);
+
+        // switching off writes what is still pending and hands the product back to the table
+        assertThat(hotInventory.disable(hot)).isTrue();
+        assertThat(stockOf(hot)).isEqualTo(6);
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(Map.of(hot, 1)));
+        assertThat(stockOf(hot)).isEqualTo(5);
+    }
+
+    private void runConcurrently(AttemptBody body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        body.run(thread * ATTEMPTS_PER_THREAD + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Product product(String sku, int stock) {
+        return productRepository.save(new Product(sku, sku, new BigDecimal("9.99"), stock));
+    }
+
+    private int stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    @FunctionalInterface
+    private interface AttemptBody {
+        void run(int attempt);
+    }
+}
@@ -0,0 +1,94 @@
+package com.codewithmosh.store.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedStockTest {
+
+    @Test
+    void oneThreadCanDrainEveryStripeThroughRebalancing() {
+        StripedStock stock = new StripedStock(8, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(stock.tryTake(1)).as("unit %d", i + 1).isTrue();
+        }
+        assertThat(stock.tryTake(1)).isFalse();
+        assertThat(stock.available()).isZero();
+        assertThat(stock.rebalances()).isPositive();
+
+        stock.add(3);
+        assertThat(stock.tryTake(3)).isTrue();
+    }
+
+    @Test
+    void aLargeTakeIsServedFromAllStripesOrNotAtAll() {
+        StripedStock stock = new StripedStock(4, 10);
+
+        assertThat(stock.tryTake(11)).isFalse();
+        assertThat(stock.available()).isEqualTo(10);
+        assertThat(stock.tryTake(10)).isTrue();
+        assertThat(stock.available()).isZero();
+    }
+
+    @Test
+    void concurrentTakesAndReturnsConserveUnits() throws Exception {
+        int threads = 8;
+        int operations = 200_000;
+        StripedStock stock = new StripedStock(16, 50_000);
+        AtomicLong taken = new AtomicLong();
+        AtomicLong returned = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    long myTaken = 0;
+                    long myReturned = 0;
+                    for (int i = 0; i < operations; i++) {
+                        int quantity = 1 + i % 2;
+                        if (stock.tryTake(quantity)) {
+                            myTaken += quantity;
+                        }
+                        // roughly one cancellation every twenty checkouts
+                        if (i % 20 == 0) {
+                            stock.add(1);
+                            myReturned++;
+                        }
+                    }
+                    taken.addAndGet(myTaken);
+                    returned.addAndGet(myReturned);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(stock.available()).isGreaterThanOrEqualTo(0);
+        assertThat(stock.available() + taken.get()).isEqualTo(50_000 + returned.get());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThatThrownBy(() -> new StripedStock(0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new StripedStock(4, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,162 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.OrderItem;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.entity.user.User;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.OrderRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.repository.UserRepository;
+import com.codewithmosh.store.support.StatementCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import(StatementCounter.Config.class)
+// the export runs in its own read-only transaction, as it does behind the endpoint
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExportServiceTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2026, 6, 1, 0, 0);
+    private static final LocalDateTime DAY_TWO = DAY_ONE.plusDays(1);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCounter statements;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private OrderExportService exportService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new OrderExportService(entityManager, new EntityDtoMapper(), objectMapper, 50, 20);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        User user = userRepository.save(User.createUser("finance", "finance@example.com", "Fin", "Ance", "hash"));
+        Product plain = productRepository.save(new Product("Plain mug", "MUG-1", new BigDecimal("4.00"), 1000));
+        Product quoted = productRepository.save(new Product("Mug, \"large\"", "MUG-2", new BigDecimal("6.00"), 1000));
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            Order order = new Order(user, "EX-" + i, new BigDecimal("16.00"));
+            // 120 orders on day one, 10 on day two
+            order.setOrderDate((i < 120 ? DAY_ONE : DAY_TWO).plusMinutes(i));
+            order.getOrderItems().add(new OrderItem(order, plain, 1, plain.getPrice()));
+            order.getOrderItems().add(new OrderItem(order, quoted, 2, quoted.getPrice()));
+            Payment payment = new Payment(order, "STRIPE", new BigDecimal("16.00"));
+            payment.setStatus(Payment.PaymentStatus.COMPLETED);
+            payment.setTransactionId("txn_" + i);
+            order.getPayments().add(payment);
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+    }
+
+    @AfterEach
+    void clean() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM payments");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void csvHasOneRowPerItemAndQueriesPerChunkNotPerOrder() {
+        statements.reset();
+        String csv = export(DAY_ONE, DAY_TWO, OrderExportService.Format.CSV);
+
+        // the cursor, then items and payments for each of the 3 chunks of at most 50 orders
+        assertThat(statements.count()).isEqualTo(1 + 3 * 2);
+
+        String[] lines = csv.split("\n");
+        assertThat(lines[0]).isEqualTo(OrderExportService.CSV_HEADER);
+        assertThat(lines).hasSize(1 + 120 * 2);
+        String order = orderIdOf("EX-0") + ",EX-0,2026-06-01T00:00,PENDING,finance@example.com,16.00,";
+        assertThat(lines).contains(
+            order + "MUG-1,Plain mug,1,4.00,4.00,16.00,1,txn_0",
+            order + "MUG-2,\"Mug, \"\"large\"\"\",2,6.00,12.00,16.00,1,txn_0");
+        assertThat(csv).doesNotContain("EX-120");
+    }
+
+    @Test
+    void ndjsonHasOneOrderPerLineWithItemsAndPayments() throws Exception {
+        String ndjson = export(DAY_TWO, DAY_TWO.plusDays(1), OrderExportService.Format.NDJSON);
+
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(10);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("orderNumber").asText()).isEqualTo("EX-120");
+        assertThat(first.get("user").get("email").asText()).isEqualTo("finance@example.com");
+        assertThat(first.get("orderItems")).hasSize(2);
+        assertThat(first.get("payments").get(0).get("transactionId").asText()).isEqualTo("txn_120");
+
+        assertThatThrownBy(() -> export(DAY_TWO, DAY_ONE, OrderExportService.Format.NDJSON))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String export(LocalDateTime from, LocalDateTime to, OrderExportService.Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                exportService.export(from, to, format, out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Long orderIdOf(String orderNumber) {
+        return orderRepository.findByOrderNumber(orderNumber).orElseThrow().getId();
+    }
+}
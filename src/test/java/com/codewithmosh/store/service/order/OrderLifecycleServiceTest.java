@@ -0,0 +1,184 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.dto.order.BulkStatusUpdateResultDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.Order.OrderStatus;
+import com.codewithmosh.store.entity.user.User;
+import com.codewithmosh.store.repository.OrderRepository;
+import com.codewithmosh.store.repository.UserRepository;
+import com.codewithmosh.store.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import(StatementCounter.Config.class)
+// chunks commit on their own, as they do behind the endpoint
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderLifecycleServiceTest {
+
+    private static final LocalDateTime SHIPPED_AT = LocalDateTime.of(2026, 5, 4, 9, 30);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StatementCounter statements;
+
+    private OrderLifecycleService lifecycleService;
+    private JdbcTemplate jdbcTemplate;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        lifecycleService = new OrderLifecycleService(orderRepository, transactionManager, 500);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        user = userRepository.save(User.createUser("shopper", "shopper@example.com", "Sam", "Shopper", "hash"));
+    }
+
+    @AfterEach
+    void clean() {
+        // set-based, like the code under test: deleteAll() would load every order first
+        jdbcTemplate.update("DELETE FROM orders");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void bulkShipmentUpdatesEligibleOrdersAndReportsTheRest() {
+        // 1200 orders cycling through CONFIRMED, PROCESSING, PENDING, SHIPPED, CANCELLED
+        OrderStatus[] cycle = {OrderStatus.CONFIRMED, OrderStatus.PROCESSING, OrderStatus.PENDING,
+            OrderStatus.SHIPPED, OrderStatus.CANCELLED};
+        List<Long> ids = orders(1200, cycle);
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(-1L);
+        requested.add(-2L);
+
+        statements.reset();
+        BulkStatusUpdateResultDto result = lifecycleService.transition(OrderStatus.SHIPPED, requested, SHIPPED_AT);
+
+        // three chunks of at most 500: one status projection and one UPDATE each
+        assertThat(statements.count()).isEqualTo(6);
+        assertThat(result.getRequested()).isEqualTo(1202);
+        assertThat(result.getUpdated()).isEqualTo(480);
+        assertThat(result.getUnchanged()).hasSize(240);
+        assertThat(result.getRejected()).hasSize(480)
+            .allMatch(rejection -> EnumSet.of(OrderStatus.PENDING, OrderStatus.CANCELLED).contains(rejection.currentStatus()));
+        assertThat(result.getNotFound()).containsExactly(-1L, -2L);
+
+        assertThat(count("SELECT COUNT(*) FROM orders WHERE status = 'SHIPPED' AND shipped_date = ?",
+            Timestamp.valueOf(SHIPPED_AT))).isEqualTo(480);
+        assertThat(count("SELECT COUNT(*) FROM orders WHERE status = 'SHIPPED'")).isEqualTo(720);
+    }
+
+    @Test
+    void deliveryOnlyFollowsShipmentAndReplaysAreHarmless() {
+        List<Long> ids = orders(4, OrderStatus.CONFIRMED, OrderStatus.SHIPPED);
+
+        BulkStatusUpdateResultDto first = lifecycleService.transition(OrderStatus.DELIVERED, ids, null);
+        assertThat(first.getUpdated()).isEqualTo(2);
+        assertThat(first.getRejected()).extracting(BulkStatusUpdateResultDto.Rejection::orderId)
+            .containsExactly(ids.get(0), ids.get(2));
+        assertThat(count("SELECT COUNT(*) FROM orders WHERE delivered_date IS NOT NULL")).isEqualTo(2);
+
+        BulkStatusUpdateResultDto replay = lifecycleService.transition(OrderStatus.DELIVERED, ids, null);
+        assertThat(replay.getUpdated()).isZero();
+        assertThat(replay.getUnchanged()).containsExactly(ids.get(1), ids.get(3));
+
+        assertThatThrownBy(() -> lifecycleService.transition(OrderStatus.CANCELLED, ids, null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ordersMovedByAnotherWriterBetweenReadAndUpdateAreReportedByWhereTheyAre() {
+        List<Long> ids = orders(4, OrderStatus.CONFIRMED);
+        // another writer ships one order and cancels another right after the chunk read their statuses
+        OrderRepository racing = mock(OrderRepository.class, AdditionalAnswers.delegatesTo(orderRepository));
+        AtomicBoolean first = new AtomicBoolean(true);
+        TransactionTemplate otherWriter = new TransactionTemplate(transactionManager);
+        otherWriter.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> {
+            List<OrderRepository.StatusView> statuses = orderRepository.findStatusesByIdIn(invocation.getArgument(0));
+            if (first.getAndSet(false)) {
+                otherWriter.executeWithoutResult(status -> {
+                    jdbcTemplate.update("UPDATE orders SET status = 'SHIPPED' WHERE id = ?", ids.get(1));
+                    jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", ids.get(2));
+                });
+            }
+            return statuses;
+        }).when(racing).findStatusesByIdIn(anyCollection());
+
+        BulkStatusUpdateResultDto result = new OrderLifecycleService(racing, transactionManager, 500)
+            .transition(OrderStatus.SHIPPED, ids, SHIPPED_AT);
+
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getUnchanged()).containsExactly(ids.get(1));
+        assertThat(result.getRejected()).containsExactly(
+            new BulkStatusUpdateResultDto.Rejection(ids.get(2), OrderStatus.CANCELLED));
+        assertThat(result.getNotFound()).isEmpty();
+        assertThat(count("SELECT COUNT(*) FROM orders WHERE shipped_date = ?", Timestamp.valueOf(SHIPPED_AT)))
+            .isEqualTo(2);
+    }
+
+    @Test
+    void transitionTableMatchesTheLifecycle() {
+        assertThat(OrderTransitions.sourcesOf(OrderStatus.CANCELLED))
+            .containsExactlyInAnyOrder(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING);
+        assertThat(OrderTransitions.sourcesOf(OrderStatus.DELIVERED)).containsExactly(OrderStatus.SHIPPED);
+        assertThat(OrderTransitions.sourcesOf(OrderStatus.PENDING)).isEmpty();
+        assertThat(OrderTransitions.nextOf(OrderStatus.CANCELLED)).isEmpty();
+        assertThat(OrderTransitions.nextOf(OrderStatus.RETURNED)).isEmpty();
+        assertThat(OrderTransitions.isAllowed(OrderStatus.DELIVERED, OrderStatus.SHIPPED)).isFalse();
+    }
+
+    private List<Long> orders(int count, OrderStatus... statuses) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(user, "LC-" + i, new BigDecimal("12.00"));
+            order.setStatus(statuses[i % statuses.length]);
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,310 @@
+package com.codewithmosh.store.service.order;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.config.CatalogFacetConfig;
+import com.codewithmosh.store.config.HotInventoryConfig;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.order.OrderItemRequestDto;
+import com.codewithmosh.store.dto.order.OrderRequestDto;
+import com.codewithmosh.store.dto.order.OrderResponseDto;
+import com.codewithmosh.store.entity.order.Order;
+import com.codewithmosh.store.entity.order.OrderItem;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.entity.user.User;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.OrderRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.repository.UserRepository;
+import com.codewithmosh.store.service.id.IdBlocks;
+import com.codewithmosh.store.service.id.OrderNumberGenerator;
+import com.codewithmosh.store.service.inventory.HotInventory;
+import com.codewithmosh.store.service.inventory.InventoryService;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.facet.ProductFacetIndexer;
+import com.codewithmosh.store.support.StatementCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(StatementCounter.Config.class)
+class OrderServiceTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatementCounter statements;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+    private User user;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        CatalogCache catalogCache = new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry());
+        ProductFacetIndexer facetIndexer =
+            new ProductFacetIndexer(entityManagerFactory, jdbcTemplate, new CatalogFacetConfig());
+        orderService = new OrderService(null, orderRepository, productRepository, userRepository,
+            new InventoryService(jdbcTemplate, productRepository,
+                new HotInventory(jdbcTemplate, transactionManager, new HotInventoryConfig(), catalogCache, facetIndexer),
+                catalogCache, facetIndexer),
+            new OrderNumberGenerator(new IdBlocks(jdbcTemplate, transactionManager), 100, ZoneOffset.UTC), new EntityDtoMapper());
+
+        user = userRepository.save(User.createUser("buyer", "buyer@example.com", "Bea", "Buyer", "hash"));
+        products = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            products.add(productRepository.save(
+                new Product("Product " + i, "SKU-" + i, new BigDecimal(i + ".50"), 100)));
+        }
+        // start every checkout with an empty persistence context, as a request would
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithTheNumberOfLines() {
+        // the first order reserves the id blocks for orders and order_items and the order number block
+        orderService.placeOrder(request(1));
+        entityManager.clear();
+
+        statements.reset();
+        OrderResponseDto single = orderService.placeOrder(request(1));
+        long singleLine = statements.count();
+
+        entityManager.clear();
+        statements.reset();
+        OrderResponseDto many = orderService.placeOrder(request(10));
+        long tenLines = statements.count();
+
+        // user, products IN (...), one batch of stock updates, order insert, one batch of items
+        assertThat(singleLine).isEqualTo(5);
+        assertThat(tenLines).isEqualTo(singleLine);
+
+        assertThat(single.getTotalItems()).isEqualTo(1);
+        assertThat(many.getTotalItems()).isEqualTo(10);
+        assertThat(many.getOrderItems()).allMatch(item -> item.getId() != null);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM order_items WHERE order_id = ?", Long.class, many.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void itemsArePricedFromTheProductTable() {
+        OrderItemRequestDto line = new OrderItemRequestDto(products.get(1).getId(), 3, null);
+        OrderRequestDto request = new OrderRequestDto(user.getId(), null, "1 Main St", "1 Main St", List.of(line));
+
+        OrderResponseDto order = orderService.placeOrder(request);
+
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("7.50");
+        assertThat(order.getOrderNumber()).startsWith("ORD-");
+        assertThat(order.getUser().getUsername()).isEqualTo("buyer");
+        assertThat(order.getOrderItems().get(0).getUnitPrice()).isEqualByComparingTo("2.50");
+        assertThat(orderRepository.findByOrderNumber(order.getOrderNumber())).isPresent();
+    }
+
+    @Test
+    void changedPriceOrUnknownProductRejectsTheWholeOrder() {
+        OrderItemRequestDto stale = new OrderItemRequestDto(products.get(0).getId(), 1, new BigDecimal("0.99"));
+        assertThatThrownBy(() -> orderService.placeOrder(
+            new OrderRequestDto(user.getId(), null, "a", "b", List.of(stale))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("SKU-1");
+
+        OrderItemRequestDto good = new OrderItemRequestDto(products.get(0).getId(), 1, null);
+        OrderItemRequestDto unknown = new OrderItemRequestDto(-1L, 1, null);
+        assertThatThrownBy(() -> orderService.placeOrder(
+            new OrderRequestDto(user.getId(), null, "a", "b", List.of(good, unknown))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Product not found");
+
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    @Test
+    void orderTakesStockAndCancellingGivesItBack() {
+        Long productId = products.get(0).getId();
+        OrderRequestDto request = new OrderRequestDto(user.getId(), null, "a", "b",
+            List.of(new OrderItemRequestDto(productId, 30, null), new OrderItemRequestDto(productId, 10, null)));
+
+        OrderResponseDto order = orderService.placeOrder(request);
+        assertThat(stockOf(productId)).isEqualTo(60);
+
+        entityManager.flush();
+        entityManager.clear();
+        OrderResponseDto cancelled = orderService.cancelOrder(order.getId());
+        entityManager.flush();
+
+        assertThat(cancelled.getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(stockOf(productId)).isEqualTo(100);
+        assertThatThrownBy(() -> orderService.cancelOrder(order.getId()))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void orderForMoreThanIsInStockTakesNothing() {
+        OrderRequestDto request = new OrderRequestDto(user.getId(), null, "a", "b", List.of(
+            new OrderItemRequestDto(products.get(0).getId(), 5, null),
+            new OrderItemRequestDto(products.get(1).getId(), 101, null)));
+
+        assertThatThrownBy(() -> orderService.placeOrder(request))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Insufficient stock");
+        // the service is not proxied here, so nothing rolled back yet: the failing line simply took nothing
+        assertThat(stockOf(products.get(1).getId())).isEqualTo(100);
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    @Test
+    void orderDetailsLoadInTwoStatementsWhateverTheirSize() {
+        List<Long> ids = new ArrayList<>();
+        for (int o = 0; o < 5; o++) {
+            Order order = new Order(user, "D-" + o, new BigDecimal("30.00"));
+            for (int i = 0; i < 3; i++) {
+                Product product = products.get(o + i);
+                order.getOrderItems().add(new OrderItem(order, product, 1, product.getPrice()));
+            }
+            order.getPayments().add(new Payment(order, "STRIPE", new BigDecimal("10.00")));
+            order.getPayments().add(new Payment(order, "PAYPAL", new BigDecimal("20.00")));
+            ids.add(orderRepository.save(order).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statements.reset();
+        OrderResponseDto single = orderService.getOrder(ids.get(0));
+        long oneOrder = statements.count();
+        entityManager.clear();
+
+        statements.reset();
+        List<Long> requested = new ArrayList<>(ids);
+        Collections.reverse(requested);
+        requested.add(-1L);
+        List<OrderResponseDto> orders = orderService.getOrders(requested);
+        long fiveOrders = statements.count();
+
+        // orders + user + items + products, then payments; mapping triggers no lazy loads
+        assertThat(oneOrder).isEqualTo(2);
+        assertThat(fiveOrders).isEqualTo(2);
+
+        assertThat(single.getOrderItems()).hasSize(3).allMatch(item -> item.getProduct().getSku() != null);
+        assertThat(orders).extracting(OrderResponseDto::getOrderNumber)
+            .containsExactly("D-4", "D-3", "D-2", "D-1", "D-0");
+        assertThat(orders).allSatisfy(order -> {
+            assertThat(order.getUser().getUsername()).isEqualTo("buyer");
+            assertThat(order.getOrderItems()).hasSize(3);
+            assertThat(order.getPayments()).hasSize(2);
+        });
+        assertThatThrownBy(() -> orderService.getOrder(-1L)).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void orderHistoryPagesByKeysetWithoutCounting() {
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<Order> history = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // pairs of orders share a timestamp, so the id has to break the tie
+            Order order = new Order(user, "H-" + i, new BigDecimal("10.00"));
+            order.setOrderDate(base.plusMinutes(i / 2));
+            order.setStatus(i % 3 == 0 ? Order.OrderStatus.DELIVERED : Order.OrderStatus.PENDING);
+            history.add(order);
+        }
+        orderRepository.saveAll(history);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statements.reset();
+            PagedResponse<OrderResponseDto> page = orderService.getOrderHistory(user.getId(), null, cursor, 10);
+            // one range read per page: no COUNT(*), no item or payment loading
+            assertThat(statements.count()).isEqualTo(1);
+            assertThat(page.getTotalElements()).isEqualTo(-1);
+            assertThat(page.isFirst()).isEqualTo(cursor == null);
+            page.getContent().forEach(order -> seen.add(order.getOrderNumber()));
+            cursor = page.getNextCursor();
+            assertThat(page.isHasNext()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        List<String> newestFirst = new ArrayList<>();
+        for (int i = 24; i >= 0; i--) {
+            newestFirst.add("H-" + i);
+        }
+        assertThat(seen).containsExactlyElementsOf(newestFirst);
+
+        PagedResponse<OrderResponseDto> delivered =
+            orderService.getOrderHistory(user.getId(), Order.OrderStatus.DELIVERED, null, 100);
+        assertThat(delivered.getContent()).hasSize(9)
+            .allMatch(order -> order.getStatus() == Order.OrderStatus.DELIVERED);
+        assertThat(delivered.isLast()).isTrue();
+    }
+
+    @Test
+    void orderHistoryRejectsUnknownUsersAndTamperedCursors() {
+        assertThat(orderService.getOrderHistory(user.getId(), null, null, 20).getContent()).isEmpty();
+        assertThatThrownBy(() -> orderService.getOrderHistory(-1L, null, null, 20))
+            .isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> orderService.getOrderHistory(user.getId(), null, "not-a-cursor", 20))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> orderService.getOrderHistory(user.getId(), null, null, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private OrderRequestDto request(int lines) {
+        List<OrderItemRequestDto> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            items.add(new OrderItemRequestDto(products.get(i).getId(), i + 1, null));
+        }
+        return new OrderRequestDto(user.getId(), null, "1 Main St", "1 Main St", items);
+    }
+}
@@ -0,0 +1,220 @@
+package com.codewithmosh.store.service.order.importer;
+
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.entity.user.User;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.repository.UserRepository;
+import com.codewithmosh.store.service.id.IdBlocks;
+import com.codewithmosh.store.service.order.OrderExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+// chunks commit on worker threads, so the test cannot wrap them in a transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderImportServiceTest {
+
+    private static final String CSV_HEADER =
+        "order_number,order_date,status,customer_email,order_total,shipping_address,item_sku,quantity,unit_price\n";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // V10 is not applied here; Hibernate only creates tables for entities
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS import_chunks (import_id VARCHAR(100) NOT NULL,"
+            + " chunk_no INT NOT NULL, chunk_size INT NOT NULL, orders INT NOT NULL, items INT NOT NULL,"
+            + " rejected INT NOT NULL, millis BIGINT NOT NULL, completed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+            + " PRIMARY KEY (import_id, chunk_no))");
+
+        user = userRepository.save(User.createUser("history", "history@example.com", "His", "Tory", "hash"));
+        productRepository.save(new Product("Plain mug", "MUG-1", new BigDecimal("4.00"), 10));
+        productRepository.save(new Product("Large mug", "MUG-2", new BigDecimal("6.00"), 10));
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM import_chunks");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void csvRowsOfOneOrderNumberBecomeOneOrderAndBadOrdersAreRejectedAlone() throws IOException {
+        String csv = CSV_HEADER
+            + "IMP-1,2024-03-01T10:15:00,DELIVERED,history@example.com,,\"1 Main St,\nSpringfield\",MUG-1,2,4.00\n"
+            + "IMP-1,2024-03-01T10:15:00,DELIVERED,history@example.com,,\"1 Main St,\nSpringfield\",MUG-2,1,6.00\n"
+            + "IMP-2,2024-03-02,shipped,HISTORY@example.com,9.50,,MUG-2,1,6.00\n"
+            + "IMP-3,2024-03-03,DELIVERED,history@example.com,,,NO-SUCH-SKU,1,1.00\n"
+            + "IMP-4,2024-03-04,DELIVERED,nobody@example.com,,,MUG-1,1,4.00\n"
+            + "IMP-5,2024-03-05,LOST,history@example.com,,,MUG-1,1,4.00\n";
+
+        OrderImportService.ImportReport report = service(2).importOrders("march",
+            stream(csv), OrderExportService.Format.CSV);
+
+        assertThat(report.orders()).isEqualTo(2);
+        assertThat(report.items()).isEqualTo(3);
+        assertThat(report.rejected()).isEqualTo(3);
+        assertThat(report.chunks()).hasSize(3)
+            .allSatisfy(chunk -> assertThat(chunk.status()).isEqualTo(OrderImportService.ChunkStatus.IMPORTED));
+        assertThat(report.rejections()).containsExactlyInAnyOrder(
+            "Line 7 (IMP-3): unknown SKU NO-SUCH-SKU",
+            "Line 8 (IMP-4): unknown customer nobody@example.com",
+            "Line 9 (IMP-5): unknown status LOST");
+
+        Map<String, Object> first = jdbcTemplate.queryForMap(
+            "SELECT user_id, total_amount, status, shipping_address FROM orders WHERE order_number = 'IMP-1'");
+        assertThat(first.get("user_id")).isEqualTo(user.getId());
+        assertThat((BigDecimal) first.get("total_amount")).isEqualByComparingTo("14.00");
+        assertThat(first.get("status")).isEqualTo("DELIVERED");
+        assertThat(first.get("shipping_address")).isEqualTo("1 Main St,\nSpringfield");
+        // a total in the file is kept as it was charged
+        assertThat(jdbcTemplate.queryForObject("SELECT total_amount FROM orders WHERE order_number = 'IMP-2'",
+            BigDecimal.class)).isEqualByComparingTo("9.50");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_chunks WHERE import_id = 'march'",
+            Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void ndjsonInTheExportShapeIsImported() throws IOException {
+        String ndjson = "{\"orderNumber\":\"NJ-1\",\"orderDate\":\"2024-04-01T08:00:00\",\"status\":\"DELIVERED\","
+            + "\"user\":{\"email\":\"history@example.com\"},\"orderItems\":[{\"product\":{\"sku\":\"MUG-1\"},"
+            + "\"quantity\":3,\"unitPrice\":4.00}]}\n"
+            + "\n"
+            + "{\"orderNumber\":\"NJ-2\",\"userId\":" + user.getId() + ",\"items\":[{\"sku\":\"MUG-2\",\"quantity\":1,"
+            + "\"unitPrice\":\"5.50\"}]}\n";
+
+        OrderImportService.ImportReport report = service(10).importOrders("april",
+            stream(ndjson), OrderExportService.Format.NDJSON);
+
+        assertThat(report.orders()).isEqualTo(2);
+        assertThat(report.rejected()).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT SUM(total_price) FROM order_items i JOIN orders o ON o.id = i.order_id WHERE o.order_number = 'NJ-1'",
+            BigDecimal.class)).isEqualByComparingTo("12.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE order_number = 'NJ-2'",
+            String.class)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void runningAnImportAgainSkipsCheckpointedChunksAndRetriesFailedOnes() throws IOException {
+        String good = CSV_HEADER
+            + "R-1,2024-05-01,DELIVERED,history@example.com,,,MUG-1,1,4.00\n"
+            + "R-2,2024-05-01,DELIVERED,history@example.com,,,MUG-1,1,4.00\n";
+        // the total does not fit DECIMAL(10,2), so the second chunk fails when it is written
+        String broken = good
+            + "R-3,2024-05-02,DELIVERED,history@example.com,123456789012.00,,MUG-2,1,6.00\n"
+            + "R-4,2024-05-02,DELIVERED,history@example.com,,,MUG-2,1,6.00\n";
+        String fixed = good
+            + "R-3,2024-05-02,DELIVERED,history@example.com,6.00,,MUG-2,1,6.00\n"
+            + "R-4,2024-05-02,DELIVERED,history@example.com,,,MUG-2,1,6.00\n";
+
+        OrderImportService.ImportReport first = service(2).importOrders("may", stream(broken),
+            OrderExportService.Format.CSV);
+        assertThat(first.failedChunks()).isEqualTo(1);
+        assertThat(first.chunks()).extracting(OrderImportService.ChunkReport::status).containsExactly(
+            OrderImportService.ChunkStatus.IMPORTED, OrderImportService.ChunkStatus.FAILED);
+        assertThat(orderCount()).isEqualTo(2);
+
+        OrderImportService.ImportReport second = service(2).importOrders("may", stream(fixed),
+            OrderExportService.Format.CSV);
+        assertThat(second.skippedChunks()).isEqualTo(1);
+        assertThat(second.failedChunks()).isZero();
+        assertThat(second.orders()).isEqualTo(2);
+        assertThat(orderCount()).isEqualTo(4);
+
+        assertThatThrownBy(() -> service(3).importOrders("may", stream(fixed), OrderExportService.Format.CSV))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("chunk size 2");
+    }
+
+    @Test
+    void anOrderNumberRepeatedInChunksWrittenAtTheSameTimeIsImportedOnce() throws IOException {
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < 8; i++) {
+            // one-order chunks, all claiming D-1 between other orders
+            csv.append("D-").append(i % 2 == 0 ? "1" : "U" + i)
+                .append(",2024-07-01,DELIVERED,history@example.com,,,MUG-1,1,4.00\n");
+        }
+        // a twin that is rejected for its SKU does not take the number away
+        csv.insert(CSV_HEADER.length(), "D-1,2024-07-01,DELIVERED,history@example.com,,,NO-SUCH-SKU,1,1.00\n"
+            + "D-0,2024-07-01,DELIVERED,history@example.com,,,MUG-1,1,4.00\n");
+
+        OrderImportService.ImportReport report = service(1).importOrders("july", stream(csv.toString()),
+            OrderExportService.Format.CSV);
+
+        assertThat(report.failedChunks()).isZero();
+        assertThat(report.orders()).isEqualTo(6);
+        assertThat(report.rejected()).isEqualTo(4);
+        // a twin whose chunk has already committed is found in the database instead
+        assertThat(report.rejections()).filteredOn(rejection -> rejection.contains("(D-1)")).hasSize(4)
+            .filteredOn(rejection -> rejection.endsWith("more than once in the file")
+                || rejection.endsWith("order number already exists"))
+            .hasSize(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE order_number = 'D-1'",
+            Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void aMalformedFileStopsTheImportButKeepsTheChunksBeforeIt() {
+        String csv = CSV_HEADER
+            + "M-1,2024-06-01,DELIVERED,history@example.com,,,MUG-1,1,4.00\n"
+            + "M-2,2024-06-01,DELIVERED,history@example.com,,,MUG-1,one,4.00\n";
+
+        assertThatThrownBy(() -> service(1).importOrders("june", stream(csv), OrderExportService.Format.CSV))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Line 3: invalid quantity one");
+        assertThat(orderCount()).isEqualTo(1);
+    }
+
+    private OrderImportService service(int chunkSize) {
+        return new OrderImportService(jdbcTemplate, transactionManager, new IdBlocks(jdbcTemplate, transactionManager),
+            new ObjectMapper(), chunkSize, 2);
+    }
+
+    private int orderCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
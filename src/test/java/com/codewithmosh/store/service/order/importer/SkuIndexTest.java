@@ -0,0 +1,33 @@
+package com.codewithmosh.store.service.order.importer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkuIndexTest {
+
+    @Test
+    void findsEverySkuAfterGrowingAndMissesUnknownOnes() {
+        SkuIndex index = new SkuIndex(4);
+        for (int i = 0; i < 10_000; i++) {
+            index.put("SKU-" + i, 1_000_000L + i);
+        }
+
+        assertThat(index.size()).isEqualTo(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(index.get("SKU-" + i)).isEqualTo(1_000_000L + i);
+        }
+        assertThat(index.get("SKU-10000")).isEqualTo(SkuIndex.MISSING);
+        assertThat(index.get("sku-1")).isEqualTo(SkuIndex.MISSING);
+    }
+
+    @Test
+    void puttingASkuAgainReplacesItsId() {
+        SkuIndex index = new SkuIndex(1);
+        index.put("MUG-1", 7);
+        index.put("MUG-1", 9);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get("MUG-1")).isEqualTo(9);
+    }
+}
@@ -0,0 +1,64 @@
+package com.codewithmosh.store.service.payment;
+
+import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.SimulatedGatewayClient;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.codewithmosh.store.service.payment.processors.StripePaymentService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test against the simulated Stripe gateway (~260ms per call): the same burst of payments on a
+ * platform pool sized like a busy Tomcat connector versus one virtual thread per payment.
+ */
+class PaymentExecutionLoadTest {
+
+    private static final int PAYMENTS = 200;
+    private static final int PLATFORM_THREADS = 20;
+
+    @Test
+    void virtualThreadsFinishBurstFasterThanBoundedPlatformPool() {
+        StripePaymentService stripe = new StripePaymentService(enabledStripeConfig(), new SnowflakeIdGenerator(0),
+            new SimulatedGatewayClient());
+
+        long platformMillis;
+        try (ExecutorService platform = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+            platformMillis = runBurst(stripe, platform);
+        }
+
+        long virtualMillis;
+        try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+            virtualMillis = runBurst(stripe, virtual);
+        }
+
+        // the platform pool needs PAYMENTS / PLATFORM_THREADS sequential rounds of gateway latency
+        assertThat(virtualMillis).isLessThan(platformMillis);
+    }
+
+    private long runBurst(StripePaymentService stripe, ExecutorService executor) {
+        long start = System.nanoTime();
+
+        List<CompletableFuture<PaymentResult>> futures = new ArrayList<>(PAYMENTS);
+        for (int i = 0; i < PAYMENTS; i++) {
+            futures.add(stripe.processPaymentAsync(10.0 + i, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private StripeConfig enabledStripeConfig() {
+        StripeConfig config = new StripeConfig();
+        config.setEnabled(true);
+        config.setApiUrl("https://api.stripe.com");
+        return config;
+    }
+}
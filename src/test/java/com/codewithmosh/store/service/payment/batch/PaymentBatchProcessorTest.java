@@ -0,0 +1,131 @@
+package com.codewithmosh.store.service.payment.batch;
+
+import com.codewithmosh.store.dto.payment.BatchPaymentItemDto;
+import com.codewithmosh.store.dto.payment.BatchPaymentResultDto;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.payment.PaymentFacade;
+import com.codewithmosh.store.service.payment.persistence.PaymentRecorder;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentBatchProcessorTest {
+
+    private static final int MAX_PER_PROCESSOR = 4;
+
+    private ExecutorService executor;
+    private PaymentFacade facade;
+    private PaymentRecorder recorder;
+    private PaymentBatchProcessor batchProcessor;
+
+    // processor -> calls currently in flight / most seen at once
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> peak = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        facade = mock(PaymentFacade.class);
+        recorder = mock(PaymentRecorder.class);
+        batchProcessor = new PaymentBatchProcessor(facade, recorder, executor, 100, MAX_PER_PROCESSOR);
+
+        when(facade.selectProcessor(anyDouble(), any())).thenAnswer(call -> {
+            double amount = call.getArgument(0);
+            if (amount <= 0) {
+                throw new IllegalArgumentException("Payment amount must be positive");
+            }
+            return call.getArgument(1);
+        });
+        when(facade.processPayment(anyDouble(), anyString(), any())).thenAnswer(call -> {
+            String method = call.getArgument(1);
+            int now = inFlight.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+            peak.computeIfAbsent(method, m -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(20);
+            } finally {
+                inFlight.get(method).decrementAndGet();
+            }
+            double amount = call.getArgument(0);
+            Consumer<Payment> sink = call.getArgument(2);
+            sink.accept(new Payment());
+            return new PaymentResult(method, amount, "TXN-" + amount, null, 0, null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void itemsRunInParallelWithinTheProcessorLimitAndAreRecordedOnce() {
+        List<BatchPaymentItemDto> items = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            items.add(new BatchPaymentItemDto(i, i % 2 == 0 ? "stripe" : "paypal", "ref-" + i));
+        }
+        List<BatchPaymentResultDto> streamed = new CopyOnWriteArrayList<>();
+
+        List<BatchPaymentResultDto> results = batchProcessor.process(items, streamed::add).join();
+
+        assertThat(results).hasSize(20).allMatch(BatchPaymentResultDto::isSuccess);
+        // results come back in request order, whatever order they finished in
+        assertThat(results.get(4).getReference()).isEqualTo("ref-5");
+        assertThat(results.get(4).getPaymentMethod()).isEqualTo("paypal");
+        assertThat(streamed).hasSize(20);
+
+        assertThat(peak.get("stripe").get()).isBetween(2, MAX_PER_PROCESSOR);
+        assertThat(peak.get("paypal").get()).isBetween(2, MAX_PER_PROCESSOR);
+
+        ArgumentCaptor<List<Payment>> rows = ArgumentCaptor.captor();
+        verify(recorder, times(1)).recordAll(rows.capture());
+        assertThat(rows.getValue()).hasSize(20);
+    }
+
+    @Test
+    void invalidItemFailsAloneWithoutStoppingTheBatch() {
+        List<BatchPaymentItemDto> items = List.of(
+            new BatchPaymentItemDto(10, "stripe", "ok"),
+            new BatchPaymentItemDto(-5, "stripe", "bad"));
+
+        List<BatchPaymentResultDto> results = batchProcessor.process(items, result -> {}).join();
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getError()).isEqualTo("Payment amount must be positive");
+    }
+
+    @Test
+    void emptyAndOversizedBatchesAreRejected() {
+        assertThatThrownBy(() -> batchProcessor.process(List.of(), result -> {}))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        List<BatchPaymentItemDto> tooMany = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            tooMany.add(new BatchPaymentItemDto(1, "stripe", null));
+        }
+        assertThatThrownBy(() -> batchProcessor.process(tooMany, result -> {}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,178 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+import com.codewithmosh.store.config.GatewayStubConfig;
+import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.stub.GatewayStubServer;
+import com.codewithmosh.store.service.payment.processors.StripePaymentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drives the processors over real HTTP against the local stub gateway
+ */
+class GatewayStubServerTest {
+
+    private GatewayStubServer stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void stripeThroughputAndTailLatencyAgainstStub() throws Exception {
+        GatewayStubConfig.Provider stripe = new GatewayStubConfig.Provider();
+        stripe.setMedianLatencyMs(10);
+        stripe.setP99LatencyMs(60);
+        stripe.setFailureRate(0.05);
+        stripe.setThrottleRate(0.05);
+        startStub("stripe", stripe);
+
+        StripePaymentService processor = new StripePaymentService(enabledStripeConfig(), new SnowflakeIdGenerator(0),
+            new HttpGatewayClient(stub.getBaseUrl(), 1000, 5000));
+
+        int payments = 400;
+        // like a connection pool in front of the gateway: 50 calls in flight at most
+        Semaphore inFlight = new Semaphore(50);
+        long[] latencies = new long[payments];
+        AtomicInteger failed = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < payments; i++) {
+                int index = i;
+                calls.add(executor.submit(() -> {
+                    inFlight.acquire();
+                    long callStart = System.nanoTime();
+                    try {
+                        processor.processPayment(10.0);
+                    } catch (IllegalStateException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - callStart;
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        }
+
+        Arrays.sort(latencies);
+        long p50 = latencies[payments / 2] / 1_000_000;
+
+        // 5% errors + 5% throttles configured
+        assertThat(failed.get()).isBetween(payments * 3 / 100, payments * 20 / 100);
+        assertThat(p50).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void requestsOverProviderCapacityAreThrottled() throws Exception {
+        GatewayStubConfig.Provider paypal = new GatewayStubConfig.Provider();
+        paypal.setMedianLatencyMs(200);
+        paypal.setP99LatencyMs(200);
+        paypal.setMaxConcurrentRequests(2);
+        paypal.setRetryAfterSeconds(3);
+        startStub("paypal", paypal);
+
+        HttpGatewayClient client = new HttpGatewayClient(stub.getBaseUrl(), 1000, 5000);
+        List<GatewayResponse> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<GatewayResponse>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(executor.submit(() -> client.send(GatewayRequest.charge("paypal", "PP-1", 5.0))));
+            }
+            for (Future<GatewayResponse> call : calls) {
+                responses.add(call.get());
+            }
+        }
+
+        assertThat(responses).filteredOn(GatewayResponse::isSuccess).hasSizeBetween(1, 2);
+        assertThat(responses).filteredOn(GatewayResponse::isThrottled)
+            .isNotEmpty()
+            .allSatisfy(response -> assertThat(response.retryAfterMs()).isEqualTo(3000));
+    }
+
+    @Test
+    void hangingProviderSurfacesAsTimeout() throws Exception {
+        GatewayStubConfig.Provider stalled = new GatewayStubConfig.Provider();
+        stalled.setTimeoutRate(1.0);
+        stalled.setHangMs(2000);
+        startStub("credit-card", stalled);
+
+        HttpGatewayClient client = new HttpGatewayClient(stub.getBaseUrl(), 1000, 200);
+        assertThatThrownBy(() -> client.send(GatewayRequest.status("credit-card", "TXN-1")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("did not answer within 200ms");
+    }
+
+    @Test
+    void seededStubAnswersConcurrentRequestsTheSameWayEveryRun() throws Exception {
+        GatewayStubConfig.Provider flaky = new GatewayStubConfig.Provider();
+        flaky.setMedianLatencyMs(5);
+        flaky.setP99LatencyMs(40);
+        flaky.setFailureRate(0.5);
+
+        startStub("stripe", flaky);
+        Map<String, List<Integer>> firstRun = sendConcurrently();
+        stub.stop();
+        startStub("stripe", flaky);
+        Map<String, List<Integer>> secondRun = sendConcurrently();
+
+        assertThat(secondRun).isEqualTo(firstRun);
+        assertThat(firstRun.values()).flatExtracting(codes -> codes).contains(200, 503);
+    }
+
+    /**
+     * Status codes per reference for 30 charges sent all at once, each sent twice
+     */
+    private Map<String, List<Integer>> sendConcurrently() throws Exception {
+        HttpGatewayClient client = new HttpGatewayClient(stub.getBaseUrl(), 1000, 5000);
+        Map<String, List<Integer>> codes = new TreeMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, Future<List<Integer>>> calls = new TreeMap<>();
+            for (int i = 0; i < 30; i++) {
+                GatewayRequest request = GatewayRequest.charge("stripe", "ch_" + i, 10.0);
+                calls.put(request.reference(), executor.submit(() ->
+                    List.of(client.send(request).statusCode(), client.send(request).statusCode())));
+            }
+            for (Map.Entry<String, Future<List<Integer>>> call : calls.entrySet()) {
+                codes.put(call.getKey(), call.getValue().get());
+            }
+        }
+        return codes;
+    }
+
+    private void startStub(String provider, GatewayStubConfig.Provider behaviour) throws Exception {
+        GatewayStubConfig config = new GatewayStubConfig();
+        config.setPort(0);
+        config.setSeed(42L);
+        config.getProviders().put(provider, behaviour);
+        stub = new GatewayStubServer(config);
+        stub.start();
+    }
+
+    private StripeConfig enabledStripeConfig() {
+        StripeConfig config = new StripeConfig();
+        config.setEnabled(true);
+        return config;
+    }
+}
@@ -0,0 +1,28 @@
+package com.codewithmosh.store.service.payment.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpGatewayClientTest {
+
+    private static final Instant NOW = Instant.parse("2015-10-21T07:28:00Z");
+
+    @Test
+    void retryAfterAcceptsDelaySecondsAndHttpDates() {
+        assertThat(HttpGatewayClient.retryAfterMs("3", NOW)).isEqualTo(3000);
+        assertThat(HttpGatewayClient.retryAfterMs(" 120 ", NOW)).isEqualTo(120_000);
+        assertThat(HttpGatewayClient.retryAfterMs("Wed, 21 Oct 2015 07:28:30 GMT", NOW)).isEqualTo(30_000);
+    }
+
+    @Test
+    void unusableRetryAfterFallsBackToNoHint() {
+        assertThat(HttpGatewayClient.retryAfterMs("soon", NOW)).isZero();
+        assertThat(HttpGatewayClient.retryAfterMs("-5", NOW)).isZero();
+        assertThat(HttpGatewayClient.retryAfterMs("99999999999999999999", NOW)).isZero();
+        // already past
+        assertThat(HttpGatewayClient.retryAfterMs("Wed, 21 Oct 2015 07:27:00 GMT", NOW)).isZero();
+    }
+}
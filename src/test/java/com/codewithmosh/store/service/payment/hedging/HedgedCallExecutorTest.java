@@ -0,0 +1,126 @@
+package com.codewithmosh.store.service.payment.hedging;
+
+import com.codewithmosh.store.config.PaymentHedgingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgedCallExecutorTest {
+
+    private ExecutorService executor;
+    private SimpleMeterRegistry meterRegistry;
+    private HedgedCallExecutor hedgedCalls;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        meterRegistry = new SimpleMeterRegistry();
+
+        PaymentHedgingConfig config = new PaymentHedgingConfig();
+        config.setEnabled(true);
+        config.setPercentile(90);
+        config.setMinSamples(20);
+        hedgedCalls = new HedgedCallExecutor(config, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void stalledCallIsOvertakenByHedge() {
+        warmUp("stripe", 20);
+
+        // first copy stalls, the hedge answers at normal speed
+        AtomicInteger attempt = new AtomicInteger();
+        long start = System.nanoTime();
+        String status = hedgedCalls.call("stripe", () -> {
+            sleep(attempt.getAndIncrement() == 0 ? 2000 : 20);
+            return "COMPLETED";
+        });
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(status).isEqualTo("COMPLETED");
+        assertThat(elapsedMs).isLessThan(1000);
+        assertThat(meterRegistry.counter("payment.hedge.sent", "processor", "stripe").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("payment.hedge.wins", "processor", "stripe").count()).isEqualTo(1);
+
+        Map<String, Object> stats = hedgedCalls.getStatistics().get("stripe");
+        assertThat(stats).containsEntry("hedges", 1L).containsEntry("hedgeWins", 1L);
+    }
+
+    @Test
+    void noHedgingUntilThereIsLatencyHistory() {
+        String status = hedgedCalls.call("paypal", () -> {
+            sleep(100);
+            return "COMPLETED";
+        });
+
+        assertThat(status).isEqualTo("COMPLETED");
+        assertThat(meterRegistry.counter("payment.hedge.sent", "processor", "paypal").count()).isZero();
+    }
+
+    @Test
+    void failsOnlyWhenEveryCopyFails() {
+        warmUp("credit-card", 20);
+
+        AtomicInteger attempt = new AtomicInteger();
+        // the slow first copy fails, the hedge succeeds
+        assertThat(hedgedCalls.call("credit-card", () -> {
+            if (attempt.getAndIncrement() == 0) {
+                sleep(300);
+                throw new IllegalStateException("gateway stalled");
+            }
+            return "COMPLETED";
+        })).isEqualTo("COMPLETED");
+
+        assertThatThrownBy(() -> hedgedCalls.call("credit-card", () -> {
+            throw new IllegalArgumentException("Unknown transaction");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("Unknown transaction");
+    }
+
+    @Test
+    void budgetCapsHedgesToShareOfTraffic() {
+        HedgeBudget budget = new HedgeBudget(5.0, 10);
+
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            budget.onCall();
+            // a gateway so slow that every call wants a hedge
+            if (budget.tryAcquire()) {
+                hedges++;
+            }
+        }
+
+        // 5% of 1000 plus the one token the bucket starts with
+        assertThat(hedges).isBetween(50, 51);
+    }
+
+    private void warmUp(String processor, int calls) {
+        for (int i = 0; i < calls; i++) {
+            hedgedCalls.call(processor, () -> {
+                sleep(20);
+                return "COMPLETED";
+            });
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.codewithmosh.store.service.payment.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    @Test
+    void concurrentDuplicatesShareTheFirstResult() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(1000, Duration.ofMinutes(5), 4);
+        AtomicInteger charges = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> store.<String>execute("key-1", "100.0|paypal",
+                    () -> CompletableFuture.supplyAsync(() -> {
+                        charges.incrementAndGet();
+                        await(release);
+                        return "charged";
+                    }, executor)).join(), executor));
+            }
+            release.countDown();
+
+            for (CompletableFuture<String> result : results) {
+                assertThat(result.get()).isEqualTo("charged");
+            }
+        }
+
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    void failedAttemptIsNotRemembered() {
+        IdempotencyStore store = new IdempotencyStore(1000, Duration.ofMinutes(5), 4);
+
+        CompletableFuture<String> failed = store.execute("key-2", "f",
+            () -> CompletableFuture.failedFuture(new IllegalStateException("gateway down")));
+        assertThat(failed).isCompletedExceptionally();
+
+        CompletableFuture<String> retried = store.execute("key-2", "f",
+            () -> CompletableFuture.completedFuture("charged"));
+        assertThat(retried.join()).isEqualTo("charged");
+    }
+
+    @Test
+    void reusingKeyForDifferentRequestIsRejected() {
+        IdempotencyStore store = new IdempotencyStore(1000, Duration.ofMinutes(5), 4);
+        store.execute("key-3", "100.0|paypal", () -> CompletableFuture.completedFuture("charged"));
+
+        assertThatThrownBy(() -> store.execute("key-3", "250.0|paypal",
+            () -> CompletableFuture.completedFuture("charged again")))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void storeStaysWithinCapacity() {
+        IdempotencyStore store = new IdempotencyStore(64, Duration.ofMinutes(5), 4);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.execute("key-" + i, "f", () -> CompletableFuture.completedFuture("ok"));
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    void failedAttemptsDoNotPileUpInTheEvictionQueue() {
+        IdempotencyStore store = new IdempotencyStore(1000, Duration.ofMinutes(5), 4);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.execute("failing-" + i, "f",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("declined")));
+        }
+
+        assertThat(store.size()).isZero();
+        assertThat(store.queued()).isZero();
+    }
+
+    @Test
+    void paymentsInProgressAreNeverEvicted() {
+        IdempotencyStore store = new IdempotencyStore(2, Duration.ofMinutes(5), 1);
+        AtomicInteger charges = new AtomicInteger();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        store.execute("in-flight-1", "f", () -> {
+            charges.incrementAndGet();
+            return slow;
+        });
+        store.execute("in-flight-2", "f", () -> {
+            charges.incrementAndGet();
+            return new CompletableFuture<String>();
+        });
+
+        assertThatThrownBy(() -> store.execute("new-key", "f", () -> CompletableFuture.completedFuture("ok")))
+            .isInstanceOf(IllegalStateException.class);
+
+        // the retry of the first payment still joins it instead of charging again
+        CompletableFuture<String> retry = store.execute("in-flight-1", "f", () -> {
+            charges.incrementAndGet();
+            return CompletableFuture.completedFuture("charged twice");
+        });
+        slow.complete("charged");
+        assertThat(retry.join()).isEqualTo("charged");
+        assertThat(charges).hasValue(2);
+
+        // once it completed, it can make room for a new key
+        assertThat(store.<String>execute("new-key", "f", () -> CompletableFuture.completedFuture("ok")).join())
+            .isEqualTo("ok");
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.codewithmosh.store.service.payment.persistence;
+
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.repository.PaymentRepository;
+import com.codewithmosh.store.service.payment.processors.PaymentResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+// the recorder runs its own transactions, as it does on the flusher thread
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentRecorderTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void clean() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void bufferedPaymentsAreWrittenInBatches() {
+        PaymentRecorder recorder = newRecorder();
+
+        for (int i = 0; i < 45; i++) {
+            recorder.recordSuccess(stripeResult("ch_" + i));
+        }
+        recorder.recordFailure("credit-card", 10.0, new IllegalStateException("Circuit open"));
+
+        // nothing reaches the database until the buffer is flushed
+        assertThat(paymentRepository.count()).isZero();
+        assertThat(recorder.getPendingCount()).isEqualTo(46);
+
+        recorder.flushAll();
+
+        assertThat(paymentRepository.count()).isEqualTo(46);
+        assertThat(recorder.getRecordedCount()).isEqualTo(46);
+
+        Payment charged = paymentRepository.findByTransactionId("ch_7").orElseThrow();
+        assertThat(charged.getStatus()).isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(charged.getPaymentMethod()).isEqualTo("STRIPE");
+        assertThat(charged.getExternalPaymentId()).isEqualTo("pi_ch_7");
+        assertThat(charged.getPaymentDetails()).contains("paymentIntentId", "pi_ch_7");
+
+        assertThat(paymentRepository.findAll())
+            .filteredOn(Payment::isFailed)
+            .singleElement()
+            .satisfies(failed -> {
+                assertThat(failed.getPaymentMethod()).isEqualTo("CREDIT_CARD");
+                assertThat(failed.getFailureReason()).isEqualTo("Circuit open");
+            });
+    }
+
+    @Test
+    void oneBadRowDoesNotLoseTheRestOfTheBatch() {
+        PaymentRecorder recorder = newRecorder();
+        recorder.recordSuccess(stripeResult("ch_dup"));
+        recorder.flushAll();
+
+        recorder.recordSuccess(stripeResult("ch_a"));
+        recorder.recordSuccess(stripeResult("ch_dup"));
+        recorder.recordSuccess(stripeResult("ch_b"));
+        recorder.flushAll();
+
+        assertThat(paymentRepository.count()).isEqualTo(3);
+        assertThat(paymentRepository.findByTransactionId("ch_a")).isPresent();
+        assertThat(paymentRepository.findByTransactionId("ch_b")).isPresent();
+        assertThat(recorder.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void flusherThreadDrainsTheBuffer() throws Exception {
+        PaymentRecorder recorder = newRecorder();
+        recorder.start();
+        try {
+            for (int i = 0; i < 30; i++) {
+                recorder.recordSuccess(stripeResult("ch_bg_" + i));
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (paymentRepository.count() < 30 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(paymentRepository.count()).isEqualTo(30);
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    private PaymentRecorder newRecorder() {
+        return new PaymentRecorder(paymentRepository, transactionManager, new ObjectMapper(), 20, 1000, 20);
+    }
+
+    private static PaymentResult stripeResult(String chargeId) {
+        return new PaymentResult("stripe", 100.0, chargeId, "pi_" + chargeId, 3.2,
+            Map.of("paymentIntentId", "pi_" + chargeId));
+    }
+}
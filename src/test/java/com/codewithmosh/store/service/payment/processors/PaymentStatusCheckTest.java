@@ -0,0 +1,53 @@
+package com.codewithmosh.store.service.payment.processors;
+
+import com.codewithmosh.store.config.CreditCardConfig;
+import com.codewithmosh.store.config.PayPalConfig;
+import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.entity.payment.Payment;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.gateway.GatewayResponse;
+import com.codewithmosh.store.service.payment.gateway.PaymentGatewayClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentStatusCheckTest {
+
+    // what each provider says about a payment, by reference
+    private final Map<String, String> answers = Map.of(
+        "ch_1", "{\"id\":\"ch_1\",\"status\":\"pending\"}",
+        "ch_2", "{\"id\":\"ch_2\",\"status\":\"succeeded\"}",
+        "PP-1", "{\"id\":\"PP-1\",\"status\":\"DECLINED\"}",
+        "TXN-1", "{\"reference\":\"TXN-1\",\"status\":\"refunded\"}",
+        "TXN-2", "{\"reference\":\"TXN-2\"}"
+    );
+    private final PaymentGatewayClient gateway = request -> GatewayResponse.ok(answers.get(request.reference()));
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+
+    @Test
+    void reportsTheStatusTheProviderAnswered() {
+        StripeConfig stripeConfig = new StripeConfig();
+        stripeConfig.setEnabled(true);
+        StripePaymentService stripe = new StripePaymentService(stripeConfig, idGenerator, gateway);
+        PayPalConfig payPalConfig = new PayPalConfig();
+        payPalConfig.setEnabled(true);
+        PayPalPaymentService payPal = new PayPalPaymentService(payPalConfig, idGenerator, gateway);
+
+        assertThat(stripe.checkStatus("ch_1")).isEqualTo(Payment.PaymentStatus.PENDING);
+        assertThat(stripe.checkStatus("ch_2")).isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(payPal.checkStatus("PP-1")).isEqualTo(Payment.PaymentStatus.FAILED);
+    }
+
+    @Test
+    void refusesAnAnswerWithoutAStatus() {
+        CreditCardConfig creditCardConfig = new CreditCardConfig();
+        creditCardConfig.setEnabled(true);
+        CreditCardPaymentService creditCard = new CreditCardPaymentService(creditCardConfig, idGenerator, gateway);
+
+        assertThat(creditCard.checkStatus("TXN-1")).isEqualTo(Payment.PaymentStatus.REFUNDED);
+        assertThatThrownBy(() -> creditCard.checkStatus("TXN-2")).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,86 @@
+package com.codewithmosh.store.service.payment.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+
+    private CircuitBreaker breaker() {
+        // window 10, judge after 4 calls, open at 50% failures, stay open 1s, 2 probes
+        return new CircuitBreaker("stripe", 10, 4, 50.0, 1000, 2,
+            (name, from, to) -> transitions.add(from + "->" + to), clock::get);
+    }
+
+    @Test
+    void opensOnceFailureRateReachesThreshold() {
+        CircuitBreaker breaker = breaker();
+
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void halfOpenProbesCloseTheCircuitAgain() {
+        CircuitBreaker breaker = tripped();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse(); // only two probes
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() {
+        CircuitBreaker breaker = tripped();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void ignoredProbeReturnsItsSlot() {
+        CircuitBreaker breaker = tripped();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onIgnored();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private CircuitBreaker tripped() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+}
@@ -0,0 +1,90 @@
+package com.codewithmosh.store.service.payment.routing;
+
+import com.codewithmosh.store.config.CreditCardConfig;
+import com.codewithmosh.store.config.PayPalConfig;
+import com.codewithmosh.store.config.PaymentResilienceConfig;
+import com.codewithmosh.store.config.StripeConfig;
+import com.codewithmosh.store.service.id.SnowflakeIdGenerator;
+import com.codewithmosh.store.service.payment.PaymentServiceRegistry;
+import com.codewithmosh.store.service.payment.gateway.SimulatedGatewayClient;
+import com.codewithmosh.store.service.payment.processors.CreditCardPaymentService;
+import com.codewithmosh.store.service.payment.processors.PayPalPaymentService;
+import com.codewithmosh.store.service.payment.processors.StripePaymentService;
+import com.codewithmosh.store.service.payment.resilience.ResilientPaymentServiceFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePaymentRouterTest {
+
+    private ExecutorService executor;
+    private AdaptivePaymentRouter router;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        StripeConfig stripeConfig = new StripeConfig();
+        stripeConfig.setEnabled(true);
+        PayPalConfig payPalConfig = new PayPalConfig();
+        CreditCardConfig creditCardConfig = new CreditCardConfig();
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+        SimulatedGatewayClient gateway = new SimulatedGatewayClient();
+
+        PaymentServiceRegistry registry = new PaymentServiceRegistry(
+            new PayPalPaymentService(payPalConfig, idGenerator, gateway),
+            new CreditCardPaymentService(creditCardConfig, idGenerator, gateway),
+            new StripePaymentService(stripeConfig, idGenerator, gateway),
+            payPalConfig, creditCardConfig, stripeConfig,
+            new ResilientPaymentServiceFactory(new PaymentResilienceConfig(), executor, new SimpleMeterRegistry())
+        );
+
+        // no exploration so the choice is deterministic
+        router = new AdaptivePaymentRouter(registry, 0.2, 0.50, 5.0, 0.5, 0.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void picksCheapestProcessorWhenLatenciesAreEqual() {
+        recordMany("paypal", 300, true);
+        recordMany("credit-card", 300, true);
+        recordMany("stripe", 300, true);
+
+        // credit card: 2.5% and no fixed fee, cheaper than 2.9% + $0.30
+        assertThat(router.select(100.0)).isEqualTo("credit-card");
+    }
+
+    @Test
+    void movesAwayFromProcessorThatSlowsDown() {
+        recordMany("paypal", 300, true);
+        recordMany("stripe", 300, true);
+        recordMany("credit-card", 5_000, true);
+
+        assertThat(router.select(10.0)).isNotEqualTo("credit-card");
+    }
+
+    @Test
+    void avoidsProcessorWithHighErrorRate() {
+        recordMany("paypal", 300, true);
+        recordMany("stripe", 300, true);
+        recordMany("credit-card", 300, false);
+
+        assertThat(router.select(100.0)).isNotEqualTo("credit-card");
+    }
+
+    private void recordMany(String method, long latencyMillis, boolean success) {
+        for (int i = 0; i < 50; i++) {
+            router.record(method, latencyMillis * 1_000_000L, success);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import({CatalogCacheInvalidator.class, CatalogCacheInvalidatorTest.Config.class})
+// post-commit listeners only run for transactions that really commit
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogCacheInvalidatorTest {
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        CatalogCache catalogCache() {
+            return new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    private TransactionTemplate transactionTemplate;
+    private ProductCatalogService catalog;
+    private Category mugs;
+    private Product mug;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        catalog = new ProductCatalogService(entityManager, new EntityDtoMapper(), productRepository, categoryRepository,
+            catalogCache, new CategoryTreeService(entityManagerFactory, new JdbcTemplate(dataSource)),
+            Duration.ofSeconds(60));
+        catalogCache.invalidateAll();
+
+        mugs = categoryRepository.save(new Category("Mugs", "mugs"));
+        Product product = new Product("Plain mug", "MUG-1", new BigDecimal("4.00"), 10);
+        product.setCategory(mugs);
+        mug = productRepository.save(product);
+    }
+
+    @AfterEach
+    void clean() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void committedUpdateReplacesCachedProductAndSku() {
+        assertThat(catalog.getProductBySku("MUG-1").getName()).isEqualTo("Plain mug");
+        assertThat(catalog.getProduct(mug.getId()).getName()).isEqualTo("Plain mug");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(mug.getId()).orElseThrow();
+            product.setName("Stoneware mug");
+            product.setSku("MUG-STONE");
+        });
+
+        assertThat(catalog.getProduct(mug.getId()).getName()).isEqualTo("Stoneware mug");
+        assertThat(catalog.getProductBySku("MUG-STONE").getId()).isEqualTo(mug.getId());
+        assertThatThrownBy(() -> catalog.getProductBySku("MUG-1")).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void rolledBackUpdateKeepsCachedProduct() {
+        catalog.getProduct(mug.getId());
+        long loads = loads();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.findById(mug.getId()).orElseThrow().setName("Never saved");
+            productRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(catalog.getProduct(mug.getId()).getName()).isEqualTo("Plain mug");
+        assertThat(loads()).isEqualTo(loads);
+    }
+
+    @Test
+    void categoryUpdatesAndDeletesReachCachedProducts() {
+        assertThat(catalog.getCategoryBySlug("mugs").getName()).isEqualTo("Mugs");
+        assertThat(catalog.getProduct(mug.getId()).getCategory().getName()).isEqualTo("Mugs");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = categoryRepository.findById(mugs.getId()).orElseThrow();
+            category.setName("Cups");
+        });
+
+        assertThat(catalog.getCategoryBySlug("mugs").getName()).isEqualTo("Cups");
+        assertThat(catalog.getProduct(mug.getId()).getCategory().getName()).isEqualTo("Cups");
+
+        productRepository.deleteById(mug.getId());
+        categoryRepository.deleteById(mugs.getId());
+
+        assertThatThrownBy(() -> catalog.getProduct(mug.getId())).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> catalog.getCategory(mugs.getId())).isInstanceOf(NoSuchElementException.class);
+    }
+
+    private long loads() {
+        return (long) catalogCache.getStatistics().get("products").get("loads");
+    }
+}
@@ -0,0 +1,260 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.dto.category.CategoryTreeNodeDto;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.product.ProductSummaryDto;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.support.StatementCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import({CategoryTreeService.class, StatementCounter.Config.class})
+// the tree is rebuilt from post-commit listeners, which only run for transactions that really commit
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CategoryTreeServiceTest {
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCounter statements;
+
+    private TransactionTemplate transactionTemplate;
+    private Category kitchen;
+    private Category cookware;
+    private Category pans;
+    private Category tableware;
+    private Category mugs;
+    private Category garden;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        kitchen = category("Kitchen", "kitchen", null, 1);
+        garden = category("Garden", "garden", null, 0);
+        cookware = category("Cookware", "cookware", kitchen, 2);
+        tableware = category("Tableware", "tableware", kitchen, 1);
+        pans = category("Pans", "pans", cookware, 0);
+        mugs = category("Mugs", "mugs", tableware, 0);
+        Category archive = category("Archive", "archive", null, 9);
+        archive.setIsActive(false);
+        categoryRepository.save(archive);
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("UPDATE categories SET parent_id = NULL");
+        jdbcTemplate.update("DELETE FROM categories");
+        categoryTreeService.invalidate();
+    }
+
+    @Test
+    void buildsTheTreeFromOneQueryAndReusesIt() {
+        statements.reset();
+        CategoryTree tree = categoryTreeService.getTree();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(categoryTreeService.getTree()).isSameAs(tree);
+        assertThat(statements.count()).isEqualTo(1);
+
+        assertThat(tree.roots()).extracting(CategoryTree.Node::slug).containsExactly("garden", "kitchen", "archive");
+        CategoryTree.Node kitchenNode = tree.find(kitchen.getId()).orElseThrow();
+        assertThat(tree.children(kitchenNode)).extracting(CategoryTree.Node::slug)
+            .containsExactly("tableware", "cookware");
+        assertThat(kitchenNode.descendantCount()).isEqualTo(4);
+        assertThat(tree.subtreeIds(kitchenNode)).containsExactly(
+            kitchen.getId(), tableware.getId(), mugs.getId(), cookware.getId(), pans.getId());
+
+        CategoryTree.Node pansNode = tree.findBySlug("pans").orElseThrow();
+        assertThat(pansNode.depth()).isEqualTo(2);
+        assertThat(pansNode.path()).containsExactly(kitchen.getId(), cookware.getId(), pans.getId());
+        assertThat(tree.isInSubtree(kitchen.getId(), pans.getId())).isTrue();
+        assertThat(tree.isInSubtree(tableware.getId(), pans.getId())).isFalse();
+        assertThat(tree.isInSubtree(garden.getId(), garden.getId())).isTrue();
+    }
+
+    @Test
+    void committedChangesSwapInANewTree() {
+        CategoryTree before = categoryTreeService.getTree();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Category moved = categoryRepository.findById(pans.getId()).orElseThrow();
+            moved.setParent(categoryRepository.getReferenceById(tableware.getId()));
+        });
+        category("Plates", "plates", tableware, 1);
+
+        CategoryTree after = categoryTreeService.getTree();
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.findBySlug("pans").orElseThrow().path())
+            .containsExactly(kitchen.getId(), tableware.getId(), pans.getId());
+        assertThat(after.children(after.find(tableware.getId()).orElseThrow()))
+            .extracting(CategoryTree.Node::slug).containsExactly("mugs", "pans", "plates");
+        // readers still holding the old tree see it unchanged
+        assertThat(before.findBySlug("pans").orElseThrow().path())
+            .containsExactly(kitchen.getId(), cookware.getId(), pans.getId());
+        assertThat(before.findBySlug("plates")).isEmpty();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            categoryRepository.findById(garden.getId()).orElseThrow().setName("Outdoor");
+            categoryRepository.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(categoryTreeService.getTree()).isSameAs(after);
+    }
+
+    @Test
+    void readersKeepTheCurrentTreeWhileAnotherRebuildsIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean slow = new AtomicBoolean();
+        JdbcTemplate slowLoads = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+                if (slow.get()) {
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.query(sql, rowMapper);
+            }
+        };
+        CategoryTreeService trees = new CategoryTreeService(entityManagerFactory, slowLoads);
+        CategoryTree before = trees.getTree();
+
+        slow.set(true);
+        trees.invalidate();
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<CategoryTree> rebuilt = executor.submit(trees::getTree);
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the rebuild is stuck in its query, but this read does not wait for it
+            assertThat(trees.getTree()).isSameAs(before);
+
+            release.countDown();
+            CategoryTree after = rebuilt.get(5, TimeUnit.SECONDS);
+            assertThat(after).isNotSameAs(before);
+            assertThat(trees.getTree()).isSameAs(after);
+        }
+    }
+
+    @Test
+    void navigationLeavesOutInactiveSubtrees() {
+        transactionTemplate.executeWithoutResult(status ->
+            categoryRepository.findById(cookware.getId()).orElseThrow().setIsActive(false));
+
+        List<CategoryTreeNodeDto> navigation = categoryTreeService.getNavigation(null, false);
+        assertThat(navigation).extracting(CategoryTreeNodeDto::getSlug).containsExactly("garden", "kitchen");
+        CategoryTreeNodeDto kitchenDto = navigation.get(1);
+        assertThat(kitchenDto.getChildren()).extracting(CategoryTreeNodeDto::getSlug).containsExactly("tableware");
+        assertThat(kitchenDto.getChildren().get(0).getChildren().get(0).getPath())
+            .containsExactly(kitchen.getId(), tableware.getId(), mugs.getId());
+
+        assertThat(categoryTreeService.getNavigation(cookware.getId(), true))
+            .singleElement().satisfies(node -> assertThat(node.getChildren()).hasSize(1));
+        assertThatThrownBy(() -> categoryTreeService.getNavigation(-1L, false))
+            .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void listsTheProductsOfAWholeSubtree() {
+        Product mug = product("Mug", "SUB-MUG", mugs);
+        Product pan = product("Pan", "SUB-PAN", pans);
+        product("Rake", "SUB-RAKE", garden);
+        ProductCatalogService catalog = new ProductCatalogService(entityManager, new EntityDtoMapper(),
+            productRepository, categoryRepository, new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry()),
+            categoryTreeService, Duration.ofSeconds(60));
+
+        PagedResponse<ProductSummaryDto> subtree = catalog.listProducts(kitchen.getId(), true, true, null,
+            ProductSort.NAME, null, 10, ProductCatalogService.CountMode.EXACT);
+        assertThat(subtree.getContent()).extracting(ProductSummaryDto::getId).containsExactly(mug.getId(), pan.getId());
+        assertThat(subtree.getTotalElements()).isEqualTo(2);
+
+        assertThat(catalog.listProducts(kitchen.getId(), false, true, null, ProductSort.NAME, null, 10,
+            ProductCatalogService.CountMode.NONE).getContent()).isEmpty();
+        assertThatThrownBy(() -> catalog.listProducts(-1L, true, true, null, ProductSort.NAME, null, 10,
+            ProductCatalogService.CountMode.NONE)).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void leavesOutCategoriesWhoseParentsLoop() {
+        CategoryTree tree = CategoryTree.build(List.of(
+            new CategoryTree.Row(1, null, "Root", "root", null, 0, true),
+            new CategoryTree.Row(2, 3L, "Loop A", "loop-a", null, 0, true),
+            new CategoryTree.Row(3, 2L, "Loop B", "loop-b", null, 0, true),
+            new CategoryTree.Row(4, 1L, "Child", "child", null, 0, true)));
+
+        assertThat(tree.size()).isEqualTo(2);
+        assertThat(tree.find(2)).isEmpty();
+        assertThat(tree.find(4).orElseThrow().path()).containsExactly(1L, 4L);
+    }
+
+    private Category category(String name, String slug, Category parent, int sortOrder) {
+        Category category = new Category(name, slug, parent);
+        category.setSortOrder(sortOrder);
+        return categoryRepository.save(category);
+    }
+
+    private Product product(String name, String sku, Category category) {
+        Product product = new Product(name, sku, new BigDecimal("5.00"), 10);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+}
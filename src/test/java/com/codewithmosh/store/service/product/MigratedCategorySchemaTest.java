@@ -0,0 +1,114 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.dto.category.CategoryResponseDto;
+import com.codewithmosh.store.dto.category.CategoryTreeNodeDto;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Category reads against the categories table as the migrations build it, not as Hibernate would.
+ *
+ * Flyway itself cannot run here: V6 and V7 use multi-clause ALTER TABLE statements that only MySQL
+ * accepts. V1 and V12 are the only migrations that shape categories, so they are applied as scripts.
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.jpa.show-sql=false",
+    "spring.datasource.url=jdbc:h2:mem:migrated-categories;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Sql(scripts = {
+    "classpath:db/migration/V1__Create_initial_schema.sql",
+    "classpath:db/migration/V12__align_categories_with_entity.sql"
+})
+@Sql(statements = "DROP ALL OBJECTS", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class MigratedCategorySchemaTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductCatalogService catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalogService(entityManager, new EntityDtoMapper(), productRepository,
+            categoryRepository, new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry()),
+            null, Duration.ofSeconds(60));
+    }
+
+    @Test
+    void seedCategoriesGetSlugsAndCanHaveParents() {
+        assertThat(jdbcTemplate.queryForList("SELECT slug FROM categories ORDER BY id", String.class))
+            .containsExactly("electronics", "clothing", "books", "home-garden");
+
+        Long home = categoryRepository.findIdBySlug("home-garden").orElseThrow();
+        jdbcTemplate.update("INSERT INTO categories (id, name, slug, parent_id, sort_order) VALUES (10, 'Tools', 'tools', ?, 2)",
+            home);
+
+        CategoryResponseDto tools = catalog.getCategoryBySlug("tools");
+        assertThat(tools.getSortOrder()).isEqualTo(2);
+        assertThat(tools.getParent().getSlug()).isEqualTo("home-garden");
+        assertThat(catalog.getCategory(home).getName()).isEqualTo("Home & Garden");
+
+        assertThatThrownBy(() -> jdbcTemplate.update(
+            "INSERT INTO categories (id, name, slug) VALUES (11, 'Tools again', 'tools')"))
+            .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> jdbcTemplate.update(
+            "INSERT INTO categories (id, name, slug, parent_id) VALUES (12, 'Orphan', 'orphan', 999)"))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void buildsTheCategoryTreeFromTheMigratedTable() {
+        Long home = categoryRepository.findIdBySlug("home-garden").orElseThrow();
+        jdbcTemplate.update("INSERT INTO categories (id, name, slug, parent_id, sort_order, image_url) "
+            + "VALUES (10, 'Tools', 'tools', ?, 2, '/img/tools.png')", home);
+        jdbcTemplate.update("INSERT INTO categories (id, name, slug, parent_id, sort_order) "
+            + "VALUES (11, 'Plants', 'plants', ?, 1)", home);
+
+        CategoryTreeService trees = new CategoryTreeService(entityManagerFactory, jdbcTemplate);
+        List<CategoryTreeNodeDto> navigation = trees.getNavigation(null, false);
+
+        assertThat(navigation).extracting(CategoryTreeNodeDto::getSlug)
+            .containsExactly("books", "clothing", "electronics", "home-garden");
+        CategoryTreeNodeDto homeDto = navigation.get(3);
+        assertThat(homeDto.getChildren()).extracting(CategoryTreeNodeDto::getSlug).containsExactly("plants", "tools");
+        assertThat(homeDto.getChildren().get(1).getImageUrl()).isEqualTo("/img/tools.png");
+        assertThat(trees.getSubtreeIds(home)).containsExactlyInAnyOrder(home, 10L, 11L);
+    }
+}
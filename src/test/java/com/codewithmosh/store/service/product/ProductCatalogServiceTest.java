@@ -0,0 +1,167 @@
+package com.codewithmosh.store.service.product;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.dto.common.PagedResponse;
+import com.codewithmosh.store.dto.product.ProductSummaryDto;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.support.MutableClock;
+import com.codewithmosh.store.support.StatementCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import(StatementCounter.Config.class)
+class ProductCatalogServiceTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StatementCounter statements;
+
+    private final MutableClock clock = new MutableClock("2026-07-01T12:00:00Z");
+    private ProductCatalogService catalog;
+    private Category mugs;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalogService(entityManager, new EntityDtoMapper(), productRepository, categoryRepository,
+            new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry()),
+            new CategoryTreeService(entityManagerFactory, new JdbcTemplate(dataSource)), Duration.ofSeconds(60), clock);
+
+        mugs = new Category("Mugs", "mugs");
+        Category plates = new Category("Plates", "plates");
+        entityManager.persist(mugs);
+        entityManager.persist(plates);
+        products = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // repeated prices, so pages have to break ties on id
+            Product product = new Product("Item " + (char) ('A' + i % 7) + i, "CAT-" + i,
+                new BigDecimal(5 + i % 4), 10);
+            product.setCategory(i % 3 == 0 ? plates : mugs);
+            product.setIsFeatured(i % 5 == 0);
+            product.setIsActive(i != 22);
+            products.add(product);
+        }
+        productRepository.saveAllAndFlush(products);
+        entityManager.clear();
+    }
+
+    @Test
+    void followingCursorsVisitsEveryProductOnceInSortOrder() {
+        List<Product> active = products.stream().filter(Product::getIsActive).toList();
+        Comparator<Product> byId = Comparator.comparing(Product::getId);
+
+        assertThat(pageThrough(null, null, ProductSort.PRICE_ASC, 4)).containsExactlyElementsOf(ids(active.stream()
+            .sorted(Comparator.comparing(Product::getPrice).thenComparing(byId)).toList()));
+        assertThat(pageThrough(null, null, ProductSort.PRICE_DESC, 5)).containsExactlyElementsOf(ids(active.stream()
+            .sorted(Comparator.comparing(Product::getPrice).thenComparing(byId).reversed()).toList()));
+        assertThat(pageThrough(null, null, ProductSort.NAME, 6)).containsExactlyElementsOf(ids(active.stream()
+            .sorted(Comparator.comparing(Product::getName).thenComparing(byId)).toList()));
+        assertThat(pageThrough(mugs.getId(), true, ProductSort.NEWEST, 1)).containsExactlyElementsOf(ids(active.stream()
+            .filter(p -> p.getCategory() == mugs && p.getIsFeatured())
+            .sorted(Comparator.comparing(Product::getCreatedAt).thenComparing(byId).reversed()).toList()));
+    }
+
+    @Test
+    void deepPagesRunOneQueryAndEstimatedTotalsAreCountedOncePerTtl() {
+        statements.reset();
+        PagedResponse<ProductSummaryDto> first = catalog.listProducts(null, false, true, null, ProductSort.NAME, null, 5,
+            ProductCatalogService.CountMode.ESTIMATED);
+        assertThat(statements.count()).isEqualTo(2);
+        assertThat(first.getTotalElements()).isEqualTo(22);
+        assertThat(first.getTotalPages()).isEqualTo(5);
+        assertThat(first.isCountEstimated()).isFalse();
+
+        statements.reset();
+        PagedResponse<ProductSummaryDto> second = catalog.listProducts(null, false, true, null, ProductSort.NAME,
+            first.getNextCursor(), 5, ProductCatalogService.CountMode.ESTIMATED);
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(second.getTotalElements()).isEqualTo(22);
+        assertThat(second.isCountEstimated()).isTrue();
+
+        clock.advance(Duration.ofSeconds(61));
+        statements.reset();
+        catalog.listProducts(null, false, true, null, ProductSort.NAME, second.getNextCursor(), 5,
+            ProductCatalogService.CountMode.ESTIMATED);
+        assertThat(statements.count()).isEqualTo(2);
+
+        statements.reset();
+        PagedResponse<ProductSummaryDto> uncounted = catalog.listProducts(null, false, false, null, ProductSort.NAME, null, 5,
+            ProductCatalogService.CountMode.NONE);
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(uncounted.getTotalElements()).isEqualTo(-1);
+        assertThat(uncounted.getContent()).extracting(ProductSummaryDto::getSku).containsExactly("CAT-22");
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherSortAndGarbage() {
+        String cursor = catalog.listProducts(null, false, true, null, ProductSort.PRICE_ASC, null, 3,
+            ProductCatalogService.CountMode.NONE).getNextCursor();
+
+        assertThatThrownBy(() -> catalog.listProducts(null, false, true, null, ProductSort.NAME, cursor, 3,
+            ProductCatalogService.CountMode.NONE))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("price_asc");
+        assertThatThrownBy(() -> catalog.listProducts(null, false, true, null, ProductSort.NAME, "not-a-cursor", 3,
+            ProductCatalogService.CountMode.NONE))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Invalid cursor");
+        assertThatThrownBy(() -> ProductSort.from("cheapest")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Long> pageThrough(Long categoryId, Boolean featured, ProductSort sort, int size) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PagedResponse<ProductSummaryDto> page = catalog.listProducts(categoryId, false, true, featured, sort, cursor, size,
+                ProductCatalogService.CountMode.NONE);
+            assertThat(page.getContent()).hasSizeLessThanOrEqualTo(size);
+            page.getContent().forEach(product -> ids.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
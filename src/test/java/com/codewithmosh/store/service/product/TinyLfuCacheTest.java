@@ -0,0 +1,121 @@
+package com.codewithmosh.store.service.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void scanOfOneOffKeysDoesNotEvictFrequentlyReadOnes() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, 1, (key, value) -> 1);
+        List<Integer> hot = IntStream.range(0, 50).boxed().toList();
+        for (int round = 0; round < 4; round++) {
+            hot.forEach(key -> cache.get(key, String::valueOf));
+        }
+
+        // a crawler reading 20x the cache size once each, while shoppers keep reading the popular keys
+        for (int key = 1000; key < 3000; key++) {
+            cache.get(key, String::valueOf);
+            cache.get(hot.get(key % hot.size()), String::valueOf);
+        }
+
+        assertThat(hot).allSatisfy(key -> assertThat(cache.getIfPresent(key)).isEqualTo(String.valueOf(key)));
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.evictions()).isGreaterThan(0);
+    }
+
+    @Test
+    void staysWithinItsWeight() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(1000, 20, (key, value) -> value.length());
+        for (int key = 0; key < 500; key++) {
+            cache.put(key, "x".repeat(1 + key % 60));
+            assertThat(cache.weight()).isLessThanOrEqualTo(1000);
+        }
+
+        cache.put(-1, "x".repeat(1000));
+        assertThat(cache.getIfPresent(-1)).isNull();
+        assertThat(cache.weight()).isLessThanOrEqualTo(1000);
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 1, (key, value) -> 1);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("HOT-1", key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return "loaded " + key;
+                })));
+            }
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            // let the other callers pile up behind the running load
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("loaded HOT-1");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.loads()).isEqualTo(1);
+        assertThat(cache.getIfPresent("HOT-1")).isEqualTo("loaded HOT-1");
+    }
+
+    @Test
+    void loadInvalidatedWhileRunningIsNotCached() throws Exception {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 1, (key, value) -> 1);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = executor.submit(() -> cache.get("SKU-1", key -> {
+                loading.countDown();
+                await(release);
+                return "before the update";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            cache.invalidate("SKU-1");
+            release.countDown();
+
+            // the caller still gets what it loaded, but the next one reads again
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("before the update");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.getIfPresent("SKU-1")).isNull();
+        assertThat(cache.get("SKU-1", key -> "after the update")).isEqualTo("after the update");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
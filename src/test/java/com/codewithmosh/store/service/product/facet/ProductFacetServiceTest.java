@@ -0,0 +1,203 @@
+package com.codewithmosh.store.service.product.facet;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.config.CatalogFacetConfig;
+import com.codewithmosh.store.dto.product.ProductFacetResultDto;
+import com.codewithmosh.store.dto.product.ProductFacetResultDto.FacetValue;
+import com.codewithmosh.store.dto.product.ProductResponseDto;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.CategoryTreeService;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "catalog.facets.fetch-size=2"
+})
+@Import({ProductFacetService.class, ProductFacetIndexer.class, CatalogFacetConfig.class, ProductCatalogService.class,
+    CategoryTreeService.class, EntityDtoMapper.class, ProductFacetServiceTest.Config.class})
+// post-commit listeners only run for transactions that really commit
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductFacetServiceTest {
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        CatalogCache catalogCache() {
+            return new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private ProductFacetService facets;
+
+    @Autowired
+    private ProductFacetIndexer indexer;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Category kitchen;
+    private Category mugs;
+    private Category garden;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        kitchen = categoryRepository.save(new Category("Kitchen", "kitchen"));
+        mugs = categoryRepository.save(new Category("Mugs", "mugs", kitchen));
+        garden = categoryRepository.save(new Category("Garden", "garden"));
+    }
+
+    @AfterEach
+    void clean() {
+        productRepository.deleteAll();
+        // the subcategory before its parent
+        categoryRepository.deleteById(mugs.getId());
+        categoryRepository.deleteAll();
+        categoryTreeService.invalidate();
+        catalogCache.invalidateAll();
+    }
+
+    @Test
+    void filtersAndCountsTheScannedCatalog() {
+        // written behind the listeners' back, so only the scan can find them
+        insert(2_001, "PAN-1", kitchen, "30.00", 5, true, "1.20");
+        insert(2_002, "MUG-1", mugs, "8.00", 0, false, "0.30");
+        insert(2_003, "MUG-2", mugs, "12.00", 4, false, null);
+        insert(2_004, "HSE-1", garden, "45.00", 9, false, "3.00");
+        insert(2_005, "MUG-3", mugs, "9.00", 2, false, "0.30");
+        jdbcTemplate.update("UPDATE products SET is_active = FALSE WHERE id = 2005");
+        categoryTreeService.invalidate();
+
+        indexer.build();
+
+        ProductFacetResultDto all = facets.filter(null, null, null, null, null, 0, 20);
+        assertThat(all.isIndexComplete()).isTrue();
+        assertThat(skus(all)).containsExactly("PAN-1", "MUG-1", "MUG-2", "HSE-1");
+        assertThat(counts(all, "category")).containsExactly(Map.entry("Garden", 1), Map.entry("Kitchen", 3));
+        assertThat(counts(all, "price")).containsEntry("0-10", 1).containsEntry("10-25", 1)
+            .containsEntry("25-50", 2).containsEntry("250+", 0);
+        assertThat(counts(all, "weight")).containsEntry("0-0.5", 1).containsEntry("unknown", 1);
+
+        ProductFacetResultDto kitchenInStock = facets.filter(kitchen.getId(), null, true, null, null, 0, 20);
+        assertThat(skus(kitchenInStock)).containsExactly("PAN-1", "MUG-2");
+        // the subcategory counts its products, and in-stock counts ignore the in-stock filter
+        assertThat(counts(kitchenInStock, "category")).containsExactly(Map.entry("Mugs", 1));
+        assertThat(counts(kitchenInStock, "inStock")).containsEntry("In stock", 2).containsEntry("Out of stock", 1);
+
+        ProductFacetResultDto cheap = facets.filter(null, List.of("0-10", "10-25"), null, null, null, 0, 20);
+        assertThat(skus(cheap)).containsExactly("MUG-1", "MUG-2");
+        assertThat(counts(cheap, "price")).containsEntry("25-50", 2);
+        assertThat(counts(cheap, "category")).containsExactly(Map.entry("Garden", 0), Map.entry("Kitchen", 2));
+
+        ProductFacetResultDto secondPage = facets.filter(null, null, null, null, null, 1, 3);
+        assertThat(skus(secondPage)).containsExactly("HSE-1");
+        assertThat(secondPage.getProducts().getTotalElements()).isEqualTo(4);
+        assertThat(secondPage.getProducts().isLast()).isTrue();
+    }
+
+    @Test
+    void committedChangesAndStockUpdatesMoveProductsBetweenFacets() {
+        Product product = new Product("Watering can", "CAN-1", new BigDecimal("20.00"), 3);
+        product.setCategory(garden);
+        product.setWeight(new BigDecimal("0.80"));
+        Long id = productRepository.save(product).getId();
+
+        assertThat(skus(facets.filter(garden.getId(), List.of("10-25"), true, false, List.of("0.5-2"), 0, 20)))
+            .containsExactly("CAN-1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product saved = productRepository.findById(id).orElseThrow();
+            saved.setPrice(new BigDecimal("60.00"));
+            saved.setIsFeatured(true);
+        });
+        assertThat(skus(facets.filter(null, List.of("50-100"), null, true, null, 0, 20))).containsExactly("CAN-1");
+        assertThat(skus(facets.filter(null, List.of("10-25"), null, null, null, 0, 20))).isEmpty();
+
+        // as a checkout does: SQL, then the hook once it has committed
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 0 WHERE id = ?", id);
+        indexer.refreshStock(List.of(id));
+        assertThat(skus(facets.filter(null, null, false, null, null, 0, 20))).containsExactly("CAN-1");
+
+        transactionTemplate.executeWithoutResult(status ->
+            productRepository.findById(id).orElseThrow().setIsActive(false));
+        assertThat(facets.filter(null, null, null, null, null, 0, 20).getProducts().getTotalElements()).isZero();
+    }
+
+    @Test
+    void rejectsUnknownValuesAndCategories() {
+        assertThatThrownBy(() -> facets.filter(null, List.of("5-15"), null, null, null, 0, 20))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> facets.filter(null, null, null, null, List.of("heavy"), 0, 20))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> facets.filter(null, null, null, null, null, 0, ProductFacetService.MAX_PAGE_SIZE + 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> facets.filter(Long.MAX_VALUE, null, null, null, null, 0, 20))
+            .isInstanceOf(NoSuchElementException.class);
+    }
+
+    private void insert(long id, String sku, Category category, String price, int stock, boolean featured,
+                        String weight) {
+        jdbcTemplate.update("INSERT INTO products (id, name, sku, price, stock_quantity, category_id, is_active, "
+                + "is_featured, weight) VALUES (?, ?, ?, ?, ?, ?, TRUE, ?, ?)",
+            id, sku, sku, new BigDecimal(price), stock, category.getId(), featured,
+            weight == null ? null : new BigDecimal(weight));
+    }
+
+    private static List<String> skus(ProductFacetResultDto result) {
+        return result.getProducts().getContent().stream().map(ProductResponseDto::getSku).toList();
+    }
+
+    private static Map<String, Integer> counts(ProductFacetResultDto result, String facet) {
+        return result.getFacets().get(facet).stream()
+            .collect(Collectors.toMap(FacetValue::label, FacetValue::count, (a, b) -> a, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,94 @@
+package com.codewithmosh.store.service.product.facet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoaringBitmapTest {
+
+    @Test
+    void agreesWithBitSetAcrossSparseAndDenseChunks() {
+        Random random = new Random(42);
+        RoaringBitmap a = new RoaringBitmap();
+        RoaringBitmap b = new RoaringBitmap();
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        // chunk 0 dense in both, chunk 1 dense in a only, chunk 3 sparse, chunk 5 in b only
+        fill(random, a, expectedA, 0, 30_000);
+        fill(random, b, expectedB, 0, 20_000);
+        fill(random, a, expectedA, 1 << 16, 10_000);
+        fill(random, b, expectedB, 1 << 16, 300);
+        fill(random, a, expectedA, 3 << 16, 200);
+        fill(random, b, expectedB, 3 << 16, 200);
+        fill(random, b, expectedB, 5 << 16, 5_000);
+
+        assertSame(a, expectedA);
+        assertSame(b, expectedB);
+
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        assertSame(RoaringBitmap.and(a, b), and);
+        assertThat(RoaringBitmap.andCardinality(a, b)).isEqualTo(and.cardinality());
+
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        assertSame(RoaringBitmap.or(a, b), or);
+        // the operands are untouched
+        assertSame(a, expectedA);
+    }
+
+    @Test
+    void removingDownToTheThresholdKeepsTheValues() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < RoaringBitmap.ARRAY_MAX + 100; i++) {
+            bitmap.add(i * 3);
+            expected.set(i * 3);
+        }
+        for (int i = 0; i < 200; i++) {
+            bitmap.remove(i * 3);
+            expected.clear(i * 3);
+        }
+        assertSame(bitmap, expected);
+
+        for (int i = 0; i < RoaringBitmap.ARRAY_MAX + 100; i++) {
+            bitmap.remove(i * 3);
+        }
+        assertThat(bitmap.isEmpty()).isTrue();
+        assertThat(bitmap.contains(300)).isFalse();
+    }
+
+    @Test
+    void slicesPagesAcrossChunks() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i * 20);
+        }
+        int[] all = bitmap.toArray();
+
+        assertThat(bitmap.slice(0, 5)).containsExactly(0, 20, 40, 60, 80);
+        assertThat(bitmap.slice(6_000, 3)).containsExactly(Arrays.copyOfRange(all, 6_000, 6_003));
+        assertThat(bitmap.slice(9_998, 10)).containsExactly(all[9_998], all[9_999]);
+        assertThat(bitmap.slice(10_000, 10)).isEmpty();
+    }
+
+    private static void fill(Random random, RoaringBitmap bitmap, BitSet expected, int base, int count) {
+        for (int i = 0; i < count; i++) {
+            int value = base + random.nextInt(1 << 16);
+            bitmap.add(value);
+            expected.set(value);
+        }
+    }
+
+    private static void assertSame(RoaringBitmap bitmap, BitSet expected) {
+        assertThat(bitmap.cardinality()).isEqualTo(expected.cardinality());
+        assertThat(bitmap.toArray()).containsExactly(expected.stream().toArray());
+        for (int value : new int[] {0, 1, 65_535, 65_536, 200_000, 400_000}) {
+            assertThat(bitmap.contains(value)).isEqualTo(expected.get(value));
+        }
+    }
+}
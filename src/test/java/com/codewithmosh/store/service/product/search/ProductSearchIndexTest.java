@@ -0,0 +1,120 @@
+package com.codewithmosh.store.service.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatchesAndNeedsEveryTerm() {
+        index.put(document(1, "Stoneware mug", "MUG-1", "Holds 350 ml of coffee", "Kitchen"));
+        index.put(document(2, "Coffee grinder", "GRD-1", "Burr grinder for espresso and filter", "Kitchen"));
+        index.put(document(3, "Travel mug", "MUG-2", "Keeps coffee hot for hours", "Outdoor"));
+        index.put(document(4, "Garden hose", "HSE-1", "Twenty metres", "Garden"));
+
+        assertThat(ids(index.search("coffee", false, 10))).containsExactly(2L, 1L, 3L);
+        assertThat(ids(index.search("coffee mug", false, 10))).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(index.search("mug kitchen", false, 10))).containsExactly(1L);
+        assertThat(ids(index.search("mug garden", false, 10))).isEmpty();
+        assertThat(index.search("coffee", false, 2).totalMatches()).isEqualTo(3);
+        assertThat(ids(index.search("coffee", false, 2))).hasSize(2);
+    }
+
+    @Test
+    void matchesTheLastTermAsAPrefixOnlyWhenAskedTo() {
+        index.put(document(1, "Espresso cup", "CUP-1", null, null));
+        index.put(document(2, "Espresso machine", "MCH-1", null, null));
+        index.put(document(3, "Cupboard", "CBD-1", null, null));
+
+        assertThat(ids(index.search("espresso cu", true, 10))).containsExactly(1L);
+        assertThat(ids(index.search("espresso cu", false, 10))).isEmpty();
+        // the whole word beats a completion of it
+        assertThat(ids(index.search("cup", true, 10))).containsExactly(1L, 3L);
+        // one letter is too short to expand
+        assertThat(ids(index.search("c", true, 10))).isEmpty();
+    }
+
+    @Test
+    void foldsCaseAccentsAndPunctuation() {
+        index.put(document(1, "Crème Brûlée dish", "DSH-12", null, "Bakeware"));
+
+        assertThat(ids(index.search("creme brulee", false, 10))).containsExactly(1L);
+        assertThat(ids(index.search("dsh-12", false, 10))).containsExactly(1L);
+        assertThat(ids(index.search("BAKEWARE", false, 10))).containsExactly(1L);
+    }
+
+    @Test
+    void updatesAndRemovalsSurviveCompaction() {
+        // enough rewrites to compact several times
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 1000; id++) {
+                index.put(document(id, "Widget " + (round % 2 == 0 ? "red" : "blue"), "W-" + id, null, null));
+            }
+        }
+        for (long id = 1; id <= 1000; id += 2) {
+            index.remove(id);
+        }
+
+        assertThat(index.size()).isEqualTo(500);
+        assertThat(index.search("red", false, 10).totalMatches()).isEqualTo(500);
+        assertThat(index.search("blue", false, 10).totalMatches()).isZero();
+        assertThat(ids(index.search("w 2", false, 10))).containsExactly(2L);
+        assertThat(ids(index.search("w 1", false, 10))).isEmpty();
+        // equal scores come back in id order
+        assertThat(ids(index.search("widget", false, 3))).containsExactly(2L, 4L, 6L);
+    }
+
+    @Test
+    void scanDoesNotOverwriteChangesMadeWhileItRuns() {
+        index.startBuild();
+        index.put(document(1, "Renamed lamp", "LMP-1", null, null));
+        index.remove(2);
+        index.putScanned(List.of(
+            document(1, "Old lamp", "LMP-1", null, null),
+            document(2, "Deleted lamp", "LMP-2", null, null),
+            document(3, "Desk lamp", "LMP-3", null, null)));
+        index.finishBuild();
+
+        assertThat(ids(index.search("lamp", false, 10))).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(index.search("old", false, 10))).isEmpty();
+    }
+
+    @Test
+    void categoryReindexSkipsProductsChangedSinceTheRead() {
+        index.put(document(1, "Chef knife", "KNF-1", null, "Kitchen"));
+        index.put(document(2, "Bread knife", "KNF-2", null, "Kitchen"));
+        index.put(document(3, "Paring knife", "KNF-3", null, "Kitchen"));
+        Map<Long, Long> read = index.revisionsInCategory(100L);
+
+        // saved and removed while the category's products were being re-read
+        index.put(document(1, "Santoku knife", "KNF-1", null, "Kitchen"));
+        index.remove(3);
+        // and enough churn elsewhere to compact, which renumbers what is left
+        for (int i = 0; i < 3000; i++) {
+            index.put(new ProductSearchIndex.Document(10 + i % 2, "Spoon", "SPN", null, 200L, "Cutlery"));
+        }
+
+        assertThat(index.putIfUnchanged(document(1, "Chef knife", "KNF-1", null, "Knives"), read.get(1L))).isFalse();
+        assertThat(index.putIfUnchanged(document(2, "Bread knife", "KNF-2", null, "Knives"), read.get(2L))).isTrue();
+        assertThat(index.putIfUnchanged(document(3, "Paring knife", "KNF-3", null, "Knives"), read.get(3L))).isFalse();
+
+        assertThat(ids(index.search("santoku kitchen", false, 10))).containsExactly(1L);
+        assertThat(ids(index.search("knives", false, 10))).containsExactly(2L);
+        assertThat(ids(index.search("paring", false, 10))).isEmpty();
+    }
+
+    private static ProductSearchIndex.Document document(long id, String name, String sku, String description,
+                                                        String category) {
+        return new ProductSearchIndex.Document(id, name, sku, description, category == null ? null : 100L, category);
+    }
+
+    private static List<Long> ids(ProductSearchIndex.Result result) {
+        return result.hits().stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+}
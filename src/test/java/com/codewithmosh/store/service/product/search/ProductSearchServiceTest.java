@@ -0,0 +1,169 @@
+package com.codewithmosh.store.service.product.search;
+
+import com.codewithmosh.store.config.CatalogCacheConfig;
+import com.codewithmosh.store.dto.product.ProductSearchResultDto;
+import com.codewithmosh.store.entity.product.Category;
+import com.codewithmosh.store.entity.product.Product;
+import com.codewithmosh.store.mapper.EntityDtoMapper;
+import com.codewithmosh.store.repository.CategoryRepository;
+import com.codewithmosh.store.repository.ProductRepository;
+import com.codewithmosh.store.service.product.CatalogCache;
+import com.codewithmosh.store.service.product.CategoryTreeService;
+import com.codewithmosh.store.service.product.ProductCatalogService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "catalog.search.fetch-size=2"
+})
+@Import({ProductSearchService.class, ProductCatalogService.class, CategoryTreeService.class, EntityDtoMapper.class,
+    ProductSearchServiceTest.Config.class})
+// post-commit listeners only run for transactions that really commit
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSearchServiceTest {
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        CatalogCache catalogCache() {
+            return new CatalogCache(new CatalogCacheConfig(), new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private ProductSearchService search;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Category kitchen;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        kitchen = categoryRepository.save(new Category("Kitchen", "kitchen"));
+    }
+
+    @AfterEach
+    void clean() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        categoryTreeService.invalidate();
+        catalogCache.invalidateAll();
+    }
+
+    @Test
+    void buildIndexesActiveProductsWithTheirCategory() {
+        // written behind the listeners' back, so only the scan can find them
+        insert(1_001, "Stoneware mug", "MUG-1", true);
+        insert(1_002, "Enamel mug", "MUG-2", true);
+        insert(1_003, "Travel mug", "MUG-3", true);
+        insert(1_004, "Retired mug", "MUG-4", false);
+        categoryTreeService.invalidate();
+
+        search.build();
+
+        ProductSearchResultDto result = search.search("kitchen mug", 10);
+        assertThat(result.isIndexComplete()).isTrue();
+        assertThat(result.getTotalMatches()).isEqualTo(3);
+        assertThat(result.getHits()).extracting(hit -> hit.product().getSku())
+            .containsExactlyInAnyOrder("MUG-1", "MUG-2", "MUG-3");
+        assertThat(search.search("retired", 10).getTotalMatches()).isZero();
+    }
+
+    @Test
+    void committedChangesAreSearchableStraightAway() {
+        Product product = new Product("Pour-over kettle", "KTL-1", new BigDecimal("30.00"), 5);
+        product.setCategory(kitchen);
+        Long id = productRepository.save(product).getId();
+
+        assertThat(skus(search.search("kettle kitchen", 10))).containsExactly("KTL-1");
+        assertThat(skus(search.search("pour ket", 10))).containsExactly("KTL-1");
+
+        transactionTemplate.executeWithoutResult(status ->
+            productRepository.findById(id).orElseThrow().setName("Gooseneck kettle"));
+
+        assertThat(skus(search.search("gooseneck", 10))).containsExactly("KTL-1");
+        assertThat(search.search("pour", 10).getTotalMatches()).isZero();
+        // the category was not loaded by that session; its name still comes through
+        assertThat(skus(search.search("gooseneck kitchen", 10))).containsExactly("KTL-1");
+
+        transactionTemplate.executeWithoutResult(status ->
+            productRepository.findById(id).orElseThrow().setIsActive(false));
+        assertThat(search.search("kettle", 10).getTotalMatches()).isZero();
+
+        transactionTemplate.executeWithoutResult(status ->
+            productRepository.findById(id).orElseThrow().setIsActive(true));
+        assertThat(search.search("kettle", 10).getTotalMatches()).isEqualTo(1);
+
+        productRepository.deleteById(id);
+        assertThat(search.search("kettle", 10).getTotalMatches()).isZero();
+    }
+
+    @Test
+    void renamedCategoryIsReindexed() {
+        Product product = new Product("Chef knife", "KNF-1", new BigDecimal("45.00"), 3);
+        product.setCategory(kitchen);
+        productRepository.save(product);
+
+        search.reindexCategory(kitchen.getId(), "Cutlery");
+
+        assertThat(skus(search.search("knife cutlery", 10))).containsExactly("KNF-1");
+        assertThat(search.search("knife kitchen", 10).getTotalMatches()).isZero();
+    }
+
+    @Test
+    void rejectsEmptyQueriesAndBadLimits() {
+        assertThatThrownBy(() -> search.search(" -- ", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> search.search("mug", 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> search.search("mug", ProductSearchService.MAX_RESULTS + 1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void insert(long id, String name, String sku, boolean active) {
+        jdbcTemplate.update("INSERT INTO products (id, name, sku, price, stock_quantity, category_id, is_active, "
+            + "is_featured) VALUES (?, ?, ?, 10.00, 1, ?, ?, FALSE)", id, name, sku, kitchen.getId(), active);
+    }
+
+    private static List<String> skus(ProductSearchResultDto result) {
+        return result.getHits().stream().map(hit -> hit.product().getSku()).toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.codewithmosh.store.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the statements sent to the database, whether they come from Hibernate or a JdbcTemplate.
+ *
+ * Every execute* call is one round trip, so a JDBC batch counts once however many rows it carries.
+ * Import {@link Config} into a test to wrap its DataSource, then autowire the counter.
+ */
+public class StatementCounter implements BeanPostProcessor {
+
+    private final AtomicLong executed = new AtomicLong();
+
+    public long count() {
+        return executed.get();
+    }
+
+    public void reset() {
+        executed.set(0);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource ? proxy(DataSource.class, dataSource) : bean;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (method.getName().startsWith("execute") && target instanceof Statement) {
+                    executed.incrementAndGet();
+                }
+                if (result instanceof Connection connection && !(target instanceof Connection)) {
+                    return proxy(Connection.class, connection);
+                }
+                if (result instanceof CallableStatement statement) {
+                    return proxy(CallableStatement.class, statement);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return proxy(PreparedStatement.class, statement);
+                }
+                if (result instanceof Statement statement && !(target instanceof Statement)) {
+                    return proxy(Statement.class, statement);
+                }
+                return result;
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        // static: post-processors are created before the DataSource they wrap
+        @Bean
+        public static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+}